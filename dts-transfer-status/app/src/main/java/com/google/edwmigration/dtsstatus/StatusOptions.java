@@ -16,6 +16,13 @@
  */
 package com.google.edwmigration.dtsstatus;
 
+import com.google.edwmigration.dtsstatus.exception.InvalidArgumentException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
@@ -37,6 +44,10 @@ public class StatusOptions {
       parser.accepts("config-id").withRequiredArg().ofType(String.class);
   private static final OptionSpec<String> optionDatabase =
       parser.accepts("database").withRequiredArg().ofType(String.class);
+  private static final OptionSpec<String> optionSince =
+      parser.accepts("since").withRequiredArg().ofType(String.class);
+  private static final OptionSpec<String> optionTables =
+      parser.accepts("tables").withRequiredArg().ofType(String.class).withValuesSeparatedBy(',');
 
   private final OptionSet options;
 
@@ -87,4 +98,34 @@ public class StatusOptions {
   public String getDatabase() {
     return options.valueOf(optionDatabase);
   }
+
+  /**
+   * Returns the tables to list the statuses of, each given as DATABASE.TABLE, or an empty list if
+   * the statuses of all tables are listed.
+   */
+  public List<String> getTables() {
+    return options.valuesOf(optionTables);
+  }
+
+  /**
+   * Returns the time from which statuses are listed, given either as an ISO-8601 instant such as
+   * 2025-01-31T12:00:00Z or as a date such as 2025-01-31, which is taken as midnight UTC.
+   */
+  public Optional<Instant> getSince() {
+    if (!options.has(optionSince)) {
+      return Optional.empty();
+    }
+    String since = options.valueOf(optionSince);
+    try {
+      return Optional.of(Instant.parse(since));
+    } catch (DateTimeParseException e) {
+      // Not an instant, try a date.
+    }
+    try {
+      return Optional.of(LocalDate.parse(since).atStartOfDay(ZoneOffset.UTC).toInstant());
+    } catch (DateTimeParseException e) {
+      throw new InvalidArgumentException(
+          "Since must be an ISO-8601 instant or date, got '" + since + "'");
+    }
+  }
 }
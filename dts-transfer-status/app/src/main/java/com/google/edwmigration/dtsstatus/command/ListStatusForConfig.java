@@ -20,17 +20,38 @@ import static com.google.edwmigration.dtsstatus.util.MessageHandler.consumeLates
 
 import com.google.cloud.bigquery.datatransfer.v1.DataTransferServiceClient;
 import com.google.cloud.bigquery.datatransfer.v1.TransferConfigName;
+import com.google.cloud.bigquery.datatransfer.v1.TransferMessage;
+import com.google.cloud.bigquery.datatransfer.v1.TransferRun;
 import com.google.common.base.Strings;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.edwmigration.dtsstatus.StatusOptions;
 import com.google.edwmigration.dtsstatus.consumer.TransferStatusConsumer;
 import com.google.edwmigration.dtsstatus.exception.GcpClientException;
 import com.google.edwmigration.dtsstatus.exception.InvalidArgumentException;
 import com.google.edwmigration.dtsstatus.model.TransferStatus;
 import com.google.edwmigration.dtsstatus.util.MessageTranslator;
+import com.google.protobuf.Timestamp;
 import java.io.IOException;
+import java.time.Instant;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import org.slf4j.Logger;
@@ -39,9 +60,12 @@ import org.slf4j.LoggerFactory;
 public class ListStatusForConfig {
 
   private static final Logger logger = LoggerFactory.getLogger(ListStatusForConfig.class);
+  private static final int MAX_LOG_FETCHES_IN_FLIGHT = 8;
   private final String projectId;
   private final String location;
   private final String configId;
+  private final Optional<Instant> since;
+  private final Optional<Set<SimpleImmutableEntry<String, String>>> tables;
   private final Supplier<DataTransferServiceClient> clientSupplier;
   private final Consumer<TransferStatus> statusConsumer;
   private final MessageTranslator messageTranslator;
@@ -55,32 +79,136 @@ public class ListStatusForConfig {
     this.projectId = options.getProjectId();
     this.location = options.getLocation();
     this.configId = options.getConfigId();
+    this.since = options.getSince();
+    this.tables = parseTables(options.getTables());
     this.clientSupplier = clientSupplier;
     this.statusConsumer = statusConsumer;
     this.messageTranslator = messageTranslator;
   }
 
+  /**
+   * Lists the latest status of each table, going through the runs of the config from the newest.
+   *
+   * <p>The logs of several runs are fetched at a time. All the runs are scanned, unless the tables
+   * to list are given: the scan then stops once each of them has a status newer than anything the
+   * remaining runs can have logged.
+   */
   public void run() {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            MAX_LOG_FETCHES_IN_FLIGHT,
+            new ThreadFactoryBuilder().setNameFormat("transfer-logs-%d").setDaemon(true).build());
     try (DataTransferServiceClient client = clientSupplier.get()) {
       logger.info("Listing statuses for config {}", configId);
       TransferConfigName transferConfigName =
           TransferConfigName.ofProjectLocationTransferConfigName(projectId, location, configId);
-      Stream<Optional<TransferStatus>> statuses =
+      List<TransferRun> runs =
           StreamSupport.stream(
                   client.listTransferRuns(transferConfigName).iterateAll().spliterator(), false)
-              .flatMap(
-                  run ->
-                      StreamSupport.stream(
-                          client.listTransferLogs(run.getName()).iterateAll().spliterator(), false))
-              .filter(message -> message.getMessageText().startsWith("table status: "))
-              .map(
-                  message ->
-                      messageTranslator.translateLogMessage(
-                          message.getMessageText(), message.getMessageTime()));
+              .filter(run -> !since.isPresent() || !lastLogTime(run).isBefore(since.get()))
+              .sorted(Comparator.comparing(ListStatusForConfig::lastLogTime).reversed())
+              .collect(Collectors.toList());
+      Stream<Optional<TransferStatus>> statuses =
+          scanNewestFirst(client, runs, executor).stream().map(Optional::of);
       consumeLatestExistingStatuses(statuses, statusConsumer);
     } catch (Exception ex) {
       logger.error("Failed to list statuses for config", ex);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Collection<TransferStatus> scanNewestFirst(
+      DataTransferServiceClient client, List<TransferRun> runs, ExecutorService executor) {
+    Map<SimpleImmutableEntry<String, String>, TransferStatus> latestByTable = new HashMap<>();
+    Deque<Future<List<TransferStatus>>> inFlight = new ArrayDeque<>();
+    int submitted = 0;
+    try {
+      for (int i = 0; i < runs.size(); i++) {
+        while (submitted < runs.size() && submitted < i + MAX_LOG_FETCHES_IN_FLIGHT) {
+          TransferRun run = runs.get(submitted++);
+          inFlight.add(executor.submit(() -> fetchStatuses(client, run)));
+        }
+        for (TransferStatus status : Futures.getUnchecked(inFlight.poll())) {
+          SimpleImmutableEntry<String, String> table =
+              new SimpleImmutableEntry<>(status.getDatabase(), status.getTable());
+          if (tables.isPresent() && !tables.get().contains(table)) {
+            continue;
+          }
+          TransferStatus previous = latestByTable.get(table);
+          if (previous == null || status.compareTo(previous) > 0) {
+            latestByTable.put(table, status);
+          }
+        }
+        int remaining = runs.size() - i - 1;
+        if (remaining > 0
+            && tables.isPresent()
+            && latestByTable.size() == tables.get().size()
+            && allNewerThan(latestByTable.values(), lastLogTime(runs.get(i + 1)))) {
+          logger.info("Skipping {} older runs, which have no newer statuses.", remaining);
+          break;
+        }
+      }
+    } finally {
+      for (Future<?> future : inFlight) {
+        future.cancel(true);
+      }
+    }
+    return latestByTable.values();
+  }
+
+  private List<TransferStatus> fetchStatuses(DataTransferServiceClient client, TransferRun run) {
+    List<TransferStatus> statuses = new ArrayList<>();
+    for (TransferMessage message : client.listTransferLogs(run.getName()).iterateAll()) {
+      if (!message.getMessageText().startsWith("table status: ")) {
+        continue;
+      }
+      if (since.isPresent() && toInstant(message.getMessageTime()).isBefore(since.get())) {
+        continue;
+      }
+      messageTranslator
+          .translateLogMessage(message.getMessageText(), message.getMessageTime())
+          .ifPresent(statuses::add);
+    }
+    return statuses;
+  }
+
+  private static Optional<Set<SimpleImmutableEntry<String, String>>> parseTables(
+      List<String> tables) {
+    if (tables.isEmpty()) {
+      return Optional.empty();
+    }
+    Set<SimpleImmutableEntry<String, String>> parsed = new HashSet<>();
+    for (String table : tables) {
+      int dot = table.indexOf('.');
+      if (dot <= 0 || dot == table.length() - 1) {
+        throw new InvalidArgumentException(
+            "Tables must be given as DATABASE.TABLE, got '" + table + "'");
+      }
+      parsed.add(new SimpleImmutableEntry<>(table.substring(0, dot), table.substring(dot + 1)));
+    }
+    return Optional.of(parsed);
+  }
+
+  private static boolean allNewerThan(Collection<TransferStatus> statuses, Instant time) {
+    return statuses.stream().allMatch(status -> toInstant(status.getTimestamp()).isAfter(time));
+  }
+
+  /**
+   * Returns the latest time the run can have logged a message at. A run that hasn't ended may still
+   * log, so nothing is known to be newer than its messages.
+   */
+  private static Instant lastLogTime(TransferRun run) {
+    if (!run.hasEndTime()) {
+      return Instant.MAX;
     }
+    Instant endTime = toInstant(run.getEndTime());
+    Instant updateTime = toInstant(run.getUpdateTime());
+    return updateTime.isAfter(endTime) ? updateTime : endTime;
+  }
+
+  private static Instant toInstant(Timestamp timestamp) {
+    return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
   }
 
   public static ListStatusForConfig instance(
@@ -57,7 +57,9 @@ public class ListStatusForDatabase {
     this.clientSupplier = clientSupplier;
     this.statusConsumer = statusConsumer;
     this.messageTranslator = messageTranslator;
-    this.logFilter = MessageFormat.format(LOG_FILTER_TEMPLATE, database);
+    this.logFilter =
+        MessageFormat.format(LOG_FILTER_TEMPLATE, database)
+            + options.getSince().map(since -> " AND timestamp>=\"" + since + "\"").orElse("");
   }
 
   public void run() {
@@ -20,6 +20,8 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.bigquery.datatransfer.v1.DataTransferServiceClient;
@@ -27,6 +29,7 @@ import com.google.cloud.bigquery.datatransfer.v1.DataTransferServiceClient.ListT
 import com.google.cloud.bigquery.datatransfer.v1.DataTransferServiceClient.ListTransferRunsPagedResponse;
 import com.google.cloud.bigquery.datatransfer.v1.TransferConfigName;
 import com.google.cloud.bigquery.datatransfer.v1.TransferMessage;
+import com.google.cloud.bigquery.datatransfer.v1.TransferRun;
 import com.google.edwmigration.dtsstatus.StatusOptions;
 import com.google.edwmigration.dtsstatus.exception.InvalidArgumentException;
 import com.google.edwmigration.dtsstatus.model.TransferStatus;
@@ -222,6 +225,157 @@ class ListStatusForConfigTest {
     assertThat(result.get(0).getStatus()).isEqualTo("s1");
   }
 
+  @Test
+  void run_tables_newerStatusesForAllTables_skipsOlderRuns() {
+    StatusOptions options =
+        new StatusOptions(
+            new String[] {
+              "--project-id", "project1",
+              "--location", "region1",
+              "--config-id", "config1",
+              "--tables", "db1.tab1,db1.tab2"
+            });
+    DataTransferServiceClient mockClient = mock(DataTransferServiceClient.class);
+    List<TransferRun> runs = new ArrayList<>();
+    for (int i = 1; i <= 15; i++) {
+      runs.add(endedRun("run" + i, 10 * i));
+      ListTransferLogsPagedResponse logsResponse = mock(ListTransferLogsPagedResponse.class);
+      when(logsResponse.iterateAll())
+          .thenReturn(
+              Arrays.asList(
+                  transferMessage("db1", "tab1", "s" + i, 10 * i - 5),
+                  transferMessage("db1", "tab2", "s" + i, 10 * i - 5)));
+      when(mockClient.listTransferLogs("run" + i)).thenReturn(logsResponse);
+    }
+    mockRuns(mockClient, runs);
+    List<TransferStatus> result = new ArrayList<>();
+
+    ListStatusForConfig command =
+        new ListStatusForConfig(options, () -> mockClient, result::add, new MessageTranslator());
+
+    command.run();
+
+    assertThat(result.size()).isEqualTo(2);
+    assertThat(result.get(0).getStatus()).isEqualTo("s15");
+    assertThat(result.get(1).getStatus()).isEqualTo("s15");
+    verify(mockClient, never()).listTransferLogs("run1");
+  }
+
+  @Test
+  void run_tableOnlyInOldestRun_scansAllRuns() {
+    StatusOptions options =
+        new StatusOptions(
+            new String[] {
+              "--project-id", "project1",
+              "--location", "region1",
+              "--config-id", "config1"
+            });
+    DataTransferServiceClient mockClient = mock(DataTransferServiceClient.class);
+    List<TransferRun> runs = new ArrayList<>();
+    for (int i = 1; i <= 15; i++) {
+      runs.add(endedRun("run" + i, 10 * i));
+      List<TransferMessage> messages = new ArrayList<>();
+      messages.add(transferMessage("db1", "tab1", "s" + i, 10 * i - 5));
+      if (i == 1) {
+        messages.add(transferMessage("db1", "tab2", "s" + i, 10 * i - 5));
+      }
+      ListTransferLogsPagedResponse logsResponse = mock(ListTransferLogsPagedResponse.class);
+      when(logsResponse.iterateAll()).thenReturn(messages);
+      when(mockClient.listTransferLogs("run" + i)).thenReturn(logsResponse);
+    }
+    mockRuns(mockClient, runs);
+    List<TransferStatus> result = new ArrayList<>();
+
+    ListStatusForConfig command =
+        new ListStatusForConfig(options, () -> mockClient, result::add, new MessageTranslator());
+
+    command.run();
+
+    assertThat(result.size()).isEqualTo(2);
+    assertThat(result.get(0).getStatus()).isEqualTo("s15");
+    assertThat(result.get(1).getStatus()).isEqualTo("s1");
+  }
+
+  @Test
+  void run_tables_listsOnlyGivenTables() {
+    StatusOptions options =
+        new StatusOptions(
+            new String[] {
+              "--project-id", "project1",
+              "--location", "region1",
+              "--config-id", "config1",
+              "--tables", "db1.tab2"
+            });
+    DataTransferServiceClient mockClient = mock(DataTransferServiceClient.class);
+    mockRuns(mockClient, Arrays.asList(endedRun("run1", 10)));
+    ListTransferLogsPagedResponse logsResponse = mock(ListTransferLogsPagedResponse.class);
+    when(logsResponse.iterateAll())
+        .thenReturn(
+            Arrays.asList(
+                transferMessage("db1", "tab1", "s1", 5), transferMessage("db1", "tab2", "s2", 5)));
+    when(mockClient.listTransferLogs("run1")).thenReturn(logsResponse);
+    List<TransferStatus> result = new ArrayList<>();
+
+    ListStatusForConfig command =
+        new ListStatusForConfig(options, () -> mockClient, result::add, new MessageTranslator());
+
+    command.run();
+
+    assertThat(result.size()).isEqualTo(1);
+    assertThat(result.get(0).getTable()).isEqualTo("tab2");
+  }
+
+  @Test
+  void run_since_skipsOlderRunsAndMessages() {
+    StatusOptions options =
+        new StatusOptions(
+            new String[] {
+              "--project-id", "project1",
+              "--location", "region1",
+              "--config-id", "config1",
+              "--since", "1970-01-01T00:00:25Z"
+            });
+    DataTransferServiceClient mockClient = mock(DataTransferServiceClient.class);
+    mockRuns(mockClient, Arrays.asList(endedRun("run1", 10), endedRun("run2", 30)));
+    ListTransferLogsPagedResponse logsResponse = mock(ListTransferLogsPagedResponse.class);
+    when(logsResponse.iterateAll())
+        .thenReturn(
+            Arrays.asList(
+                transferMessage("db1", "tab1", "s1", 20),
+                transferMessage("db1", "tab2", "s2", 20),
+                transferMessage("db1", "tab1", "s3", 28)));
+    when(mockClient.listTransferLogs("run2")).thenReturn(logsResponse);
+    List<TransferStatus> result = new ArrayList<>();
+
+    ListStatusForConfig command =
+        new ListStatusForConfig(options, () -> mockClient, result::add, new MessageTranslator());
+
+    command.run();
+
+    assertThat(result.size()).isEqualTo(1);
+    assertThat(result.get(0).getStatus()).isEqualTo("s3");
+    verify(mockClient, never()).listTransferLogs("run1");
+  }
+
+  @Test
+  void constructor_tableWithoutDatabase_throwsException() {
+    StatusOptions options =
+        new StatusOptions(
+            new String[] {
+              "--project-id", "project1",
+              "--location", "region1",
+              "--config-id", "config1",
+              "--tables", "db1.tab1,tab2"
+            });
+    DataTransferServiceClient mockClient = mock(DataTransferServiceClient.class);
+
+    assertThrows(
+        InvalidArgumentException.class,
+        () ->
+            new ListStatusForConfig(
+                options, () -> mockClient, ignored -> {}, new MessageTranslator()));
+  }
+
   @Test
   void constructor_noProjectId_throwsException() {
     StatusOptions options =
@@ -274,4 +428,19 @@ class ListStatusForConfigTest {
         .setMessageTime(Timestamp.newBuilder().setSeconds(seconds).build())
         .build();
   }
+
+  private static TransferRun endedRun(String name, long endSeconds) {
+    return TransferRun.newBuilder()
+        .setName(name)
+        .setEndTime(Timestamp.newBuilder().setSeconds(endSeconds).build())
+        .build();
+  }
+
+  private static void mockRuns(DataTransferServiceClient mockClient, List<TransferRun> runs) {
+    ListTransferRunsPagedResponse transferRunsResponse = mock(ListTransferRunsPagedResponse.class);
+    when(transferRunsResponse.iterateAll()).thenReturn(runs);
+    TransferConfigName transferConfigName =
+        TransferConfigName.ofProjectLocationTransferConfigName("project1", "region1", "config1");
+    when(mockClient.listTransferRuns(transferConfigName)).thenReturn(transferRunsResponse);
+  }
 }
@@ -20,6 +20,7 @@ import static com.google.common.truth.Truth.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.logging.v2.LoggingClient;
@@ -28,6 +29,7 @@ import com.google.edwmigration.dtsstatus.StatusOptions;
 import com.google.edwmigration.dtsstatus.exception.InvalidArgumentException;
 import com.google.edwmigration.dtsstatus.model.TransferStatus;
 import com.google.edwmigration.dtsstatus.util.MessageTranslator;
+import com.google.logging.v2.ListLogEntriesRequest;
 import com.google.logging.v2.LogEntry;
 import com.google.protobuf.Struct;
 import com.google.protobuf.Timestamp;
@@ -36,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
 class ListStatusForDatabaseTest {
 
@@ -94,6 +97,44 @@ class ListStatusForDatabaseTest {
                 options, () -> mockClient, ignored -> {}, new MessageTranslator()));
   }
 
+  @Test
+  void run_since_filtersByTimestamp() {
+    StatusOptions options =
+        new StatusOptions(
+            new String[] {
+              "--project-id", "project1", "--database", "db1", "--since", "2025-01-31"
+            });
+    LoggingClient mockClient = mock(LoggingClient.class);
+    ListLogEntriesPagedResponse mockResponse = mock(ListLogEntriesPagedResponse.class);
+    when(mockResponse.iterateAll()).thenReturn(Arrays.asList(logMessage("tab1", "s1", 1)));
+    when(mockClient.listLogEntries(any())).thenReturn(mockResponse);
+    ListStatusForDatabase command =
+        new ListStatusForDatabase(
+            options, () -> mockClient, ignored -> {}, new MessageTranslator());
+
+    command.run();
+
+    ArgumentCaptor<ListLogEntriesRequest> requestCaptor =
+        ArgumentCaptor.forClass(ListLogEntriesRequest.class);
+    verify(mockClient).listLogEntries(requestCaptor.capture());
+    assertThat(requestCaptor.getValue().getFilter())
+        .endsWith(" AND timestamp>=\"2025-01-31T00:00:00Z\"");
+  }
+
+  @Test
+  void constructor_invalidSince_throwsException() {
+    StatusOptions options =
+        new StatusOptions(
+            new String[] {"--project-id", "project1", "--database", "db1", "--since", "yesterday"});
+    LoggingClient mockClient = mock(LoggingClient.class);
+
+    assertThrows(
+        InvalidArgumentException.class,
+        () ->
+            new ListStatusForDatabase(
+                options, () -> mockClient, ignored -> {}, new MessageTranslator()));
+  }
+
   private static LogEntry logMessage(String table, String status, long seconds) {
     return LogEntry.newBuilder()
         .setJsonPayload(
@@ -73,6 +73,8 @@ public class ConnectorArguments extends DefaultArguments {
 
   public static final String OPT_CONNECTOR = "connector";
   public static final String OPT_TELEMETRY = "telemetry";
+  public static final String OPT_METRICS_INTERVAL_SECONDS = "metrics-interval-seconds";
+  public static final String OPT_METRICS_PORT = "metrics-port";
   public static final String OPT_DRIVER = "driver";
   public static final String OPT_CLASS = "jdbcDriverClass";
   public static final String OPT_URI = "url";
@@ -106,6 +108,9 @@ public class ConnectorArguments extends DefaultArguments {
   public static final String OPT_QUERY_LOG_END = "query-log-end";
   public static final String OPT_QUERY_LOG_EARLIEST_TIMESTAMP = "query-log-earliest-timestamp";
   public static final String OPT_QUERY_LOG_ALTERNATES = "query-log-alternates";
+  public static final String OPT_QUERY_LOG_WATERMARK_FILE = "query-log-watermark-file";
+  public static final String OPT_QUERY_LOG_WATERMARK_OVERLAP_HOURS =
+      "query-log-watermark-overlap-hours";
 
   // Snowflake
   public static final String OPT_PRIVATE_KEY_FILE = "private-key-file";
@@ -135,6 +140,7 @@ public class ConnectorArguments extends DefaultArguments {
   public static final String OPT_HIVE_KERBEROS_URL = "hive-kerberos-url";
   public static final String OPT_REQUIRED_IF_NOT_URL = "if --url is not specified";
   public static final String OPT_THREAD_POOL_SIZE = "thread-pool-size";
+  public static final String OPT_VIRTUAL_THREADS = "virtual-threads";
   public static final String OPT_KERBEROS_AUTH_FOR_HADOOP = "kerberos-auth-for-hadoop";
   public static final String OPT_HADOOP_CORE_SITE_XML = "hadoop-core-site-xml";
   public static final String OPT_HADOOP_HDFS_SITE_XML = "hadoop-hdfs-site-xml";
@@ -156,6 +162,8 @@ public class ConnectorArguments extends DefaultArguments {
   public static final String OPT_RANGER_PORT_DEFAULT = "6080";
   public static final String OPT_RANGER_PAGE_SIZE = "ranger-page-size";
   public static final int OPT_RANGER_PAGE_SIZE_DEFAULT = 1000;
+  public static final String OPT_RANGER_PAGE_CONCURRENCY = "ranger-page-concurrency";
+  public static final int OPT_RANGER_PAGE_CONCURRENCY_DEFAULT = 4;
   public static final String OPT_RANGER_SCHEME = "ranger-scheme";
   public static final String OPT_RANGER_SCHEME_DEFAULT = "http";
   public static final String OPT_RANGER_DISABLE_TLS_VALIDATION = "ranger-disable-tls-validation";
@@ -359,6 +367,29 @@ public class ConnectorArguments extends DefaultArguments {
           .withValuesConvertedBy(ZonedParser.withDefaultPattern(DayOffset.END_OF_DAY))
           .describedAs("2001-01-15[ 00:00:00.[000]]");
 
+  private final OptionSpec<File> optionQueryLogWatermarkFile =
+      parser
+          .accepts(
+              OPT_QUERY_LOG_WATERMARK_FILE,
+              "Enables incremental query log extraction. The end of the last fully extracted"
+                  + " interval is recorded in this file for each connector and source, and later"
+                  + " runs only export intervals after it.")
+          .withRequiredArg()
+          .ofType(File.class)
+          .describedAs("query-log-watermarks.properties");
+  private final OptionSpec<Integer> optionQueryLogWatermarkOverlapHours =
+      parser
+          .accepts(
+              OPT_QUERY_LOG_WATERMARK_OVERLAP_HOURS,
+              "Number of hours before the recorded watermark to export again, to pick up"
+                  + " late-arriving query log entries. Requires --"
+                  + OPT_QUERY_LOG_WATERMARK_FILE)
+          .availableIf(optionQueryLogWatermarkFile)
+          .withRequiredArg()
+          .ofType(Integer.class)
+          .describedAs("N")
+          .defaultsTo(0);
+
   // This is intentionally NOT provided as a default value to the
   // optionQueryLogEnd OptionSpec,
   // because some callers
@@ -447,6 +478,15 @@ public class ConnectorArguments extends DefaultArguments {
           .ofType(Integer.class)
           .defaultsTo(OPT_RANGER_PAGE_SIZE_DEFAULT);
 
+  private final OptionSpec<Integer> optionRangerPageConcurrency =
+      parser
+          .accepts(
+              OPT_RANGER_PAGE_CONCURRENCY,
+              "Set the number of Ranger pages fetched concurrently ahead of the output.")
+          .withRequiredArg()
+          .ofType(Integer.class)
+          .defaultsTo(OPT_RANGER_PAGE_CONCURRENCY_DEFAULT);
+
   private final OptionSpec<String> optionRangerScheme =
       parser
           .accepts(OPT_RANGER_SCHEME, "The uri scheme used to fetch Ranger entries.")
@@ -470,6 +510,14 @@ public class ConnectorArguments extends DefaultArguments {
           .ofType(Integer.class)
           .defaultsTo(OPT_THREAD_POOL_SIZE_DEFAULT);
 
+  private final OptionSpec<Void> optionVirtualThreads =
+      parser.accepts(
+          OPT_VIRTUAL_THREADS,
+          "Run parallel tasks and the HDFS scan on virtual threads (requires JDK 21 or later)."
+              + " --"
+              + OPT_THREAD_POOL_SIZE
+              + " still limits how many of them talk to the source at a time.");
+
   private final OptionSpec<Boolean> optionTelemetry =
       parser
           .accepts(OPT_TELEMETRY, "Allows dumper telemetry to be turned on/off")
@@ -477,6 +525,25 @@ public class ConnectorArguments extends DefaultArguments {
           .ofType(Boolean.class)
           .defaultsTo(true);
 
+  private final OptionSpec<Integer> optionMetricsIntervalSeconds =
+      parser
+          .accepts(
+              OPT_METRICS_INTERVAL_SECONDS,
+              "Interval in seconds between the samples of throughput and latency metrics written"
+                  + " to dumper-metrics.jsonl in the output ZIP")
+          .withRequiredArg()
+          .ofType(Integer.class)
+          .defaultsTo(60);
+
+  private final OptionSpec<Integer> optionMetricsPort =
+      parser
+          .accepts(
+              OPT_METRICS_PORT,
+              "If set, serves the current metrics in the Prometheus text format on"
+                  + " http://localhost:<port>/metrics while the dumper runs")
+          .withRequiredArg()
+          .ofType(Integer.class);
+
   public final OptionSpec<String> optionHadoopHdfsSiteXml =
       parser
           .accepts(
@@ -988,6 +1055,24 @@ public class ConnectorArguments extends DefaultArguments {
         getOptions().valueOf(optionQueryLogEnd), OPT_QUERY_LOG_END_DEFAULT);
   }
 
+  @CheckForNull
+  public File getQueryLogWatermarkFile() {
+    return getOptions().valueOf(optionQueryLogWatermarkFile);
+  }
+
+  @Nonnull
+  public Duration getQueryLogWatermarkOverlap() {
+    int hours = getOptions().valueOf(optionQueryLogWatermarkOverlapHours);
+    if (hours < 0) {
+      throw new MetadataDumperUsageException(
+          "The --"
+              + OPT_QUERY_LOG_WATERMARK_OVERLAP_HOURS
+              + " option must not be negative; you specified: "
+              + hours);
+    }
+    return Duration.ofHours(hours);
+  }
+
   @Nonnull
   public List<String> getQueryLogAlternates() {
     return getOptions().valuesOf(optionQueryLogAlternates);
@@ -997,6 +1082,24 @@ public class ConnectorArguments extends DefaultArguments {
     return getOptions().valueOf(optionTelemetry);
   }
 
+  @Nonnull
+  public Duration getMetricsInterval() {
+    int seconds = getOptions().valueOf(optionMetricsIntervalSeconds);
+    if (seconds <= 0) {
+      throw new MetadataDumperUsageException(
+          "The --"
+              + OPT_METRICS_INTERVAL_SECONDS
+              + " option must be positive; you specified: "
+              + seconds);
+    }
+    return Duration.ofSeconds(seconds);
+  }
+
+  @CheckForNull
+  public Integer getMetricsPort() {
+    return getOptions().valueOf(optionMetricsPort);
+  }
+
   public boolean isTestFlag(char c) {
     String flags = getOptions().valueOf(optionFlags);
     if (flags == null) {
@@ -1034,6 +1137,10 @@ public class ConnectorArguments extends DefaultArguments {
     return getOptions().valueOf(optionRangerPageSize);
   }
 
+  public int getRangerPageConcurrency() {
+    return getOptions().valueOf(optionRangerPageConcurrency);
+  }
+
   public String getRangerScheme() {
     return getOptions().valueOf(optionRangerScheme);
   }
@@ -1046,6 +1153,10 @@ public class ConnectorArguments extends DefaultArguments {
     return getOptions().valueOf(optionThreadPoolSize);
   }
 
+  public boolean useVirtualThreads() {
+    return getOptions().has(optionVirtualThreads);
+  }
+
   public boolean useKerberosAuthForHadoop() {
     return getOptions().has(optionKerberosAuthForHadoop);
   }
@@ -1167,6 +1278,7 @@ public class ConnectorArguments extends DefaultArguments {
             .add(OPT_QUERY_LOG_START, getQueryLogStart())
             .add(OPT_QUERY_LOG_END, getQueryLogEnd())
             .add(OPT_QUERY_LOG_ALTERNATES, getQueryLogAlternates())
+            .add(OPT_QUERY_LOG_WATERMARK_FILE, getQueryLogWatermarkFile())
             .add(OPT_SPARK_HISTORY_SERVICE_NAMES, getSparkHistoryServiceNames())
             .add(OPT_ASSESSMENT, isAssessment())
             .add(OPT_TELEMETRY, isTelemetryOn());
@@ -25,9 +25,11 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Closer;
 import com.google.common.io.Files;
 import com.google.edwmigration.dumper.application.dumper.connector.Connector;
+import com.google.edwmigration.dumper.application.dumper.connector.QueryLogWatermarks;
 import com.google.edwmigration.dumper.application.dumper.handle.Handle;
 import com.google.edwmigration.dumper.application.dumper.io.FileSystemOutputHandleFactory;
 import com.google.edwmigration.dumper.application.dumper.io.OutputHandleFactory;
+import com.google.edwmigration.dumper.application.dumper.metrics.MetricsReporter;
 import com.google.edwmigration.dumper.application.dumper.task.ArgumentsTask;
 import com.google.edwmigration.dumper.application.dumper.task.JdbcRunSQLScript;
 import com.google.edwmigration.dumper.application.dumper.task.Task;
@@ -37,6 +39,7 @@ import com.google.edwmigration.dumper.application.dumper.task.TaskSetState.TaskR
 import com.google.edwmigration.dumper.application.dumper.task.TaskSetStateCollector;
 import com.google.edwmigration.dumper.application.dumper.task.TaskSetStateImpl;
 import com.google.edwmigration.dumper.application.dumper.task.VersionTask;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.MetricRegistry;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
@@ -45,12 +48,15 @@ import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
+import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -99,6 +105,7 @@ public class MetadataDumper {
   }
 
   protected boolean run(@Nonnull Connector connector) throws Exception {
+    ZonedDateTime runStart = ZonedDateTime.now(ZoneOffset.UTC);
     List<Task<?>> tasks = new ArrayList<>();
     tasks.add(new VersionTask());
     tasks.add(new ArgumentsTask(connectorArguments));
@@ -150,10 +157,26 @@ public class MetadataDumper {
           new FileSystemOutputHandleFactory(fileSystem, "/"); // It's required to be "/"
       logger.debug("Target filesystem is [{}]", sinkFactory);
 
+      // Each run has its own metrics, also when several connectors run in one process.
+      MetricRegistry metricRegistry = new MetricRegistry();
+      closer.register(MetricRegistry.enter(metricRegistry));
+      MetricsReporter metricsReporter =
+          closer.register(
+              new MetricsReporter(
+                  metricRegistry,
+                  connectorArguments.getMetricsInterval(),
+                  connectorArguments.getMetricsPort()));
+
       Handle handle = closer.register(connector.open(connectorArguments));
 
       new TasksRunner(sinkFactory, handle, state, tasks, connectorArguments).run();
 
+      try {
+        metricsReporter.writeTo(fileSystem);
+      } catch (IOException e) {
+        logger.warn("Failed to write metrics to the output file", e);
+      }
+
       requiredTaskSucceeded = checkRequiredTaskSuccess(summaryPrinter, state, outputFileLocation);
 
       telemetryProcessor.addDumperRunMetricsToPayload(
@@ -178,9 +201,26 @@ public class MetadataDumper {
           requiredTaskSucceeded);
     }
 
+    // Only once the output file has been closed, so that a failed write is retried next run.
+    if (requiredTaskSucceeded) {
+      advanceQueryLogWatermark(runStart);
+    }
     return requiredTaskSucceeded;
   }
 
+  private void advanceQueryLogWatermark(@Nonnull ZonedDateTime runStart) throws IOException {
+    File watermarkFile = connectorArguments.getQueryLogWatermarkFile();
+    if (watermarkFile == null) {
+      return;
+    }
+    // Never record a watermark beyond what could have been extracted, even if --query-log-end
+    // lies in the future.
+    ZonedDateTime watermark =
+        ObjectUtils.min(connectorArguments.getQueryLogEndOrDefault(), runStart);
+    new QueryLogWatermarks(watermarkFile.toPath())
+        .advance(QueryLogWatermarks.keyFor(connectorArguments), watermark);
+  }
+
   private void print(@Nonnull Task<?> task, int indent) {
     System.out.println(repeat(' ', indent * 2) + task);
     if (task instanceof TaskGroup) {
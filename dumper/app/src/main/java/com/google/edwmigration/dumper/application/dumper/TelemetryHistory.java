@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The telemetry of past runs, kept as a series of JSON lines segments in one directory.
+ *
+ * <p>Each segment is named after the time it was started, so the newest segments are found from
+ * the directory listing alone. A segment is closed once it reaches a size limit, and closed
+ * segments are deleted once there are too many of them or they are too old. Appending and reading
+ * the recent entries thus touch a bounded amount of data, however long the dumper has been run on
+ * the host.
+ */
+class TelemetryHistory {
+
+  private static final Logger logger = LoggerFactory.getLogger(TelemetryHistory.class);
+
+  private static final Pattern SEGMENT_PATTERN = Pattern.compile("telemetry-(\\d+)\\.jsonl");
+
+  static final long DEFAULT_MAX_SEGMENT_BYTES = 1 << 20;
+
+  static final int DEFAULT_MAX_SEGMENTS = 8;
+
+  static final Duration DEFAULT_MAX_AGE = Duration.ofDays(90);
+
+  private final Path directory;
+  private final Clock clock;
+  private final long maxSegmentBytes;
+  private final int maxSegments;
+  private final Duration maxAge;
+
+  TelemetryHistory(Path directory, Clock clock) {
+    this(directory, clock, DEFAULT_MAX_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS, DEFAULT_MAX_AGE);
+  }
+
+  @VisibleForTesting
+  TelemetryHistory(
+      Path directory, Clock clock, long maxSegmentBytes, int maxSegments, Duration maxAge) {
+    this.directory = directory;
+    this.clock = clock;
+    this.maxSegmentBytes = maxSegmentBytes;
+    this.maxSegments = maxSegments;
+    this.maxAge = maxAge;
+  }
+
+  /**
+   * Moves the entries of a single-file history, as written by earlier versions, into a segment.
+   * Only the newest entries that fit in a segment are kept.
+   */
+  void importLegacy(Path legacyFile) throws IOException {
+    if (!Files.isRegularFile(legacyFile)) {
+      return;
+    }
+    Files.createDirectories(directory);
+    Instant modified = Files.getLastModifiedTime(legacyFile).toInstant();
+    Path segment = segmentPath(modified.toEpochMilli());
+    Files.write(segment, readTail(legacyFile), UTF_8);
+    Files.delete(legacyFile);
+    logger.info("Moved telemetry history from {} to {}.", legacyFile, segment);
+  }
+
+  /** Appends an entry, starting a new segment if the newest one is full. */
+  void append(String entry) throws IOException {
+    Files.createDirectories(directory);
+    List<Path> segments = listSegmentsNewestFirst();
+    Path segment;
+    if (segments.isEmpty() || Files.size(segments.get(0)) >= maxSegmentBytes) {
+      segment = segmentPath(clock.millis());
+      segments.add(0, segment);
+    } else {
+      segment = segments.get(0);
+    }
+    Files.write(
+        segment,
+        ImmutableList.of(entry),
+        UTF_8,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+    deleteExpired(segments);
+  }
+
+  /** Returns up to the given number of the newest entries, oldest first. */
+  List<String> readRecent(int maxEntries) throws IOException {
+    Deque<String> entries = new ArrayDeque<>();
+    if (!Files.isDirectory(directory)) {
+      return new ArrayList<>(entries);
+    }
+    for (Path segment : listSegmentsNewestFirst()) {
+      // A segment is at most one entry larger than the size limit.
+      List<String> lines = Files.readAllLines(segment, UTF_8);
+      for (int i = lines.size() - 1; i >= 0 && entries.size() < maxEntries; i--) {
+        entries.addFirst(lines.get(i));
+      }
+      if (entries.size() >= maxEntries) {
+        break;
+      }
+    }
+    return new ArrayList<>(entries);
+  }
+
+  private void deleteExpired(List<Path> segmentsNewestFirst) {
+    Instant oldest = clock.instant().minus(maxAge);
+    // The newest segment is the one being written to and is always kept.
+    for (int i = 1; i < segmentsNewestFirst.size(); i++) {
+      Path segment = segmentsNewestFirst.get(i);
+      try {
+        if (i >= maxSegments || Files.getLastModifiedTime(segment).toInstant().isBefore(oldest)) {
+          Files.deleteIfExists(segment);
+        }
+      } catch (IOException e) {
+        logger.debug("Failed to delete telemetry segment {}.", segment, e);
+      }
+    }
+  }
+
+  private List<Path> listSegmentsNewestFirst() throws IOException {
+    List<Path> segments = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "telemetry-*.jsonl")) {
+      for (Path path : stream) {
+        if (SEGMENT_PATTERN.matcher(path.getFileName().toString()).matches()) {
+          segments.add(path);
+        }
+      }
+    }
+    segments.sort(Comparator.comparingLong(TelemetryHistory::startMillis).reversed());
+    return segments;
+  }
+
+  private Path segmentPath(long startMillis) {
+    return directory.resolve("telemetry-" + startMillis + ".jsonl");
+  }
+
+  private static long startMillis(Path segment) {
+    Matcher matcher = SEGMENT_PATTERN.matcher(segment.getFileName().toString());
+    return matcher.matches() ? Long.parseLong(matcher.group(1)) : 0;
+  }
+
+  /**
+   * Reads the complete lines in the last segment-sized part of a file, so that an oversized legacy
+   * history costs no more to read than a full segment.
+   */
+  private List<String> readTail(Path file) throws IOException {
+    try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+      long size = channel.size();
+      long start = Math.max(0, size - maxSegmentBytes);
+      ByteBuffer buffer = ByteBuffer.allocate((int) (size - start));
+      channel.position(start);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) {
+          break;
+        }
+      }
+      String text = new String(buffer.array(), 0, buffer.position(), UTF_8);
+      List<String> lines = new ArrayList<>(Arrays.asList(text.split("\r?\n")));
+      if (start > 0 && !lines.isEmpty()) {
+        // The first line is most likely cut off.
+        lines.remove(0);
+      }
+      lines.removeIf(String::isEmpty);
+      return lines;
+    }
+  }
+}
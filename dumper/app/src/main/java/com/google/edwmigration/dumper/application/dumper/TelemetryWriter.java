@@ -16,19 +16,19 @@
  */
 package com.google.edwmigration.dumper.application.dumper;
 
-import static java.nio.file.Files.newBufferedWriter;
-
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.edwmigration.dumper.application.dumper.metrics.ClientTelemetry;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.List;
 import net.harawata.appdirs.AppDirs;
 import net.harawata.appdirs.AppDirsFactory;
 import org.slf4j.Logger;
@@ -39,6 +39,8 @@ public class TelemetryWriter {
   private static final Logger logger = LoggerFactory.getLogger(TelemetryWriter.class);
   private static final String ALL_DUMPER_RUN_METRICS = "all-dumper-telemetry.jsonl";
   private static final String DUMPER_RUN_METRICS = "dumper-telemetry.jsonl";
+  private static final String TELEMETRY_HISTORY_DIR = "telemetry-history";
+  private static final int MAX_ENTRIES_IN_OUTPUT = 100;
   private static final ObjectMapper MAPPER = createObjectMapper();
 
   private static ObjectMapper createObjectMapper() {
@@ -51,20 +53,27 @@ public class TelemetryWriter {
     return mapper;
   }
 
-  public static void write(FileSystem fileSystem, ClientTelemetry clientTelemetry)
+  /**
+   * Adds the telemetry of this run to the history in the user cache directory, and writes the most
+   * recent entries of that history to the output.
+   */
+  public static synchronized void write(FileSystem fileSystem, ClientTelemetry clientTelemetry)
       throws IOException {
 
     String cacheDir = createDirPathIfNotExist();
 
-    Path PathToCachedCumulativeSummary = Paths.get(cacheDir + ALL_DUMPER_RUN_METRICS);
-
+    Path historyDir = Paths.get(cacheDir, TELEMETRY_HISTORY_DIR);
+    TelemetryHistory history = new TelemetryHistory(historyDir, Clock.systemUTC());
     try {
-      String serializedMetrics = MAPPER.writeValueAsString(clientTelemetry);
-      appendToCacheOnDisk(PathToCachedCumulativeSummary, serializedMetrics);
-      copyCachedAsCurrent(fileSystem, PathToCachedCumulativeSummary);
+      // Earlier versions kept the whole history in one file, which grew without bound.
+      history.importLegacy(Paths.get(cacheDir + ALL_DUMPER_RUN_METRICS));
+      history.append(MAPPER.writeValueAsString(clientTelemetry));
     } catch (JsonProcessingException e) {
       logger.warn("Failed to serialize dumperRunMetrics", e);
+    } catch (IOException e) {
+      logger.warn("Failed to append to telemetry history in {}", historyDir, e);
     }
+    writeRecent(fileSystem, history);
   }
 
   private static String createDirPathIfNotExist() throws IOException {
@@ -83,42 +92,21 @@ public class TelemetryWriter {
     return cacheDir;
   }
 
-  private static void copyCachedAsCurrent(FileSystem zipFs, Path externalLogPath) {
+  private static void writeRecent(FileSystem zipFs, TelemetryHistory history) {
     Path snapshotInZipPath = zipFs.getPath(DUMPER_RUN_METRICS);
     try {
       Path parentInZip = snapshotInZipPath.getParent();
       if (parentInZip != null && java.nio.file.Files.notExists(parentInZip)) {
         java.nio.file.Files.createDirectories(parentInZip);
       }
-      java.nio.file.Files.copy(
-          externalLogPath, snapshotInZipPath, StandardCopyOption.REPLACE_EXISTING);
+      List<String> entries = history.readRecent(MAX_ENTRIES_IN_OUTPUT);
+      java.nio.file.Files.write(snapshotInZipPath, entries, StandardCharsets.UTF_8);
       logger.debug(
-          "Copied cumulative run summary from {} to {} in the output ZIP.",
-          externalLogPath,
+          "Copied {} recent run summaries to {} in the output ZIP.",
+          entries.size(),
           snapshotInZipPath);
     } catch (IOException e) {
-      logger.warn(
-          "Failed to copy cumulative summary log {} to ZIP at {}",
-          externalLogPath,
-          snapshotInZipPath,
-          e);
-    }
-  }
-
-  /** Appends the given summary lines for the current run to the external log file. */
-  private static void appendToCacheOnDisk(Path externalLogPath, String summaryLines) {
-    try (BufferedWriter writer =
-            newBufferedWriter(
-                externalLogPath,
-                StandardCharsets.UTF_8,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.APPEND);
-        PrintWriter printer = new PrintWriter(writer)) {
-
-      printer.println(summaryLines);
-      printer.flush();
-    } catch (IOException e) {
-      logger.warn("Failed to append to external cumulative summary log: {}", externalLogPath, e);
+      logger.warn("Failed to copy recent run summaries to ZIP at {}", snapshotInZipPath, e);
     }
   }
 }
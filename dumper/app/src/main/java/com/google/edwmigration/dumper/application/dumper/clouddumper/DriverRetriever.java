@@ -16,22 +16,30 @@
  */
 package com.google.edwmigration.dumper.application.dumper.clouddumper;
 
-import static com.google.edwmigration.dumper.application.dumper.utils.MemoizationUtil.createMemoizer;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
 import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Optional;
-import org.apache.commons.io.function.IOFunction;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.HttpStatus;
@@ -40,7 +48,13 @@ import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Retriever for JDBC drivers. */
+/**
+ * Retriever for JDBC drivers.
+ *
+ * <p>Drivers with a known checksum are kept in a content-addressed cache below the driver path,
+ * in a directory named after their SHA-256 sum, and are not downloaded again once they are there.
+ * Drivers without a checksum are downloaded on every run.
+ */
 public class DriverRetriever {
 
   private static final Logger logger = LoggerFactory.getLogger(DriverRetriever.class);
@@ -50,7 +64,8 @@ public class DriverRetriever {
   private final CloseableHttpClient httpClient;
   private final Path driverPath;
   private final ImmutableMap<String, DriverInformation> driverInformationMap;
-  private final IOFunction<DriverInformation, Path> downloader = createMemoizer(this::download);
+  private final ConcurrentMap<DriverInformation, CompletableFuture<Path>> retrievals =
+      new ConcurrentHashMap<>();
 
   @VisibleForTesting
   DriverRetriever(
@@ -136,14 +151,80 @@ public class DriverRetriever {
    * available.
    */
   public Optional<Path> getDriver(String name) throws IOException {
-    if (!driverInformationMap.containsKey(name)) {
+    DriverInformation driverInformation = driverInformationMap.get(name);
+    if (driverInformation == null) {
       logger.info("Got no driver for connector '{}'.", name);
       return Optional.empty();
     }
-    return Optional.of(this.downloader.apply(driverInformationMap.get(name)));
+    return Optional.of(await(retrieve(driverInformation, MoreExecutors.directExecutor())));
+  }
+
+  /**
+   * Starts retrieving the drivers for the given databases on the executor, so that they are
+   * downloaded concurrently rather than one by one by {@link #getDriver(String)}. Unknown names
+   * are ignored and a driver shared by several names is only retrieved once.
+   */
+  public void prefetch(Iterable<String> names, Executor executor) {
+    for (String name : names) {
+      DriverInformation driverInformation = driverInformationMap.get(name);
+      if (driverInformation != null) {
+        retrieve(driverInformation, executor);
+      }
+    }
+  }
+
+  private CompletableFuture<Path> retrieve(
+      DriverInformation driverInformation, Executor executor) {
+    CompletableFuture<Path> future = new CompletableFuture<>();
+    CompletableFuture<Path> existing = retrievals.putIfAbsent(driverInformation, future);
+    if (existing != null) {
+      return existing;
+    }
+    executor.execute(
+        () -> {
+          try {
+            future.complete(fetch(driverInformation));
+          } catch (Throwable t) {
+            future.completeExceptionally(t);
+          }
+        });
+    return future;
+  }
+
+  private static Path await(CompletableFuture<Path> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for driver.");
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IOException(e.getCause());
+    }
   }
 
-  private Path download(DriverInformation driverInformation) throws IOException {
+  private Path fetch(DriverInformation driverInformation) throws IOException {
+    if (!driverInformation.checksum().isPresent()) {
+      return download(driverInformation, driverPath.resolve(driverInformation.getDriverFileName()));
+    }
+    Path cachedPath =
+        driverPath
+            .resolve(HEX_ENCODER.encode(driverInformation.checksum().get()))
+            .resolve(driverInformation.getDriverFileName());
+    if (Files.isRegularFile(cachedPath)) {
+      logger.info("Using cached driver for '{}' at {}.", driverInformation.name(), cachedPath);
+      return cachedPath;
+    }
+    Files.createDirectories(cachedPath.getParent());
+    return download(driverInformation, cachedPath);
+  }
+
+  /**
+   * Downloads the driver to a temporary file next to the output path, hashing it while it is
+   * written, and moves it into place only once the checksum matched.
+   */
+  private Path download(DriverInformation driverInformation, Path outputPath) throws IOException {
     ClassicHttpRequest httpGet = ClassicRequestBuilder.get(driverInformation.uri()).build();
     return httpClient.execute(
         httpGet,
@@ -154,21 +235,28 @@ public class DriverRetriever {
               driverInformation.name(),
               response.getCode(),
               driverInformation.uri());
-          Path outputPath = driverPath.resolve(driverInformation.getDriverFileName());
-          try (OutputStream output = Files.newOutputStream(outputPath)) {
-            FileEntity.writeTo(response.getEntity(), output);
+          Path partialPath =
+              Files.createTempFile(
+                  outputPath.getParent(), outputPath.getFileName().toString(), ".part");
+          try {
+            HashCode hashCode;
+            try (HashingOutputStream output =
+                new HashingOutputStream(Hashing.sha256(), Files.newOutputStream(partialPath))) {
+              FileEntity.writeTo(response.getEntity(), output);
+              hashCode = output.hash();
+            }
+            checkChecksum(driverInformation, hashCode);
+            Files.move(partialPath, outputPath, ATOMIC_MOVE, REPLACE_EXISTING);
+          } finally {
+            Files.deleteIfExists(partialPath);
           }
-          checkChecksum(driverInformation, outputPath);
           return outputPath;
         });
   }
 
-  private static void checkChecksum(DriverInformation driverInformation, Path outputPath)
-      throws IOException {
+  private static void checkChecksum(DriverInformation driverInformation, HashCode hashCode) {
     if (driverInformation.checksum().isPresent()) {
       byte[] checksum = driverInformation.checksum().get();
-      HashCode hashCode =
-          com.google.common.io.Files.asByteSource(outputPath.toFile()).hash(Hashing.sha256());
       Preconditions.checkState(
           Arrays.equals(checksum, hashCode.asBytes()),
           "Retrieved driver for %s expected to have SHA256 sum '%s' but got '%s'.",
@@ -16,9 +16,15 @@
  */
 package com.google.edwmigration.dumper.application.dumper.clouddumper;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
 import com.google.cloud.kms.v1.CryptoKeyName;
 import com.google.cloud.kms.v1.DecryptResponse;
 import com.google.cloud.kms.v1.KeyManagementServiceClient;
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
 import com.google.edwmigration.dumper.application.dumper.MetadataDumper;
 import com.google.edwmigration.dumper.application.dumper.MetadataDumperUsageException;
 import com.google.gson.Gson;
@@ -27,11 +33,20 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.function.Supplier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
@@ -46,15 +61,21 @@ public class Main {
 
   private static final Gson GSON = new Gson();
 
-  private final Supplier<MetadataDumper> metadataDumperSupplier;
+  private static final String DRIVER_CACHE_ENV = "DWH_DUMPER_DRIVER_CACHE";
+
+  private static final int MAX_CONCURRENT_DRIVER_DOWNLOADS = 4;
+
+  private static final int DEFAULT_MAX_CONCURRENT_CONNECTORS = 4;
+
+  private final MetadataDumperFactory metadataDumperFactory;
   private final MetadataRetriever metadataRetriever;
   private final DriverRetriever driverRetriever;
 
   Main(
-      Supplier<MetadataDumper> metadataDumperSupplier,
+      MetadataDumperFactory metadataDumperFactory,
       MetadataRetriever metadataRetriever,
       DriverRetriever driverRetriever) {
-    this.metadataDumperSupplier = metadataDumperSupplier;
+    this.metadataDumperFactory = metadataDumperFactory;
     this.metadataRetriever = metadataRetriever;
     this.driverRetriever = driverRetriever;
   }
@@ -75,20 +96,161 @@ public class Main {
       throw new MetadataDumperUsageException(
           "Extractor configuration must provide at least one connector.");
     }
-    for (ConnectorConfiguration connectorConfiguration : config.connectors) {
-      ArrayList<String> args = new ArrayList<>();
-      args.add("--connector");
-      args.add(connectorConfiguration.connector);
-      driverRetriever
-          .getDriver(connectorConfiguration.connector)
-          .ifPresent(
-              driverPath -> {
-                args.add("--driver");
-                args.add(driverPath.toString());
-              });
-      args.addAll(connectorConfiguration.args);
-      metadataDumperSupplier.get().run();
+    checkDistinctOutputs(config.connectors);
+    int concurrency = Math.min(config.connectors.size(), config.getMaxConcurrentConnectors());
+    // Each connector sizes its thread and JDBC connection pool from --thread-pool-size, so the
+    // shared budget is split between the connectors that run at the same time.
+    int threadPoolSize = Math.max(1, config.getMaxTotalThreads() / concurrency);
+    ExecutorService driverExecutor =
+        Executors.newFixedThreadPool(
+            Math.min(config.connectors.size(), MAX_CONCURRENT_DRIVER_DOWNLOADS),
+            new ThreadFactoryBuilder().setNameFormat("driver-download-%d").setDaemon(true).build());
+    ExecutorService connectorExecutor =
+        Executors.newFixedThreadPool(
+            concurrency, new ThreadFactoryBuilder().setNameFormat("connector-%d").build());
+    try {
+      driverRetriever.prefetch(
+          config.connectors.stream().map(c -> c.connector).collect(toImmutableList()),
+          driverExecutor);
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (ConnectorConfiguration connectorConfiguration : config.connectors) {
+        results.add(
+            connectorExecutor.submit(() -> runConnector(connectorConfiguration, threadPoolSize)));
+      }
+      List<String> failedConnectors = new ArrayList<>();
+      for (int i = 0; i < results.size(); i++) {
+        String connector = config.connectors.get(i).connector;
+        try {
+          if (!results.get(i).get()) {
+            failedConnectors.add(connector);
+          }
+        } catch (ExecutionException e) {
+          logger.error("Connector '{}' failed.", connector, e.getCause());
+          failedConnectors.add(connector);
+        }
+      }
+      if (!failedConnectors.isEmpty()) {
+        throw new IllegalStateException(
+            String.format(
+                "%d of %d connectors failed: %s.",
+                failedConnectors.size(), results.size(), failedConnectors));
+      }
+    } finally {
+      connectorExecutor.shutdownNow();
+      driverExecutor.shutdown();
+    }
+  }
+
+  private boolean runConnector(ConnectorConfiguration connectorConfiguration, int threadPoolSize)
+      throws Exception {
+    List<String> connectorArgs =
+        connectorConfiguration.args == null ? ImmutableList.of() : connectorConfiguration.args;
+    // An explicit --thread-pool-size may be smaller than the connector's share, but not larger.
+    Integer requestedThreadPoolSize =
+        getOption(connectorArgs, ConnectorArguments.OPT_THREAD_POOL_SIZE)
+            .map(Ints::tryParse)
+            .orElse(null);
+    if (requestedThreadPoolSize != null && requestedThreadPoolSize > threadPoolSize) {
+      logger.warn(
+          "Connector '{}' asks for --{} {}; limiting it to its share of {}.",
+          connectorConfiguration.connector,
+          ConnectorArguments.OPT_THREAD_POOL_SIZE,
+          requestedThreadPoolSize,
+          threadPoolSize);
+      connectorArgs = removeOption(connectorArgs, ConnectorArguments.OPT_THREAD_POOL_SIZE);
+    }
+    ArrayList<String> args = new ArrayList<>();
+    args.add("--connector");
+    args.add(connectorConfiguration.connector);
+    driverRetriever
+        .getDriver(connectorConfiguration.connector)
+        .ifPresent(
+            driverPath -> {
+              args.add("--driver");
+              args.add(driverPath.toString());
+            });
+    if (!hasOption(connectorArgs, ConnectorArguments.OPT_THREAD_POOL_SIZE)) {
+      args.add("--" + ConnectorArguments.OPT_THREAD_POOL_SIZE);
+      args.add(String.valueOf(threadPoolSize));
+    }
+    args.addAll(connectorArgs);
+    logger.info("Starting connector '{}'.", connectorConfiguration.connector);
+    return metadataDumperFactory.create(args.toArray(new String[0])).run();
+  }
+
+  /**
+   * Rejects configurations where two connectors would write to the same output, as they run
+   * concurrently.
+   */
+  private static void checkDistinctOutputs(List<ConnectorConfiguration> connectors)
+      throws MetadataDumperUsageException {
+    Map<String, String> connectorByOutput = new HashMap<>();
+    for (ConnectorConfiguration connectorConfiguration : connectors) {
+      String output = resolveOutput(connectorConfiguration);
+      String previous = connectorByOutput.putIfAbsent(output, connectorConfiguration.connector);
+      if (previous != null) {
+        throw new MetadataDumperUsageException(
+            String.format(
+                "Connectors '%s' and '%s' would both write to %s; each must set a distinct --%s.",
+                previous, connectorConfiguration.connector, output, ConnectorArguments.OPT_OUTPUT));
+      }
+    }
+  }
+
+  /**
+   * Describes where a connector writes its archive, resolving its {@code --output} the way {@link
+   * MetadataDumper} does. Without a zip file name, the output is the connector's default archive
+   * in the given directory or GCS path, which is the same for every run of that connector.
+   */
+  private static String resolveOutput(ConnectorConfiguration connectorConfiguration) {
+    List<String> args =
+        connectorConfiguration.args == null ? ImmutableList.of() : connectorConfiguration.args;
+    String output = getOption(args, ConnectorArguments.OPT_OUTPUT).orElse("");
+    boolean isGcs = output.startsWith("gs://");
+    if (StringUtils.endsWithIgnoreCase(output, ".zip")
+        && (isGcs || !Files.isDirectory(Paths.get(output)))) {
+      return String.format("'%s'", isGcs ? output : Paths.get(output).toAbsolutePath().normalize());
     }
+    String directory =
+        isGcs
+            ? StringUtils.removeEnd(output, "/")
+            : Paths.get(output).toAbsolutePath().normalize().toString();
+    return String.format(
+        "the default %s archive in '%s'", connectorConfiguration.connector, directory);
+  }
+
+  /** Returns the arguments without any occurrence of an option, given as one or two arguments. */
+  private static List<String> removeOption(List<String> args, String option) {
+    String flag = "--" + option;
+    List<String> remaining = new ArrayList<>();
+    for (int i = 0; i < args.size(); i++) {
+      String arg = args.get(i);
+      if (arg.equals(flag)) {
+        i++;
+      } else if (!arg.startsWith(flag + "=")) {
+        remaining.add(arg);
+      }
+    }
+    return remaining;
+  }
+
+  private static boolean hasOption(List<String> args, String option) {
+    return getOption(args, option).isPresent();
+  }
+
+  /** Returns the value of the first occurrence of an option, given as one or two arguments. */
+  private static Optional<String> getOption(List<String> args, String option) {
+    String flag = "--" + option;
+    for (int i = 0; i < args.size(); i++) {
+      String arg = args.get(i);
+      if (arg.startsWith(flag + "=")) {
+        return Optional.of(arg.substring(flag.length() + 1));
+      }
+      if (arg.equals(flag)) {
+        return Optional.of(i + 1 < args.size() ? args.get(i + 1) : "");
+      }
+    }
+    return Optional.empty();
   }
 
   public static void main(String... args) throws Exception {
@@ -99,24 +261,66 @@ public class Main {
                     /* maxRetries= */ 3, /* defaultRetryInterval= */ TimeValue.ofSeconds(1L)))
             .build()) {
       new Main(
-              () -> {
-                try {
-                  return new MetadataDumper(args);
-                } catch (Exception e) {
-                  throw new RuntimeException(e);
-                }
-              },
+              MetadataDumper::new,
               new HttpClientMetadataRetriever(httpClient),
-              DriverRetriever.create(httpClient, Files.createTempDirectory("clouddumper")))
+              DriverRetriever.create(httpClient, getDriverCachePath()))
           .run();
     } catch (MetadataDumperUsageException e) {
       logger.error(e.getMessage(), e);
     }
   }
 
+  /**
+   * Returns the directory where drivers are cached between runs, which is taken from the
+   * environment variable {@value #DRIVER_CACHE_ENV} or else is a directory in the user's home.
+   */
+  private static Path getDriverCachePath() throws IOException {
+    String configured = System.getenv(DRIVER_CACHE_ENV);
+    Path path =
+        configured == null || configured.isEmpty()
+            ? Paths.get(System.getProperty("user.home"), ".cache", "dwh-migration-dumper")
+                .resolve("drivers")
+            : Paths.get(configured);
+    return Files.createDirectories(path);
+  }
+
+  /** Creates the dumper for one connector from its command line arguments. */
+  interface MetadataDumperFactory {
+
+    MetadataDumper create(String... args) throws Exception;
+  }
+
   static class ExtractorConfiguration {
 
     private List<ConnectorConfiguration> connectors;
+
+    /** How many connectors run at the same time. */
+    private Integer maxConcurrentConnectors;
+
+    /** How many threads, and so JDBC connections, the running connectors may use in total. */
+    private Integer maxTotalThreads;
+
+    int getMaxConcurrentConnectors() throws MetadataDumperUsageException {
+      return positiveOrDefault(
+          "maxConcurrentConnectors", maxConcurrentConnectors, DEFAULT_MAX_CONCURRENT_CONNECTORS);
+    }
+
+    int getMaxTotalThreads() throws MetadataDumperUsageException {
+      return positiveOrDefault(
+          "maxTotalThreads", maxTotalThreads, ConnectorArguments.OPT_THREAD_POOL_SIZE_DEFAULT);
+    }
+
+    private static int positiveOrDefault(String name, @Nullable Integer value, int defaultValue)
+        throws MetadataDumperUsageException {
+      if (value == null) {
+        return defaultValue;
+      }
+      if (value <= 0) {
+        throw new MetadataDumperUsageException(
+            String.format("Extractor configuration %s must be positive, got %d.", name, value));
+      }
+      return value;
+    }
   }
 
   static class ConnectorConfiguration {
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
+import com.google.edwmigration.dumper.application.dumper.MetadataDumperUsageException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.Properties;
+import javax.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A small state file recording, for each connector and source, the instant up to which query logs
+ * have been fully extracted.
+ *
+ * <p>The file is a {@link Properties} file mapping a key built by {@link #keyFor} to an ISO
+ * instant. It is rewritten atomically, so that an interrupted run leaves the previous watermark in
+ * place.
+ */
+public class QueryLogWatermarks {
+
+  private static final Logger logger = LoggerFactory.getLogger(QueryLogWatermarks.class);
+
+  private static final String COMMENT = "Query log extraction watermarks, written by the dumper.";
+
+  private final Path file;
+
+  public QueryLogWatermarks(@Nonnull Path file) {
+    this.file = Preconditions.checkNotNull(file, "Watermark file was null.");
+  }
+
+  /**
+   * Returns the key under which the watermark of the given connector and source is recorded.
+   *
+   * <p>The source is the host and port, or a hash of the JDBC URL if one was given, since the URL
+   * may hold credentials, and the key is written in the clear to the file and the log.
+   */
+  @Nonnull
+  public static String keyFor(@Nonnull ConnectorArguments arguments) {
+    String uri = arguments.getUri();
+    String source;
+    if (uri != null) {
+      source = "url-sha256:" + Hashing.sha256().hashString(uri, UTF_8);
+    } else {
+      source = arguments.getHostOrDefault();
+      Integer port = arguments.getPort();
+      if (port != null) {
+        source = source + ":" + port;
+      }
+    }
+    return arguments.getConnectorName() + "@" + source;
+  }
+
+  @Nonnull
+  public Optional<ZonedDateTime> read(@Nonnull String key) throws IOException {
+    String value = load().getProperty(key);
+    if (value == null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(Instant.parse(value).atZone(ZoneOffset.UTC));
+    } catch (DateTimeParseException e) {
+      throw new MetadataDumperUsageException(
+          String.format("Invalid watermark '%s' for '%s' in %s.", value, key, file));
+    }
+  }
+
+  /**
+   * Records the given watermark for the key, unless a later one is already recorded.
+   *
+   * @return true if the file was updated
+   */
+  public boolean advance(@Nonnull String key, @Nonnull ZonedDateTime watermark)
+      throws IOException {
+    Properties properties = load();
+    String previous = properties.getProperty(key);
+    Instant instant = watermark.toInstant();
+    if (previous != null && !Instant.parse(previous).isBefore(instant)) {
+      logger.debug("Watermark for '{}' is already at {}; not moving it back.", key, previous);
+      return false;
+    }
+    properties.setProperty(key, instant.toString());
+    store(properties);
+    logger.info("Advanced query log watermark for '{}' to {}.", key, instant);
+    return true;
+  }
+
+  @Nonnull
+  private Properties load() throws IOException {
+    Properties properties = new Properties();
+    if (Files.exists(file)) {
+      try (Reader reader = Files.newBufferedReader(file, UTF_8)) {
+        properties.load(reader);
+      }
+    }
+    return properties;
+  }
+
+  private void store(@Nonnull Properties properties) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+    Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      try (Writer writer = Files.newBufferedWriter(temporary, UTF_8)) {
+        properties.store(writer, COMMENT);
+      }
+      Files.move(
+          temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "QueryLogWatermarks(" + file + ")";
+  }
+}
@@ -21,6 +21,7 @@ import com.google.common.collect.AbstractIterator;
 import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.Iterator;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 
@@ -29,6 +30,8 @@ public class ZonedIntervalIterable implements Iterable<ZonedInterval> {
   private final ZonedDateTime start;
   private final ZonedDateTime end;
   private final Duration intervalDuration;
+  // Intervals ending at or before this instant were already extracted by a previous run.
+  @CheckForNull private final ZonedDateTime watermark;
 
   ZonedIntervalIterable(
       @Nonnull ZonedDateTime start,
@@ -47,6 +50,25 @@ public class ZonedIntervalIterable implements Iterable<ZonedInterval> {
 
     this.start = expandedInterval.getStart();
     this.end = expandedInterval.getEndExclusive();
+    this.watermark = null;
+  }
+
+  private ZonedIntervalIterable(
+      @Nonnull ZonedIntervalIterable source, @Nonnull ZonedDateTime watermark) {
+    this.start = source.start;
+    this.end = source.end;
+    this.intervalDuration = source.intervalDuration;
+    this.watermark = watermark;
+  }
+
+  /**
+   * Returns a view of this iterable which skips the intervals that end at or before the given
+   * watermark, i.e. the intervals already extracted by a previous incremental run.
+   */
+  @Nonnull
+  public ZonedIntervalIterable withIntervalsEndingAfter(@Nonnull ZonedDateTime watermark) {
+    Preconditions.checkNotNull(watermark, "Watermark was null.");
+    return new ZonedIntervalIterable(this, watermark);
   }
 
   @Nonnull
@@ -64,12 +86,22 @@ public class ZonedIntervalIterable implements Iterable<ZonedInterval> {
     return intervalDuration;
   }
 
+  @CheckForNull
+  public ZonedDateTime getWatermark() {
+    return watermark;
+  }
+
   private class DatesIterator extends AbstractIterator<ZonedInterval> {
 
     private ZonedDateTime current;
 
     public DatesIterator() {
       this.current = start;
+      if (watermark != null) {
+        while (current.isBefore(end) && !current.plus(intervalDuration).isAfter(watermark)) {
+          current = current.plus(intervalDuration);
+        }
+      }
     }
 
     @Override
@@ -93,10 +125,15 @@ public class ZonedIntervalIterable implements Iterable<ZonedInterval> {
 
   @Override
   public String toString() {
-    return String.format(
-        "from [%s] to [%s] every [%s]ms",
-        start,
-        end,
-        DurationFormatUtils.formatDurationWords(intervalDuration.toMillis(), true, true));
+    String out =
+        String.format(
+            "from [%s] to [%s] every [%s]ms",
+            start,
+            end,
+            DurationFormatUtils.formatDurationWords(intervalDuration.toMillis(), true, true));
+    if (watermark != null) {
+      out += String.format(" after watermark [%s]", watermark);
+    }
+    return out;
   }
 }
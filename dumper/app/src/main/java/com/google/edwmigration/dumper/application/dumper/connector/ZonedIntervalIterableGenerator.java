@@ -20,10 +20,14 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
 import com.google.edwmigration.dumper.application.dumper.MetadataDumperUsageException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Optional;
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import org.apache.commons.lang3.time.DurationFormatUtils;
@@ -129,8 +133,13 @@ public class ZonedIntervalIterableGenerator {
           arguments.getQueryLogStart(),
           arguments.getQueryLogEndOrDefault(),
           DurationFormatUtils.formatDurationWords(duration.toMillis(), true, true));
-      return createZonedIntervals(
-          arguments.getQueryLogStart(), arguments.getQueryLogEndOrDefault(), duration, expander);
+      return applyWatermark(
+          arguments,
+          createZonedIntervals(
+              arguments.getQueryLogStart(),
+              arguments.getQueryLogEndOrDefault(),
+              duration,
+              expander));
     }
 
     final int daysToExport = arguments.getQueryLogDays(7);
@@ -144,7 +153,39 @@ public class ZonedIntervalIterableGenerator {
         DurationFormatUtils.formatDurationWords(duration.toMillis(), true, true));
 
     long chunksInADay = Duration.ofDays(1).getSeconds() / duration.getSeconds();
-    return forTimeUnitsUntilNow(chunksInADay * daysToExport, duration, expander);
+    return applyWatermark(
+        arguments, forTimeUnitsUntilNow(chunksInADay * daysToExport, duration, expander));
+  }
+
+  /**
+   * In incremental mode, skips the intervals which a previous run already extracted, except for
+   * those within the configured overlap before the recorded watermark.
+   */
+  @Nonnull
+  private static ZonedIntervalIterable applyWatermark(
+      @Nonnull ConnectorArguments arguments, @Nonnull ZonedIntervalIterable intervals) {
+    File watermarkFile = arguments.getQueryLogWatermarkFile();
+    if (watermarkFile == null) {
+      return intervals;
+    }
+    String key = QueryLogWatermarks.keyFor(arguments);
+    Optional<ZonedDateTime> watermark;
+    try {
+      watermark = new QueryLogWatermarks(watermarkFile.toPath()).read(key);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read query log watermark file " + watermarkFile, e);
+    }
+    if (!watermark.isPresent()) {
+      logger.info("No query log watermark recorded for '{}'; exporting the full range.", key);
+      return intervals;
+    }
+    ZonedDateTime cutoff = watermark.get().minus(arguments.getQueryLogWatermarkOverlap());
+    logger.info(
+        "Query log watermark for '{}' is {}; exporting intervals ending after {}.",
+        key,
+        watermark.get(),
+        cutoff);
+    return intervals.withIntervalsEndingAfter(cutoff);
   }
 
   private static ZonedIntervalIterable createZonedIntervals(
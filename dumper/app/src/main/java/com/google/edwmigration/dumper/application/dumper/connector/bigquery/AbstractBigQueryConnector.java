@@ -94,16 +94,24 @@ public abstract class AbstractBigQueryConnector extends AbstractConnector {
     /** Iterates over a page, with retries where appropriate. */
     protected static class PageIterable<T> implements Iterable<T> {
 
+      /** Called before each following page is fetched, e.g. to apply backpressure or a quota. */
+      @FunctionalInterface
+      protected interface PageListener {
+        void beforeNextPage() throws InterruptedException;
+      }
+
       // We don't extend AbstractIterator here because if we call next()
       // within hasNext() and it throws an exception, we can get very twisted up.
       private static class Itr<T> extends UnmodifiableIterator<T> {
 
         @CheckForNull private Page<T> currentPage;
         @Nonnull private Iterator<T> currentPageIterator;
+        @CheckForNull private final PageListener listener;
 
-        Itr(@Nonnull Page<T> currentPage) {
+        Itr(@Nonnull Page<T> currentPage, @CheckForNull PageListener listener) {
           this.currentPage = currentPage;
           this.currentPageIterator = currentPage.getValues().iterator();
+          this.listener = listener;
         }
 
         @Override
@@ -111,6 +119,7 @@ public abstract class AbstractBigQueryConnector extends AbstractConnector {
           for (; ; ) {
             while (!currentPageIterator.hasNext()) {
               try {
+                if (listener != null && currentPage.hasNextPage()) listener.beforeNextPage();
                 currentPage = runWithBackOff(() -> currentPage.getNextPage());
               } catch (IOException e) {
                 throw new BigQueryException(e);
@@ -138,14 +147,20 @@ public abstract class AbstractBigQueryConnector extends AbstractConnector {
       }
 
       private final Page<T> page;
+      @CheckForNull private final PageListener listener;
 
       public PageIterable(@Nonnull Page<T> page) {
+        this(page, null);
+      }
+
+      public PageIterable(@Nonnull Page<T> page, @CheckForNull PageListener listener) {
         this.page = Preconditions.checkNotNull(page, "Initial page was null.");
+        this.listener = listener;
       }
 
       @Override
       public Iterator<T> iterator() {
-        return new Itr<>(page);
+        return new Itr<>(page, listener);
       }
     }
 
@@ -29,13 +29,17 @@ import com.google.cloud.bigquery.JobStatus;
 import com.google.cloud.bigquery.LoadJobConfiguration;
 import com.google.cloud.bigquery.QueryJobConfiguration;
 import com.google.cloud.bigquery.TableId;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.RateLimiter;
 import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
 import com.google.edwmigration.dumper.application.dumper.annotations.RespectsArgumentQueryLogDays;
 import com.google.edwmigration.dumper.application.dumper.annotations.RespectsArgumentQueryLogEnd;
 import com.google.edwmigration.dumper.application.dumper.annotations.RespectsArgumentQueryLogStart;
 import com.google.edwmigration.dumper.application.dumper.annotations.RespectsInput;
 import com.google.edwmigration.dumper.application.dumper.connector.Connector;
+import com.google.edwmigration.dumper.application.dumper.connector.ConnectorProperty;
 import com.google.edwmigration.dumper.application.dumper.connector.LogsConnector;
 import com.google.edwmigration.dumper.application.dumper.connector.ZonedInterval;
 import com.google.edwmigration.dumper.application.dumper.connector.ZonedIntervalIterable;
@@ -43,17 +47,23 @@ import com.google.edwmigration.dumper.application.dumper.connector.ZonedInterval
 import com.google.edwmigration.dumper.application.dumper.task.DumpMetadataTask;
 import com.google.edwmigration.dumper.application.dumper.task.FormatTask;
 import com.google.edwmigration.dumper.application.dumper.task.Task;
+import com.google.edwmigration.dumper.application.dumper.utils.PropertyParser;
 import com.google.edwmigration.dumper.plugin.ext.jdk.annotation.Description;
 import com.google.edwmigration.dumper.plugin.ext.jdk.concurrent.ExecutorManager;
 import com.google.edwmigration.dumper.plugin.ext.jdk.progress.ConcurrentProgressMonitor;
 import com.google.edwmigration.dumper.plugin.ext.jdk.progress.ConcurrentRecordProgressMonitor;
 import com.google.edwmigration.dumper.plugin.lib.dumper.spi.BigQueryLogsDumpFormat;
 import com.swrve.ratelimitedlogger.RateLimitedLog;
+import java.io.IOException;
 import java.io.Writer;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import org.apache.commons.lang3.BooleanUtils;
@@ -103,51 +113,103 @@ public class BigQueryLogsConnector extends AbstractBigQueryConnector
       ZonedIntervalIterable intervals =
           ZonedIntervalIterableGenerator.forConnectorArguments(arguments);
 
+      int listingThreads =
+          (int)
+              PropertyParser.parseNumber(
+                      arguments,
+                      BigQueryLogsConnectorProperty.LISTING_THREADS,
+                      LISTING_THREADS_RANGE)
+                  .orElse(LISTING_THREADS_DEFAULT);
+      double requestsPerSecond =
+          PropertyParser.parseNumber(
+                  arguments,
+                  BigQueryLogsConnectorProperty.REQUESTS_PER_SECOND_PER_PROJECT,
+                  REQUESTS_PER_SECOND_RANGE)
+              .orElse(REQUESTS_PER_SECOND_DEFAULT);
+
       // Currently uses Jobs API to get list of query jobs
       // (https://cloud.google.com/bigquery/docs/reference/rest/v2/jobs/list)
       // Not sure how efficient it is w.r.t to computing and monetary costs.
       // (There is also audit logs. https://cloud.google.com/bigquery/docs/reference/auditlogs/)
-      ExecutorService executor = newExecutorService();
+      //
+      // Each (project, interval) range is listed on its own thread, and serializes its jobs into
+      // its own buffer. This thread is the only writer: it drains the ranges in submission order,
+      // so the output is the same as if they had been listed one after another. At most
+      // listingThreads ranges are in flight at any time, and the lines they buffer share one
+      // budget, which bounds the memory used.
+      ExecutorService listingExecutor =
+          ExecutorManager.newUnboundedExecutorService(getName() + "-list", listingThreads);
+      ExecutorService childExecutor = newExecutorService();
+      Deque<JobRange> inFlight = new ArrayDeque<>();
+      RangeBuffer.Budget budget = new RangeBuffer.Budget(MAX_BUFFERED_CHARS);
       try (ConcurrentProgressMonitor monitor =
-              new ConcurrentRecordProgressMonitor("Writing to " + getTargetPath());
-          ExecutorManager manager = new ExecutorManager(executor)) {
+          new ConcurrentRecordProgressMonitor("Writing to " + getTargetPath())) {
         for (String projectId : projectIds) {
+          RateLimiter rateLimiter = RateLimiter.create(requestsPerSecond);
           for (ZonedInterval interval : intervals) {
-            logger.info(
-                "Retrieving query logs in range start={} to end={}",
-                interval.getStart(),
-                interval.getEndExclusive());
-            BigQuery.JobListOption minCreationTimeMillis =
-                BigQuery.JobListOption.minCreationTime(interval.getStart().toEpochSecond() * 1000);
-            BigQuery.JobListOption maxCreationTimeMillis =
-                BigQuery.JobListOption.maxCreationTime(
-                    interval.getEndExclusive().toEpochSecond() * 1000);
-            Page<Job> jobPage =
-                runWithBackOff(
-                    () ->
-                        BigQueryAccessor.listJobs(
-                            bigQuery,
-                            projectId,
-                            minCreationTimeMillis,
-                            maxCreationTimeMillis,
-                            jloAllUsers,
-                            jloPageSize,
-                            jloState));
-            Iterable<Job> jobIterable = new PageIterable<>(jobPage);
-            writeJobsDetails(manager, bigQuery, writer, jobIterable, monitor);
+            JobRange range = new JobRange(budget, projectId, interval, rateLimiter);
+            range.future =
+                listingExecutor.submit(
+                    () -> {
+                      listJobRange(range, bigQuery, childExecutor, monitor);
+                      return null;
+                    });
+            inFlight.addLast(range);
+            if (inFlight.size() >= listingThreads) inFlight.removeFirst().writeTo(writer);
           }
         }
+        while (!inFlight.isEmpty()) inFlight.removeFirst().writeTo(writer);
+      } finally {
+        for (JobRange range : inFlight) range.future.cancel(true);
+        shutdown(listingExecutor);
+        shutdown(childExecutor);
+      }
+    }
+
+    private void listJobRange(
+        @Nonnull JobRange range,
+        @Nonnull BigQuery bigQuery,
+        @Nonnull ExecutorService childExecutor,
+        @Nonnull ConcurrentProgressMonitor monitor)
+        throws Exception {
+      try (ExecutorManager manager = new ExecutorManager(childExecutor)) {
+        ZonedInterval interval = range.interval;
+        logger.info(
+            "Retrieving query logs for project {} in range start={} to end={}",
+            range.projectId,
+            interval.getStart(),
+            interval.getEndExclusive());
+        BigQuery.JobListOption minCreationTimeMillis =
+            BigQuery.JobListOption.minCreationTime(interval.getStart().toEpochSecond() * 1000);
+        BigQuery.JobListOption maxCreationTimeMillis =
+            BigQuery.JobListOption.maxCreationTime(
+                interval.getEndExclusive().toEpochSecond() * 1000);
+        range.rateLimiter.acquire();
+        Page<Job> jobPage =
+            runWithBackOff(
+                () ->
+                    BigQueryAccessor.listJobs(
+                        bigQuery,
+                        range.projectId,
+                        minCreationTimeMillis,
+                        maxCreationTimeMillis,
+                        jloAllUsers,
+                        jloPageSize,
+                        jloState));
+        Iterable<Job> jobIterable = new PageIterable<>(jobPage, range);
+        writeJobsDetails(manager, bigQuery, range, jobIterable, monitor, /* mayWait= */ true);
       } finally {
-        shutdown(executor);
+        range.finish();
       }
     }
 
     private void writeJobsDetails(
         @Nonnull ExecutorManager manager,
         @Nonnull BigQuery bigQuery,
-        @Nonnull Writer writer,
+        @Nonnull JobRange range,
         @Nonnull Iterable<Job> jobs,
-        @Nonnull ConcurrentProgressMonitor monitor)
+        @Nonnull ConcurrentProgressMonitor monitor,
+        boolean mayWait)
         throws Exception {
       Iterator<Job> it = jobs.iterator();
       while (it.hasNext()) {
@@ -187,15 +249,21 @@ public class BigQueryLogsConnector extends AbstractBigQueryConnector
             LOG_LIMITED.debug(
                 "Listing {} children of {}.{}", jobChildCount, jobId.getProject(), jobId);
           BigQuery.JobListOption jloParent = BigQuery.JobListOption.parentJobId(jobId.getJob());
+          // Only the thread of the range itself waits for the writer. Child listings run on a pool
+          // shared by all ranges, and must not wait: the range cannot finish without them.
+          if (mayWait) range.awaitRoom();
           manager.execute(
               () -> {
+                range.rateLimiter.acquire();
                 Page<Job> jobChildPage =
                     runWithBackOff(
                         () ->
                             BigQueryAccessor.listJobs(
                                 bigQuery, jobId.getProject(), jloParent, jloPageSize));
-                Iterable<Job> jobChildIterable = new PageIterable<>(jobChildPage);
-                writeJobsDetails(manager, bigQuery, writer, jobChildIterable, monitor);
+                Iterable<Job> jobChildIterable =
+                    new PageIterable<>(jobChildPage, () -> range.rateLimiter.acquire());
+                writeJobsDetails(
+                    manager, bigQuery, range, jobChildIterable, monitor, /* mayWait= */ false);
                 return null;
               });
         }
@@ -241,17 +309,52 @@ public class BigQueryLogsConnector extends AbstractBigQueryConnector
               continue;
           }
 
-          String metadataText = BigQueryLogsDumpFormat.MAPPER.writeValueAsString(out);
-          synchronized (writer) {
-            writer.write(metadataText);
-            writer.write('\n');
-          }
+          range.add(BigQueryLogsDumpFormat.MAPPER.writeValueAsString(out));
         } else {
           LOG_LIMITED.debug("Ignored job with no type.");
         }
       }
     }
 
+    /** The serialized jobs of one (project, interval) range, and the state of its listing. */
+    private static class JobRange extends RangeBuffer implements PageIterable.PageListener {
+
+      private final String projectId;
+      private final ZonedInterval interval;
+      private final RateLimiter rateLimiter;
+      private Future<?> future;
+
+      JobRange(
+          @Nonnull RangeBuffer.Budget budget,
+          @Nonnull String projectId,
+          @Nonnull ZonedInterval interval,
+          @Nonnull RateLimiter rateLimiter) {
+        super(budget);
+        this.projectId = projectId;
+        this.interval = interval;
+        this.rateLimiter = rateLimiter;
+      }
+
+      /** Waits until the writer has caught up, then for the rate limit of the project. */
+      @Override
+      public void beforeNextPage() throws InterruptedException {
+        awaitRoom();
+        rateLimiter.acquire();
+      }
+
+      @Override
+      void writeTo(@Nonnull Writer writer) throws IOException, InterruptedException {
+        super.writeTo(writer);
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+          Throwables.throwIfUnchecked(e.getCause());
+          throw new IOException("Failed to list jobs of " + projectId, e.getCause());
+        }
+      }
+    }
+
     @CheckForNull
     private static String getEnumName(@CheckForNull Enum<?> value) {
       if (value == null) return null;
@@ -353,10 +456,61 @@ public class BigQueryLogsConnector extends AbstractBigQueryConnector
     }
   }
 
+  private static final Range<Long> LISTING_THREADS_RANGE = Range.closed(1L, 256L);
+  private static final long LISTING_THREADS_DEFAULT = 8;
+  private static final Range<Long> REQUESTS_PER_SECOND_RANGE = Range.closed(1L, 10_000L);
+  private static final long REQUESTS_PER_SECOND_DEFAULT = 20;
+
+  /** The chars of serialized jobs buffered across all ranges not yet reached by the writer. */
+  private static final long MAX_BUFFERED_CHARS = 32L << 20;
+
+  public enum BigQueryLogsConnectorProperty implements ConnectorProperty {
+    LISTING_THREADS(
+        "listing-threads",
+        "The number of (project, interval) ranges whose jobs are listed concurrently."
+            + " Allowed range: "
+            + LISTING_THREADS_RANGE
+            + ". Default: "
+            + LISTING_THREADS_DEFAULT),
+    REQUESTS_PER_SECOND_PER_PROJECT(
+        "requests-per-second-per-project",
+        "The maximum number of jobs.list requests issued per second for each project."
+            + " Allowed range: "
+            + REQUESTS_PER_SECOND_RANGE
+            + ". Default: "
+            + REQUESTS_PER_SECOND_DEFAULT);
+
+    private final String name;
+    private final String description;
+
+    BigQueryLogsConnectorProperty(String name, String description) {
+      this.name = "bigquery-logs." + name;
+      this.description = description;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Nonnull
+    @Override
+    public String getDescription() {
+      return description;
+    }
+  }
+
   public BigQueryLogsConnector() {
     super("bigquery-logs");
   }
 
+  @Nonnull
+  @Override
+  protected Class<? extends Enum<? extends ConnectorProperty>> getConnectorProperties() {
+    return BigQueryLogsConnectorProperty.class;
+  }
+
   @Override
   // TODO: Use ZonedIntervalIterableGenerator.forConnectorArguments() to generate N tasks here, each
   // for a
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector.bigquery;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.annotation.Nonnull;
+
+/**
+ * The lines of one range of a listing that runs ranges concurrently but writes them out one after
+ * another, in the order they were started.
+ *
+ * <p>Producers add lines at any time; a single writer drains the ranges in order. The lines
+ * buffered by all ranges are accounted against a shared {@link Budget}. A producer that can afford
+ * to wait calls {@link #awaitRoom()} before producing more, which blocks while the budget is
+ * exhausted, unless the writer is already draining this range: that range must always be able to
+ * make progress, or nothing would ever be released.
+ */
+class RangeBuffer {
+
+  /** The number of chars buffered across all ranges, shared by the ranges of one listing. */
+  static class Budget {
+
+    private final long maxChars;
+    private long bufferedChars; // Guarded by this.
+
+    Budget(long maxChars) {
+      this.maxChars = maxChars;
+    }
+
+    private synchronized void add(long chars) {
+      bufferedChars += chars;
+    }
+
+    private synchronized void release(long chars) {
+      bufferedChars -= chars;
+      notifyAll();
+    }
+
+    private synchronized void await(@Nonnull RangeBuffer range) throws InterruptedException {
+      while (bufferedChars >= maxChars && !range.draining) {
+        wait();
+      }
+    }
+
+    private synchronized void wakeUp() {
+      notifyAll();
+    }
+  }
+
+  /** Marks the end of the range; compared by identity. */
+  @SuppressWarnings("StringOperationCanBeSimplified")
+  private static final String END = new String("END");
+
+  private final Budget budget;
+  private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+  private volatile boolean draining;
+
+  RangeBuffer(@Nonnull Budget budget) {
+    this.budget = budget;
+  }
+
+  /** Adds a line. Never blocks, so it is safe to call from threads shared between ranges. */
+  void add(@Nonnull String line) {
+    budget.add(line.length());
+    lines.add(line);
+  }
+
+  /** Marks the range as complete; must be called exactly once, also on failure. */
+  void finish() {
+    lines.add(END);
+  }
+
+  /** Waits until the shared budget has room, or the writer has reached this range. */
+  void awaitRoom() throws InterruptedException {
+    budget.await(this);
+  }
+
+  /** Writes the lines of this range until it is finished. */
+  void writeTo(@Nonnull Writer writer) throws IOException, InterruptedException {
+    draining = true;
+    budget.wakeUp();
+    for (; ; ) {
+      String line = lines.take();
+      if (line == END) {
+        return;
+      }
+      writer.write(line);
+      writer.write('\n');
+      budget.release(line.length());
+    }
+  }
+}
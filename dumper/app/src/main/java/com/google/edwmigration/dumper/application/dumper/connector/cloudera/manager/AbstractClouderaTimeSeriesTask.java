@@ -17,18 +17,47 @@
 package com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.edwmigration.dumper.application.dumper.task.TaskCategory;
 import java.net.URI;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.apache.hc.core5.net.URIBuilder;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 abstract class AbstractClouderaTimeSeriesTask extends AbstractClouderaManagerTask {
+  private static final Logger logger =
+      LoggerFactory.getLogger(AbstractClouderaTimeSeriesTask.class);
+  static final int MAX_CONCURRENT_REQUESTS = 8;
+  static final int MAX_POINTS_PER_WINDOW = 1000;
   private static final DateTimeFormatter isoDateTimeFormatter =
       DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
   private final ZonedDateTime startDate;
@@ -62,15 +91,266 @@ abstract class AbstractClouderaTimeSeriesTask extends AbstractClouderaManagerTas
     return taskCategory;
   }
 
-  protected JsonNode requestTimeSeriesChart(ClouderaManagerHandle handle, String query)
+  /**
+   * Requests the chart of each query and writes them, one line per entity of the query, in the
+   * order of the queries.
+   *
+   * <p>Date ranges of more than {@link #MAX_POINTS_PER_WINDOW} rollup periods are split into
+   * windows, which are requested concurrently and merged back into a single chart per query. At
+   * most {@link #MAX_CONCURRENT_REQUESTS} requests run at a time, and the responses of at most
+   * twice as many are held before they are written.
+   */
+  protected void writeTimeSeriesCharts(
+      ClouderaManagerHandle handle, List<ChartQuery> queries, JsonWriter writer) throws Exception {
+    List<ZonedDateTime> bounds =
+        splitDateRange(
+            startDate, endDate, tsAggregation.getPeriod().multipliedBy(MAX_POINTS_PER_WINDOW));
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            MAX_CONCURRENT_REQUESTS,
+            new ThreadFactoryBuilder()
+                .setNameFormat("cloudera-timeseries-%d")
+                .setDaemon(true)
+                .build());
+    Deque<Map.Entry<ChartQuery, List<Future<JsonNode>>>> inFlight = new ArrayDeque<>();
+    int requestsInFlight = 0;
+    try {
+      for (ChartQuery query : queries) {
+        while (!inFlight.isEmpty()
+            && requestsInFlight + bounds.size() - 1 > 2 * MAX_CONCURRENT_REQUESTS) {
+          requestsInFlight -= writeChart(inFlight.poll(), writer);
+        }
+        List<Future<JsonNode>> windows = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.size(); i++) {
+          ZonedDateTime from = bounds.get(i);
+          ZonedDateTime to = bounds.get(i + 1);
+          windows.add(
+              executor.submit(() -> requestTimeSeriesChart(handle, query.query, from, to)));
+        }
+        inFlight.add(Maps.immutableEntry(query, windows));
+        requestsInFlight += windows.size();
+      }
+      while (!inFlight.isEmpty()) {
+        writeChart(inFlight.poll(), writer);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Writes the chart merged from the windows of a query, or the chart of each of its entities,
+   * returning the number of windows.
+   */
+  private static int writeChart(
+      Map.Entry<ChartQuery, List<Future<JsonNode>>> windowsOfQuery, JsonWriter writer)
+      throws Exception {
+    ChartQuery query = windowsOfQuery.getKey();
+    List<Future<JsonNode>> windows = windowsOfQuery.getValue();
+    JsonNode chart = getChart(windows.get(0));
+    for (Future<JsonNode> window : windows.subList(1, windows.size())) {
+      mergeWindow(chart, getChart(window));
+    }
+    if (query.attribute == null || !chart.path("items").isArray()) {
+      writer.writeLine(chart);
+    } else {
+      for (JsonNode entityChart : splitChart(chart, query)) {
+        writer.writeLine(entityChart);
+      }
+    }
+    return windows.size();
+  }
+
+  /**
+   * Builds queries from a template with a single {@code %s} for a predicate, matching at most
+   * {@code batchSize} values of the attribute per query.
+   */
+  static List<ChartQuery> batchQueries(
+      String template, String attribute, List<String> values, int batchSize) {
+    Preconditions.checkArgument(batchSize > 0, "Batch size must be positive.");
+    List<ChartQuery> queries = new ArrayList<>();
+    for (List<String> batch : Lists.partition(values, batchSize)) {
+      if (batch.size() == 1) {
+        queries.add(ChartQuery.of(String.format(template, predicate(attribute, batch.get(0)))));
+        continue;
+      }
+      ImmutableMap.Builder<String, String> queryByValue = ImmutableMap.builder();
+      for (String value : batch) {
+        queryByValue.put(value, String.format(template, predicate(attribute, value)));
+      }
+      String predicate =
+          batch.stream()
+              .map(value -> predicate(attribute, value))
+              .collect(Collectors.joining(" OR "));
+      queries.add(
+          new ChartQuery(
+              String.format(template, predicate), attribute, queryByValue.buildKeepingLast()));
+    }
+    return queries;
+  }
+
+  private static String predicate(String attribute, String value) {
+    return String.format("%s = \"%s\"", attribute, value);
+  }
+
+  /**
+   * Splits the chart of a query for several entities into the chart of each entity, in the order
+   * of the entities, as if each had been queried on its own: every item keeps the time series whose
+   * attribute matches the entity, and names the query of the entity.
+   */
+  static List<JsonNode> splitChart(JsonNode chart, ChartQuery query) {
+    List<JsonNode> entityCharts = new ArrayList<>();
+    int matched = 0;
+    for (Map.Entry<String, String> entity : query.queryByValue.entrySet()) {
+      ObjectNode entityChart = JsonNodeFactory.instance.objectNode();
+      for (Iterator<Map.Entry<String, JsonNode>> fields = chart.fields(); fields.hasNext(); ) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        if (!field.getKey().equals("items")) {
+          entityChart.set(field.getKey(), field.getValue());
+          continue;
+        }
+        ArrayNode entityItems = entityChart.putArray("items");
+        for (JsonNode item : field.getValue()) {
+          if (!(item instanceof ObjectNode)) {
+            entityItems.add(item);
+            continue;
+          }
+          ObjectNode entityItem = splitItem(item, query.attribute, entity.getKey());
+          if (entityItem.has("timeSeriesQuery")) {
+            entityItem.put("timeSeriesQuery", entity.getValue());
+          }
+          matched += entityItem.path("timeSeries").size();
+          entityItems.add(entityItem);
+        }
+      }
+      entityCharts.add(entityChart);
+    }
+    int total = 0;
+    for (JsonNode item : chart.path("items")) {
+      total += item.path("timeSeries").size();
+    }
+    if (matched < total) {
+      logger.warn(
+          "Dropped {} of {} time series matching none of the entities of query [{}].",
+          total - matched,
+          total,
+          query.query);
+    }
+    return entityCharts;
+  }
+
+  /** Returns a copy of a chart item with only the time series of the given entity. */
+  private static ObjectNode splitItem(JsonNode item, String attribute, String value) {
+    ObjectNode entityItem = JsonNodeFactory.instance.objectNode();
+    for (Iterator<Map.Entry<String, JsonNode>> fields = item.fields(); fields.hasNext(); ) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      if (!field.getKey().equals("timeSeries") || !field.getValue().isArray()) {
+        entityItem.set(field.getKey(), field.getValue());
+        continue;
+      }
+      ArrayNode entitySeries = entityItem.putArray("timeSeries");
+      for (JsonNode series : field.getValue()) {
+        if (value.equals(series.path("metadata").path("attributes").path(attribute).asText())) {
+          entitySeries.add(series);
+        }
+      }
+    }
+    return entityItem;
+  }
+
+  /** Returns the bounds of consecutive windows no longer than {@code maxWindow}. */
+  static List<ZonedDateTime> splitDateRange(
+      ZonedDateTime startDate, ZonedDateTime endDate, Duration maxWindow) {
+    List<ZonedDateTime> bounds = new ArrayList<>();
+    for (ZonedDateTime bound = startDate; bound.isBefore(endDate); bound = bound.plus(maxWindow)) {
+      bounds.add(bound);
+    }
+    bounds.add(endDate);
+    return bounds;
+  }
+
+  /**
+   * Appends the time series of a later window to a chart. Series are matched by their metadata
+   * other than the time range, and a point at the bound of both windows is kept once.
+   */
+  static void mergeWindow(JsonNode chart, JsonNode window) {
+    JsonNode chartItems = chart.path("items");
+    JsonNode windowItems = window.path("items");
+    if (!chartItems.isArray() || !windowItems.isArray()) {
+      return;
+    }
+    for (int i = 0; i < windowItems.size(); i++) {
+      if (i >= chartItems.size()) {
+        ((ArrayNode) chartItems).add(windowItems.get(i));
+        continue;
+      }
+      JsonNode chartItem = chartItems.get(i);
+      JsonNode windowItem = windowItems.get(i);
+      if (!(chartItem instanceof ObjectNode) || !windowItem.path("timeSeries").isArray()) {
+        continue;
+      }
+      ArrayNode chartSeries = ((ObjectNode) chartItem).withArrayProperty("timeSeries");
+      Map<String, ObjectNode> seriesByKey = new HashMap<>();
+      for (JsonNode series : chartSeries) {
+        if (series instanceof ObjectNode) {
+          seriesByKey.put(seriesKey(series), (ObjectNode) series);
+        }
+      }
+      for (JsonNode series : windowItem.path("timeSeries")) {
+        ObjectNode merged = seriesByKey.get(seriesKey(series));
+        if (merged == null) {
+          chartSeries.add(series);
+          continue;
+        }
+        ArrayNode data = merged.withArrayProperty("data");
+        for (JsonNode point : series.path("data")) {
+          JsonNode last = data.size() > 0 ? data.get(data.size() - 1) : null;
+          if (last == null || !last.path("timestamp").equals(point.path("timestamp"))) {
+            data.add(point);
+          }
+        }
+        JsonNode endTime = series.path("metadata").path("endTime");
+        if (!endTime.isMissingNode() && merged.path("metadata") instanceof ObjectNode) {
+          ((ObjectNode) merged.path("metadata")).set("endTime", endTime);
+        }
+      }
+      JsonNode warnings = windowItem.path("warnings");
+      if (warnings.isArray()) {
+        ((ObjectNode) chartItem).withArrayProperty("warnings").addAll((ArrayNode) warnings);
+      }
+    }
+  }
+
+  private static String seriesKey(JsonNode series) {
+    JsonNode metadata = series.path("metadata");
+    if (!(metadata instanceof ObjectNode)) {
+      return metadata.toString();
+    }
+    ObjectNode key = ((ObjectNode) metadata).deepCopy();
+    key.remove(ImmutableList.of("startTime", "endTime"));
+    return key.toString();
+  }
+
+  private static JsonNode getChart(Future<JsonNode> chart) throws Exception {
+    try {
+      return chart.get();
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), Exception.class);
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
+  private JsonNode requestTimeSeriesChart(
+      ClouderaManagerHandle handle, String query, ZonedDateTime from, ZonedDateTime to)
       throws Exception {
     URIBuilder uriBuilder = new URIBuilder(handle.getApiURI().toString());
     uriBuilder.appendPath("timeseries");
     uriBuilder.addParameter("query", query);
     uriBuilder.addParameter("desiredRollup", tsAggregation.toString());
     uriBuilder.addParameter("mustUseDesiredRollup", "true");
-    uriBuilder.addParameter("from", startDate.format(isoDateTimeFormatter));
-    uriBuilder.addParameter("to", endDate.format(isoDateTimeFormatter));
+    uriBuilder.addParameter("from", from.format(isoDateTimeFormatter));
+    uriBuilder.addParameter("to", to.format(isoDateTimeFormatter));
     URI tsURI = uriBuilder.build();
 
     CloseableHttpClient httpClient = handle.getClouderaManagerHttpClient();
@@ -87,12 +367,50 @@ abstract class AbstractClouderaTimeSeriesTask extends AbstractClouderaManagerTas
     return chartInJson;
   }
 
+  /**
+   * A tsquery for the charts of one or more entities. The chart of a query for several entities is
+   * split into one chart per entity, so that the output has a line per entity however many are
+   * queried at once.
+   */
+  static final class ChartQuery {
+    final String query;
+
+    /** The attribute of the time series naming their entity, or null to keep the chart whole. */
+    @Nullable final String attribute;
+
+    /** The query of each entity on its own, by the value of the attribute, in output order. */
+    final ImmutableMap<String, String> queryByValue;
+
+    ChartQuery(
+        String query, @Nullable String attribute, ImmutableMap<String, String> queryByValue) {
+      this.query = query;
+      this.attribute = attribute;
+      this.queryByValue = queryByValue;
+    }
+
+    /** Returns a query whose chart is written whole. */
+    static ChartQuery of(String query) {
+      return new ChartQuery(query, null, ImmutableMap.of());
+    }
+  }
+
   enum TimeSeriesAggregation {
-    RAW,
-    TEN_MINUTELY,
-    HOURLY,
-    SIX_HOURLY,
-    DAILY,
-    WEEKLY,
+    RAW(Duration.ofMinutes(1)),
+    TEN_MINUTELY(Duration.ofMinutes(10)),
+    HOURLY(Duration.ofHours(1)),
+    SIX_HOURLY(Duration.ofHours(6)),
+    DAILY(Duration.ofDays(1)),
+    WEEKLY(Duration.ofDays(7));
+
+    private final Duration period;
+
+    TimeSeriesAggregation(Duration period) {
+      this.period = period;
+    }
+
+    /** The time between two points of a series, the usual sampling rate for raw data. */
+    Duration getPeriod() {
+      return period;
+    }
   }
 }
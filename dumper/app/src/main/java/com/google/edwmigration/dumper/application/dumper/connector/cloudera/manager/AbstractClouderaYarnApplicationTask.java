@@ -16,19 +16,30 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager.dto.ApiYarnApplicationDto;
 import com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager.exception.ClouderaConnectorException;
 import com.google.edwmigration.dumper.application.dumper.task.TaskCategory;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -36,26 +47,49 @@ import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public abstract class AbstractClouderaYarnApplicationTask extends AbstractClouderaManagerTask {
+  private static final Logger logger =
+      LoggerFactory.getLogger(AbstractClouderaYarnApplicationTask.class);
+
+  /** The number of slices the date range is split into by the tasks, each paged concurrently. */
+  static final int DEFAULT_SLICES = 8;
+
+  /** The number of pages of each slice fetched ahead of the one being consumed. */
+  private static final int PAGES_AHEAD = 2;
+
   private final ZonedDateTime fromDate;
   private final ZonedDateTime toDate;
   private final TaskCategory taskCategory;
+  private final int slices;
 
   public AbstractClouderaYarnApplicationTask(
       @Nonnull String targetPath,
       @Nonnull ZonedDateTime startDate,
       @Nonnull ZonedDateTime endDate,
       @Nonnull TaskCategory taskCategory) {
+    this(targetPath, startDate, endDate, taskCategory, 1);
+  }
+
+  public AbstractClouderaYarnApplicationTask(
+      @Nonnull String targetPath,
+      @Nonnull ZonedDateTime startDate,
+      @Nonnull ZonedDateTime endDate,
+      @Nonnull TaskCategory taskCategory,
+      int slices) {
     super(targetPath);
     Preconditions.checkNotNull(startDate, "Start date must be not null.");
     Preconditions.checkNotNull(endDate, "End date must be not null.");
     Preconditions.checkNotNull(taskCategory, "Task category must be not null.");
     Preconditions.checkState(startDate.isBefore(endDate), "Start Date has to be before End Date.");
+    Preconditions.checkArgument(slices > 0, "Number of slices must be positive.");
 
     fromDate = startDate;
     toDate = endDate;
     this.taskCategory = taskCategory;
+    this.slices = slices;
   }
 
   @Nonnull
@@ -64,24 +98,27 @@ public abstract class AbstractClouderaYarnApplicationTask extends AbstractCloude
     return taskCategory;
   }
 
+  /**
+   * Loads YARN applications page by page.
+   *
+   * <p>The date range is split into slices which are paged concurrently, each fetching a few pages
+   * ahead of the one being consumed, so that requests overlap with writing the pages. Pages are
+   * still passed to the consumer one at a time, on the calling thread, in the order of the slices.
+   * An application started before its slice is left to the slice it started in, since the API may
+   * return the applications running in a slice rather than those created in it.
+   */
   class PaginatedClouderaYarnApplicationsLoader {
     private static final String ISO_DATETIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
 
     private final URI apiURI;
     private final CloseableHttpClient httpClient;
     private final int limit;
-    private int offset;
-    private final String fromAppCreationDate;
-    private final String toAppCreationDate;
+    private final DateTimeFormatter dtFormatter = DateTimeFormatter.ofPattern(ISO_DATETIME_FORMAT);
 
     public PaginatedClouderaYarnApplicationsLoader(ClouderaManagerHandle handle, int limit) {
       this.apiURI = handle.getApiURI();
       this.httpClient = handle.getClouderaManagerHttpClient();
       this.limit = limit;
-
-      final DateTimeFormatter dtFormatter = DateTimeFormatter.ofPattern(ISO_DATETIME_FORMAT);
-      fromAppCreationDate = fromDate.format(dtFormatter);
-      toAppCreationDate = toDate.format(dtFormatter);
     }
 
     public int load(String clusterName, Consumer<List<ApiYarnApplicationDto>> onPageLoad) {
@@ -92,19 +129,93 @@ public abstract class AbstractClouderaYarnApplicationTask extends AbstractCloude
         String clusterName,
         @Nullable String appType,
         Consumer<List<ApiYarnApplicationDto>> onPageLoad) {
-      offset = 0;
-      boolean fetchedNewApps;
-      do {
-        fetchedNewApps = false;
-        URI yarnAppsURI = buildNextYARNApplicationPageURI(clusterName, appType);
-        List<ApiYarnApplicationDto> newLoad = load(yarnAppsURI);
-        if (!newLoad.isEmpty()) {
-          onPageLoad.accept(newLoad);
+      List<ZonedDateTime> bounds = splitDateRange(fromDate, toDate, slices);
+      ExecutorService executor =
+          Executors.newFixedThreadPool(
+              bounds.size() - 1,
+              new ThreadFactoryBuilder().setNameFormat("yarn-apps-%d").setDaemon(true).build());
+      try {
+        List<BlockingQueue<Page>> slicePages = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.size(); i++) {
+          BlockingQueue<Page> pages = new ArrayBlockingQueue<>(PAGES_AHEAD);
+          ZonedDateTime sliceFrom = bounds.get(i);
+          ZonedDateTime sliceTo = bounds.get(i + 1);
+          // The first slice keeps whatever the API returns, as an unsliced range would.
+          Instant minStartTime = i == 0 ? null : sliceFrom.toInstant();
+          executor.execute(
+              () -> loadSlice(clusterName, appType, sliceFrom, sliceTo, minStartTime, pages));
+          slicePages.add(pages);
+        }
+
+        int loadedApps = 0;
+        for (BlockingQueue<Page> pages : slicePages) {
+          for (Page page = takePage(pages); !page.isLast(); page = takePage(pages)) {
+            if (!page.applications.isEmpty()) {
+              onPageLoad.accept(page.applications);
+              loadedApps += page.applications.size();
+            }
+          }
+        }
+        return loadedApps;
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+
+    /**
+     * Pages through a slice, handing each page, and then the end of the slice or whatever stopped
+     * it, to the queue. Any failure is handed over, so that the consumer never waits on a slice
+     * whose thread has died.
+     */
+    private void loadSlice(
+        String clusterName,
+        @Nullable String appType,
+        ZonedDateTime sliceFrom,
+        ZonedDateTime sliceTo,
+        @Nullable Instant minStartTime,
+        BlockingQueue<Page> pages) {
+      Page last;
+      try {
+        int offset = 0;
+        while (true) {
+          URI yarnAppsURI =
+              buildNextYARNApplicationPageURI(clusterName, appType, offset, sliceFrom, sliceTo);
+          List<ApiYarnApplicationDto> newLoad = load(yarnAppsURI);
+          if (newLoad.isEmpty()) {
+            break;
+          }
           offset += newLoad.size();
-          fetchedNewApps = true;
+          pages.put(new Page(startedSince(newLoad, minStartTime), null));
         }
-      } while (fetchedNewApps);
-      return offset;
+        last = Page.END;
+      } catch (InterruptedException e) {
+        // The consumer gave up on the pages.
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Throwable t) {
+        last = new Page(null, t);
+      }
+      try {
+        pages.put(last);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private Page takePage(BlockingQueue<Page> pages) {
+      Page page;
+      try {
+        page = pages.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ClouderaConnectorException("Interrupted while loading YARN applications.", e);
+      }
+      if (page.failure != null) {
+        Throwables.throwIfUnchecked(page.failure);
+        throw new ClouderaConnectorException(
+            "Failed to load YARN applications: " + page.failure.getMessage(), page.failure);
+      }
+      return page;
     }
 
     private List<ApiYarnApplicationDto> load(URI yarnAppURI) {
@@ -116,39 +227,79 @@ public abstract class AbstractClouderaYarnApplicationTask extends AbstractCloude
                   "YARN application API returned HTTP status %d. Message: %s",
                   statusCode, readFromStream(resp.getEntity().getContent())));
         }
-
-        JsonNode applicationsResponse = readJsonTree(resp.getEntity().getContent());
-        JsonNode applicationsArray = applicationsResponse.at("/applications");
-        if (!applicationsArray.isArray()) {
-          throw new IllegalArgumentException(
-              "Unexpected JSON response without `applications`. "
-                  + "Response: "
-                  + applicationsResponse);
-        }
-        return toDTOs((ArrayNode) applicationsArray);
+        return parseApplications(resp.getEntity().getContent());
       } catch (IOException ex) {
         throw new ClouderaConnectorException(ex.getMessage(), ex);
       }
     }
 
-    private List<ApiYarnApplicationDto> toDTOs(ArrayNode applicationsArray) {
-      List<ApiYarnApplicationDto> yarnApplicationDTOs = new ArrayList<>();
-      for (JsonNode application : applicationsArray) {
-        yarnApplicationDTOs.add(new ApiYarnApplicationDto(application));
+    /**
+     * Reads the {@code applications} of a response, building a tree for each application rather
+     * than for the whole response.
+     */
+    private List<ApiYarnApplicationDto> parseApplications(InputStream content) throws IOException {
+      try (JsonParser parser = objectMapper.createParser(content)) {
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            if (parser.nextToken() == JsonToken.START_ARRAY
+                && "applications".equals(fieldName)) {
+              List<ApiYarnApplicationDto> yarnApplicationDTOs = new ArrayList<>();
+              while (parser.nextToken() != JsonToken.END_ARRAY) {
+                yarnApplicationDTOs.add(new ApiYarnApplicationDto(parser.readValueAsTree()));
+              }
+              return yarnApplicationDTOs;
+            }
+            parser.skipChildren();
+          }
+        }
       }
+      throw new IllegalArgumentException("Unexpected JSON response without `applications`.");
+    }
 
-      return yarnApplicationDTOs;
+    private List<ApiYarnApplicationDto> startedSince(
+        List<ApiYarnApplicationDto> applications, @Nullable Instant minStartTime) {
+      if (minStartTime == null) {
+        return applications;
+      }
+      List<ApiYarnApplicationDto> started = new ArrayList<>(applications.size());
+      for (ApiYarnApplicationDto application : applications) {
+        Instant startTime = getStartTime(application);
+        if (startTime == null || !startTime.isBefore(minStartTime)) {
+          started.add(application);
+        }
+      }
+      return started;
+    }
+
+    @Nullable
+    private Instant getStartTime(ApiYarnApplicationDto application) {
+      JsonNode startTime = application.getApiYarnApplication().path("startTime");
+      if (!startTime.isTextual()) {
+        return null;
+      }
+      try {
+        return Instant.parse(startTime.asText());
+      } catch (DateTimeParseException e) {
+        logger.debug("Unexpected start time of YARN application: {}", startTime);
+        return null;
+      }
     }
 
-    private URI buildNextYARNApplicationPageURI(String clusterName, @Nullable String appType) {
+    private URI buildNextYARNApplicationPageURI(
+        String clusterName,
+        @Nullable String appType,
+        int offset,
+        ZonedDateTime sliceFrom,
+        ZonedDateTime sliceTo) {
       try {
         URIBuilder uriBuilder =
             new URIBuilder()
                 .setPathSegments("clusters", clusterName, "services", "yarn", "yarnApplications")
                 .addParameter("limit", String.valueOf(limit))
                 .addParameter("offset", String.valueOf(offset))
-                .addParameter("from", fromAppCreationDate)
-                .addParameter("to", toAppCreationDate);
+                .addParameter("from", sliceFrom.format(dtFormatter))
+                .addParameter("to", sliceTo.format(dtFormatter));
         if (appType != null) {
           uriBuilder.addParameter("filter", String.format("applicationType=\"%s\"", appType));
         }
@@ -158,4 +309,34 @@ public abstract class AbstractClouderaYarnApplicationTask extends AbstractCloude
       }
     }
   }
+
+  /** Returns the bounds of {@code slices} consecutive slices of equal length. */
+  static List<ZonedDateTime> splitDateRange(
+      ZonedDateTime startDate, ZonedDateTime endDate, int slices) {
+    Duration slice = Duration.between(startDate, endDate).dividedBy(slices);
+    List<ZonedDateTime> bounds = new ArrayList<>();
+    bounds.add(startDate);
+    for (int i = 1; i < slices && !slice.isZero(); i++) {
+      bounds.add(startDate.plus(slice.multipliedBy(i)));
+    }
+    bounds.add(endDate);
+    return bounds;
+  }
+
+  /** A page of applications, the end of a slice, or the failure to load it. */
+  private static class Page {
+    private static final Page END = new Page(null, null);
+
+    @Nullable private final List<ApiYarnApplicationDto> applications;
+    @Nullable private final Throwable failure;
+
+    private Page(@Nullable List<ApiYarnApplicationDto> applications, @Nullable Throwable failure) {
+      this.applications = applications;
+      this.failure = failure;
+    }
+
+    private boolean isLast() {
+      return applications == null;
+    }
+  }
 }
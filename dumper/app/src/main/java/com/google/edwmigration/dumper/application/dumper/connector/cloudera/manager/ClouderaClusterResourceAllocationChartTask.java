@@ -16,7 +16,6 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.io.ByteSink;
 import com.google.edwmigration.dumper.application.dumper.MetadataDumperUsageException;
 import com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager.ClouderaManagerHandle.ClouderaClusterDTO;
@@ -59,17 +58,16 @@ public class ClouderaClusterResourceAllocationChartTask extends AbstractCloudera
       throws Exception {
     List<ClouderaClusterDTO> clusters = getClustersFromHandle(handle);
 
-    try (JsonWriter writer = new JsonWriter(sink)) {
-      for (ClouderaClusterDTO cluster : clusters) {
-        String queryPerCluster = String.format(TS_QUERY_TEMPLATE, cluster.getId());
-        logger.debug(
-            "Execute charts query: [{}] for the cluster: [{}].",
-            queryPerCluster,
-            cluster.getName());
+    List<ChartQuery> queries = new ArrayList<>();
+    for (ClouderaClusterDTO cluster : clusters) {
+      String queryPerCluster = String.format(TS_QUERY_TEMPLATE, cluster.getId());
+      logger.debug(
+          "Execute charts query: [{}] for the cluster: [{}].", queryPerCluster, cluster.getName());
+      queries.add(ChartQuery.of(queryPerCluster));
+    }
 
-        JsonNode chartInJson = requestTimeSeriesChart(handle, queryPerCluster);
-        writer.writeLine(chartInJson);
-      }
+    try (JsonWriter writer = new JsonWriter(sink)) {
+      writeTimeSeriesCharts(handle, queries, writer);
     }
   }
 
@@ -16,7 +16,8 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import static java.util.stream.Collectors.toList;
+
 import com.google.common.io.ByteSink;
 import com.google.edwmigration.dumper.application.dumper.MetadataDumperUsageException;
 import com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager.ClouderaManagerHandle.ClouderaHostDTO;
@@ -43,15 +44,30 @@ public class ClouderaHostResourceAllocationChartTask extends AbstractClouderaTim
       LoggerFactory.getLogger(ClouderaHostResourceAllocationChartTask.class);
 
   private static final String TS_QUERY_TEMPLATE =
-      "select swap_used, physical_memory_used, physical_memory_total, physical_memory_cached, physical_memory_buffers, cpu_user_rate, cpu_system_rate where category = \"HOST\" AND entityName = \"%s\"";
+      "select swap_used, physical_memory_used, physical_memory_total, physical_memory_cached, physical_memory_buffers, cpu_user_rate, cpu_system_rate where category = \"HOST\" AND (%s)";
+
+  /** The number of hosts whose charts are requested in a single query. */
+  static final int DEFAULT_HOSTS_PER_QUERY = 20;
+
+  private final int hostsPerQuery;
 
   public ClouderaHostResourceAllocationChartTask(
       ZonedDateTime startDate,
       ZonedDateTime endDate,
       TimeSeriesAggregation tsAggregation,
       TaskCategory taskCategory) {
+    this(startDate, endDate, tsAggregation, taskCategory, DEFAULT_HOSTS_PER_QUERY);
+  }
+
+  ClouderaHostResourceAllocationChartTask(
+      ZonedDateTime startDate,
+      ZonedDateTime endDate,
+      TimeSeriesAggregation tsAggregation,
+      TaskCategory taskCategory,
+      int hostsPerQuery) {
     // TODO(b/483215016): rename to 'host-resource-allocation.jsonl'
     super("host-ram.jsonl", startDate, endDate, tsAggregation, taskCategory);
+    this.hostsPerQuery = hostsPerQuery;
   }
 
   @Override
@@ -64,17 +80,16 @@ public class ClouderaHostResourceAllocationChartTask extends AbstractClouderaTim
           "Cloudera hosts must be initialized before host resource allocation charts dumping.");
     }
 
-    try (JsonWriter writer = new JsonWriter(sink)) {
-      for (ClouderaHostDTO host : handle.getHosts()) {
-        String queryPerHost = String.format(TS_QUERY_TEMPLATE, host.getId());
-        logger.debug(
-            "Execute host resource allocation charts query: [{}] for the host: [{}].",
-            queryPerHost,
-            host.getName());
+    List<String> hostIds = hosts.stream().map(ClouderaHostDTO::getId).collect(toList());
+    List<ChartQuery> queries =
+        batchQueries(TS_QUERY_TEMPLATE, "entityName", hostIds, hostsPerQuery);
+    logger.debug(
+        "Execute host resource allocation charts queries for {} hosts in {} queries.",
+        hostIds.size(),
+        queries.size());
 
-        JsonNode chartInJson = requestTimeSeriesChart(handle, queryPerHost);
-        writer.writeLine(chartInJson);
-      }
+    try (JsonWriter writer = new JsonWriter(sink)) {
+      writeTimeSeriesCharts(handle, queries, writer);
     }
   }
 }
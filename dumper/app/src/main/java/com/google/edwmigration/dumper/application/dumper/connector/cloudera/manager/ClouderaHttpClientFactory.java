@@ -17,11 +17,15 @@
 package com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager;
 
 import com.google.edwmigration.dumper.application.dumper.MetadataDumperUsageException;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.MetricRegistry;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.Timer;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 import org.apache.http.Header;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.CredentialsProvider;
@@ -76,6 +80,15 @@ public final class ClouderaHttpClientFactory {
    */
   private static final int SOCKET_TIMEOUT_MS = 30000;
 
+  /**
+   * Max Connections (32) Pooled connections per route and in total. The default of 2 per route
+   * would serialize the concurrent chart and Spark History requests the tasks make.
+   */
+  private static final int MAX_CONNECTIONS = 32;
+
+  private static final String REQUEST_START_ATTRIBUTE =
+      ClouderaHttpClientFactory.class.getName() + ".requestStart";
+
   /**
    * Creates a {@link CloseableHttpClient} configured for Cloudera Manager and performs the login
    * handshake.
@@ -96,6 +109,8 @@ public final class ClouderaHttpClientFactory {
 
     HttpClientBuilder builder = HttpClients.custom();
     configureTrustAllSSL(builder);
+    configureMetrics(builder);
+    configureConnectionPool(builder);
     CloseableHttpClient client = builder.build();
 
     try {
@@ -132,6 +147,8 @@ public final class ClouderaHttpClientFactory {
       throws Exception {
     HttpClientBuilder builder = HttpClients.custom();
     configureTrustAllSSL(builder);
+    configureMetrics(builder);
+    configureConnectionPool(builder);
 
     String authHeader =
         "Basic "
@@ -153,6 +170,11 @@ public final class ClouderaHttpClientFactory {
     return builder.build();
   }
 
+  private static void configureConnectionPool(HttpClientBuilder builder) {
+    builder.setMaxConnPerRoute(MAX_CONNECTIONS);
+    builder.setMaxConnTotal(MAX_CONNECTIONS);
+  }
+
   private static HttpClientBuilder configureTrustAllSSL(HttpClientBuilder builder)
       throws Exception {
     builder.setSSLContext(
@@ -161,6 +183,22 @@ public final class ClouderaHttpClientFactory {
     return builder;
   }
 
+  /** Times each request until its response headers arrive. */
+  private static void configureMetrics(HttpClientBuilder builder) {
+    Timer requestTimer = MetricRegistry.current().timer("rest.cloudera");
+    builder.addInterceptorFirst(
+        (HttpRequestInterceptor)
+            (request, context) -> context.setAttribute(REQUEST_START_ATTRIBUTE, System.nanoTime()));
+    builder.addInterceptorLast(
+        (HttpResponseInterceptor)
+            (response, context) -> {
+              Object start = context.getAttribute(REQUEST_START_ATTRIBUTE);
+              if (start instanceof Long) {
+                requestTimer.recordNanos(System.nanoTime() - (Long) start);
+              }
+            });
+  }
+
   private static void authenticateViaForm(
       URI apiUri, CloseableHttpClient httpClient, String username, String password)
       throws Exception {
@@ -16,7 +16,8 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import static java.util.stream.Collectors.toList;
+
 import com.google.common.io.ByteSink;
 import com.google.edwmigration.dumper.application.dumper.MetadataDumperUsageException;
 import com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager.ClouderaManagerHandle.ClouderaHostDTO;
@@ -57,14 +58,29 @@ public class ClouderaServiceResourceAllocationChartTask extends AbstractCloudera
       LoggerFactory.getLogger(ClouderaServiceResourceAllocationChartTask.class);
 
   private static final String SERVICE_RESOURCE_ALLOCATION_QUERY_TEMPLATE =
-      "select mem_rss, cpu_user_rate, cpu_system_rate, read_bytes_rate, write_bytes_rate where category = \"ROLE\" AND hostId = \"%s\"";
+      "select mem_rss, cpu_user_rate, cpu_system_rate, read_bytes_rate, write_bytes_rate where category = \"ROLE\" AND (%s)";
+
+  /** The number of hosts whose services' charts are requested in a single query. */
+  static final int DEFAULT_HOSTS_PER_QUERY = 10;
+
+  private final int hostsPerQuery;
 
   public ClouderaServiceResourceAllocationChartTask(
       ZonedDateTime startDate,
       ZonedDateTime endDate,
       TimeSeriesAggregation tsAggregation,
       TaskCategory taskCategory) {
+    this(startDate, endDate, tsAggregation, taskCategory, DEFAULT_HOSTS_PER_QUERY);
+  }
+
+  ClouderaServiceResourceAllocationChartTask(
+      ZonedDateTime startDate,
+      ZonedDateTime endDate,
+      TimeSeriesAggregation tsAggregation,
+      TaskCategory taskCategory,
+      int hostsPerQuery) {
     super("service-resource-allocation.jsonl", startDate, endDate, tsAggregation, taskCategory);
+    this.hostsPerQuery = hostsPerQuery;
   }
 
   @Override
@@ -73,18 +89,16 @@ public class ClouderaServiceResourceAllocationChartTask extends AbstractCloudera
       throws Exception {
     List<ClouderaHostDTO> hosts = getHostsFromHandle(handle);
 
-    try (JsonWriter writer = new JsonWriter(sink)) {
-      for (ClouderaHostDTO host : hosts) {
-        String resourceAllocationPerHostQuery =
-            String.format(SERVICE_RESOURCE_ALLOCATION_QUERY_TEMPLATE, host.getId());
-        logger.debug(
-            "Execute service resource allocation charts query: [{}] for the host: [{}].",
-            resourceAllocationPerHostQuery,
-            host.getName());
+    List<String> hostIds = hosts.stream().map(ClouderaHostDTO::getId).collect(toList());
+    List<ChartQuery> queries =
+        batchQueries(SERVICE_RESOURCE_ALLOCATION_QUERY_TEMPLATE, "hostId", hostIds, hostsPerQuery);
+    logger.debug(
+        "Execute service resource allocation charts queries for {} hosts in {} queries.",
+        hostIds.size(),
+        queries.size());
 
-        JsonNode chartInJson = requestTimeSeriesChart(handle, resourceAllocationPerHostQuery);
-        writer.writeLine(chartInJson);
-      }
+    try (JsonWriter writer = new JsonWriter(sink)) {
+      writeTimeSeriesCharts(handle, queries, writer);
     }
   }
 
@@ -16,6 +16,7 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -33,13 +34,16 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import org.apache.hc.core5.net.URIBuilder;
@@ -51,6 +55,7 @@ public class ClouderaSparkYarnApplicationMetadataTask extends AbstractClouderaMa
   private static final Logger logger =
       LoggerFactory.getLogger(ClouderaSparkYarnApplicationMetadataTask.class);
   private static final int CONCURRENCY_LEVEL = 16;
+  @VisibleForTesting static final int MAX_IN_FLIGHT = CONCURRENCY_LEVEL * 4;
 
   private final TaskCategory taskCategory;
   private final ExecutorService executor;
@@ -62,13 +67,19 @@ public class ClouderaSparkYarnApplicationMetadataTask extends AbstractClouderaMa
   }
 
   public ClouderaSparkYarnApplicationMetadataTask(TaskCategory taskCategory) {
+    this(
+        taskCategory,
+        Executors.newFixedThreadPool(
+            CONCURRENCY_LEVEL,
+            new ThreadFactoryBuilder().setNameFormat("spark-extractor-%d").build()));
+  }
+
+  @VisibleForTesting
+  ClouderaSparkYarnApplicationMetadataTask(TaskCategory taskCategory, ExecutorService executor) {
     super("yarn-application-spark-metadata.jsonl");
     Preconditions.checkNotNull(taskCategory, "Task category must be not null.");
     this.taskCategory = taskCategory;
-    this.executor =
-        Executors.newFixedThreadPool(
-            CONCURRENCY_LEVEL,
-            new ThreadFactoryBuilder().setNameFormat("spark-extractor-%d").build());
+    this.executor = executor;
   }
 
   @Nonnull
@@ -101,7 +112,7 @@ public class ClouderaSparkYarnApplicationMetadataTask extends AbstractClouderaMa
       List<String> appIds,
       JsonWriter writer,
       ClouderaManagerHandle handle)
-      throws URISyntaxException {
+      throws URISyntaxException, InterruptedException {
 
     String clusterName = cluster.getName();
     if (appIds == null || appIds.isEmpty()) return;
@@ -124,51 +135,86 @@ public class ClouderaSparkYarnApplicationMetadataTask extends AbstractClouderaMa
     }
 
     logger.info("Processing cluster '{}': Found {} applications.", clusterName, appIds.size());
-    List<CompletableFuture<ExtractionResult>> tasks =
-        submitExtractionTasks(appIds, historyUrls, extractor, writer, clusterName);
+    Map<ExtractionResult, AtomicInteger> results =
+        extractAll(appIds, historyUrls, extractor, writer, clusterName);
 
-    logExecutionSummary(tasks, clusterName);
+    logExecutionSummary(results, clusterName);
   }
 
-  private List<CompletableFuture<ExtractionResult>> submitExtractionTasks(
+  /**
+   * Extracts the metadata of all applications, with at most {@link #MAX_IN_FLIGHT} of them
+   * submitted to the executor at a time, so that memory stays flat however many applications there
+   * are.
+   */
+  private Map<ExtractionResult, AtomicInteger> extractAll(
       List<String> appIds,
       List<String> historyUrls,
       SparkJobMetadataExtractor extractor,
       JsonWriter writer,
-      String clusterName) {
+      String clusterName)
+      throws InterruptedException {
 
     AtomicInteger processedCount = new AtomicInteger(0);
     int totalApps = appIds.size();
     int logThreshold = Math.max(1, (int) (totalApps * 0.05));
 
-    List<CompletableFuture<ExtractionResult>> tasks = new ArrayList<>();
+    Map<ExtractionResult, AtomicInteger> results = new EnumMap<>(ExtractionResult.class);
+    for (ExtractionResult result : ExtractionResult.values()) {
+      results.put(result, new AtomicInteger());
+    }
+    // The history server that last found an application is asked first for the next ones, since
+    // applications of a cluster are usually all on the same server.
+    AtomicReference<String> lastFoundUrl = new AtomicReference<>(historyUrls.get(0));
+    Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
 
     for (String appId : appIds) {
-      tasks.add(
-          CompletableFuture.supplyAsync(
-              () -> {
+      inFlight.acquire();
+      try {
+        executor.execute(
+            () -> {
+              try {
                 ExtractionResult result;
                 try {
-                  result = processApplication(extractor, writer, historyUrls, clusterName, appId);
-                } catch (URISyntaxException e) {
-                  throw new RuntimeException(e);
+                  result =
+                      processApplication(
+                          extractor, writer, historyUrls, lastFoundUrl, clusterName, appId);
+                } catch (URISyntaxException | RuntimeException e) {
+                  logger.warn("Failed to extract metadata of app {}: {}", appId, e.getMessage());
+                  result = ExtractionResult.ERROR;
                 }
+                results.get(result).incrementAndGet();
                 trackProgress(processedCount, totalApps, logThreshold, clusterName);
-                return result;
-              },
-              executor));
+              } finally {
+                inFlight.release();
+              }
+            });
+      } catch (RejectedExecutionException e) {
+        inFlight.release();
+        throw e;
+      }
     }
-    return tasks;
+    // Waits for the applications still in flight.
+    inFlight.acquire(MAX_IN_FLIGHT);
+    return results;
   }
 
   private ExtractionResult processApplication(
       SparkJobMetadataExtractor extractor,
       JsonWriter writer,
       List<String> baseUrls,
+      AtomicReference<String> lastFoundUrl,
       String clusterName,
       String appId)
       throws URISyntaxException {
+    String preferredUrl = lastFoundUrl.get();
+    List<String> orderedUrls = new ArrayList<>(baseUrls.size());
+    orderedUrls.add(preferredUrl);
     for (String baseUrl : baseUrls) {
+      if (!baseUrl.equals(preferredUrl)) {
+        orderedUrls.add(baseUrl);
+      }
+    }
+    for (String baseUrl : orderedUrls) {
       try {
         URI logUrl =
             new URIBuilder(baseUrl)
@@ -179,6 +225,7 @@ public class ClouderaSparkYarnApplicationMetadataTask extends AbstractClouderaMa
         Optional<SparkYarnApplicationMetadata> metadata =
             extractor.extract(logUrl, clusterName, appId);
         if (metadata.isPresent()) {
+          lastFoundUrl.set(baseUrl);
           if (write(writer, metadata.get())) {
             return ExtractionResult.SUCCESS;
           } else {
@@ -222,26 +269,13 @@ public class ClouderaSparkYarnApplicationMetadataTask extends AbstractClouderaMa
   }
 
   private void logExecutionSummary(
-      List<CompletableFuture<ExtractionResult>> tasks, String clusterName) {
-    try {
-      // join() waits for all threads to finish
-      List<ExtractionResult> results =
-          tasks.stream().map(CompletableFuture::join).collect(Collectors.toList());
-
-      long successCount = results.stream().filter(r -> r == ExtractionResult.SUCCESS).count();
-      long missingCount = results.stream().filter(r -> r == ExtractionResult.NOT_FOUND).count();
-      long errorCount = results.stream().filter(r -> r == ExtractionResult.ERROR).count();
-
-      logger.info(
-          "Finished processing Spark applications of cluster '{}'. Success: {}, Not Found: {}, Errors: {}",
-          clusterName,
-          successCount,
-          missingCount,
-          errorCount);
-
-    } catch (Exception e) {
-      logger.error("Error waiting for tasks to complete for cluster " + clusterName, e);
-    }
+      Map<ExtractionResult, AtomicInteger> results, String clusterName) {
+    logger.info(
+        "Finished processing Spark applications of cluster '{}'. Success: {}, Not Found: {}, Errors: {}",
+        clusterName,
+        results.get(ExtractionResult.SUCCESS).get(),
+        results.get(ExtractionResult.NOT_FOUND).get(),
+        results.get(ExtractionResult.ERROR).get());
   }
 
   private List<ClouderaClusterDTO> getClusters(ClouderaManagerHandle handle) {
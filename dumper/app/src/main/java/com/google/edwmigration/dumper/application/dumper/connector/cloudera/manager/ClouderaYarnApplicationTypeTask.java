@@ -55,7 +55,12 @@ public class ClouderaYarnApplicationTypeTask extends AbstractClouderaYarnApplica
 
   public ClouderaYarnApplicationTypeTask(
       ZonedDateTime startDate, ZonedDateTime endDate, TaskCategory taskCategory) {
-    super("yarn-application-types.jsonl", startDate, endDate, taskCategory);
+    this(startDate, endDate, taskCategory, DEFAULT_SLICES);
+  }
+
+  ClouderaYarnApplicationTypeTask(
+      ZonedDateTime startDate, ZonedDateTime endDate, TaskCategory taskCategory, int slices) {
+    super("yarn-application-types.jsonl", startDate, endDate, taskCategory, slices);
   }
 
   @Override
@@ -37,7 +37,12 @@ public class ClouderaYarnApplicationsTask extends AbstractClouderaYarnApplicatio
 
   public ClouderaYarnApplicationsTask(
       ZonedDateTime startDate, ZonedDateTime endDate, TaskCategory taskCategory) {
-    super("yarn-applications.jsonl", startDate, endDate, taskCategory);
+    this(startDate, endDate, taskCategory, DEFAULT_SLICES);
+  }
+
+  ClouderaYarnApplicationsTask(
+      ZonedDateTime startDate, ZonedDateTime endDate, TaskCategory taskCategory, int slices) {
+    super("yarn-applications.jsonl", startDate, endDate, taskCategory, slices);
   }
 
   @Override
@@ -16,6 +16,8 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager.exception.SparkHistoryConnectionException;
@@ -32,6 +34,7 @@ import java.util.Optional;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
+import javax.annotation.Nullable;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
@@ -44,6 +47,8 @@ public class SparkJobMetadataExtractor {
   private static final Logger logger = LoggerFactory.getLogger(SparkJobMetadataExtractor.class);
   private static final long MAX_BYTES_TO_PARSE = 1024L * 10;
   private static final int MAX_LINES_TO_PARSE = 50;
+  private static final String LOG_START_EVENT = "SparkListenerLogStart";
+  private static final String ENVIRONMENT_UPDATE_EVENT = "SparkListenerEnvironmentUpdate";
 
   private final ObjectMapper mapper;
   private final CloseableHttpClient httpClient;
@@ -119,17 +124,19 @@ public class SparkJobMetadataExtractor {
       }
 
       try {
-        JsonNode rootNode = mapper.readTree(line);
-        if (!rootNode.has("Event")) {
+        String eventType = readEventType(line);
+        if (eventType == null) {
           continue;
         }
 
-        String eventType = rootNode.get("Event").asText();
-        if ("SparkListenerLogStart".equals(eventType) && rootNode.has("Spark Version")) {
-          version = rootNode.get("Spark Version").asText();
-        }
-        if ("SparkListenerEnvironmentUpdate".equals(eventType)) {
-          applicationType = SparkApplicationTypeDetector.detect(rootNode);
+        // Only the events we need are parsed into a tree; the rest are skipped unparsed.
+        if (LOG_START_EVENT.equals(eventType)) {
+          JsonNode rootNode = mapper.readTree(line);
+          if (rootNode.has("Spark Version")) {
+            version = rootNode.get("Spark Version").asText();
+          }
+        } else if (ENVIRONMENT_UPDATE_EVENT.equals(eventType)) {
+          applicationType = SparkApplicationTypeDetector.detect(mapper.readTree(line));
         }
 
         if (version != null && applicationType != null) {
@@ -158,4 +165,26 @@ public class SparkJobMetadataExtractor {
             (applicationType != null ? applicationType : SparkApplicationType.UNKNOWN)
                 .getDisplayName()));
   }
+
+  /**
+   * Returns the type of the event on a line, or null if it has none, reading the line only as far
+   * as its "Event" field.
+   */
+  @Nullable
+  private String readEventType(String line) throws IOException {
+    try (JsonParser parser = mapper.getFactory().createParser(line)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return null;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if ("Event".equals(fieldName)) {
+          return value.isScalarValue() ? parser.getText() : "";
+        }
+        parser.skipChildren();
+      }
+      return null;
+    }
+  }
 }
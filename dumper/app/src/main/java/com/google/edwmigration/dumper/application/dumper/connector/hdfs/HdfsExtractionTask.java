@@ -18,6 +18,7 @@ package com.google.edwmigration.dumper.application.dumper.connector.hdfs;
 
 import static com.google.edwmigration.dumper.application.dumper.ConnectorArguments.OPT_HDFS_SCAN_ROOT_PATH;
 import static com.google.edwmigration.dumper.application.dumper.ConnectorArguments.OPT_THREAD_POOL_SIZE;
+import static com.google.edwmigration.dumper.application.dumper.ConnectorArguments.OPT_VIRTUAL_THREADS;
 import static com.google.edwmigration.dumper.application.dumper.connector.hdfs.SingleDirScanJob.trimExceptionMessage;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -31,11 +32,14 @@ import com.google.edwmigration.dumper.application.dumper.task.AbstractTask;
 import com.google.edwmigration.dumper.application.dumper.task.TaskCategory;
 import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
 import com.google.edwmigration.dumper.plugin.ext.jdk.concurrent.ExecutorManager;
+import com.google.edwmigration.dumper.plugin.ext.jdk.concurrent.ManagedExecutor;
+import com.google.edwmigration.dumper.plugin.ext.jdk.concurrent.WorkStealingExecutorManager;
 import com.google.edwmigration.dumper.plugin.lib.dumper.spi.HdfsExtractionDumpFormat;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
 import org.apache.hadoop.fs.ContentSummary;
@@ -49,6 +53,7 @@ public class HdfsExtractionTask extends AbstractTask<Void> implements HdfsExtrac
   private static final Logger logger = LoggerFactory.getLogger(HdfsExtractionTask.class);
 
   private final int threadPoolSize;
+  private final boolean useVirtualThreads;
   private final String hdfsScanRootPath;
 
   HdfsExtractionTask(@Nonnull ConnectorArguments args) {
@@ -56,6 +61,7 @@ public class HdfsExtractionTask extends AbstractTask<Void> implements HdfsExtrac
     threadPoolSize = args.getThreadPoolSize();
     Preconditions.checkArgument(
         threadPoolSize > 0, "Argument %s should be positive number", OPT_THREAD_POOL_SIZE);
+    useVirtualThreads = args.useVirtualThreads();
     hdfsScanRootPath = args.getHdfsScanRootPath();
     Preconditions.checkArgument(
         !hdfsScanRootPath.isEmpty(), "Argument %s should be non-empty", OPT_HDFS_SCAN_ROOT_PATH);
@@ -82,22 +88,24 @@ public class HdfsExtractionTask extends AbstractTask<Void> implements HdfsExtrac
       throws IOException, ExecutionException, InterruptedException {
     DistributedFileSystem fs = ((HdfsHandle) handle).getDfs();
     // Create a dedicated ExecutorService to use:
-    ExecutorService execService =
-        ExecutorManager.newExecutorServiceWithBackpressure("hdfs-extraction", threadPoolSize);
+    ExecutorService execService = newExecutorService();
     try (Writer output = sink.asCharSink(UTF_8).openBufferedStream();
-        ExecutorManager execManager = new ExecutorManager(execService);
+        ManagedExecutor execManager = newExecutorManager(execService);
         ScanContext scanCtx = new ScanContext(execManager, fs, output)) {
 
       logger.info(
-          "Running HDFS extraction\n\t{}: {}\n\t{}: {}",
+          "Running HDFS extraction\n\t{}: {}\n\t{}: {}\n\t{}: {}",
           OPT_HDFS_SCAN_ROOT_PATH,
           hdfsScanRootPath,
           OPT_THREAD_POOL_SIZE,
-          threadPoolSize);
+          threadPoolSize,
+          OPT_VIRTUAL_THREADS,
+          useVirtualThreads);
       FileStatus rootDir = fs.getFileStatus(new Path(hdfsScanRootPath));
       scanCtx.submitRootDirScanJob(rootDir, getContentSummaryFor(fs, rootDir));
       execManager.await(); // Wait until all (recursive) tasks are done executing
       logger.info("Final stats:\n{}", scanCtx.getDetailedStats());
+      logger.debug("Executor stats: {}", execManager);
     } finally {
       // Shutdown the dedicated ExecutorService:
       MoreExecutors.shutdownAndAwaitTermination(execService, 100, TimeUnit.MILLISECONDS);
@@ -105,6 +113,25 @@ public class HdfsExtractionTask extends AbstractTask<Void> implements HdfsExtrac
     return null;
   }
 
+  @Nonnull
+  private ExecutorService newExecutorService() {
+    if (useVirtualThreads) {
+      // One virtual thread per directory; the pool size is the budget of concurrent NameNode RPCs.
+      return ExecutorManager.newVirtualThreadExecutorService("hdfs-extraction", threadPoolSize);
+    }
+    // A work-stealing pool, so that the recursive scan jobs stay on the deque of the worker which
+    // found the subdirectory, and idle workers steal from it.
+    return WorkStealingExecutorManager.newWorkStealingPool("hdfs-extraction", threadPoolSize);
+  }
+
+  @Nonnull
+  private static ManagedExecutor newExecutorManager(@Nonnull ExecutorService execService) {
+    if (execService instanceof ForkJoinPool) {
+      return new WorkStealingExecutorManager((ForkJoinPool) execService);
+    }
+    return new ExecutorManager(execService);
+  }
+
   private ContentSummary getContentSummaryFor(DistributedFileSystem dfs, FileStatus file) {
     try {
       return dfs.getContentSummary(file.getPath());
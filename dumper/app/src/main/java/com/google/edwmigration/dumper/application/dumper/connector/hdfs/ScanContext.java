@@ -19,7 +19,9 @@ package com.google.edwmigration.dumper.application.dumper.connector.hdfs;
 import static com.google.edwmigration.dumper.application.dumper.TasksRunner.PROGRESS_LOG;
 
 import com.google.edwmigration.dumper.application.dumper.task.AbstractTask;
-import com.google.edwmigration.dumper.plugin.ext.jdk.concurrent.ExecutorManager;
+import com.google.edwmigration.dumper.plugin.ext.jdk.concurrent.ManagedExecutor;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.MetricRegistry;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.Timer;
 import com.google.edwmigration.dumper.plugin.lib.dumper.spi.HdfsExtractionDumpFormat.HdfsFormat;
 import java.io.Closeable;
 import java.io.IOException;
@@ -51,11 +53,12 @@ final class ScanContext implements Closeable {
   private static final long PROGRESS_UPDATE_INTERVAL =
       PROGRESS_DEBUG_STATS ? 10_000 : 60_000; // millis
 
-  private final ExecutorManager execManager;
+  private final ManagedExecutor execManager;
   private final DistributedFileSystem dfs;
   private final DFSClient dfsClient;
   private final CSVPrinter csvPrinter;
   private final Instant instantScanBegin;
+  private final Timer listStatusTimer = MetricRegistry.current().timer("hdfs.list-status");
   private LongAdder timeSpentInListStatus = new LongAdder();
   private LongAdder numFilesByListStatus = new LongAdder();
   private LongAdder numCallsToListStatus = new LongAdder();
@@ -86,7 +89,10 @@ final class ScanContext implements Closeable {
    * @param outputSink where the results of the scan are written
    * @throws IOException if something is wrong with the outputSink
    */
-  ScanContext(ExecutorManager execManager, DistributedFileSystem dfs, @WillClose Writer outputSink)
+  ScanContext(
+      ManagedExecutor execManager,
+      DistributedFileSystem dfs,
+      @WillClose Writer outputSink)
       throws IOException {
     this.execManager = execManager;
     this.dfs = dfs;
@@ -104,7 +110,9 @@ final class ScanContext implements Closeable {
   /** Virtually a private method - should be referenced only by SingleDirScanJob.call */
   FileStatus[] listDirectory(FileStatus dir) throws IOException {
     Instant instantListBegin = Instant.now();
+    long start = System.nanoTime();
     FileStatus[] files = dfs.listStatus(dir.getPath());
+    listStatusTimer.recordNanos(System.nanoTime() - start);
     timeSpentInListStatus.add(Duration.between(instantListBegin, Instant.now()).toMillis());
     numFilesByListStatus.add(files.length);
     numCallsToListStatus.increment();
@@ -136,7 +144,7 @@ final class ScanContext implements Closeable {
       this.numDirs++; // numDirs(Found) >= numDirsWalked
       this.accumulatedFileSize += dir.getLen();
     }
-    execManager.submit(new SingleDirScanJob(this, dir));
+    execManager.execute(new SingleDirScanJob(this, dir));
   }
 
   /** Exports the attributes of the specified dir to the sink. Updates some HDFS stats */
@@ -31,6 +31,8 @@ import com.google.edwmigration.dumper.application.dumper.task.AbstractTask;
 import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
 import com.google.edwmigration.dumper.ext.hive.metastore.HiveMetastoreThriftClient;
 import com.google.edwmigration.dumper.plugin.ext.jdk.concurrent.ExecutorManager;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.MetricRegistry;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.Timer;
 import com.google.errorprone.annotations.ForOverride;
 import java.io.Writer;
 import java.nio.charset.StandardCharsets;
@@ -97,6 +99,7 @@ public abstract class AbstractHiveConnector extends AbstractConnector {
     @Nonnull private final ExecutorManager executorManager;
     @Nonnull private final ExecutorService executorService;
     @Nonnull private final Object lock = new Object();
+    @Nonnull private final Timer thriftTimer = MetricRegistry.current().timer("thrift.call");
 
     @GuardedBy("lock")
     @Nonnull
@@ -142,7 +145,9 @@ public abstract class AbstractHiveConnector extends AbstractConnector {
     public void execute(ThriftClientConsumer consumer) {
       executorManager.execute(
           () -> {
-            consumer.accept(getThreadLocalThriftClient().get());
+            try (Timer.Context timing = thriftTimer.time()) {
+              consumer.accept(getThreadLocalThriftClient().get());
+            }
             return null;
           });
     }
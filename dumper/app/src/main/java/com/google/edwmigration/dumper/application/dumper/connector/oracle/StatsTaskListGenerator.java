@@ -26,6 +26,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
 import com.google.edwmigration.dumper.application.dumper.connector.oracle.task.ResultMessageTask;
 import com.google.edwmigration.dumper.application.dumper.connector.oracle.task.StatsJdbcTask;
+import com.google.edwmigration.dumper.application.dumper.connector.oracle.task.StatsProbeTask;
 import com.google.edwmigration.dumper.application.dumper.task.DumpMetadataTask;
 import com.google.edwmigration.dumper.application.dumper.task.FormatTask;
 import com.google.edwmigration.dumper.application.dumper.task.Task;
@@ -82,7 +83,9 @@ class StatsTaskListGenerator {
     ImmutableList.Builder<Task<?>> builder = ImmutableList.builder();
     builder.add(new DumpMetadataTask(arguments, scope.formatName()));
     builder.add(new FormatTask(scope.formatName()));
-    List<StatsJdbcTask> jdbcTasks = createJdbcTasks(queriedDuration);
+    StatsProbeTask probe = new StatsProbeTask();
+    builder.add(probe);
+    List<StatsJdbcTask> jdbcTasks = createJdbcTasks(queriedDuration, probe);
     builder.addAll(jdbcTasks);
 
     QueryGroup awrAndCdb = QueryGroup.create(/* required= */ false, AWR, MULTI_TENANT);
@@ -99,34 +102,44 @@ class StatsTaskListGenerator {
     return builder.build();
   }
 
-  private List<StatsJdbcTask> createJdbcTasks(Duration queriedDuration) {
+  private List<StatsJdbcTask> createJdbcTasks(Duration queriedDuration, StatsProbeTask probe) {
     ImmutableList.Builder<StatsJdbcTask> builder = ImmutableList.builder();
     for (String name : awrNames()) {
       QueryGroup awr = QueryGroup.create(/* required= */ false, AWR, SINGLE_TENANT);
-      builder.addAll(createTaskWithAlternative(name, awr, queriedDuration));
+      builder.addAll(createTaskWithAlternative(name, awr, queriedDuration, probe));
     }
     for (String name : statspackNames()) {
       QueryGroup statspack = QueryGroup.create(/* required= */ false, STATSPACK, MULTI_TENANT);
       OracleStatsQuery query = OracleStatsQuery.create(name, statspack, queriedDuration);
-      builder.add(StatsJdbcTask.fromQuery(query));
+      builder.add(
+          StatsJdbcTask.fromQuery(query).onlyIf(probe.allows(query, /* checkViews= */ false)));
     }
     for (String name : NATIVE_NAMES_OPTIONAL) {
       QueryGroup group = QueryGroup.create(/* required= */ false, NATIVE, SINGLE_TENANT);
-      builder.addAll(createTaskWithAlternative(name, group, queriedDuration));
+      builder.addAll(createTaskWithAlternative(name, group, queriedDuration, probe));
     }
     for (String name : NATIVE_NAMES_REQUIRED) {
       QueryGroup group = QueryGroup.create(/* required= */ true, NATIVE, SINGLE_TENANT);
-      builder.addAll(createTaskWithAlternative(name, group, queriedDuration));
+      builder.addAll(createTaskWithAlternative(name, group, queriedDuration, probe));
     }
     return builder.build();
   }
 
+  /**
+   * Creates the CDB variant of a query, and the alternative which runs instead if the probe finds
+   * that the CDB variant can't succeed, or if it failed anyway. Required queries are never skipped
+   * because of the views they read, so that a wrong guess shows up as a failure.
+   */
   List<StatsJdbcTask> createTaskWithAlternative(
-      String name, QueryGroup group, Duration queriedDuration) {
+      String name, QueryGroup group, Duration queriedDuration, StatsProbeTask probe) {
+    boolean checkViews = !group.required();
     OracleStatsQuery primary = OracleStatsQuery.create(name, group.toCdbVersion(), queriedDuration);
-    StatsJdbcTask primaryTask = StatsJdbcTask.fromQuery(primary);
+    StatsJdbcTask primaryTask =
+        StatsJdbcTask.fromQuery(primary).onlyIf(probe.allows(primary, checkViews));
     OracleStatsQuery alternative = OracleStatsQuery.create(name, group, queriedDuration);
-    StatsJdbcTask alternativeTask = StatsJdbcTask.fromQuery(alternative).onlyIfFailed(primaryTask);
+    StatsJdbcTask alternativeTask =
+        StatsJdbcTask.fromQuery(alternative)
+            .onlyIf(probe.allowsInstead(alternative, primary, primaryTask, checkViews));
     return ImmutableList.of(primaryTask, alternativeTask);
   }
 
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector.oracle.task;
+
+import static com.google.edwmigration.dumper.application.dumper.connector.oracle.QueryGroup.TenantSetup.MULTI_TENANT;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+import com.google.edwmigration.dumper.application.dumper.connector.oracle.OracleStatsQuery;
+import com.google.edwmigration.dumper.application.dumper.connector.oracle.QueryGroup;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/** The features of a database that decide which stats queries can succeed. */
+@AutoValue
+@ParametersAreNonnullByDefault
+public abstract class StatsCapabilities {
+
+  private static final Pattern VIEW_PATTERN =
+      Pattern.compile("(?<![.\\w])(?:cdb|dba)_[a-z0-9_$#]+", Pattern.CASE_INSENSITIVE);
+
+  /** Whether the database is a CDB and the CDB_ views can be read. */
+  public abstract boolean multiTenant();
+
+  /** Whether AWR is licensed and has snapshots. */
+  public abstract boolean awr();
+
+  /** Whether STATSPACK is installed and has snapshots. */
+  public abstract boolean statspack();
+
+  /**
+   * The CDB_ and DBA_ views that can be read, in lower case. Empty if they could not be listed
+   * reliably, in which case no query is excluded because of the views it reads.
+   */
+  @Nonnull
+  public abstract Optional<ImmutableSet<String>> accessibleViews();
+
+  @Nonnull
+  public static StatsCapabilities create(
+      boolean multiTenant,
+      boolean awr,
+      boolean statspack,
+      Optional<ImmutableSet<String>> accessibleViews) {
+    return new AutoValue_StatsCapabilities(multiTenant, awr, statspack, accessibleViews);
+  }
+
+  /**
+   * Returns whether the query is expected to succeed on this database.
+   *
+   * @param checkViews whether to also require every CDB_ or DBA_ view of the query to be readable
+   */
+  public boolean canRun(OracleStatsQuery query, boolean checkViews) {
+    QueryGroup group = query.queryGroup();
+    switch (group.statsSource()) {
+      case STATSPACK:
+        // The STATSPACK queries read the PERFSTAT tables, whatever the tenant setup.
+        return statspack();
+      case AWR:
+        if (!awr()) {
+          return false;
+        }
+        break;
+      default:
+        break;
+    }
+    if (group.tenantSetup() == MULTI_TENANT && !multiTenant()) {
+      return false;
+    }
+    if (!checkViews || !accessibleViews().isPresent()) {
+      return true;
+    }
+    return accessibleViews().get().containsAll(viewsOf(query.queryText()));
+  }
+
+  @Nonnull
+  static ImmutableSet<String> viewsOf(String queryText) {
+    ImmutableSet.Builder<String> views = ImmutableSet.builder();
+    Matcher matcher = VIEW_PATTERN.matcher(queryText);
+    while (matcher.find()) {
+      views.add(matcher.group().toLowerCase(Locale.ROOT));
+    }
+    return views.build();
+  }
+}
@@ -69,7 +69,14 @@ public class StatsJdbcTask extends AbstractJdbcTask<Summary> {
     return new StatsJdbcTask(query, failureCondition);
   }
 
-  @Deprecated // use onlyIfFailed
+  /** Returns a copy of this task which runs only if the condition holds. */
+  @CheckReturnValue
+  @Nonnull
+  public StatsJdbcTask onlyIf(Condition condition) {
+    return new StatsJdbcTask(query, condition);
+  }
+
+  @Deprecated // use onlyIfFailed or onlyIf
   @Override
   @Nonnull
   public AbstractTask<Summary> withCondition(Condition condition) {
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector.oracle.task;
+
+import static com.google.edwmigration.dumper.application.dumper.task.TaskCategory.OPTIONAL;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.edwmigration.dumper.application.dumper.connector.oracle.OracleStatsQuery;
+import com.google.edwmigration.dumper.application.dumper.handle.JdbcHandle;
+import com.google.edwmigration.dumper.application.dumper.task.TaskCategory;
+import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
+import com.google.edwmigration.dumper.application.dumper.task.TaskSetState;
+import com.google.edwmigration.dumper.application.dumper.task.TaskState;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Finds once per run which variant of each stats query can succeed, so that the others are skipped
+ * instead of being sent to the database only to fail.
+ *
+ * <p>The probe checks whether the database is a CDB, whether AWR and STATSPACK have data and which
+ * CDB_ and DBA_ views are readable. If the probe itself fails, the queries run as if there were no
+ * probe.
+ */
+@ParametersAreNonnullByDefault
+public class StatsProbeTask extends NoResultTask {
+
+  private static final Logger logger = LoggerFactory.getLogger(StatsProbeTask.class);
+
+  @CheckForNull private volatile StatsCapabilities capabilities;
+
+  @Override
+  void doRun(TaskRunContext context) {
+    JdbcTemplate jdbcTemplate = ((JdbcHandle) context.getHandle()).getJdbcTemplate();
+    StatsCapabilities probed = probe(jdbcTemplate);
+    logger.info("Probed database capabilities: {}", probed);
+    capabilities = probed;
+  }
+
+  @Nonnull
+  Optional<StatsCapabilities> getCapabilities() {
+    return Optional.ofNullable(capabilities);
+  }
+
+  /**
+   * Returns a condition for the only variant of a query.
+   *
+   * @param checkViews whether to skip the query if one of its views is not readable
+   */
+  @Nonnull
+  public Condition allows(OracleStatsQuery query, boolean checkViews) {
+    return new ProbeCondition(query, checkViews, null, null);
+  }
+
+  /**
+   * Returns a condition for the alternative variant of a query, which runs if the probe finds that
+   * the preferred variant cannot succeed, or if the preferred variant failed.
+   */
+  @Nonnull
+  public Condition allowsInstead(
+      OracleStatsQuery query,
+      OracleStatsQuery preferred,
+      StatsJdbcTask preferredTask,
+      boolean checkViews) {
+    return new ProbeCondition(query, checkViews, preferred, preferredTask);
+  }
+
+  @Nonnull
+  static StatsCapabilities probe(JdbcTemplate jdbcTemplate) {
+    boolean cdb = "YES".equals(tryQuery(jdbcTemplate, "SELECT cdb FROM v$database", String.class));
+    boolean multiTenant = cdb && canRead(jdbcTemplate, "cdb_objects");
+    String prefix = multiTenant ? "cdb_" : "dba_";
+
+    String packAccess =
+        tryQuery(
+            jdbcTemplate,
+            "SELECT value FROM v$parameter WHERE name = 'control_management_pack_access'",
+            String.class);
+    boolean awrLicensed =
+        packAccess == null || packAccess.toUpperCase(Locale.ROOT).contains("DIAGNOSTIC");
+    boolean awr = awrLicensed && hasRows(jdbcTemplate, prefix + "hist_snapshot");
+    boolean statspack = hasRows(jdbcTemplate, "stats$snapshot");
+
+    return StatsCapabilities.create(
+        multiTenant, awr, statspack, readableViews(jdbcTemplate, prefix + "objects"));
+  }
+
+  private static boolean canRead(JdbcTemplate jdbcTemplate, String view) {
+    String sql = "SELECT count(*) FROM " + view + " WHERE ROWNUM < 1";
+    return tryQuery(jdbcTemplate, sql, Long.class) != null;
+  }
+
+  private static boolean hasRows(JdbcTemplate jdbcTemplate, String view) {
+    String sql = "SELECT count(*) FROM " + view + " WHERE ROWNUM < 2";
+    Long count = tryQuery(jdbcTemplate, sql, Long.class);
+    return count != null && count > 0;
+  }
+
+  /**
+   * Lists the readable CDB_ and DBA_ views. The list is only trusted if it contains a view already
+   * known to be readable, as whether ALL_VIEWS shows dictionary views depends on how access was
+   * granted.
+   */
+  @Nonnull
+  private static Optional<ImmutableSet<String>> readableViews(
+      JdbcTemplate jdbcTemplate, String knownView) {
+    List<String> views;
+    try {
+      views =
+          jdbcTemplate.queryForList(
+              "SELECT lower(view_name) FROM all_views WHERE owner = 'SYS'"
+                  + " AND (view_name LIKE 'CDB\\_%' ESCAPE '\\'"
+                  + " OR view_name LIKE 'DBA\\_%' ESCAPE '\\')",
+              String.class);
+    } catch (DataAccessException e) {
+      logger.debug("Failed to list readable views: {}", e.getMessage());
+      return Optional.empty();
+    }
+    ImmutableSet<String> readable = ImmutableSet.copyOf(views);
+    if (!readable.contains(knownView)) {
+      return Optional.empty();
+    }
+    return Optional.of(readable);
+  }
+
+  @CheckForNull
+  private static <T> T tryQuery(JdbcTemplate jdbcTemplate, String sql, Class<T> type) {
+    try {
+      return jdbcTemplate.queryForObject(sql, type);
+    } catch (DataAccessException e) {
+      logger.debug("Probe query '{}' failed: {}", sql, e.getMessage());
+      return null;
+    }
+  }
+
+  @Override
+  @Nonnull
+  public String getTargetPath() {
+    return "probe of database capabilities";
+  }
+
+  @Nonnull
+  @Override
+  public String toString() {
+    return "Probe CDB, AWR, STATSPACK and readable views.";
+  }
+
+  @Override
+  @Nonnull
+  public TaskCategory getCategory() {
+    return OPTIONAL;
+  }
+
+  private final class ProbeCondition implements Condition {
+
+    private final OracleStatsQuery query;
+    private final boolean checkViews;
+    @CheckForNull private final OracleStatsQuery preferred;
+    @CheckForNull private final StatsJdbcTask preferredTask;
+
+    ProbeCondition(
+        OracleStatsQuery query,
+        boolean checkViews,
+        @CheckForNull OracleStatsQuery preferred,
+        @CheckForNull StatsJdbcTask preferredTask) {
+      this.query = query;
+      this.checkViews = checkViews;
+      this.preferred = preferred;
+      this.preferredTask = preferredTask;
+    }
+
+    @Override
+    public boolean evaluate(@Nonnull TaskSetState state) {
+      boolean preferredFailed =
+          preferredTask != null && state.getTaskState(preferredTask) == TaskState.FAILED;
+      StatsCapabilities probed = capabilities;
+      if (probed == null) {
+        return preferredTask == null || preferredFailed;
+      }
+      if (preferredFailed) {
+        return true;
+      }
+      if (preferred != null && probed.canRun(preferred, checkViews)) {
+        return false;
+      }
+      return probed.canRun(query, checkViews);
+    }
+
+    @Override
+    public String toString() {
+      return "probe allows " + query.description();
+    }
+  }
+}
@@ -18,19 +18,23 @@ package com.google.edwmigration.dumper.application.dumper.connector.ranger;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.datatype.guava.GuavaModule;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
-import com.google.common.collect.ImmutableList;
 import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.MetricRegistry;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.Timer;
+import com.google.edwmigration.dumper.plugin.lib.dumper.spi.RangerDumpFormat;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Writer;
 import java.net.HttpURLConnection;
 import java.net.ProtocolException;
 import java.net.URL;
@@ -38,7 +42,6 @@ import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import javax.annotation.Nonnull;
@@ -59,13 +62,11 @@ import org.slf4j.LoggerFactory;
 class RangerClient implements AutoCloseable {
   private static final Logger logger = LoggerFactory.getLogger(RangerClient.class);
 
-  private static final ObjectReader MAPPER =
-      new ObjectMapper()
-          .registerModule(new JavaTimeModule())
-          .registerModule(new GuavaModule())
-          .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
-          .disable(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS)
-          .reader();
+  private static final ObjectWriter ITEM_WRITER =
+      RangerDumpFormat.MAPPER
+          .writer()
+          .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+          .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
 
   public static class RangerException extends RuntimeException {
 
@@ -98,45 +99,69 @@ class RangerClient implements AutoCloseable {
     return new RangerClient(httpClient);
   }
 
-  public ImmutableList<Object> findUsers(Map<String, String> args) throws RangerException {
-    return doHttpGet("/service/xusers/users", args, "vXUsers");
+  public int findUsers(Map<String, String> args, Writer out) throws RangerException {
+    return doHttpGet("/service/xusers/users", args, "vXUsers", out);
   }
 
-  public ImmutableList<Object> findGroups(Map<String, String> args) throws RangerException {
-    return doHttpGet("/service/xusers/groups", args, "vXGroups");
+  public int findGroups(Map<String, String> args, Writer out) throws RangerException {
+    return doHttpGet("/service/xusers/groups", args, "vXGroups", out);
   }
 
-  public ImmutableList<Object> findRoles(Map<String, String> args) throws RangerException {
-    return doHttpGet("/service/roles/roles", args, "roles");
+  public int findRoles(Map<String, String> args, Writer out) throws RangerException {
+    return doHttpGet("/service/roles/roles", args, "roles", out);
   }
 
-  public ImmutableList<Object> findServices(Map<String, String> args) throws RangerException {
-    return doHttpGet("/service/plugins/services", args, "services");
+  public int findServices(Map<String, String> args, Writer out) throws RangerException {
+    return doHttpGet("/service/plugins/services", args, "services", out);
   }
 
-  public ImmutableList<Object> findPolicies(Map<String, String> args) throws RangerException {
-    return doHttpGet("/service/plugins/policies", args, "policies");
+  public int findPolicies(Map<String, String> args, Writer out) throws RangerException {
+    return doHttpGet("/service/plugins/policies", args, "policies", out);
   }
 
-  private ImmutableList<Object> doHttpGet(
-      String path, Map<String, String> params, String payloadProperty) throws RangerException {
-    String responseBody = httpClient.doGet(path, params);
-    try {
-      @SuppressWarnings("unchecked")
-      Map<String, Object> payload = MAPPER.readValue(responseBody, Map.class);
-      if (!payload.containsKey(payloadProperty)) {
-        throw new RangerException("Missing key " + payloadProperty + " in Ranger response");
+  /**
+   * Writes the items of the array under the given property of the response to {@code out}, each as
+   * a single line of JSON, and returns how many there were.
+   *
+   * <p>The response is read as a stream, one item at a time. Each item is written with {@link
+   * RangerDumpFormat#MAPPER}, so its keys are sorted as they always were in the dump.
+   */
+  private int doHttpGet(
+      String path, Map<String, String> params, String payloadProperty, Writer out)
+      throws RangerException {
+    return httpClient.doGet(path, params, body -> writeItems(body, payloadProperty, out));
+  }
+
+  private static int writeItems(InputStream body, String payloadProperty, Writer out)
+      throws IOException {
+    try (JsonParser parser = RangerDumpFormat.MAPPER.getFactory().createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new RangerException("Expected a JSON object as Ranger response");
       }
-      Object items = payload.get(payloadProperty);
-      if (!(items instanceof List)) {
-        throw new RangerException(
-            "Expected an array value for key "
-                + payloadProperty
-                + " in Ranger response, got "
-                + items.getClass());
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String name = parser.currentName();
+        JsonToken value = parser.nextToken();
+        if (!payloadProperty.equals(name)) {
+          parser.skipChildren();
+          continue;
+        }
+        if (value != JsonToken.START_ARRAY) {
+          throw new RangerException(
+              "Expected an array value for key "
+                  + payloadProperty
+                  + " in Ranger response, got "
+                  + value);
+        }
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          ITEM_WRITER.writeValue(out, RangerDumpFormat.MAPPER.readValue(parser, Object.class));
+          out.write('\n');
+          count++;
+        }
+        return count;
       }
-      return ImmutableList.copyOf((List<?>) items);
-    } catch (IOException e) {
+      throw new RangerException("Missing key " + payloadProperty + " in Ranger response");
+    } catch (JsonProcessingException e) {
       throw new RangerException("Failed to deserialize Ranger internal API response body", e);
     }
   }
@@ -179,6 +204,7 @@ class RangerClient implements AutoCloseable {
     private final SSLSocketFactory socketFactory;
     private final HostnameVerifier hostnameVerifier;
     private final boolean useKerberosAuth;
+    private final Timer requestTimer = MetricRegistry.current().timer("rest.ranger");
 
     static class Builder {
       private String basicAuth;
@@ -251,17 +277,27 @@ class RangerClient implements AutoCloseable {
       this.useKerberosAuth = useKerberosAuth;
     }
 
-    public String doGet(String path, Map<String, String> queryParams) {
+    /** Reads the body of a response, while the connection is still open. */
+    @FunctionalInterface
+    interface ResponseReader<T> {
+
+      T read(InputStream body) throws IOException;
+    }
+
+    public <T> T doGet(
+        String path, Map<String, String> queryParams, ResponseReader<T> responseReader) {
       URL url = constructUrl(path, queryParams);
       HttpURLConnection connection = null;
+      long start = System.nanoTime();
       try {
         connection = setupConnection(url);
 
         try {
           handleHttpErrors(connection, url);
 
-          InputStream responseInputStream = connection.getInputStream();
-          return getResponseBody(responseInputStream);
+          try (InputStream responseInputStream = connection.getInputStream()) {
+            return responseReader.read(responseInputStream);
+          }
         } catch (IOException e) {
           throw new RangerException("Problem reading response", e);
         }
@@ -275,6 +311,7 @@ class RangerClient implements AutoCloseable {
         if (connection != null) {
           connection.disconnect();
         }
+        requestTimer.recordNanos(System.nanoTime() - start);
       }
     }
 
@@ -324,8 +361,9 @@ class RangerClient implements AutoCloseable {
     private URL constructUrl(String path, Map<String, String> queryParams) {
       URL url;
       try {
+        // Requests may be made concurrently, so each builds its URL on a copy of the base.
         url =
-            baseUri
+            new URIBuilder(baseUri.build())
                 .setPath(path)
                 .addParameters(
                     queryParams.entrySet().stream()
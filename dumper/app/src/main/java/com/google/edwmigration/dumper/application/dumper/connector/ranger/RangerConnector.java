@@ -19,6 +19,7 @@ package com.google.edwmigration.dumper.application.dumper.connector.ranger;
 import com.google.auto.service.AutoService;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteSink;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
 import com.google.edwmigration.dumper.application.dumper.annotations.RespectsInput;
 import com.google.edwmigration.dumper.application.dumper.connector.AbstractConnector;
@@ -45,6 +46,9 @@ import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.Nonnull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -92,7 +96,9 @@ public class RangerConnector extends AbstractConnector {
   public Handle open(@Nonnull ConnectorArguments arguments) throws Exception {
 
     return new RangerClientHandle(
-        RangerClient.instance(arguments), arguments.getRangerPageSizeDefault());
+        RangerClient.instance(arguments),
+        arguments.getRangerPageSizeDefault(),
+        arguments.getRangerPageConcurrency());
   }
 
   static class DumpUsersTask extends AbstractRangerTask {
@@ -102,9 +108,13 @@ public class RangerConnector extends AbstractConnector {
     }
 
     @Override
-    protected Iterator<Object> dataIterator(@Nonnull RangerClientHandle handle) {
-      return new RangerPageIterator<>(
-          page -> handle.rangerClient.findUsers(toParameters(page)), handle.pageSize);
+    protected Iterator<String> dataIterator(
+        @Nonnull RangerClientHandle handle, @Nonnull Executor executor) {
+      return new RangerPageIterator(
+          (page, out) -> handle.rangerClient.findUsers(toParameters(page), out),
+          handle.pageSize,
+          handle.pageConcurrency,
+          executor);
     }
 
     @Override
@@ -120,9 +130,13 @@ public class RangerConnector extends AbstractConnector {
     }
 
     @Override
-    protected Iterator<Object> dataIterator(@Nonnull RangerClientHandle handle) {
-      return new RangerPageIterator<>(
-          page -> handle.rangerClient.findGroups(toParameters(page)), handle.pageSize);
+    protected Iterator<String> dataIterator(
+        @Nonnull RangerClientHandle handle, @Nonnull Executor executor) {
+      return new RangerPageIterator(
+          (page, out) -> handle.rangerClient.findGroups(toParameters(page), out),
+          handle.pageSize,
+          handle.pageConcurrency,
+          executor);
     }
 
     @Override
@@ -138,9 +152,13 @@ public class RangerConnector extends AbstractConnector {
     }
 
     @Override
-    protected Iterator<Object> dataIterator(@Nonnull RangerClientHandle handle) {
-      return new RangerPageIterator<>(
-          page -> handle.rangerClient.findRoles(toParameters(page)), handle.pageSize);
+    protected Iterator<String> dataIterator(
+        @Nonnull RangerClientHandle handle, @Nonnull Executor executor) {
+      return new RangerPageIterator(
+          (page, out) -> handle.rangerClient.findRoles(toParameters(page), out),
+          handle.pageSize,
+          handle.pageConcurrency,
+          executor);
     }
 
     @Override
@@ -155,9 +173,13 @@ public class RangerConnector extends AbstractConnector {
       super(ServicesFormat.ZIP_ENTRY_NAME);
     }
 
-    protected Iterator<Object> dataIterator(@Nonnull RangerClientHandle handle) {
-      return new RangerPageIterator<>(
-          page -> handle.rangerClient.findServices(toParameters(page)), handle.pageSize);
+    protected Iterator<String> dataIterator(
+        @Nonnull RangerClientHandle handle, @Nonnull Executor executor) {
+      return new RangerPageIterator(
+          (page, out) -> handle.rangerClient.findServices(toParameters(page), out),
+          handle.pageSize,
+          handle.pageConcurrency,
+          executor);
     }
 
     @Override
@@ -173,9 +195,13 @@ public class RangerConnector extends AbstractConnector {
     }
 
     @Override
-    protected Iterator<Object> dataIterator(@Nonnull RangerClientHandle handle) {
-      return new RangerPageIterator<>(
-          page -> handle.rangerClient.findPolicies(toParameters(page)), handle.pageSize);
+    protected Iterator<String> dataIterator(
+        @Nonnull RangerClientHandle handle, @Nonnull Executor executor) {
+      return new RangerPageIterator(
+          (page, out) -> handle.rangerClient.findPolicies(toParameters(page), out),
+          handle.pageSize,
+          handle.pageConcurrency,
+          executor);
     }
 
     @Override
@@ -191,19 +217,25 @@ public class RangerConnector extends AbstractConnector {
     }
 
     @ForOverride
-    protected abstract Iterator<Object> dataIterator(@Nonnull RangerClientHandle handle);
+    protected abstract Iterator<String> dataIterator(
+        @Nonnull RangerClientHandle handle, @Nonnull Executor executor);
 
     @Override
     protected Void doRun(TaskRunContext context, @Nonnull ByteSink sink, @Nonnull Handle handle)
         throws Exception {
       RangerClientHandle rangerClientHandler = (RangerClientHandle) handle;
       logger.info("Writing to '{}' -> '{}'", getTargetPath(), sink);
+      ExecutorService executor =
+          Executors.newFixedThreadPool(
+              rangerClientHandler.pageConcurrency,
+              new ThreadFactoryBuilder().setNameFormat("ranger-pages-%d").setDaemon(true).build());
       try (Writer writer = sink.asCharSink(StandardCharsets.UTF_8).openBufferedStream()) {
-        for (Iterator<Object> iterator = dataIterator(rangerClientHandler); iterator.hasNext(); ) {
-          String json = RangerDumpFormat.MAPPER.writeValueAsString(iterator.next());
-          writer.write(json);
-          writer.write('\n');
+        for (Iterator<String> iterator = dataIterator(rangerClientHandler, executor);
+            iterator.hasNext(); ) {
+          writer.write(iterator.next());
         }
+      } finally {
+        executor.shutdownNow();
       }
       return null;
     }
@@ -228,9 +260,16 @@ public class RangerConnector extends AbstractConnector {
 
     public final int pageSize;
 
+    public final int pageConcurrency;
+
     RangerClientHandle(@Nonnull RangerClient rangerClient, int pageSize) {
+      this(rangerClient, pageSize, /* pageConcurrency= */ 1);
+    }
+
+    RangerClientHandle(@Nonnull RangerClient rangerClient, int pageSize, int pageConcurrency) {
       this.rangerClient = rangerClient;
       this.pageSize = pageSize;
+      this.pageConcurrency = pageConcurrency;
     }
 
     @Override
@@ -16,18 +16,33 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.ranger;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.google.auto.value.AutoValue;
+import com.google.common.base.Throwables;
 import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.edwmigration.dumper.application.dumper.connector.ranger.RangerClient.RangerException;
-import java.util.Iterator;
-import java.util.List;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 
 /**
- * An iterator that iterates sequentially each item through all the pages of a paginated Ranger API
- * response.
+ * An iterator that iterates sequentially through all the pages of a paginated Ranger API response,
+ * returning the text each page was written as.
+ *
+ * <p>Up to a fixed number of pages are fetched concurrently on an executor, ahead of the page being
+ * iterated. Each of them is written into its own buffer as the response is read, and the buffer is
+ * handed back as is. As the total count is not known upfront, up to that number of pages beyond
+ * the last one may be requested; their results are discarded.
  */
-class RangerPageIterator<T> extends AbstractIterator<T> {
+class RangerPageIterator extends AbstractIterator<String> {
 
   @AutoValue
   public abstract static class Page {
@@ -42,44 +57,111 @@ class RangerPageIterator<T> extends AbstractIterator<T> {
   }
 
   @FunctionalInterface
-  public interface RangerFetcher<T> {
+  public interface RangerFetcher {
+
+    /** Writes the items of the page to {@code out} and returns how many there were. */
+    int fetch(Page page, Writer out) throws RangerException;
+  }
+
+  private static class FetchedPage {
+
+    private final int count;
+    private final String text;
+
+    FetchedPage(int count, String text) {
+      this.count = count;
+      this.text = text;
+    }
+  }
+
+  private static class PendingPage {
+
+    private final Page page;
+    private final Future<FetchedPage> fetched;
 
-    List<T> fetch(Page page) throws RangerException;
+    PendingPage(Page page, Future<FetchedPage> fetched) {
+      this.page = page;
+      this.fetched = fetched;
+    }
   }
 
-  private final RangerFetcher<T> fetcher;
+  private final RangerFetcher fetcher;
   private final int pageSize;
+  private final int maxPagesInFlight;
+  private final Executor executor;
+  private final ArrayDeque<PendingPage> inFlight = new ArrayDeque<>();
   private int offset;
-  private Iterator<T> pageIterator;
   private boolean lastPage = false;
 
-  RangerPageIterator(RangerFetcher<T> fetcher, int pageSize) {
+  RangerPageIterator(RangerFetcher fetcher, int pageSize) {
+    this(fetcher, pageSize, 1, MoreExecutors.directExecutor());
+  }
+
+  RangerPageIterator(RangerFetcher fetcher, int pageSize, int maxPagesInFlight, Executor executor) {
+    checkArgument(pageSize > 0, "Page size must be positive, got %s.", pageSize);
+    checkArgument(
+        maxPagesInFlight > 0, "Pages in flight must be positive, got %s.", maxPagesInFlight);
     this.fetcher = fetcher;
     this.pageSize = pageSize;
+    this.maxPagesInFlight = maxPagesInFlight;
+    this.executor = executor;
     offset = 0;
   }
 
   @CheckForNull
   @Override
-  protected T computeNext() {
-    if (pageIterator == null || !pageIterator.hasNext() && !lastPage) {
-      List<T> entries;
-      try {
-        entries = fetcher.fetch(Page.create(offset, pageSize));
-      } catch (RangerException e) {
+  protected String computeNext() {
+    while (!lastPage) {
+      fetchAhead();
+      FetchedPage fetched = await(inFlight.remove());
+      lastPage = fetched.count < pageSize;
+      if (lastPage) {
+        cancelInFlight();
+      }
+      if (fetched.count > 0) {
+        return fetched.text;
+      }
+    }
+    return endOfData();
+  }
+
+  private void fetchAhead() {
+    while (inFlight.size() < maxPagesInFlight) {
+      Page page = Page.create(offset, pageSize);
+      inFlight.add(
+          new PendingPage(page, CompletableFuture.supplyAsync(() -> fetch(page), executor)));
+      offset += pageSize;
+    }
+  }
+
+  private FetchedPage fetch(Page page) {
+    StringWriter out = new StringWriter();
+    int count = fetcher.fetch(page, out);
+    return new FetchedPage(count, out.toString());
+  }
+
+  private FetchedPage await(PendingPage pending) {
+    try {
+      return Uninterruptibles.getUninterruptibly(pending.fetched);
+    } catch (ExecutionException e) {
+      cancelInFlight();
+      Throwable cause = e.getCause();
+      if (cause instanceof RangerException) {
         throw new RuntimeException(
             String.format(
                 "Failed to fetch collection data from Ranger at offset %d with page size %d, encountered error: %s",
-                offset, pageSize, e.getMessage()),
-            e);
+                pending.page.offset(), pending.page.limit(), cause.getMessage()),
+            cause);
       }
-      offset += pageSize;
-      lastPage = entries.size() < pageSize;
-      pageIterator = entries.iterator();
+      Throwables.throwIfUnchecked(cause);
+      throw new IllegalStateException(cause);
     }
-    if (!pageIterator.hasNext()) {
-      return endOfData();
+  }
+
+  private void cancelInFlight() {
+    for (PendingPage pending : inFlight) {
+      pending.fetched.cancel(false);
     }
-    return pageIterator.next();
+    inFlight.clear();
   }
 }
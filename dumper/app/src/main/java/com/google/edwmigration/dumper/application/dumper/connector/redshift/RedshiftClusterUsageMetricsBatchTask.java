@@ -0,0 +1,308 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector.redshift;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.edwmigration.dumper.application.dumper.SummaryPrinter.joinSummaryDoubleLine;
+import static com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.DATE_FORMAT;
+import static com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.REDSHIFT_NAMESPACE;
+import static com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.metricDataPeriod;
+
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.GetMetricDataRequest;
+import com.amazonaws.services.cloudwatch.model.GetMetricDataResult;
+import com.amazonaws.services.cloudwatch.model.Metric;
+import com.amazonaws.services.cloudwatch.model.MetricDataQuery;
+import com.amazonaws.services.cloudwatch.model.MetricDataResult;
+import com.amazonaws.services.cloudwatch.model.MetricStat;
+import com.amazonaws.services.cloudwatch.model.ScanBy;
+import com.amazonaws.services.redshift.AmazonRedshift;
+import com.amazonaws.services.redshift.model.Cluster;
+import com.amazonaws.services.redshift.model.DescribeClustersRequest;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteSink;
+import com.google.edwmigration.dumper.application.dumper.connector.ZonedInterval;
+import com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.MetricConfig;
+import com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.MetricDataPoint;
+import com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.MetricName;
+import com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsTask.MetricType;
+import com.google.edwmigration.dumper.application.dumper.handle.Handle;
+import com.google.edwmigration.dumper.application.dumper.handle.RedshiftHandle;
+import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
+import com.google.edwmigration.dumper.plugin.lib.dumper.spi.RedshiftRawLogsDumpFormat;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import org.apache.commons.csv.CSVFormat;
+
+/**
+ * Extraction task to get Redshift time series metrics of a whole range of intervals from AWS
+ * CloudWatch API.
+ *
+ * <p>Instead of a GetMetricStatistics call per cluster, metric and interval, the metrics of many
+ * clusters are fetched together with paginated GetMetricData calls, each covering the intervals
+ * that share a metric period. The output has the same format as {@link
+ * RedshiftClusterUsageMetricsTask}, in a single file.
+ */
+public class RedshiftClusterUsageMetricsBatchTask extends AbstractAwsApiTask {
+
+  /** The maximum number of metric queries CloudWatch accepts in a GetMetricData request. */
+  static final int MAX_QUERIES_PER_REQUEST = 500;
+
+  /**
+   * The number of data points CloudWatch returns in a GetMetricData response by default. Clusters
+   * are batched so that their data points fit in about one response, which also bounds memory.
+   */
+  static final int MAX_DATA_POINTS_PER_BATCH = 100_800;
+
+  private static final ImmutableList<MetricConfig> METRICS =
+      ImmutableList.of(
+          MetricConfig.create(MetricName.CPUUtilization, MetricType.Average),
+          MetricConfig.create(MetricName.PercentageDiskSpaceUsed, MetricType.Average));
+
+  /** A time range whose metrics are fetched with a single period. */
+  @AutoValue
+  abstract static class MetricRange {
+
+    abstract Instant start();
+
+    abstract Instant end();
+
+    abstract Duration period();
+
+    static MetricRange create(Instant start, Instant end, Duration period) {
+      return new AutoValue_RedshiftClusterUsageMetricsBatchTask_MetricRange(start, end, period);
+    }
+
+    long dataPoints() {
+      return Duration.between(start(), end()).getSeconds() / period().getSeconds() + 1;
+    }
+  }
+
+  private final ZonedDateTime currentTime;
+  private final ImmutableList<ZonedInterval> intervals;
+  private final String zipEntryName;
+  private final int maxQueriesPerRequest;
+
+  public RedshiftClusterUsageMetricsBatchTask(
+      ZonedDateTime currentTime, List<ZonedInterval> intervals, String zipEntryName) {
+    this(currentTime, intervals, zipEntryName, MAX_QUERIES_PER_REQUEST);
+  }
+
+  RedshiftClusterUsageMetricsBatchTask(
+      ZonedDateTime currentTime,
+      List<ZonedInterval> intervals,
+      String zipEntryName,
+      int maxQueriesPerRequest) {
+    super(zipEntryName, RedshiftRawLogsDumpFormat.ClusterUsageMetrics.Header.class);
+    this.currentTime = currentTime;
+    this.intervals = ImmutableList.copyOf(intervals);
+    this.zipEntryName = zipEntryName;
+    this.maxQueriesPerRequest = maxQueriesPerRequest;
+  }
+
+  @Override
+  protected Void doRun(TaskRunContext context, @Nonnull ByteSink sink, @Nonnull Handle handle)
+      throws IOException {
+    CSVFormat format = FORMAT.builder().setHeader(headerEnum).build();
+
+    RedshiftHandle redshiftHandle = (RedshiftHandle) handle;
+    // customer did not provide aws credentials;
+    if (!redshiftHandle.getRedshiftClient().isPresent()
+        || !redshiftHandle.getCloudWatchClient().isPresent()) {
+      return null;
+    }
+
+    AmazonRedshift redshiftClient = redshiftHandle.getRedshiftClient().get();
+    AmazonCloudWatch cloudWatchClient = redshiftHandle.getCloudWatchClient().get();
+    ImmutableList<MetricRange> ranges = metricRanges(intervals, currentTime);
+
+    try (CsvRecordWriter writer = new CsvRecordWriter(sink, format, getName())) {
+      List<String> clusterIds =
+          redshiftClient.describeClusters(new DescribeClustersRequest()).getClusters().stream()
+              .map(Cluster::getClusterIdentifier)
+              .collect(toImmutableList());
+      for (List<String> batch : Lists.partition(clusterIds, clustersPerBatch(ranges))) {
+        writeClusters(writer, batch, ranges, cloudWatchClient);
+      }
+    }
+    return null;
+  }
+
+  private int clustersPerBatch(List<MetricRange> ranges) {
+    long dataPointsPerCluster = 0;
+    for (MetricRange range : ranges) {
+      dataPointsPerCluster += range.dataPoints() * METRICS.size();
+    }
+    long byDataPoints = MAX_DATA_POINTS_PER_BATCH / Math.max(dataPointsPerCluster, 1);
+    long byQueries = maxQueriesPerRequest / METRICS.size();
+    return (int) Math.max(1, Math.min(byDataPoints, byQueries));
+  }
+
+  private void writeClusters(
+      CsvRecordWriter writer,
+      List<String> clusterIds,
+      List<MetricRange> ranges,
+      AmazonCloudWatch cloudWatchClient)
+      throws IOException {
+    Map<String, List<MetricDataPoint>> dataPoints = new HashMap<>();
+    for (int cluster = 0; cluster < clusterIds.size(); cluster++) {
+      for (int metric = 0; metric < METRICS.size(); metric++) {
+        dataPoints.put(queryId(cluster, metric), new ArrayList<>());
+      }
+    }
+    // Ranges are in time order and each result is scanned by ascending timestamp, so every list
+    // of data points comes out sorted.
+    for (MetricRange range : ranges) {
+      GetMetricDataRequest request =
+          new GetMetricDataRequest()
+              .withMetricDataQueries(queries(clusterIds, range.period()))
+              .withStartTime(Date.from(range.start()))
+              .withEndTime(Date.from(range.end()))
+              .withScanBy(ScanBy.TimestampAscending);
+      do {
+        GetMetricDataResult result = cloudWatchClient.getMetricData(request);
+        for (MetricDataResult metricResult : result.getMetricDataResults()) {
+          List<MetricDataPoint> points = dataPoints.get(metricResult.getId());
+          MetricConfig config = METRICS.get(metricIndex(metricResult.getId()));
+          for (int i = 0; i < metricResult.getTimestamps().size(); i++) {
+            points.add(
+                MetricDataPoint.create(
+                    metricResult.getTimestamps().get(i).toInstant(),
+                    metricResult.getValues().get(i),
+                    config));
+          }
+        }
+        request.setNextToken(result.getNextToken());
+      } while (request.getNextToken() != null);
+    }
+
+    for (int cluster = 0; cluster < clusterIds.size(); cluster++) {
+      writeCluster(
+          writer,
+          clusterIds.get(cluster),
+          dataPoints.get(queryId(cluster, 0)),
+          dataPoints.get(queryId(cluster, 1)));
+    }
+  }
+
+  /** Merges the sorted data points of both metrics into rows, one per timestamp. */
+  private static void writeCluster(
+      CsvRecordWriter writer,
+      String clusterId,
+      List<MetricDataPoint> cpuPoints,
+      List<MetricDataPoint> diskPoints)
+      throws IOException {
+    int cpu = 0;
+    int disk = 0;
+    while (cpu < cpuPoints.size() || disk < diskPoints.size()) {
+      int order;
+      if (cpu == cpuPoints.size()) {
+        order = 1;
+      } else if (disk == diskPoints.size()) {
+        order = -1;
+      } else {
+        order = cpuPoints.get(cpu).instant().compareTo(diskPoints.get(disk).instant());
+      }
+      Instant instant = order <= 0 ? cpuPoints.get(cpu).instant() : diskPoints.get(disk).instant();
+      String cpuValue = order <= 0 ? cpuPoints.get(cpu++).value().toString() : "";
+      String diskValue = order >= 0 ? diskPoints.get(disk++).value().toString() : "";
+      writer.handleRecord(clusterId, DATE_FORMAT.format(instant), cpuValue, diskValue);
+    }
+  }
+
+  private static ImmutableList<MetricDataQuery> queries(List<String> clusterIds, Duration period) {
+    ImmutableList.Builder<MetricDataQuery> queries = ImmutableList.builder();
+    for (int cluster = 0; cluster < clusterIds.size(); cluster++) {
+      for (int metric = 0; metric < METRICS.size(); metric++) {
+        MetricConfig config = METRICS.get(metric);
+        queries.add(
+            new MetricDataQuery()
+                .withId(queryId(cluster, metric))
+                .withMetricStat(
+                    new MetricStat()
+                        .withMetric(
+                            new Metric()
+                                .withNamespace(REDSHIFT_NAMESPACE)
+                                .withMetricName(config.name().name())
+                                .withDimensions(
+                                    new Dimension()
+                                        .withName("ClusterIdentifier")
+                                        .withValue(clusterIds.get(cluster))))
+                        .withPeriod((int) period.getSeconds())
+                        .withStat(config.type().name()))
+                .withReturnData(true));
+      }
+    }
+    return queries.build();
+  }
+
+  /** Returns an id valid in CloudWatch, which must start with a lowercase letter. */
+  private static String queryId(int cluster, int metric) {
+    return "c" + cluster + "_" + metric;
+  }
+
+  private static int metricIndex(String queryId) {
+    return Integer.parseInt(queryId.substring(queryId.indexOf('_') + 1));
+  }
+
+  /** Joins adjacent intervals that share a metric period into ranges, in time order. */
+  static ImmutableList<MetricRange> metricRanges(
+      List<ZonedInterval> intervals, ZonedDateTime currentTime) {
+    ImmutableList.Builder<MetricRange> ranges = ImmutableList.builder();
+    Instant start = null;
+    Instant end = null;
+    Duration period = null;
+    for (ZonedInterval interval : intervals) {
+      Instant intervalStart = interval.getStartUTC().toInstant();
+      Duration intervalPeriod = metricDataPeriod(interval.getStartUTC(), currentTime);
+      if (start != null && (!intervalPeriod.equals(period) || !intervalStart.equals(end))) {
+        ranges.add(MetricRange.create(start, end, period));
+        start = null;
+      }
+      if (start == null) {
+        start = intervalStart;
+        period = intervalPeriod;
+      }
+      end = interval.getEndExclusiveUTC().toInstant();
+    }
+    if (start != null) {
+      ranges.add(MetricRange.create(start, end, period));
+    }
+    return ranges.build();
+  }
+
+  private String toCallDescription() {
+    return "AmazonRedshift.describeClusters, AmazonCloudWatch.getMetricData";
+  }
+
+  @Override
+  public String describeSourceData() {
+    return joinSummaryDoubleLine(
+        "Write " + zipEntryName + " from AWS API request:", toCallDescription());
+  }
+}
@@ -84,8 +84,8 @@ public class RedshiftClusterUsageMetricsTask extends AbstractAwsApiTask {
     }
   }
 
-  private static final String REDSHIFT_NAMESPACE = "AWS/Redshift";
-  private static final DateTimeFormatter DATE_FORMAT =
+  static final String REDSHIFT_NAMESPACE = "AWS/Redshift";
+  static final DateTimeFormatter DATE_FORMAT =
       DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneOffset.UTC);
 
   private final ZonedDateTime currentTime;
@@ -150,6 +150,7 @@ public class RedshiftClusterUsageMetricsTask extends AbstractAwsApiTask {
 
   private ImmutableList<MetricDataPoint> getMetricDataPoints(
       String clusterId, MetricConfig metricConfig, AmazonCloudWatch cloudWatchClient) {
+    Duration period = metricDataPeriod(interval.getStartUTC(), currentTime);
     GetMetricStatisticsRequest request =
         new GetMetricStatisticsRequest()
             .withMetricName(metricConfig.name().name())
@@ -158,7 +159,7 @@ public class RedshiftClusterUsageMetricsTask extends AbstractAwsApiTask {
             .withDimensions(new Dimension().withName("ClusterIdentifier").withValue(clusterId))
             .withStartTime(Date.from(interval.getStartUTC().toInstant()))
             .withEndTime(Date.from(interval.getEndExclusiveUTC().toInstant()))
-            .withPeriod((int) metricDataPeriod().getSeconds());
+            .withPeriod((int) period.getSeconds());
 
     GetMetricStatisticsResult result = cloudWatchClient.getMetricStatistics(request);
     return result.getDatapoints().stream()
@@ -197,8 +198,7 @@ public class RedshiftClusterUsageMetricsTask extends AbstractAwsApiTask {
    * Returns available metric period based on the interval time.
    * https://docs.aws.amazon.com/AmazonCloudWatch/latest/monitoring/cloudwatch_concepts.html
    */
-  private Duration metricDataPeriod() {
-    ZonedDateTime start = interval.getStartUTC();
+  static Duration metricDataPeriod(ZonedDateTime start, ZonedDateTime currentTime) {
     if (start.isAfter(currentTime.minusDays(14))) {
       return Duration.ofMinutes(1);
     }
@@ -21,6 +21,7 @@ import static com.google.edwmigration.dumper.application.dumper.utils.ArchiveNam
 import com.google.auto.service.AutoService;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
 import com.google.edwmigration.dumper.application.dumper.MetadataDumperUsageException;
@@ -30,6 +31,7 @@ import com.google.edwmigration.dumper.application.dumper.annotations.RespectsArg
 import com.google.edwmigration.dumper.application.dumper.annotations.RespectsArgumentQueryLogStart;
 import com.google.edwmigration.dumper.application.dumper.annotations.RespectsInput;
 import com.google.edwmigration.dumper.application.dumper.connector.Connector;
+import com.google.edwmigration.dumper.application.dumper.connector.ConnectorProperty;
 import com.google.edwmigration.dumper.application.dumper.connector.IntervalExpander;
 import com.google.edwmigration.dumper.application.dumper.connector.LogsConnector;
 import com.google.edwmigration.dumper.application.dumper.connector.ZonedInterval;
@@ -48,6 +50,7 @@ import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import javax.annotation.Nonnull;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -77,6 +80,12 @@ public class RedshiftRawLogsConnector extends AbstractRedshiftConnector
     super("redshift-raw-logs");
   }
 
+  @Nonnull
+  @Override
+  public Class<? extends Enum<? extends ConnectorProperty>> getConnectorProperties() {
+    return RedshiftRawLogsConnectorProperty.class;
+  }
+
   @Override
   public void addTasksTo(List<? super Task<?>> out, ConnectorArguments arguments)
       throws MetadataDumperUsageException {
@@ -192,7 +201,7 @@ public class RedshiftRawLogsConnector extends AbstractRedshiftConnector
           "service_class_start_time",
           parallelTask);
 
-      makeClusterMetricsTasks(intervals, out);
+      makeClusterMetricsTasks(arguments, intervals, out);
     }
 
     out.add(parallelTask.build());
@@ -238,7 +247,26 @@ public class RedshiftRawLogsConnector extends AbstractRedshiftConnector
   }
 
   /** Creates tasks to get Redshift cluster metrics from AWS CloudWatch API. */
-  private void makeClusterMetricsTasks(ZonedIntervalIterable intervals, List<? super Task<?>> out) {
+  private void makeClusterMetricsTasks(
+      ConnectorArguments arguments,
+      ZonedIntervalIterable intervals,
+      List<? super Task<?>> out) {
+    if (Boolean.parseBoolean(
+        arguments.getDefinitionOrDefault(
+            RedshiftRawLogsConnectorProperty.CLUSTER_METRICS_BATCHED))) {
+      ImmutableList<ZonedInterval> allIntervals = ImmutableList.copyOf(intervals);
+      if (allIntervals.isEmpty()) {
+        return;
+      }
+      ZonedInterval range =
+          new ZonedInterval(
+              allIntervals.get(0).getStart(), Iterables.getLast(allIntervals).getEndExclusive());
+      String file =
+          getEntryFileNameWithTimestamp(
+              RedshiftRawLogsDumpFormat.ClusterUsageMetrics.ZIP_ENTRY_PREFIX, range);
+      out.add(new RedshiftClusterUsageMetricsBatchTask(ZonedDateTime.now(), allIntervals, file));
+      return;
+    }
     for (ZonedInterval interval : intervals) {
       String file =
           getEntryFileNameWithTimestamp(
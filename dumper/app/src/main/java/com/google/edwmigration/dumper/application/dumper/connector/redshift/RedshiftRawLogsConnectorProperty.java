@@ -0,0 +1,53 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector.redshift;
+
+import com.google.edwmigration.dumper.application.dumper.connector.ConnectorPropertyWithDefault;
+import javax.annotation.Nonnull;
+
+enum RedshiftRawLogsConnectorProperty implements ConnectorPropertyWithDefault {
+  CLUSTER_METRICS_BATCHED(
+      "redshift.cluster-metrics.batched",
+      "Fetches the cluster usage metrics of the whole log range with a few batched CloudWatch"
+          + " GetMetricData requests, into a single file. Default value: \"false\", set to"
+          + " \"true\" to enable it.",
+      "false");
+
+  private final String name;
+  private final String description;
+  private final String defaultValue;
+
+  RedshiftRawLogsConnectorProperty(String name, String description, String defaultValue) {
+    this.name = name;
+    this.description = description;
+    this.defaultValue = defaultValue;
+  }
+
+  @Nonnull
+  public String getName() {
+    return name;
+  }
+
+  @Nonnull
+  public String getDescription() {
+    return description;
+  }
+
+  public String getDefaultValue() {
+    return defaultValue;
+  }
+}
@@ -18,6 +18,8 @@ package com.google.edwmigration.dumper.application.dumper.io;
 
 import com.google.common.base.Preconditions;
 import com.google.common.io.ByteSink;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.MeteredOutputStream;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.MetricRegistry;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
@@ -40,6 +42,13 @@ public class FileSystemByteSink extends ByteSink {
 
   @Override
   public OutputStream openStream() throws IOException {
+    MetricRegistry metrics = MetricRegistry.current();
+    return new MeteredOutputStream(
+        openFileStream(), metrics.timer("sink.write"), metrics.counter("sink.bytes"));
+  }
+
+  @Nonnull
+  private OutputStream openFileStream() throws IOException {
     switch (writeMode) {
       case CREATE_TRUNCATE:
         // Default options are CREATE, TRUNCATE_EXISTING, WRITE
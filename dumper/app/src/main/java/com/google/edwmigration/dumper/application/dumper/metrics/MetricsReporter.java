@@ -0,0 +1,168 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.metrics;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.MetricRegistry;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples a {@link MetricRegistry} at a fixed interval for the duration of a run, and writes the
+ * samples as one JSON object per line into the output ZIP.
+ *
+ * <p>If a port is given, the current values are also served in the Prometheus text format on
+ * {@code http://localhost:<port>/metrics} while the run lasts. If the port cannot be bound, the
+ * run continues without the endpoint.
+ */
+public class MetricsReporter implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(MetricsReporter.class);
+
+  public static final String ZIP_ENTRY_NAME = "dumper-metrics.jsonl";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final MetricRegistry registry;
+  private final Stopwatch stopwatch = Stopwatch.createStarted();
+  private final ScheduledExecutorService scheduler;
+  @CheckForNull private final HttpServer server;
+
+  @GuardedBy("lines")
+  private final List<String> lines = new ArrayList<>();
+
+  public MetricsReporter(
+      @Nonnull MetricRegistry registry, @Nonnull Duration interval, @CheckForNull Integer port) {
+    Preconditions.checkArgument(!interval.isNegative() && !interval.isZero(), "Bad interval.");
+    this.registry = Preconditions.checkNotNull(registry, "Registry was null.");
+    this.server = (port == null) ? null : tryStartServer(port);
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("metrics-reporter").setDaemon(true).build());
+    this.scheduler.scheduleWithFixedDelay(
+        this::sample, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  /** Returns null if the port cannot be bound; the metrics are not worth failing the run. */
+  @CheckForNull
+  private HttpServer tryStartServer(int port) {
+    try {
+      return startServer(port);
+    } catch (IOException e) {
+      logger.warn("Cannot serve metrics on port {}, continuing without: {}", port, e.toString());
+      return null;
+    }
+  }
+
+  @Nonnull
+  private HttpServer startServer(int port) throws IOException {
+    HttpServer server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext(
+        "/metrics",
+        exchange -> {
+          try {
+            StringWriter text = new StringWriter();
+            registry.writePrometheus(text);
+            byte[] body = text.toString().getBytes(UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+              out.write(body);
+            }
+          } finally {
+            exchange.close();
+          }
+        });
+    server.start();
+    logger.info("Serving metrics on http://localhost:{}/metrics", server.getAddress().getPort());
+    return server;
+  }
+
+  /** Returns the port of the metrics endpoint, or null if there is none. */
+  @CheckForNull
+  @VisibleForTesting
+  Integer getPort() {
+    return (server == null) ? null : server.getAddress().getPort();
+  }
+
+  private void sample() {
+    Map<String, Object> line = new LinkedHashMap<>();
+    line.put("timestamp", Instant.now().toString());
+    line.put("elapsedMillis", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    line.put("metrics", registry.getSnapshot());
+    try {
+      String json = MAPPER.writeValueAsString(line);
+      synchronized (lines) {
+        lines.add(json);
+      }
+    } catch (JsonProcessingException e) {
+      logger.warn("Failed to serialize metrics", e);
+    }
+  }
+
+  /** Takes a final sample and writes all samples into the given ZIP file system. */
+  public void writeTo(@Nonnull FileSystem fileSystem) throws IOException {
+    sample();
+    try (Writer writer = Files.newBufferedWriter(fileSystem.getPath(ZIP_ENTRY_NAME), UTF_8)) {
+      synchronized (lines) {
+        for (String line : lines) {
+          writer.write(line);
+          writer.write('\n');
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    MoreExecutors.shutdownAndAwaitTermination(scheduler, 1, TimeUnit.SECONDS);
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+}
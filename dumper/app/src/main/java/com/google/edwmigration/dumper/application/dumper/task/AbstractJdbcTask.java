@@ -26,6 +26,9 @@ import com.google.edwmigration.dumper.application.dumper.connector.ZonedInterval
 import com.google.edwmigration.dumper.application.dumper.handle.Handle;
 import com.google.edwmigration.dumper.application.dumper.handle.JdbcHandle;
 import com.google.edwmigration.dumper.application.dumper.io.OutputHandle.WriteMode;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.Counter;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.MetricRegistry;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.Timer;
 import com.google.edwmigration.dumper.plugin.ext.jdk.progress.RecordProgressMonitor;
 import java.io.IOException;
 import java.io.InputStream;
@@ -154,7 +157,17 @@ public abstract class AbstractJdbcTask<T> extends AbstractTask<T> {
     try (Writer writer = sink.asCharSink(UTF_8).openBufferedStream();
         CSVPrinter printer = format.print(writer)) {
       int columnCount = resultSet.getMetaData().getColumnCount();
+      MetricRegistry metrics = MetricRegistry.current();
+      Timer fetchTimer = metrics.timer("jdbc.fetch");
+      Timer encodeTimer = metrics.timer("csv.encode");
+      Counter rowCounter = metrics.counter("jdbc.rows");
+      // Each next() which crosses a fetch boundary shows the latency of the source; the encoding
+      // of a row includes any write to the sink which it triggers, also timed as sink.write.
+      long start = System.nanoTime();
       while (resultSet.next()) {
+        long fetched = System.nanoTime();
+        fetchTimer.recordNanos(fetched - start);
+        rowCounter.increment();
         monitor.count();
         for (int i = 1; i <= columnCount; i++) {
           Object resultItem = resultSet.getObject(i);
@@ -173,6 +186,8 @@ public abstract class AbstractJdbcTask<T> extends AbstractTask<T> {
           }
         }
         printer.println();
+        start = System.nanoTime();
+        encodeTimer.recordNanos(start - fetched);
       }
     }
   }
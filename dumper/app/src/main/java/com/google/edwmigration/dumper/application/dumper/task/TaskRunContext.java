@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Nonnull;
 
 /** @author shevek */
@@ -51,12 +52,23 @@ public class TaskRunContext implements OutputHandleFactory {
     this(
         sinkFactory,
         handle,
-        ExecutorManager.newUnboundedExecutorService("task-run-context", threadPoolSize),
+        newExecutorService(threadPoolSize, arguments),
         ops,
         Paths.get(""),
         arguments);
   }
 
+  @Nonnull
+  private static ExecutorService newExecutorService(
+      int threadPoolSize, @Nonnull ConnectorArguments arguments) {
+    // The tasks mostly block on the source; virtual threads keep the same limit on concurrency
+    // without holding a platform thread for each waiting task.
+    if (arguments.useVirtualThreads()) {
+      return ExecutorManager.newVirtualThreadExecutorService("task-run-context", threadPoolSize);
+    }
+    return ExecutorManager.newUnboundedExecutorService("task-run-context", threadPoolSize);
+  }
+
   private TaskRunContext(
       OutputHandleFactory sinkFactory,
       Handle handle,
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper;
+
+import static java.time.ZoneOffset.UTC;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TelemetryHistoryTest {
+
+  private static final Instant NOW = Instant.parse("2025-06-01T00:00:00Z");
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void readRecent_returnsNewestEntriesInOrder() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath().resolve("history");
+    for (int i = 0; i < 10; i++) {
+      // Each entry fills a segment, so that the entries are spread over several segments.
+      history(directory, NOW.plusMillis(i), 5, 100).append("entry" + i);
+    }
+
+    List<String> actual = history(directory, NOW.plusMillis(10), 10, 100).readRecent(4);
+
+    assertEquals(ImmutableList.of("entry6", "entry7", "entry8", "entry9"), actual);
+  }
+
+  @Test
+  public void append_deletesSegmentsBeyondLimit() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath().resolve("history");
+    for (int i = 0; i < 10; i++) {
+      history(directory, NOW.plusMillis(i), 5, 3).append("entry" + i);
+    }
+
+    List<String> actual = history(directory, NOW.plusMillis(10), 10, 3).readRecent(100);
+
+    assertEquals(ImmutableList.of("entry7", "entry8", "entry9"), actual);
+    assertEquals(3, countFiles(directory));
+  }
+
+  @Test
+  public void append_deletesOldSegments() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath().resolve("history");
+    history(directory, NOW, 1, 100).append("old");
+    Path oldSegment = directory.resolve("telemetry-" + NOW.toEpochMilli() + ".jsonl");
+    Files.setLastModifiedTime(oldSegment, FileTime.from(NOW.minus(Duration.ofDays(100))));
+
+    history(directory, NOW.plusMillis(1), 1, 100).append("new");
+
+    assertFalse(Files.exists(oldSegment));
+    assertEquals(ImmutableList.of("new"), history(directory, NOW, 10, 100).readRecent(100));
+  }
+
+  @Test
+  public void append_fillsSegmentUpToLimit() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath().resolve("history");
+    for (int i = 0; i < 5; i++) {
+      history(directory, NOW.plusMillis(i), 1000, 100).append("entry" + i);
+    }
+
+    assertEquals(1, countFiles(directory));
+  }
+
+  @Test
+  public void importLegacy_keepsOnlyTail() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath().resolve("history");
+    Path legacyFile = temporaryFolder.newFile("all-dumper-telemetry.jsonl").toPath();
+    List<String> legacyEntries =
+        IntStream.range(0, 1000)
+            .mapToObj(i -> Strings.padStart(String.valueOf(i), 9, '0'))
+            .collect(Collectors.toList());
+    Files.write(legacyFile, legacyEntries, StandardCharsets.UTF_8);
+    TelemetryHistory history = history(directory, NOW, 100, 100);
+
+    history.importLegacy(legacyFile);
+    history.append("new");
+
+    assertFalse(Files.exists(legacyFile));
+    List<String> actual = history.readRecent(1000);
+    assertTrue("Got " + actual.size() + " entries", actual.size() <= 11);
+    assertEquals(
+        ImmutableList.of("000000998", "000000999", "new"),
+        actual.subList(actual.size() - 3, actual.size()));
+  }
+
+  @Test
+  public void readRecent_emptyWithoutHistory() throws Exception {
+    Path directory = temporaryFolder.getRoot().toPath().resolve("history");
+
+    assertEquals(ImmutableList.of(), history(directory, NOW, 10, 100).readRecent(10));
+  }
+
+  private static TelemetryHistory history(
+      Path directory, Instant now, long maxSegmentBytes, int maxSegments) {
+    return new TelemetryHistory(
+        directory, Clock.fixed(now, UTC), maxSegmentBytes, maxSegments, Duration.ofDays(90));
+  }
+
+  private static long countFiles(Path directory) throws Exception {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+}
@@ -17,10 +17,12 @@
 package com.google.edwmigration.dumper.application.dumper.clouddumper;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.common.base.Charsets;
@@ -31,6 +33,8 @@ import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.ClassicHttpResponse;
@@ -53,6 +57,9 @@ public class DriverRetrieverTest {
 
   @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
 
+  private static final String CHECKSUM =
+      "202d40302f856f7f6ec75335254169c600549427e13d712de10f8029854ca99a";
+
   @Mock private CloseableHttpClient httpClient;
 
   private Path driverOutputPath;
@@ -72,7 +79,7 @@ public class DriverRetrieverTest {
                     new URI("http://test.google.com/my/checked_driver.jar"),
                     BaseEncoding.base16()
                         .lowerCase()
-                        .decode("202d40302f856f7f6ec75335254169c600549427e13d712de10f8029854ca99a"))
+                        .decode(CHECKSUM))
                 .build());
   }
 
@@ -140,7 +147,9 @@ public class DriverRetrieverTest {
     Optional<Path> driverPath = underTest.getDriver("test_with_checksum");
 
     // Verify
-    assertEquals(Optional.of(driverOutputPath.resolve("checked_driver.jar")), driverPath);
+    assertEquals(
+        Optional.of(driverOutputPath.resolve(CHECKSUM).resolve("checked_driver.jar")),
+        driverPath);
     assertEquals(
         ImmutableList.of("Checked test driver"),
         Files.readAllLines(driverPath.get(), Charsets.UTF_8));
@@ -183,6 +192,7 @@ public class DriverRetrieverTest {
         assertThrows(IllegalStateException.class, () -> underTest.getDriver("test_with_checksum"));
 
     // Verify
+    assertFalse(Files.exists(driverOutputPath.resolve(CHECKSUM).resolve("checked_driver.jar")));
     assertTrue(
         "Actual message: " + exception.getMessage(),
         exception
@@ -191,4 +201,42 @@ public class DriverRetrieverTest {
                 "Retrieved driver for test_with_checksum expected to have SHA256 sum "
                     + "'202d40302f856f7f6ec75335254169c600549427e13d712de10f8029854ca99a' but got"));
   }
+
+  @Test
+  public void getDriver_usesCachedDriverWithoutDownload() throws Exception {
+    Path cachedPath = driverOutputPath.resolve(CHECKSUM).resolve("checked_driver.jar");
+    Files.createDirectories(cachedPath.getParent());
+    Files.write(cachedPath, "Checked test driver".getBytes(Charsets.UTF_8));
+
+    // Act
+    Optional<Path> driverPath = underTest.getDriver("test_with_checksum");
+
+    // Verify
+    assertEquals(Optional.of(cachedPath), driverPath);
+    verifyNoInteractions(httpClient);
+  }
+
+  @Test
+  public void prefetch_downloadsSharedDriverOnce() throws Exception {
+    ClassicHttpResponse httpResponse = new BasicClassicHttpResponse(HttpStatus.SC_OK);
+    httpResponse.setEntity(new StringEntity("Test driver"));
+    when(httpClient.execute(any(ClassicHttpRequest.class), any(HttpClientResponseHandler.class)))
+        .thenAnswer(
+            invocation ->
+                ((HttpClientResponseHandler) invocation.getArguments()[1])
+                    .handleResponse(httpResponse));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    // Act
+    try {
+      underTest.prefetch(ImmutableList.of("test", "test_alias", "nulldb"), executor);
+    } finally {
+      executor.shutdown();
+    }
+    Optional<Path> driverPath = underTest.getDriver("test_alias");
+
+    // Verify
+    assertEquals(Optional.of(driverOutputPath.resolve("driver.jar")), driverPath);
+    verify(httpClient).execute(any(ClassicHttpRequest.class), any(HttpClientResponseHandler.class));
+  }
 }
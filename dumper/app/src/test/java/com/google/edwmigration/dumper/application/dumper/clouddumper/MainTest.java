@@ -19,18 +19,23 @@ package com.google.edwmigration.dumper.application.dumper.clouddumper;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
 import com.google.edwmigration.dumper.application.dumper.MetadataDumper;
 import com.google.edwmigration.dumper.application.dumper.MetadataDumperUsageException;
+import java.nio.file.Paths;
+import java.util.List;
 import java.util.Optional;
-import java.util.function.Supplier;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
-import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
@@ -43,11 +48,20 @@ public class MainTest {
   @Mock private MetadataRetriever metadataRetriever;
   @Mock private DriverRetriever driverRetriever;
 
-  //  @Test
-  @Deprecated
+  /** The arguments of each dumper created, in any order as connectors run concurrently. */
+  private final Queue<List<String>> recordedArgs = new ConcurrentLinkedQueue<>();
+
+  private MetadataDumper recordArgs(MetadataDumper metadataDumper, String... args) {
+    recordedArgs.add(ImmutableList.copyOf(args));
+    return metadataDumper;
+  }
+
+  @Test
   public void run_successSingleConnector() throws Exception {
     MetadataDumper metadataDumper = mock(MetadataDumper.class);
-    Main underTest = new Main(() -> metadataDumper, metadataRetriever, driverRetriever);
+    when(metadataDumper.run()).thenReturn(true);
+    Main underTest =
+        new Main(args -> recordArgs(metadataDumper, args), metadataRetriever, driverRetriever);
     when(metadataRetriever.getAttribute("dwh_extractor_configuration"))
         .thenReturn(
             Optional.of(
@@ -57,52 +71,190 @@ public class MainTest {
     underTest.run();
 
     // Verify
-    ArgumentCaptor<String[]> connectorArgumentsCaptor = ArgumentCaptor.forClass(String[].class);
     verify(metadataDumper).run();
     assertEquals(
-        new String[] {"--connector", "test-db", "--port", "2222"},
-        connectorArgumentsCaptor.getValue());
+        ImmutableMultiset.of(
+            ImmutableList.of(
+                "--connector", "test-db", "--thread-pool-size", "32", "--port", "2222")),
+        ImmutableMultiset.copyOf(recordedArgs));
   }
 
-  //  @Test
-  @Deprecated
+  @Test
   public void run_successMultipleConnectors() throws Exception {
-    MetadataDumper metadataDumper1 = mock(MetadataDumper.class);
-    MetadataDumper metadataDumper2 = mock(MetadataDumper.class);
-    Supplier<MetadataDumper> metadataDumperSupplier = mock(Supplier.class);
-    when(metadataDumperSupplier.get()).thenReturn(metadataDumper1, metadataDumper2);
-    Main underTest = new Main(metadataDumperSupplier, metadataRetriever, driverRetriever);
+    MetadataDumper metadataDumper = mock(MetadataDumper.class);
+    when(metadataDumper.run()).thenReturn(true);
+    Main underTest =
+        new Main(args -> recordArgs(metadataDumper, args), metadataRetriever, driverRetriever);
     when(metadataRetriever.getAttribute("dwh_extractor_configuration"))
         .thenReturn(
             Optional.of(
-                "{\"connectors\": ["
+                "{\"maxTotalThreads\": 10, \"connectors\": ["
                     + "{\"connector\": \"test-db\", \"args\": [\"--port\", \"2222\"]},"
-                    + "{\"connector\": \"test-db-logs\", \"args\": [\"--port\", \"2223\"]}]}"));
+                    + "{\"connector\": \"test-db-logs\", \"args\": [\"--thread-pool-size=3\"]}]}"));
+
+    // Act
+    underTest.run();
+
+    // Verify
+    verify(metadataDumper, times(2)).run();
+    assertEquals(
+        ImmutableMultiset.of(
+            ImmutableList.of("--connector", "test-db", "--thread-pool-size", "5", "--port", "2222"),
+            ImmutableList.of("--connector", "test-db-logs", "--thread-pool-size=3")),
+        ImmutableMultiset.copyOf(recordedArgs));
+  }
+
+  @Test
+  public void run_explicitThreadPoolSizeAboveShare_isLimitedToShare() throws Exception {
+    MetadataDumper metadataDumper = mock(MetadataDumper.class);
+    when(metadataDumper.run()).thenReturn(true);
+    Main underTest =
+        new Main(args -> recordArgs(metadataDumper, args), metadataRetriever, driverRetriever);
+    when(metadataRetriever.getAttribute("dwh_extractor_configuration"))
+        .thenReturn(
+            Optional.of(
+                "{\"maxTotalThreads\": 10, \"connectors\": ["
+                    + "{\"connector\": \"test-db\", \"args\": [\"--thread-pool-size\", \"8\"]},"
+                    + "{\"connector\": \"test-db-logs\", \"args\": [\"--thread-pool-size=9\"]}]}"));
+
+    // Act
+    underTest.run();
+
+    // Verify
+    verify(metadataDumper, times(2)).run();
+    assertEquals(
+        ImmutableMultiset.of(
+            ImmutableList.of("--connector", "test-db", "--thread-pool-size", "5"),
+            ImmutableList.of("--connector", "test-db-logs", "--thread-pool-size", "5")),
+        ImmutableMultiset.copyOf(recordedArgs));
+  }
+
+  @Test
+  public void run_successRepeatedConnectorWithDistinctOutputs() throws Exception {
+    MetadataDumper metadataDumper = mock(MetadataDumper.class);
+    when(metadataDumper.run()).thenReturn(true);
+    Main underTest =
+        new Main(args -> recordArgs(metadataDumper, args), metadataRetriever, driverRetriever);
+    when(metadataRetriever.getAttribute("dwh_extractor_configuration"))
+        .thenReturn(
+            Optional.of(
+                "{\"maxTotalThreads\": 2, \"connectors\": ["
+                    + "{\"connector\": \"test-db\", \"args\": [\"--output\", \"gs://b/a.zip\"]},"
+                    + "{\"connector\": \"test-db\", \"args\": [\"--output=gs://b/b.zip\"]}]}"));
 
     // Act
     underTest.run();
 
     // Verify
-    {
-      ArgumentCaptor<String[]> connectorArgumentsCaptor = ArgumentCaptor.forClass(String[].class);
-      verify(metadataDumper1).run();
-      assertEquals(
-          new String[] {"--connector", "test-db", "--port", "2222"},
-          connectorArgumentsCaptor.getValue());
-    }
-    {
-      ArgumentCaptor<String[]> connectorArgumentsCaptor = ArgumentCaptor.forClass(String[].class);
-      verify(metadataDumper2).run();
-      assertEquals(
-          new String[] {"--connector", "test-db-logs", "--port", "2223"},
-          connectorArgumentsCaptor.getValue());
-    }
+    verify(metadataDumper, times(2)).run();
+    assertEquals(
+        ImmutableMultiset.of(
+            ImmutableList.of(
+                "--connector", "test-db", "--thread-pool-size", "1", "--output", "gs://b/a.zip"),
+            ImmutableList.of(
+                "--connector", "test-db", "--thread-pool-size", "1", "--output=gs://b/b.zip")),
+        ImmutableMultiset.copyOf(recordedArgs));
+  }
+
+  @Test
+  public void run_failedConnectorDoesNotStopOthers() throws Exception {
+    MetadataDumper failingDumper = mock(MetadataDumper.class);
+    when(failingDumper.run()).thenThrow(new IllegalStateException("Connection refused"));
+    MetadataDumper metadataDumper = mock(MetadataDumper.class);
+    when(metadataDumper.run()).thenReturn(true);
+    Main underTest =
+        new Main(
+            args -> recordArgs(args[1].equals("bad-db") ? failingDumper : metadataDumper, args),
+            metadataRetriever,
+            driverRetriever);
+    when(metadataRetriever.getAttribute("dwh_extractor_configuration"))
+        .thenReturn(
+            Optional.of(
+                "{\"maxConcurrentConnectors\": 1, \"connectors\": ["
+                    + "{\"connector\": \"bad-db\", \"args\": []},"
+                    + "{\"connector\": \"test-db\", \"args\": []}]}"));
+
+    // Act
+    IllegalStateException e = assertThrows(IllegalStateException.class, () -> underTest.run());
+
+    // Verify
+    verify(metadataDumper).run();
+    assertEquals("1 of 2 connectors failed: [bad-db].", e.getMessage());
+  }
+
+  @Test
+  public void run_failsOnRepeatedConnectorWithDefaultOutput() throws Exception {
+    Main underTest =
+        new Main(args -> mock(MetadataDumper.class), metadataRetriever, driverRetriever);
+    when(metadataRetriever.getAttribute("dwh_extractor_configuration"))
+        .thenReturn(
+            Optional.of(
+                "{\"connectors\": ["
+                    + "{\"connector\": \"test-db\", \"args\": [\"--database\", \"a\"]},"
+                    + "{\"connector\": \"test-db\", \"args\": [\"--database\", \"b\"]}]}"));
+
+    // Act
+    MetadataDumperUsageException e =
+        assertThrows(MetadataDumperUsageException.class, () -> underTest.run());
+
+    // Verify
+    assertEquals(
+        String.format(
+            "Connectors 'test-db' and 'test-db' would both write to the default test-db archive in"
+                + " '%s'; each must set a distinct --output.",
+            Paths.get("").toAbsolutePath()),
+        e.getMessage());
+  }
+
+  @Test
+  public void run_failsOnRepeatedConnectorWithSameOutputPath() throws Exception {
+    Main underTest =
+        new Main(args -> mock(MetadataDumper.class), metadataRetriever, driverRetriever);
+    when(metadataRetriever.getAttribute("dwh_extractor_configuration"))
+        .thenReturn(
+            Optional.of(
+                "{\"connectors\": ["
+                    + "{\"connector\": \"test-db\", \"args\": [\"--output\", \"gs://b/dumps\"]},"
+                    + "{\"connector\": \"test-db\", \"args\": [\"--output=gs://b/dumps/\"]}]}"));
+
+    // Act
+    MetadataDumperUsageException e =
+        assertThrows(MetadataDumperUsageException.class, () -> underTest.run());
+
+    // Verify
+    assertEquals(
+        "Connectors 'test-db' and 'test-db' would both write to the default test-db archive in"
+            + " 'gs://b/dumps'; each must set a distinct --output.",
+        e.getMessage());
+  }
+
+  @Test
+  public void run_failsOnConnectorsWithSameOutputFile() throws Exception {
+    Main underTest =
+        new Main(args -> mock(MetadataDumper.class), metadataRetriever, driverRetriever);
+    when(metadataRetriever.getAttribute("dwh_extractor_configuration"))
+        .thenReturn(
+            Optional.of(
+                "{\"connectors\": ["
+                    + "{\"connector\": \"test-db\", \"args\": [\"--output\", \"gs://b/a.zip\"]},"
+                    + "{\"connector\": \"test-db-logs\","
+                    + " \"args\": [\"--output=gs://b/a.zip\"]}]}"));
+
+    // Act
+    MetadataDumperUsageException e =
+        assertThrows(MetadataDumperUsageException.class, () -> underTest.run());
+
+    // Verify
+    assertEquals(
+        "Connectors 'test-db' and 'test-db-logs' would both write to 'gs://b/a.zip'; each must set"
+            + " a distinct --output.",
+        e.getMessage());
   }
 
   @Test
   public void run_failsOnMissingConnectorConfiguration() throws Exception {
     MetadataDumper metadataDumper = mock(MetadataDumper.class);
-    Main underTest = new Main(() -> metadataDumper, metadataRetriever, driverRetriever);
+    Main underTest = new Main(args -> metadataDumper, metadataRetriever, driverRetriever);
     when(metadataRetriever.getAttribute("dwh_extractor_configuration"))
         .thenReturn(Optional.of("{}"));
 
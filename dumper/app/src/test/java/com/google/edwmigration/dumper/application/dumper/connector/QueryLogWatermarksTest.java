@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class QueryLogWatermarksTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void read_missingFile_returnsEmpty() throws Exception {
+    Path file = tempFolder.getRoot().toPath().resolve("watermarks.properties");
+
+    assertEquals(Optional.empty(), new QueryLogWatermarks(file).read("teradata-logs@host"));
+  }
+
+  @Test
+  public void advance_onlyMovesForward() throws Exception {
+    Path file = tempFolder.getRoot().toPath().resolve("state/watermarks.properties");
+    QueryLogWatermarks watermarks = new QueryLogWatermarks(file);
+    ZonedDateTime first = ZonedDateTime.parse("2024-03-01T10:00:00Z");
+    ZonedDateTime second = ZonedDateTime.parse("2024-03-02T10:00:00Z");
+
+    assertTrue(watermarks.advance("snowflake-logs@account", second));
+    assertFalse(watermarks.advance("snowflake-logs@account", first));
+    assertTrue(watermarks.advance("redshift-logs@cluster:5439", first));
+
+    QueryLogWatermarks reloaded = new QueryLogWatermarks(file);
+    assertEquals(second.toInstant(), reloaded.read("snowflake-logs@account").get().toInstant());
+    assertEquals(first.toInstant(), reloaded.read("redshift-logs@cluster:5439").get().toInstant());
+  }
+
+  @Test
+  public void keyFor_usesHostAndPort() throws Exception {
+    ConnectorArguments arguments =
+        new ConnectorArguments(
+            "--connector", "teradata-logs", "--host", "td.example.com", "--port", "1025");
+
+    assertEquals("teradata-logs@td.example.com:1025", QueryLogWatermarks.keyFor(arguments));
+  }
+
+  @Test
+  public void keyFor_hidesUrl() throws Exception {
+    String url = "jdbc:redshift://cluster.example.com:5439/dev?user=admin&password=secret";
+    ConnectorArguments arguments =
+        new ConnectorArguments("--connector", "redshift-logs", "--url", url);
+    ConnectorArguments otherArguments =
+        new ConnectorArguments(
+            "--connector", "redshift-logs", "--url", url.replace("secret", "other"));
+
+    String key = QueryLogWatermarks.keyFor(arguments);
+
+    assertTrue(key, key.startsWith("redshift-logs@url-sha256:"));
+    assertFalse(key, key.contains("secret"));
+    assertEquals(key, QueryLogWatermarks.keyFor(arguments));
+    assertNotEquals(key, QueryLogWatermarks.keyFor(otherArguments));
+  }
+
+  @Test
+  public void forConnectorArguments_skipsIntervalsBeforeWatermarkMinusOverlap() throws Exception {
+    Path file = tempFolder.getRoot().toPath().resolve("watermarks.properties");
+    ConnectorArguments arguments =
+        new ConnectorArguments(
+            "--connector",
+            "teradata-logs",
+            "--query-log-start",
+            "2024-03-01",
+            "--query-log-end",
+            "2024-03-02",
+            "--query-log-watermark-file",
+            file.toString(),
+            "--query-log-watermark-overlap-hours",
+            "2");
+    new QueryLogWatermarks(file)
+        .advance(
+            QueryLogWatermarks.keyFor(arguments), ZonedDateTime.parse("2024-03-01T20:00:00Z"));
+
+    ZonedIntervalIterable intervals =
+        ZonedIntervalIterableGenerator.forConnectorArguments(arguments);
+
+    ImmutableList<ZonedInterval> list = ImmutableList.copyOf(intervals);
+    assertEquals(30, list.size());
+    assertEquals(ZonedDateTime.parse("2024-03-01T18:00:00Z"), list.get(0).getStartUTC());
+    assertEquals(
+        ZonedDateTime.parse("2024-03-03T00:00:00Z"), Iterables.getLast(list).getEndExclusiveUTC());
+    assertEquals(Duration.ofHours(1), list.get(0).getDuration());
+  }
+}
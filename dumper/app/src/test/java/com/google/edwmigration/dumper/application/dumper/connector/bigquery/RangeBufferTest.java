@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector.bigquery;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class RangeBufferTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void writeTo_rangesCompletedOutOfOrder_writtenInStartOrder() throws Exception {
+    RangeBuffer.Budget budget = new RangeBuffer.Budget(1_000);
+    List<RangeBuffer> ranges = new ArrayList<>();
+    List<CountDownLatch> started = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ranges.add(new RangeBuffer(budget));
+      started.add(new CountDownLatch(1));
+    }
+    // Each range waits for the one after it, so the last range completes first.
+    List<Future<?>> producers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      int index = i;
+      producers.add(
+          executor.submit(
+              () -> {
+                if (index < 2) {
+                  started.get(index + 1).await();
+                }
+                RangeBuffer range = ranges.get(index);
+                range.add("range" + index + "-a");
+                range.add("range" + index + "-b");
+                range.finish();
+                started.get(index).countDown();
+                return null;
+              }));
+    }
+    StringWriter writer = new StringWriter();
+
+    for (RangeBuffer range : ranges) {
+      range.writeTo(writer);
+    }
+
+    for (Future<?> producer : producers) {
+      producer.get(10, SECONDS);
+    }
+    assertEquals(
+        "range0-a\nrange0-b\nrange1-a\nrange1-b\nrange2-a\nrange2-b\n", writer.toString());
+  }
+
+  @Test
+  public void awaitRoom_budgetExhausted_waitsUntilWriterDrains() throws Exception {
+    RangeBuffer.Budget budget = new RangeBuffer.Budget(10);
+    RangeBuffer first = new RangeBuffer(budget);
+    RangeBuffer second = new RangeBuffer(budget);
+    second.add("0123456789");
+    Thread waiter = new Thread(() -> awaitRoomUnchecked(second));
+
+    waiter.start();
+    awaitState(waiter, Thread.State.WAITING);
+
+    first.add("abc");
+    first.finish();
+    StringWriter writer = new StringWriter();
+    first.writeTo(writer);
+    // Writing the first range released only its own lines, so the budget is still exhausted.
+    awaitState(waiter, Thread.State.WAITING);
+
+    second.finish();
+    second.writeTo(writer);
+    waiter.join(10_000);
+    assertFalse(waiter.isAlive());
+    assertEquals("abc\n0123456789\n", writer.toString());
+  }
+
+  @Test
+  public void awaitRoom_rangeBeingDrained_neverWaits() throws Exception {
+    RangeBuffer.Budget budget = new RangeBuffer.Budget(10);
+    RangeBuffer range = new RangeBuffer(budget);
+    Future<?> producer =
+        executor.submit(
+            () -> {
+              for (int i = 0; i < 100; i++) {
+                range.awaitRoom();
+                range.add("0123456789");
+              }
+              range.finish();
+              return null;
+            });
+    StringWriter writer = new StringWriter();
+
+    range.writeTo(writer);
+
+    producer.get(10, SECONDS);
+    assertEquals(1_100, writer.toString().length());
+  }
+
+  private static void awaitRoomUnchecked(RangeBuffer range) {
+    try {
+      range.awaitRoom();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+    for (int i = 0; i < 1_000 && thread.getState() != state; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(state, thread.getState());
+  }
+}
@@ -16,17 +16,26 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager;
 
+import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteSink;
+import com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager.AbstractClouderaTimeSeriesTask.ChartQuery;
 import com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager.AbstractClouderaTimeSeriesTask.TimeSeriesAggregation;
 import com.google.edwmigration.dumper.application.dumper.task.TaskCategory;
 import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.List;
 import javax.annotation.Nonnull;
 import org.junit.Test;
 
@@ -82,6 +91,99 @@ public class AbstractClouderaTimeSeriesTaskTest {
     assertEquals("Start Date has to be before End Date.", exception.getMessage());
   }
 
+  @Test
+  public void splitDateRange_longRange_splitsIntoWindows() {
+    ZonedDateTime start = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC"));
+
+    List<ZonedDateTime> bounds =
+        AbstractClouderaTimeSeriesTask.splitDateRange(
+            start, start.plusDays(25), Duration.ofDays(10));
+
+    assertEquals(
+        ImmutableList.of(start, start.plusDays(10), start.plusDays(20), start.plusDays(25)),
+        bounds);
+  }
+
+  @Test
+  public void batchQueries_joinsValuesOfEachBatch() {
+    List<ChartQuery> queries =
+        AbstractClouderaTimeSeriesTask.batchQueries(
+            "select x where (%s)", "hostId", ImmutableList.of("a", "b", "c"), 2);
+
+    assertEquals(
+        ImmutableList.of(
+            "select x where (hostId = \"a\" OR hostId = \"b\")",
+            "select x where (hostId = \"c\")"),
+        queries.stream().map(query -> query.query).collect(toList()));
+    assertEquals(
+        ImmutableMap.of(
+            "a", "select x where (hostId = \"a\")", "b", "select x where (hostId = \"b\")"),
+        queries.get(0).queryByValue);
+    // A batch of one is written as returned.
+    assertNull(queries.get(1).attribute);
+  }
+
+  @Test
+  public void splitChart_keepsSeriesOfEachEntityInOrder() throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    ChartQuery query =
+        AbstractClouderaTimeSeriesTask.batchQueries(
+                "select x where (%s)", "hostId", ImmutableList.of("b", "a"), 2)
+            .get(0);
+    JsonNode chart =
+        mapper.readTree(
+            "{\"items\":[{\"timeSeries\":["
+                + "{\"metadata\":{\"attributes\":{\"hostId\":\"a\"}},\"data\":[1]},"
+                + "{\"metadata\":{\"attributes\":{\"hostId\":\"b\"}},\"data\":[2]},"
+                + "{\"metadata\":{\"attributes\":{\"hostId\":\"a\"}},\"data\":[3]}],"
+                + "\"warnings\":[],\"timeSeriesQuery\":\"batch\"}]}");
+
+    List<JsonNode> charts = AbstractClouderaTimeSeriesTask.splitChart(chart, query);
+
+    assertEquals(
+        ImmutableList.of(
+            mapper.readTree(
+                "{\"items\":[{\"timeSeries\":["
+                    + "{\"metadata\":{\"attributes\":{\"hostId\":\"b\"}},\"data\":[2]}],"
+                    + "\"warnings\":[],"
+                    + "\"timeSeriesQuery\":\"select x where (hostId = \\\"b\\\")\"}]}"),
+            mapper.readTree(
+                "{\"items\":[{\"timeSeries\":["
+                    + "{\"metadata\":{\"attributes\":{\"hostId\":\"a\"}},\"data\":[1]},"
+                    + "{\"metadata\":{\"attributes\":{\"hostId\":\"a\"}},\"data\":[3]}],"
+                    + "\"warnings\":[],"
+                    + "\"timeSeriesQuery\":\"select x where (hostId = \\\"a\\\")\"}]}")),
+        charts);
+  }
+
+  @Test
+  public void mergeWindow_appendsPointsOfMatchingSeries() throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    JsonNode chart =
+        mapper.readTree(
+            "{\"items\":[{\"timeSeries\":[{\"metadata\":{\"metricName\":\"m\","
+                + "\"startTime\":\"t0\",\"endTime\":\"t1\"},"
+                + "\"data\":[{\"timestamp\":\"t0\"},{\"timestamp\":\"t1\"}]}],"
+                + "\"warnings\":[]}]}");
+    JsonNode window =
+        mapper.readTree(
+            "{\"items\":[{\"timeSeries\":[{\"metadata\":{\"metricName\":\"m\","
+                + "\"startTime\":\"t1\",\"endTime\":\"t2\"},"
+                + "\"data\":[{\"timestamp\":\"t1\"},{\"timestamp\":\"t2\"}]}],"
+                + "\"warnings\":[\"w\"]}]}");
+
+    AbstractClouderaTimeSeriesTask.mergeWindow(chart, window);
+
+    assertEquals(
+        mapper.readTree(
+            "{\"items\":[{\"timeSeries\":[{\"metadata\":{\"metricName\":\"m\","
+                + "\"startTime\":\"t0\",\"endTime\":\"t2\"},"
+                + "\"data\":[{\"timestamp\":\"t0\"},{\"timestamp\":\"t1\"},"
+                + "{\"timestamp\":\"t2\"}]}],"
+                + "\"warnings\":[\"w\"]}]}"),
+        chart);
+  }
+
   private ZonedDateTime timeTravelDaysAgo(int days) {
     ZonedDateTime today = ZonedDateTime.of(LocalDateTime.now(), ZoneId.of("UTC"));
     return today.minusDays(days);
@@ -21,6 +21,9 @@ import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.matching;
 import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
@@ -35,11 +38,14 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
 import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -141,6 +147,58 @@ public class AbstractClouderaYarnApplicationTaskTest {
             urlPathMatching("/api/vTest/clusters/test-cluster/services/yarn/yarnApplications.*")));
   }
 
+  @Test
+  public void paginatedLoad_twoSlices_loadsApplicationOnlyInSliceItStarted() throws IOException {
+    task = new MockedYarnApplicationTask(timeTravelDaysAgo(10), timeTravelDaysAgo(0), 2);
+    Map<String, StringValuePattern> queryParams = new HashMap<>();
+    queryParams.put("limit", matching("2"));
+    queryParams.put("offset", matching("0"));
+    // Returned for both slices, as if it was still running in the second one.
+    stubYARNApplicationsAPI(
+        "test-cluster",
+        queryParams,
+        String.format(
+            "{\"applications\": [{\"applicationId\":\"app1\",\"startTime\":\"%s\"}]}",
+            timeTravelDaysAgo(9).toInstant()));
+
+    queryParams.put("offset", matching("1"));
+    stubYARNApplicationsAPI("test-cluster", queryParams, "{\"applications\": []}");
+
+    task.mockedLoad("test-cluster");
+
+    Assert.assertEquals(1, loadResponse.size());
+    Assert.assertEquals("app1", loadResponse.get(0).getApplicationId());
+    server.verify(
+        4,
+        getRequestedFor(
+            urlPathMatching("/api/vTest/clusters/test-cluster/services/yarn/yarnApplications.*")));
+  }
+
+  @Test(timeout = 10_000)
+  public void paginatedLoad_errorInSlice_rethrowsInsteadOfWaiting() throws IOException {
+    CloseableHttpClient httpClient = mock(CloseableHttpClient.class);
+    AssertionError error = new AssertionError("Slice thread failed.");
+    when(httpClient.execute(any(HttpGet.class))).thenThrow(error);
+    handle = new ClouderaManagerHandle(handle.getApiURI(), httpClient, httpClient);
+    task = new MockedYarnApplicationTask(timeTravelDaysAgo(10), timeTravelDaysAgo(0), 2);
+
+    AssertionError thrown =
+        Assert.assertThrows(AssertionError.class, () -> task.mockedLoad("test-cluster"));
+
+    Assert.assertSame(error, thrown);
+  }
+
+  @Test
+  public void splitDateRange_splitsIntoEqualSlices() {
+    ZonedDateTime start = ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneId.of("UTC"));
+
+    List<ZonedDateTime> bounds =
+        AbstractClouderaYarnApplicationTask.splitDateRange(start, start.plusDays(9), 3);
+
+    Assert.assertEquals(
+        Arrays.asList(start, start.plusDays(3), start.plusDays(6), start.plusDays(9)), bounds);
+  }
+
   private void stubYARNApplicationsAPI(
       String clusterName, Map<String, StringValuePattern> queryParams, String responseContent) {
     stubYARNApplicationsAPI(clusterName, queryParams, responseContent, HttpStatus.SC_OK);
@@ -170,6 +228,10 @@ public class AbstractClouderaYarnApplicationTaskTest {
       super("", startDate, endDate, TaskCategory.OPTIONAL);
     }
 
+    public MockedYarnApplicationTask(ZonedDateTime startDate, ZonedDateTime endDate, int slices) {
+      super("", startDate, endDate, TaskCategory.OPTIONAL, slices);
+    }
+
     @Override
     protected void doRun(
         TaskRunContext context, @Nonnull ByteSink sink, @Nonnull ClouderaManagerHandle handle) {
@@ -23,14 +23,21 @@ import static com.google.edwmigration.dumper.application.dumper.connector.cloude
 import static com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager.TestUtils.readFileAsString;
 import static com.google.edwmigration.dumper.application.dumper.connector.cloudera.manager.TestUtils.toJsonl;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.google.common.collect.ImmutableSet;
@@ -50,6 +57,7 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import org.apache.http.HttpStatus;
 import org.apache.http.impl.client.HttpClients;
@@ -68,7 +76,8 @@ public class ClouderaHostResourceAllocationChartTaskTest {
           timeTravelDaysAgo(1),
           timeTravelDaysAgo(0),
           TimeSeriesAggregation.HOURLY,
-          TaskCategory.REQUIRED);
+          TaskCategory.REQUIRED,
+          /* hostsPerQuery= */ 1);
   private ClouderaManagerHandle handle;
   private static WireMockServer server;
 
@@ -115,6 +124,55 @@ public class ClouderaHostResourceAllocationChartTaskTest {
     verify(writer).close();
   }
 
+  @Test
+  public void doRun_batchedHosts_writesSameLinesAsQueryPerHost() throws Exception {
+    String firstHostId = "c7b6b7c125a503cf4b1440f4bdcf557b";
+    String secondHostId = "fa0a38f9784d66a9d6fc1866b3c241b1";
+    initHosts(
+        ClouderaHostDTO.create(firstHostId, firstHostId),
+        ClouderaHostDTO.create(secondHostId, secondHostId));
+    String firstHostJson = readFileAsString("/cloudera/manager/host-resource-allocation-1.json");
+    String secondHostJson = readFileAsString("/cloudera/manager/host-resource-allocation-2.json");
+    stubHostAPIResponse(firstHostId, HttpStatus.SC_OK, firstHostJson);
+    stubHostAPIResponse(secondHostId, HttpStatus.SC_OK, secondHostJson);
+    task.doRun(context, sink, handle);
+    List<String> perHostLines = MockUtils.getWrittenJsonLines(writer, 2);
+    clearInvocations(writer);
+
+    // The batch returns the series of both hosts in one item, as Cloudera Manager does.
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode batch = (ObjectNode) mapper.readTree(firstHostJson);
+    ObjectNode batchItem = (ObjectNode) batch.path("items").get(0);
+    JsonNode secondHostItem = mapper.readTree(secondHostJson).path("items").get(0);
+    batchItem.withArrayProperty("timeSeries").addAll((ArrayNode) secondHostItem.path("timeSeries"));
+    batchItem.put("timeSeriesQuery", "batch");
+    server.resetAll();
+    server.stubFor(
+        get(urlMatching(
+                String.format("/api/vTest/timeseries.*%s.*%s.*", firstHostId, secondHostId)))
+            .willReturn(okJson(batch.toString())));
+    new ClouderaHostResourceAllocationChartTask(
+            timeTravelDaysAgo(1),
+            timeTravelDaysAgo(0),
+            TimeSeriesAggregation.HOURLY,
+            TaskCategory.REQUIRED,
+            /* hostsPerQuery= */ 2)
+        .doRun(context, sink, handle);
+    List<String> batchedLines = MockUtils.getWrittenJsonLines(writer, 2);
+
+    // Only the query differs, since the per-host one is rewritten by Cloudera Manager.
+    for (int i = 0; i < 2; i++) {
+      ObjectNode perHost = (ObjectNode) mapper.readTree(perHostLines.get(i));
+      ObjectNode batched = (ObjectNode) mapper.readTree(batchedLines.get(i));
+      String query = batched.path("items").get(0).path("timeSeriesQuery").asText();
+      assertTrue(query, query.contains(i == 0 ? firstHostId : secondHostId));
+      assertFalse(query, query.contains(i == 0 ? secondHostId : firstHostId));
+      ((ObjectNode) perHost.path("items").get(0)).remove("timeSeriesQuery");
+      ((ObjectNode) batched.path("items").get(0)).remove("timeSeriesQuery");
+      assertEquals(perHost, batched);
+    }
+  }
+
   @Test
   public void doRun_clouderaReturnsValidJson_writeJsonLines() throws Exception {
     String firstHostId = "c7b6b7c125a503cf4b1440f4bdcf557b";
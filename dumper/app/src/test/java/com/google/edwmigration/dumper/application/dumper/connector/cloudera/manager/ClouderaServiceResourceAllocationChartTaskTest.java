@@ -75,7 +75,8 @@ public class ClouderaServiceResourceAllocationChartTaskTest {
           timeTravelDaysAgo(30),
           timeTravelDaysAgo(0),
           TimeSeriesAggregation.HOURLY,
-          TaskCategory.OPTIONAL);
+          TaskCategory.OPTIONAL,
+          /* hostsPerQuery= */ 1);
   private ClouderaManagerHandle handle;
 
   @Mock private TaskRunContext context;
@@ -18,14 +18,17 @@ package com.google.edwmigration.dumper.application.dumper.connector.cloudera.man
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.ByteSink;
 import com.google.common.io.Resources;
@@ -36,9 +39,18 @@ import com.google.edwmigration.dumper.application.dumper.connector.cloudera.mana
 import com.google.edwmigration.dumper.application.dumper.task.TaskCategory;
 import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
 import org.apache.http.conn.ssl.TrustAllStrategy;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -230,6 +242,105 @@ public class ClouderaSparkYarnApplicationMetadataTaskTest {
     assertTrue(output.contains("\"clusterName\":\"cluster2\""));
   }
 
+  @Test
+  public void doRun_severalHistoryServers_asksLastFoundServerFirst() throws Exception {
+    String clusterName = "cluster1";
+    ImmutableList.Builder<ClouderaYarnApplicationDTO> apps = ImmutableList.builder();
+    for (int i = 0; i < 5; i++) {
+      apps.add(ClouderaYarnApplicationDTO.create("app" + i, clusterName));
+    }
+    handle.initClusters(ImmutableList.of(ClouderaClusterDTO.create("c1", clusterName)));
+    handle.initSparkYarnApplications(apps.build());
+    stubKnoxDiscovery(clusterName, "localhost:" + server.httpsPort());
+    // Both servers are up, but only the second one, asked last at first, has the applications.
+    server.stubFor(
+        get(urlEqualTo("/cluster1/cdp-proxy-api/spark3history/api/v1/applications?limit=1"))
+            .willReturn(aResponse().withStatus(200).withBody("[]")));
+    server.stubFor(
+        get(urlEqualTo("/cluster1/cdp-proxy-api/sparkhistory/api/v1/applications?limit=1"))
+            .willReturn(aResponse().withStatus(200).withBody("[]")));
+    server.stubFor(
+        get(urlMatching("/cluster1/cdp-proxy-api/spark3history/api/v1/applications/app\\d+/logs"))
+            .willReturn(aResponse().withStatus(404)));
+    server.stubFor(
+        get(urlMatching("/cluster1/cdp-proxy-api/sparkhistory/api/v1/applications/app\\d+/logs"))
+            .willReturn(aResponse().withStatus(200).withBody(sparkEventLog())));
+    // One thread, so that each application starts after the previous one was found.
+    task =
+        new ClouderaSparkYarnApplicationMetadataTask(
+            TaskCategory.OPTIONAL, Executors.newSingleThreadExecutor());
+
+    task.doRun(context, sink, handle);
+
+    String output = bos.toString(StandardCharsets.UTF_8.name());
+    for (int i = 0; i < 5; i++) {
+      assertTrue(output.contains("\"applicationId\":\"app" + i + "\""));
+    }
+    server.verify(
+        1,
+        getRequestedFor(
+            urlMatching("/cluster1/cdp-proxy-api/spark3history/api/v1/applications/app\\d+/logs")));
+    server.verify(
+        5,
+        getRequestedFor(
+            urlMatching("/cluster1/cdp-proxy-api/sparkhistory/api/v1/applications/app\\d+/logs")));
+  }
+
+  @Test
+  public void doRun_manyApplications_keepsAtMostMaxInFlight() throws Exception {
+    String clusterName = "cluster1";
+    int numApps = ClouderaSparkYarnApplicationMetadataTask.MAX_IN_FLIGHT * 2 + 1;
+    ImmutableList.Builder<ClouderaYarnApplicationDTO> apps = ImmutableList.builder();
+    for (int i = 0; i < numApps; i++) {
+      apps.add(ClouderaYarnApplicationDTO.create("app" + i, clusterName));
+    }
+    handle.initClusters(ImmutableList.of(ClouderaClusterDTO.create("c1", clusterName)));
+    handle.initSparkYarnApplications(apps.build());
+    stubKnoxDiscovery(clusterName, "localhost:" + server.httpsPort());
+    server.stubFor(
+        get(urlEqualTo("/cluster1/cdp-proxy-api/spark3history/api/v1/applications?limit=1"))
+            .willReturn(aResponse().withStatus(200).withBody("[]")));
+    server.stubFor(
+        get(urlMatching("/cluster1/cdp-proxy-api/spark3history/api/v1/applications/app\\d+/logs"))
+            .willReturn(aResponse().withStatus(200).withBody(sparkEventLog())));
+    QueueingExecutor executor = new QueueingExecutor();
+    task = new ClouderaSparkYarnApplicationMetadataTask(TaskCategory.OPTIONAL, executor);
+    ExecutorService runner = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> run =
+          runner.submit(
+              () -> {
+                task.doRun(context, sink, handle);
+                return null;
+              });
+
+      // Nothing runs until this thread runs it, so the task must stop submitting at the window.
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      while (executor.queue.size() < ClouderaSparkYarnApplicationMetadataTask.MAX_IN_FLIGHT
+          && stopwatch.elapsed(TimeUnit.SECONDS) < 10) {
+        Thread.sleep(10);
+      }
+      Thread.sleep(200);
+      assertEquals(
+          ClouderaSparkYarnApplicationMetadataTask.MAX_IN_FLIGHT, executor.queue.size());
+      while (!run.isDone()) {
+        Runnable next = executor.queue.poll(10, TimeUnit.MILLISECONDS);
+        if (next != null) {
+          next.run();
+        }
+      }
+      run.get();
+    } finally {
+      runner.shutdownNow();
+    }
+
+    assertEquals(ClouderaSparkYarnApplicationMetadataTask.MAX_IN_FLIGHT, executor.maxQueued);
+    String output = bos.toString(StandardCharsets.UTF_8.name());
+    for (int i = 0; i < numApps; i++) {
+      assertTrue(output.contains("\"applicationId\":\"app" + i + "\""));
+    }
+  }
+
   @Test
   public void doRun_historyServerNotFound_writesNothing() throws Exception {
     // Arrange
@@ -273,6 +384,47 @@ public class ClouderaSparkYarnApplicationMetadataTaskTest {
     assertThrows(MetadataDumperUsageException.class, () -> task.doRun(context, sink, handle));
   }
 
+  private static byte[] sparkEventLog() throws IOException {
+    return Resources.toByteArray(Resources.getResource("cloudera/manager/spark-event-log.zip"));
+  }
+
+  /** Queues the tasks until the test runs them. */
+  private static class QueueingExecutor extends AbstractExecutorService {
+
+    private final BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+
+    private volatile int maxQueued;
+
+    @Override
+    public synchronized void execute(Runnable command) {
+      queue.add(command);
+      maxQueued = Math.max(maxQueued, queue.size());
+    }
+
+    @Override
+    public void shutdown() {}
+
+    @Override
+    public List<Runnable> shutdownNow() {
+      return ImmutableList.of();
+    }
+
+    @Override
+    public boolean isShutdown() {
+      return false;
+    }
+
+    @Override
+    public boolean isTerminated() {
+      return false;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+      return true;
+    }
+  }
+
   private void stubKnoxDiscovery(String clusterName, String hostname) {
     server.stubFor(
         get(urlEqualTo("/api/v40/clusters/" + clusterName + "/services"))
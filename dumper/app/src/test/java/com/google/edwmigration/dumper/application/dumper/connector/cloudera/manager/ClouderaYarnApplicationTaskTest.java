@@ -64,7 +64,7 @@ public class ClouderaYarnApplicationTaskTest {
 
   private final ClouderaYarnApplicationsTask task =
       new ClouderaYarnApplicationsTask(
-          timeTravelDaysAgo(30), timeTravelDaysAgo(0), TaskCategory.OPTIONAL);
+          timeTravelDaysAgo(30), timeTravelDaysAgo(0), TaskCategory.OPTIONAL, /* slices= */ 1);
   private ClouderaManagerHandle handle;
 
   @Mock private TaskRunContext context;
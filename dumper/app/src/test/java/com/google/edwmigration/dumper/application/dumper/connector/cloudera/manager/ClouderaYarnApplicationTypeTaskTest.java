@@ -67,7 +67,7 @@ public class ClouderaYarnApplicationTypeTaskTest {
   private static WireMockServer server;
   private final ClouderaYarnApplicationTypeTask task =
       new ClouderaYarnApplicationTypeTask(
-          timeTravelDaysAgo(30), timeTravelDaysAgo(0), TaskCategory.OPTIONAL);
+          timeTravelDaysAgo(30), timeTravelDaysAgo(0), TaskCategory.OPTIONAL, /* slices= */ 1);
   private ClouderaManagerHandle handle;
 
   @Mock private ByteSink sink;
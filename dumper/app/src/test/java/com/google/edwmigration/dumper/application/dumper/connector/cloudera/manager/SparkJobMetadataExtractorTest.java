@@ -255,6 +255,25 @@ public class SparkJobMetadataExtractorTest {
     assertEquals("3.3.0", result.get().getSparkVersion());
   }
 
+  @Test
+  public void extract_eventFieldNotFirst_returnsMetadata() throws Exception {
+    // Arrange
+    String logContent =
+        "{\"Block Manager ID\": {\"Host\": \"h\"}, \"Event\": \"BlockManagerAdded\"}\n"
+            + "{\"Spark Version\": \"3.2.0\", \"Event\": \"SparkListenerLogStart\"}\n";
+    byte[] zipData = createZipWithLog(logContent);
+
+    mockResponse(zipData);
+
+    // Act
+    Optional<SparkYarnApplicationMetadata> result =
+        extractor.extract(toUri("http://log-url"), "test-cluster", "app-id");
+
+    // Assert
+    assertTrue(result.isPresent());
+    assertEquals("3.2.0", result.get().getSparkVersion());
+  }
+
   @Test
   public void extract_exceedsMaxLines_returnsPartialMetadata() throws Exception {
     // Arrange
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector.oracle.task;
+
+import static com.google.edwmigration.dumper.application.dumper.connector.oracle.QueryGroup.TenantSetup.MULTI_TENANT;
+import static com.google.edwmigration.dumper.application.dumper.connector.oracle.QueryGroup.TenantSetup.SINGLE_TENANT;
+import static java.time.Duration.ofDays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.edwmigration.dumper.application.dumper.connector.oracle.OracleStatsQuery;
+import com.google.edwmigration.dumper.application.dumper.handle.JdbcHandle;
+import com.google.edwmigration.dumper.application.dumper.task.Task.Condition;
+import com.google.edwmigration.dumper.application.dumper.task.TaskRunContext;
+import com.google.edwmigration.dumper.application.dumper.task.TaskSetState;
+import com.google.edwmigration.dumper.application.dumper.task.TaskState;
+import java.sql.SQLException;
+import java.util.Optional;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@RunWith(JUnit4.class)
+public class StatsProbeTaskTest {
+
+  @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock private JdbcTemplate jdbcTemplate;
+
+  @Mock private JdbcHandle jdbcHandle;
+
+  @Mock private TaskRunContext context;
+
+  @Mock private TaskSetState state;
+
+  private static final OracleStatsQuery CDB_QUERY =
+      OracleStatsQuery.createNative("db-links", false, ofDays(30), MULTI_TENANT);
+
+  private static final OracleStatsQuery DBA_QUERY =
+      OracleStatsQuery.createNative("db-links", false, ofDays(30), SINGLE_TENANT);
+
+  @Test
+  public void probe_nonCdb_success() {
+    mockNonCdb();
+
+    StatsCapabilities capabilities = StatsProbeTask.probe(jdbcTemplate);
+
+    assertEquals(
+        StatsCapabilities.create(
+            /* multiTenant= */ false,
+            /* awr= */ true,
+            /* statspack= */ false,
+            Optional.of(ImmutableSet.of("dba_objects", "dba_db_links", "dba_hist_snapshot"))),
+        capabilities);
+  }
+
+  @Test
+  public void probe_viewListWithoutKnownView_viewsNotTrusted() {
+    mockNonCdb();
+    when(jdbcTemplate.queryForList(contains("all_views"), eq(String.class)))
+        .thenReturn(ImmutableList.of("dba_db_links"));
+
+    StatsCapabilities capabilities = StatsProbeTask.probe(jdbcTemplate);
+
+    assertFalse(capabilities.accessibleViews().isPresent());
+  }
+
+  @Test
+  public void evaluate_nonCdb_runsOnlyAlternative() throws Exception {
+    mockNonCdb();
+    StatsProbeTask probe = new StatsProbeTask();
+    probe.run(context);
+    StatsJdbcTask primaryTask = StatsJdbcTask.fromQuery(CDB_QUERY);
+    Condition primary = probe.allows(CDB_QUERY, true);
+    Condition alternative = probe.allowsInstead(DBA_QUERY, CDB_QUERY, primaryTask, true);
+    when(state.getTaskState(primaryTask)).thenReturn(TaskState.SKIPPED);
+
+    assertFalse(primary.evaluate(state));
+    assertTrue(alternative.evaluate(state));
+  }
+
+  @Test
+  public void evaluate_probeNotRun_behavesAsWithoutProbe() {
+    StatsProbeTask probe = new StatsProbeTask();
+    StatsJdbcTask primaryTask = StatsJdbcTask.fromQuery(CDB_QUERY);
+    Condition primary = probe.allows(CDB_QUERY, true);
+    Condition alternative = probe.allowsInstead(DBA_QUERY, CDB_QUERY, primaryTask, true);
+    when(state.getTaskState(primaryTask)).thenReturn(TaskState.FAILED);
+
+    assertTrue(primary.evaluate(state));
+    assertTrue(alternative.evaluate(state));
+  }
+
+  @Test
+  public void canRun_viewNotReadable_onlyIfViewsUnchecked() {
+    StatsCapabilities capabilities =
+        StatsCapabilities.create(false, false, false, Optional.of(ImmutableSet.of("dba_objects")));
+
+    assertFalse(capabilities.canRun(DBA_QUERY, /* checkViews= */ true));
+    assertTrue(capabilities.canRun(DBA_QUERY, /* checkViews= */ false));
+  }
+
+  @Test
+  public void viewsOf_findsDictionaryViews() {
+    assertEquals(
+        ImmutableSet.of("dba_hist_snapshot", "cdb_objects"),
+        StatsCapabilities.viewsOf(
+            "SELECT A.dba_col FROM DBA_HIST_SNAPSHOT A JOIN cdb_objects B ON A.x = B.x"));
+  }
+
+  private void mockNonCdb() {
+    when(context.getHandle()).thenReturn(jdbcHandle);
+    when(jdbcHandle.getJdbcTemplate()).thenReturn(jdbcTemplate);
+    when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+        .thenThrow(new BadSqlGrammarException("probe", "", new SQLException()));
+    when(jdbcTemplate.queryForObject("SELECT cdb FROM v$database", String.class))
+        .thenReturn("NO");
+    when(jdbcTemplate.queryForObject(contains("control_management_pack_access"), eq(String.class)))
+        .thenReturn("DIAGNOSTIC+TUNING");
+    doReturn(1L).when(jdbcTemplate).queryForObject(contains("dba_hist_snapshot"), eq(Long.class));
+    when(jdbcTemplate.queryForList(contains("all_views"), eq(String.class)))
+        .thenReturn(ImmutableList.of("dba_objects", "dba_db_links", "dba_hist_snapshot"));
+  }
+}
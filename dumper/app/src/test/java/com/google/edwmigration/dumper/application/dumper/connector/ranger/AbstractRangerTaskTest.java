@@ -16,14 +16,18 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.ranger;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.google.edwmigration.dumper.application.dumper.connector.ranger.RangerClient.ConnectionWrapper;
+import com.google.edwmigration.dumper.application.dumper.connector.ranger.RangerClient.ConnectionWrapper.ResponseReader;
 import com.google.edwmigration.dumper.application.dumper.connector.ranger.RangerConnector.RangerClientHandle;
 import com.google.edwmigration.dumper.application.dumper.task.MemoryByteSink;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.Mock;
@@ -41,7 +45,12 @@ public abstract class AbstractRangerTaskTest {
   protected MemoryByteSink sink = new MemoryByteSink();
 
   protected void mockSuccessfulResponseFromResource(String resource) throws IOException {
-    when(httpClient.doGet(anyString(), Mockito.anyMap()))
-        .thenReturn(RangerTestResources.getResourceAsString(resource));
+    String body = RangerTestResources.getResourceAsString(resource);
+    when(httpClient.doGet(anyString(), Mockito.anyMap(), any()))
+        .thenAnswer(
+            invocation ->
+                invocation
+                    .<ResponseReader<?>>getArgument(2)
+                    .read(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
   }
 }
@@ -39,6 +39,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.edwmigration.dumper.application.dumper.ConnectorArguments;
 import com.google.edwmigration.dumper.application.dumper.connector.ranger.RangerClient.RangerException;
 import com.google.edwmigration.dumper.application.dumper.connector.ranger.RangerConnector.RangerClientHandle;
+import java.io.StringWriter;
 import javax.net.ssl.SSLHandshakeException;
 import org.junit.After;
 import org.junit.Test;
@@ -74,7 +75,7 @@ public class RangerConnectorTlsTest {
             "--" + OPT_CONNECTOR, "ranger",
             "--" + OPT_OUTPUT, "dummy");
     RangerClientHandle connectorHandle = (RangerClientHandle) connector.open(arguments);
-    connectorHandle.rangerClient.findUsers(ImmutableMap.of());
+    connectorHandle.rangerClient.findUsers(ImmutableMap.of(), new StringWriter());
   }
 
   @Test
@@ -99,7 +100,8 @@ public class RangerConnectorTlsTest {
     RangerClientHandle connectorHandle = (RangerClientHandle) connector.open(arguments);
     RangerException ex =
         assertThrows(
-            RangerException.class, () -> connectorHandle.rangerClient.findUsers(ImmutableMap.of()));
+            RangerException.class,
+            () -> connectorHandle.rangerClient.findUsers(ImmutableMap.of(), new StringWriter()));
     assertThat(ex.getCause(), instanceOf(SSLHandshakeException.class));
   }
 
@@ -131,6 +133,6 @@ public class RangerConnectorTlsTest {
             "dummy",
             "--" + OPT_RANGER_DISABLE_TLS_VALIDATION);
     RangerClientHandle connectorHandle = (RangerClientHandle) connector.open(arguments);
-    connectorHandle.rangerClient.findUsers(ImmutableMap.of());
+    connectorHandle.rangerClient.findUsers(ImmutableMap.of(), new StringWriter());
   }
 }
@@ -16,8 +16,9 @@
  */
 package com.google.edwmigration.dumper.application.dumper.connector.ranger;
 
-import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -26,8 +27,11 @@ import com.google.common.collect.ImmutableList;
 import com.google.edwmigration.dumper.application.dumper.connector.ranger.RangerClient.RangerException;
 import com.google.edwmigration.dumper.application.dumper.connector.ranger.RangerPageIterator.Page;
 import com.google.edwmigration.dumper.application.dumper.connector.ranger.RangerPageIterator.RangerFetcher;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import junit.framework.TestCase;
 import org.junit.Rule;
 import org.junit.Test;
@@ -36,58 +40,106 @@ import org.junit.runners.JUnit4;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import org.mockito.stubbing.Answer;
 
 @RunWith(JUnit4.class)
 public class RangerPageIteratorTest extends TestCase {
 
   @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
 
-  @Mock private RangerFetcher<Integer> apiMock;
+  @Mock private RangerFetcher apiMock;
 
   @Test
   public void next_worksWithEmptyPage() throws RangerException {
-    when(apiMock.fetch(Page.create(0, 100))).thenReturn(ImmutableList.of());
+    when(apiMock.fetch(eq(Page.create(0, 100)), any())).thenAnswer(writes());
 
-    List<Integer> actualList = new ArrayList<>();
-    new RangerPageIterator<>(apiMock, 100).forEachRemaining(actualList::add);
+    List<String> actualList = new ArrayList<>();
+    new RangerPageIterator(apiMock, 100).forEachRemaining(actualList::add);
 
     assertTrue(actualList.isEmpty());
-    verify(apiMock, times(1)).fetch(any(Page.class));
+    verify(apiMock, times(1)).fetch(any(Page.class), any());
   }
 
   @Test
   public void next_worksWithSinglePage() throws RangerException {
-    when(apiMock.fetch(Page.create(0, 100))).thenReturn(ImmutableList.of(0, 1, 2));
+    when(apiMock.fetch(eq(Page.create(0, 100)), any())).thenAnswer(writes(0, 1, 2));
 
-    List<Integer> actualList = new ArrayList<>();
-    new RangerPageIterator<>(apiMock, 100).forEachRemaining(actualList::add);
+    List<String> actualList = new ArrayList<>();
+    new RangerPageIterator(apiMock, 100).forEachRemaining(actualList::add);
 
-    assertEquals(ImmutableList.of(0, 1, 2), actualList);
-    verify(apiMock, times(1)).fetch(any(Page.class));
+    assertEquals(ImmutableList.of("0\n1\n2\n"), actualList);
+    verify(apiMock, times(1)).fetch(any(Page.class), any());
   }
 
   @Test
   public void next_worksWithMultiplePagesLastPageNotEmpty() throws RangerException {
-    when(apiMock.fetch(Page.create(0, 3))).thenReturn(ImmutableList.of(0, 1, 2));
-    when(apiMock.fetch(Page.create(3, 3))).thenReturn(ImmutableList.of(3, 4));
+    when(apiMock.fetch(eq(Page.create(0, 3)), any())).thenAnswer(writes(0, 1, 2));
+    when(apiMock.fetch(eq(Page.create(3, 3)), any())).thenAnswer(writes(3, 4));
 
-    List<Integer> actualList = new ArrayList<>();
-    new RangerPageIterator<>(apiMock, 3).forEachRemaining(actualList::add);
+    List<String> actualList = new ArrayList<>();
+    new RangerPageIterator(apiMock, 3).forEachRemaining(actualList::add);
 
-    assertEquals(ImmutableList.of(0, 1, 2, 3, 4), actualList);
-    verify(apiMock, times(2)).fetch(any(Page.class));
+    assertEquals(ImmutableList.of("0\n1\n2\n", "3\n4\n"), actualList);
+    verify(apiMock, times(2)).fetch(any(Page.class), any());
   }
 
   @Test
   public void next_worksWithMultiplePagesLastPageEmpty() throws RangerException {
-    when(apiMock.fetch(Page.create(0, 3))).thenReturn(ImmutableList.of(0, 1, 2));
-    when(apiMock.fetch(Page.create(3, 3))).thenReturn(ImmutableList.of(3, 4, 5));
-    when(apiMock.fetch(Page.create(6, 3))).thenReturn(emptyList());
+    when(apiMock.fetch(eq(Page.create(0, 3)), any())).thenAnswer(writes(0, 1, 2));
+    when(apiMock.fetch(eq(Page.create(3, 3)), any())).thenAnswer(writes(3, 4, 5));
+    when(apiMock.fetch(eq(Page.create(6, 3)), any())).thenAnswer(writes());
 
-    List<Integer> actualList = new ArrayList<>();
-    new RangerPageIterator<>(apiMock, 3).forEachRemaining(actualList::add);
+    List<String> actualList = new ArrayList<>();
+    new RangerPageIterator(apiMock, 3).forEachRemaining(actualList::add);
 
-    assertEquals(ImmutableList.of(0, 1, 2, 3, 4, 5), actualList);
-    verify(apiMock, times(3)).fetch(any(Page.class));
+    assertEquals(ImmutableList.of("0\n1\n2\n", "3\n4\n5\n"), actualList);
+    verify(apiMock, times(3)).fetch(any(Page.class), any());
+  }
+
+  @Test
+  public void next_prefetchesPagesConcurrentlyInOrder() throws RangerException {
+    when(apiMock.fetch(eq(Page.create(0, 2)), any())).thenAnswer(writes(0, 1));
+    when(apiMock.fetch(eq(Page.create(2, 2)), any())).thenAnswer(writes(2, 3));
+    when(apiMock.fetch(eq(Page.create(4, 2)), any())).thenAnswer(writes(4));
+    when(apiMock.fetch(eq(Page.create(6, 2)), any())).thenAnswer(writes());
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    List<String> actualList = new ArrayList<>();
+    try {
+      new RangerPageIterator(apiMock, 2, 3, executor).forEachRemaining(actualList::add);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(ImmutableList.of("0\n1\n", "2\n3\n", "4\n"), actualList);
+    verify(apiMock).fetch(eq(Page.create(4, 2)), any());
+  }
+
+  @Test
+  public void next_failedPage_throwsWithOffset() throws RangerException {
+    when(apiMock.fetch(eq(Page.create(0, 2)), any())).thenAnswer(writes(0, 1));
+    when(apiMock.fetch(eq(Page.create(2, 2)), any())).thenThrow(new RangerException("boom"));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    RangerPageIterator iterator = new RangerPageIterator(apiMock, 2, 2, executor);
+    try {
+      iterator.next();
+      RuntimeException e = assertThrows(RuntimeException.class, iterator::next);
+      assertTrue(e.getMessage().contains("at offset 2 with page size 2"));
+      assertTrue(e.getCause() instanceof RangerException);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Answers a fetch by writing each item on its own line. */
+  private static Answer<Integer> writes(Integer... items) {
+    return invocation -> {
+      Writer out = invocation.getArgument(1);
+      for (Integer item : items) {
+        out.write(item + "\n");
+      }
+      return items.length;
+    };
   }
 }
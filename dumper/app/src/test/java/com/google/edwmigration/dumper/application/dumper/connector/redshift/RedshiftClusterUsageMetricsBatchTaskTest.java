@@ -0,0 +1,246 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.connector.redshift;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
+import com.amazonaws.services.cloudwatch.AmazonCloudWatchClientBuilder;
+import com.amazonaws.services.redshift.AmazonRedshift;
+import com.amazonaws.services.redshift.model.Cluster;
+import com.amazonaws.services.redshift.model.DescribeClustersResult;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.google.common.collect.ImmutableList;
+import com.google.edwmigration.dumper.application.dumper.connector.ZonedInterval;
+import com.google.edwmigration.dumper.application.dumper.connector.redshift.RedshiftClusterUsageMetricsBatchTask.MetricRange;
+import com.google.edwmigration.dumper.application.dumper.handle.RedshiftHandle;
+import com.google.edwmigration.dumper.application.dumper.task.MemoryByteSink;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+@RunWith(JUnit4.class)
+public class RedshiftClusterUsageMetricsBatchTaskTest {
+
+  @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Mock private RedshiftHandle redshiftHandle;
+
+  @Mock private AmazonRedshift redshiftClientMock;
+
+  private WireMockServer cloudWatchServer;
+
+  private static final ZonedDateTime CURR_DATE_TIME =
+      ZonedDateTime.of(2024, 01, 02, 11, 33, 44, 55, ZoneId.of("UTC"));
+  private static final ZonedInterval TEST_INTERVAL_1 =
+      new ZonedInterval(
+          ZonedDateTime.of(2024, 01, 02, 03, 0, 44, 0, ZoneId.of("UTC")),
+          ZonedDateTime.of(2024, 01, 02, 03, 5, 44, 0, ZoneId.of("UTC")));
+  private static final ZonedInterval TEST_INTERVAL_2 =
+      new ZonedInterval(
+          ZonedDateTime.of(2024, 01, 02, 03, 5, 44, 0, ZoneId.of("UTC")),
+          ZonedDateTime.of(2024, 01, 02, 03, 10, 44, 0, ZoneId.of("UTC")));
+  private static final String TEST_ZIP_ENTRY_NAME = "cluster_metrics.csv";
+
+  @Before
+  public void setUp() {
+    cloudWatchServer = new WireMockServer(WireMockConfiguration.wireMockConfig().dynamicPort());
+    cloudWatchServer.start();
+  }
+
+  @After
+  public void tearDown() {
+    cloudWatchServer.stop();
+  }
+
+  @Test
+  public void doRun_pagedResponses_mergesIntoClusterRows() throws Exception {
+    cloudWatchServer.stubFor(
+        post(urlEqualTo("/"))
+            .atPriority(5)
+            .withRequestBody(containing("Action=GetMetricData"))
+            .willReturn(
+                metricDataResponse(
+                    "token1",
+                    metricDataResult(
+                        "c0_0",
+                        new String[] {"2024-01-02T03:00:44Z", "2024-01-02T03:01:44Z"},
+                        10.5,
+                        11.5),
+                    metricDataResult(
+                        "c0_1",
+                        new String[] {"2024-01-02T03:00:44Z", "2024-01-02T03:01:44Z"},
+                        14.5,
+                        15.5),
+                    metricDataResult("c1_0", new String[] {"2024-01-02T03:02:44Z"}, 12.5))));
+    cloudWatchServer.stubFor(
+        post(urlEqualTo("/"))
+            .atPriority(1)
+            .withRequestBody(containing("NextToken=token1"))
+            .willReturn(
+                metricDataResponse(
+                    null,
+                    metricDataResult("c1_0", new String[] {"2024-01-02T03:03:44Z"}, 13.5),
+                    metricDataResult(
+                        "c1_1",
+                        new String[] {
+                          "2024-01-02T03:02:44Z", "2024-01-02T03:03:44Z", "2024-01-02T03:04:44Z"
+                        },
+                        16.5,
+                        17.5,
+                        18.5))));
+    mockClusters("clId1", "clId2");
+    MemoryByteSink sink = new MemoryByteSink();
+
+    RedshiftClusterUsageMetricsBatchTask task =
+        new RedshiftClusterUsageMetricsBatchTask(
+            CURR_DATE_TIME,
+            ImmutableList.of(TEST_INTERVAL_1, TEST_INTERVAL_2),
+            TEST_ZIP_ENTRY_NAME);
+    task.doRun(null, sink, redshiftHandle);
+
+    assertEquals(
+        "cluster_identifier,interval_time,cpu_avg,storage_avg\n"
+            + "clId1,2024-01-02 03:00:44.000,10.5,14.5\n"
+            + "clId1,2024-01-02 03:01:44.000,11.5,15.5\n"
+            + "clId2,2024-01-02 03:02:44.000,12.5,16.5\n"
+            + "clId2,2024-01-02 03:03:44.000,13.5,17.5\n"
+            + "clId2,2024-01-02 03:04:44.000,,18.5\n",
+        sink.openStream().toString());
+    cloudWatchServer.verify(2, postRequestedFor(urlEqualTo("/")));
+  }
+
+  @Test
+  public void doRun_moreQueriesThanRequestLimit_splitsClustersIntoRequests() throws Exception {
+    cloudWatchServer.stubFor(
+        post(urlEqualTo("/"))
+            .withRequestBody(containing("Action=GetMetricData"))
+            .willReturn(
+                metricDataResponse(
+                    null,
+                    metricDataResult("c0_0", new String[] {"2024-01-02T03:00:44Z"}, 1.5),
+                    metricDataResult("c0_1", new String[] {"2024-01-02T03:00:44Z"}, 2.5))));
+    mockClusters("clId1", "clId2", "clId3");
+    MemoryByteSink sink = new MemoryByteSink();
+
+    RedshiftClusterUsageMetricsBatchTask task =
+        new RedshiftClusterUsageMetricsBatchTask(
+            CURR_DATE_TIME,
+            ImmutableList.of(TEST_INTERVAL_1),
+            TEST_ZIP_ENTRY_NAME,
+            /* maxQueriesPerRequest= */ 2);
+    task.doRun(null, sink, redshiftHandle);
+
+    assertEquals(
+        "cluster_identifier,interval_time,cpu_avg,storage_avg\n"
+            + "clId1,2024-01-02 03:00:44.000,1.5,2.5\n"
+            + "clId2,2024-01-02 03:00:44.000,1.5,2.5\n"
+            + "clId3,2024-01-02 03:00:44.000,1.5,2.5\n",
+        sink.openStream().toString());
+    cloudWatchServer.verify(3, postRequestedFor(urlEqualTo("/")));
+  }
+
+  @Test
+  public void metricRanges_joinsAdjacentIntervalsWithSamePeriod() {
+    ZonedDateTime start = CURR_DATE_TIME.minusDays(20);
+    ZonedInterval old = new ZonedInterval(start, start.plusDays(4));
+    ZonedInterval older = new ZonedInterval(start.plusDays(4), start.plusDays(8));
+    ZonedInterval recent = new ZonedInterval(start.plusDays(8), start.plusDays(12));
+
+    ImmutableList<MetricRange> ranges =
+        RedshiftClusterUsageMetricsBatchTask.metricRanges(
+            ImmutableList.of(old, older, recent), CURR_DATE_TIME);
+
+    assertEquals(
+        ImmutableList.of(
+            MetricRange.create(
+                start.toInstant(), start.plusDays(8).toInstant(), Duration.ofMinutes(5)),
+            MetricRange.create(
+                start.plusDays(8).toInstant(),
+                start.plusDays(12).toInstant(),
+                Duration.ofMinutes(1))),
+        ranges);
+  }
+
+  private void mockClusters(String... clusterIds) {
+    ImmutableList.Builder<Cluster> clusters = ImmutableList.builder();
+    for (String clusterId : clusterIds) {
+      clusters.add(new Cluster().withClusterIdentifier(clusterId));
+    }
+    AmazonCloudWatch cloudWatchClient =
+        AmazonCloudWatchClientBuilder.standard()
+            .withEndpointConfiguration(
+                new EndpointConfiguration(cloudWatchServer.baseUrl(), "us-east-1"))
+            .withCredentials(
+                new AWSStaticCredentialsProvider(new BasicAWSCredentials("key", "secret")))
+            .build();
+    when(redshiftHandle.getRedshiftClient()).thenReturn(Optional.of(redshiftClientMock));
+    when(redshiftHandle.getCloudWatchClient()).thenReturn(Optional.of(cloudWatchClient));
+    when(redshiftClientMock.describeClusters(any()))
+        .thenReturn(new DescribeClustersResult().withClusters(clusters.build()));
+  }
+
+  private static ResponseDefinitionBuilder metricDataResponse(String nextToken, String... results) {
+    return aResponse()
+        .withStatus(200)
+        .withHeader("Content-Type", "text/xml")
+        .withBody(
+            "<GetMetricDataResponse xmlns=\"http://monitoring.amazonaws.com/doc/2010-08-01/\">"
+                + "<GetMetricDataResult><MetricDataResults>"
+                + String.join("", results)
+                + "</MetricDataResults>"
+                + (nextToken == null ? "" : "<NextToken>" + nextToken + "</NextToken>")
+                + "<Messages/></GetMetricDataResult>"
+                + "<ResponseMetadata><RequestId>request</RequestId></ResponseMetadata>"
+                + "</GetMetricDataResponse>");
+  }
+
+  private static String metricDataResult(String id, String[] timestamps, double... values) {
+    StringBuilder result = new StringBuilder("<member><Id>").append(id).append("</Id>");
+    result.append("<Label>").append(id).append("</Label><Timestamps>");
+    for (String timestamp : timestamps) {
+      result.append("<member>").append(timestamp).append("</member>");
+    }
+    result.append("</Timestamps><Values>");
+    for (double value : values) {
+      result.append("<member>").append(value).append("</member>");
+    }
+    return result.append("</Values><StatusCode>Complete</StatusCode></member>").toString();
+  }
+}
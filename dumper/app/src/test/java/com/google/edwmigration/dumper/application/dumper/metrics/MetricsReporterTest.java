@@ -0,0 +1,107 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.application.dumper.metrics;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.edwmigration.dumper.plugin.ext.jdk.metrics.MetricRegistry;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MetricsReporterTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void writeTo_writesFinalSampleAsJsonLine() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    registry.counter("jdbc.rows").add(7);
+    Path zip = temporaryFolder.getRoot().toPath().resolve("out.zip");
+
+    try (MetricsReporter reporter = new MetricsReporter(registry, Duration.ofHours(1), null);
+        FileSystem fileSystem = newZipFileSystem(zip)) {
+      reporter.writeTo(fileSystem);
+    }
+
+    try (FileSystem fileSystem = FileSystems.newFileSystem(zip, (ClassLoader) null)) {
+      List<String> lines =
+          Files.readAllLines(fileSystem.getPath(MetricsReporter.ZIP_ENTRY_NAME), UTF_8);
+      assertEquals(1, lines.size());
+      assertTrue(lines.get(0), lines.get(0).contains("\"jdbc.rows\":{\"type\":\"counter\""));
+    }
+  }
+
+  @Test
+  public void port_servesPrometheusText() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    registry.counter("sink.bytes").add(1024);
+
+    try (MetricsReporter reporter = new MetricsReporter(registry, Duration.ofHours(1), 0)) {
+      assertNotNull(reporter.getPort());
+      URL url = new URL("http://localhost:" + reporter.getPort() + "/metrics");
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      try (InputStream in = connection.getInputStream()) {
+        String body = new String(ByteStreams.toByteArray(in), UTF_8);
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(body, body.contains("dumper_sink_bytes 1024\n"));
+      } finally {
+        connection.disconnect();
+      }
+    }
+  }
+
+  @Test
+  public void port_alreadyBound_continuesWithoutEndpoint() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    Path zip = temporaryFolder.getRoot().toPath().resolve("out.zip");
+
+    try (ServerSocket taken = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        MetricsReporter reporter =
+            new MetricsReporter(registry, Duration.ofHours(1), taken.getLocalPort());
+        FileSystem fileSystem = newZipFileSystem(zip)) {
+      assertNull(reporter.getPort());
+      reporter.writeTo(fileSystem);
+    }
+  }
+
+  private static FileSystem newZipFileSystem(Path zip) throws Exception {
+    return FileSystems.newFileSystem(
+        URI.create("jar:" + zip.toUri()), ImmutableMap.of("create", "true"));
+  }
+}
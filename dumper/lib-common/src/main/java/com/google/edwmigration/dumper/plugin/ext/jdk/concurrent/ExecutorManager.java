@@ -43,7 +43,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /** @author shevek */
-public class ExecutorManager implements AutoCloseable, Executor {
+public class ExecutorManager implements ManagedExecutor {
 
   private static final Logger logger = LoggerFactory.getLogger(ExecutorManager.class);
   private static final boolean DEBUG = false;
@@ -106,6 +106,25 @@ public class ExecutorManager implements AutoCloseable, Executor {
     return newUnboundedExecutorService(name, nthreads);
   }
 
+  /**
+   * Returns an executor which runs each task on its own virtual thread, with at most maxConcurrency
+   * tasks running at a time. On a JVM without virtual threads, this falls back to {@link
+   * #newUnboundedExecutorService(String, int)} with maxConcurrency threads.
+   */
+  @Nonnull
+  public static ExecutorService newVirtualThreadExecutorService(
+      @Nonnull String name, int maxConcurrency) {
+    if (!VirtualThreads.isSupported()) {
+      logger.warn(
+          "Virtual threads require JDK 21 or later; using {} platform threads for '{}'.",
+          maxConcurrency,
+          name);
+      return newUnboundedExecutorService(name, maxConcurrency);
+    }
+    return new SemaphoreExecutorService(
+        VirtualThreads.newThreadPerTaskExecutor(name), maxConcurrency);
+  }
+
   private class QueueingFuture<V> extends FutureTask<V> {
 
     public QueueingFuture(@Nonnull Callable<@Nullable V> callable) {
@@ -183,6 +202,7 @@ public class ExecutorManager implements AutoCloseable, Executor {
   }
 
   /** Like submit, but does not return the future, avoiding a warning. */
+  @Override
   @SuppressWarnings("FutureReturnValueIgnored")
   public <V> void execute(@Nonnull Callable<@Nullable V> r) {
     submit(new QueueingFuture<>(r));
@@ -202,6 +222,7 @@ public class ExecutorManager implements AutoCloseable, Executor {
         }
       };
 
+  @Override
   public void await() throws InterruptedException, ExecutionException {
     if (DEBUG) logger.debug("Awaiting " + outstanding + " executions.");
     while (outstanding.getAndUpdate(DECREMENT_IF_AVAILABLE) > 0) {
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.plugin.ext.jdk.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import javax.annotation.Nonnull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/** An executor which tracks the tasks it was given, so that a caller can wait for all of them. */
+public interface ManagedExecutor extends AutoCloseable, Executor {
+
+  /** Executes the given task; a failure is thrown from {@link #await()}. */
+  <V> void execute(@Nonnull Callable<@Nullable V> r);
+
+  /**
+   * Waits until every task executed so far has completed, and throws the first failure, if any.
+   */
+  void await() throws InterruptedException, ExecutionException;
+
+  /** Awaits the tasks. */
+  @Override
+  void close() throws InterruptedException, ExecutionException;
+}
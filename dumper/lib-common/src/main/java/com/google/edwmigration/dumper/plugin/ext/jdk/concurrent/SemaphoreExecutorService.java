@@ -0,0 +1,184 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.plugin.ext.jdk.concurrent;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * An executor service which runs at most a given number of tasks on a delegate at a time.
+ *
+ * <p>This is meant for a delegate with cheap threads, such as one virtual thread per task, with the
+ * limit being the concurrency budget of the backend, e.g. the size of a JDBC pool or an API quota.
+ * Each permit runs one task on the delegate, and that thread then takes the next task waiting in a
+ * queue here, so the delegate never holds more threads than there are permits. Tasks wait in the
+ * order they were submitted.
+ * Submitting never blocks, so a running task may submit more tasks, as the recursive HDFS scan
+ * does.
+ */
+public class SemaphoreExecutorService extends AbstractExecutorService {
+
+  private final ExecutorService delegate;
+  private final Semaphore permits;
+
+  @GuardedBy("pending")
+  private final Queue<Runnable> pending = new ArrayDeque<>();
+
+  @GuardedBy("pending")
+  private boolean shutdown;
+
+  public SemaphoreExecutorService(@Nonnull ExecutorService delegate, int maxConcurrency) {
+    Preconditions.checkArgument(
+        maxConcurrency > 0, "Concurrency must be positive, was %s.", maxConcurrency);
+    this.delegate = Preconditions.checkNotNull(delegate, "Delegate was null.");
+    this.permits = new Semaphore(maxConcurrency);
+  }
+
+  @Override
+  public void execute(@Nonnull Runnable command) {
+    Preconditions.checkNotNull(command, "Command was null.");
+    synchronized (pending) {
+      if (shutdown) {
+        throw new RejectedExecutionException("Executor was shut down: " + this);
+      }
+      pending.add(command);
+    }
+    startWorkers();
+  }
+
+  /** Starts a worker on the delegate for each free permit, while there are tasks queued. */
+  private void startWorkers() {
+    while (hasPending() && permits.tryAcquire()) {
+      try {
+        delegate.execute(this::runPending);
+      } catch (RejectedExecutionException e) {
+        permits.release();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Runs queued tasks on the current thread, holding one permit, until none is left. The thread is
+   * reused rather than handing each task to a new one, so the delegate never holds more threads
+   * than there are permits.
+   */
+  private void runPending() {
+    while (true) {
+      Runnable command = nextPending();
+      if (command == null) {
+        permits.release();
+        // A task queued while the permit was held may have found no permit; take it now.
+        if (hasPending() && permits.tryAcquire()) {
+          continue;
+        }
+        return;
+      }
+      try {
+        command.run();
+      } catch (Throwable t) {
+        // Let the task's failure reach this thread, and leave the rest of the queue to others.
+        permits.release();
+        startWorkers();
+        throw t;
+      }
+    }
+  }
+
+  @CheckForNull
+  private Runnable nextPending() {
+    synchronized (pending) {
+      Runnable command = pending.poll();
+      if (command == null && shutdown) {
+        // Everything submitted has been handed over, so the delegate may wind down.
+        delegate.shutdown();
+      }
+      return command;
+    }
+  }
+
+  private boolean hasPending() {
+    synchronized (pending) {
+      return !pending.isEmpty();
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    synchronized (pending) {
+      shutdown = true;
+      if (pending.isEmpty()) {
+        delegate.shutdown();
+      }
+    }
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    List<Runnable> notStarted;
+    synchronized (pending) {
+      shutdown = true;
+      notStarted = new ArrayList<>(pending);
+      pending.clear();
+    }
+    notStarted.addAll(delegate.shutdownNow());
+    return notStarted;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    synchronized (pending) {
+      return shutdown;
+    }
+  }
+
+  @Override
+  public boolean isTerminated() {
+    // The delegate is only shut down once nothing is left queued here.
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, @Nonnull TimeUnit unit)
+      throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+
+  @Override
+  public String toString() {
+    synchronized (pending) {
+      return "SemaphoreExecutorService("
+          + delegate
+          + "; available="
+          + permits.availablePermits()
+          + "; pending="
+          + pending.size()
+          + ")";
+    }
+  }
+}
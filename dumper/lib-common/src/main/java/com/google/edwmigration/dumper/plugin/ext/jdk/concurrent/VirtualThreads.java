@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.plugin.ext.jdk.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to the virtual threads of JDK 21 and later.
+ *
+ * <p>The dumper is built for Java 8, so the JDK methods are looked up reflectively once, and
+ * {@link #isSupported()} is false on older runtimes.
+ */
+public final class VirtualThreads {
+
+  private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+  @CheckForNull private static final Method OF_VIRTUAL;
+  @CheckForNull private static final Method BUILDER_NAME;
+  @CheckForNull private static final Method BUILDER_FACTORY;
+  @CheckForNull private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+  static {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderFactory = null;
+    Method newThreadPerTaskExecutor = null;
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      builderName = builderClass.getMethod("name", String.class, long.class);
+      builderFactory = builderClass.getMethod("factory");
+      newThreadPerTaskExecutor =
+          Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      logger.debug("Virtual threads are not available in this JVM: {}", e.toString());
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = builderName;
+    BUILDER_FACTORY = builderFactory;
+    NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+  }
+
+  private VirtualThreads() {}
+
+  /** Returns true if this JVM supports virtual threads. */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Returns a factory for virtual threads named {@code name-0}, {@code name-1}, and so on.
+   *
+   * @throws UnsupportedOperationException if this JVM does not support virtual threads
+   */
+  @Nonnull
+  public static ThreadFactory newThreadFactory(@Nonnull String name) {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads require JDK 21 or later.");
+    }
+    Object builder = invoke(OF_VIRTUAL, null);
+    builder = invoke(BUILDER_NAME, builder, name + "-", 0L);
+    return (ThreadFactory) invoke(BUILDER_FACTORY, builder);
+  }
+
+  /**
+   * Returns an executor which starts a new virtual thread for each task.
+   *
+   * @throws UnsupportedOperationException if this JVM does not support virtual threads
+   */
+  @Nonnull
+  public static ExecutorService newThreadPerTaskExecutor(@Nonnull String name) {
+    ThreadFactory factory = newThreadFactory(name);
+    return (ExecutorService) invoke(NEW_THREAD_PER_TASK_EXECUTOR, null, factory);
+  }
+
+  private static Object invoke(Method method, @CheckForNull Object target, Object... args) {
+    try {
+      return method.invoke(target, args);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Cannot call " + method, e);
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException("Failed to call " + method, e.getCause());
+    }
+  }
+}
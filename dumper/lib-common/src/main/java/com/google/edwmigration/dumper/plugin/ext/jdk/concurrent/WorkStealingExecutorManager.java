@@ -0,0 +1,277 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.plugin.ext.jdk.concurrent;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A work-stealing counterpart of {@link ExecutorManager}.
+ *
+ * <p>{@link ExecutorManager} over a bounded queue with a caller-runs policy makes the submitting
+ * thread run a task whenever the queue is full. In a recursive scan, that thread may then disappear
+ * into a deep subtree while the workers run dry. Here, a task submitted from a worker of the same
+ * {@link ForkJoinPool} is pushed onto that worker's own deque, and idle workers steal from the
+ * other end, so the recursion never blocks a producer and never runs on the caller.
+ *
+ * <p>Tasks submitted with {@link Priority#HIGH} go to a shared queue which every task drains before
+ * running its own body, so a few small tasks do not wait behind a large backlog of normal ones.
+ *
+ * <p>The exception contract is that of {@link ExecutorManager}: {@link #await()} throws the first
+ * failure, wrapped in an {@link ExecutionException}, with up to {@value #EXCEPTIONS_MAX} further
+ * failures suppressed.
+ */
+public class WorkStealingExecutorManager implements ManagedExecutor {
+
+  private static final Logger logger = LoggerFactory.getLogger(WorkStealingExecutorManager.class);
+
+  public enum Priority {
+    HIGH,
+    NORMAL
+  }
+
+  /**
+   * Returns a pool of daemon workers suitable for this class.
+   *
+   * <p>The pool is in LIFO mode, so each worker continues depth-first with the task it pushed last,
+   * which bounds the size of its deque, while thieves take the oldest and typically largest tasks.
+   */
+  @Nonnull
+  public static ForkJoinPool newWorkStealingPool(@Nonnull String name, int nthreads) {
+    Preconditions.checkArgument(nthreads > 0, "Thread count must be positive: %s", nthreads);
+    ForkJoinPool.ForkJoinWorkerThreadFactory factory =
+        pool -> {
+          ForkJoinWorkerThread thread =
+              ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+          thread.setName(name + "-" + thread.getPoolIndex());
+          thread.setDaemon(true);
+          return thread;
+        };
+    return new ForkJoinPool(nthreads, factory, null, false);
+  }
+
+  @Nonnull
+  public static ForkJoinPool newWorkStealingPool(@Nonnull String name) {
+    return newWorkStealingPool(name, Runtime.getRuntime().availableProcessors());
+  }
+
+  private class ManagedTask extends RecursiveAction {
+
+    private final Callable<?> callable;
+
+    public ManagedTask(@Nonnull Callable<?> callable) {
+      this.callable = callable;
+    }
+
+    @Override
+    protected void compute() {
+      runUrgent();
+      run(callable);
+    }
+  }
+
+  /** Submitted once per high-priority task, to wake a worker if all of them are idle. */
+  private class UrgentTask extends RecursiveAction {
+
+    @Override
+    protected void compute() {
+      runUrgent();
+    }
+  }
+
+  private final ForkJoinPool.ManagedBlocker quiescence =
+      new ForkJoinPool.ManagedBlocker() {
+        @Override
+        public boolean block() throws InterruptedException {
+          synchronized (lock) {
+            while (outstanding.get() > 0) lock.wait();
+          }
+          return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+          return outstanding.get() == 0;
+        }
+      };
+
+  private static final int EXCEPTIONS_MAX = 100;
+  private final ForkJoinPool pool;
+  private final Queue<Callable<?>> urgent = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger outstanding = new AtomicInteger(0);
+  private final Object lock = new Object();
+  private final LongAdder forked = new LongAdder();
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder urgentRun = new LongAdder();
+
+  @GuardedBy("exceptions")
+  private final List<Exception> exceptions = new ArrayList<>(EXCEPTIONS_MAX);
+
+  public WorkStealingExecutorManager(@Nonnull ForkJoinPool pool) {
+    this.pool = Preconditions.checkNotNull(pool, "ForkJoinPool was null.");
+  }
+
+  private void run(@Nonnull Callable<?> callable) {
+    try {
+      callable.call();
+    } catch (Throwable t) {
+      synchronized (exceptions) {
+        if (exceptions.size() < EXCEPTIONS_MAX) exceptions.add(new ExecutionException(t));
+      }
+    } finally {
+      if (outstanding.decrementAndGet() == 0) {
+        synchronized (lock) {
+          lock.notifyAll();
+        }
+      }
+    }
+  }
+
+  private void runUrgent() {
+    for (; ; ) {
+      Callable<?> callable = urgent.poll();
+      if (callable == null) break;
+      urgentRun.increment();
+      run(callable);
+    }
+  }
+
+  private boolean isWorkerThread() {
+    Thread thread = Thread.currentThread();
+    return thread instanceof ForkJoinWorkerThread
+        && ((ForkJoinWorkerThread) thread).getPool() == pool;
+  }
+
+  @SuppressWarnings("FutureReturnValueIgnored")
+  private void submit(@Nonnull RecursiveAction task) {
+    if (isWorkerThread()) {
+      forked.increment();
+      task.fork();
+    } else {
+      submitted.increment();
+      pool.execute(task);
+    }
+  }
+
+  public <V> void execute(@Nonnull Callable<@Nullable V> r, @Nonnull Priority priority) {
+    outstanding.incrementAndGet();
+    if (priority == Priority.HIGH) {
+      urgent.add(r);
+      submit(new UrgentTask());
+    } else {
+      submit(new ManagedTask(r));
+    }
+  }
+
+  @Override
+  public <V> void execute(@Nonnull Callable<@Nullable V> r) {
+    execute(r, Priority.NORMAL);
+  }
+
+  public void execute(@Nonnull Runnable r, @Nonnull Priority priority) {
+    execute(
+        () -> {
+          r.run();
+          return null;
+        },
+        priority);
+  }
+
+  @Override
+  public void execute(@Nonnull Runnable r) {
+    execute(r, Priority.NORMAL);
+  }
+
+  /** Returns the number of tasks submitted and not yet completed. */
+  public int getOutstandingCount() {
+    return outstanding.get();
+  }
+
+  /** Returns an estimate of the number of tasks waiting in worker deques and submission queues. */
+  public long getQueuedTaskCount() {
+    return pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount() + urgent.size();
+  }
+
+  /** Returns the number of tasks taken from another worker's deque, across the whole pool. */
+  public long getStealCount() {
+    return pool.getStealCount();
+  }
+
+  /**
+   * Waits until every submitted task, including those submitted by running tasks, has completed.
+   *
+   * <p>It is safe to call this from a worker of the pool: the pool compensates with a spare thread
+   * while the caller is blocked.
+   */
+  @Override
+  public void await() throws InterruptedException, ExecutionException {
+    ForkJoinPool.managedBlock(quiescence);
+    synchronized (exceptions) {
+      if (exceptions.isEmpty()) return;
+      Exception e = exceptions.get(0);
+      for (int i = 1; i < exceptions.size(); i++) e.addSuppressed(exceptions.get(i));
+      exceptions.clear();
+
+      Throwables.propagateIfPossible(e, InterruptedException.class, ExecutionException.class);
+      throw new ExecutionException(e);
+    }
+  }
+
+  @Override
+  public void close() throws InterruptedException, ExecutionException {
+    try {
+      await();
+    } finally {
+      logger.debug("Closing {}", this);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "WorkStealingExecutorManager("
+        + pool
+        + "; outstanding="
+        + outstanding
+        + ", queued="
+        + getQueuedTaskCount()
+        + ", steals="
+        + getStealCount()
+        + ", forked="
+        + forked
+        + ", submitted="
+        + submitted
+        + ", urgent="
+        + urgentRun
+        + ")";
+  }
+}
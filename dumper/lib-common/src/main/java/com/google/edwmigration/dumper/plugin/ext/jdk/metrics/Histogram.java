@@ -0,0 +1,160 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.plugin.ext.jdk.metrics;
+
+import com.google.common.base.Preconditions;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A histogram of non-negative longs in log-linear buckets, in the manner of HdrHistogram.
+ *
+ * <p>Each power of two is split into {@value #SUB_BUCKETS} buckets, so a reported quantile is
+ * within 1/{@value #SUB_BUCKETS} of the true value, whatever the magnitude. Recording is a few
+ * atomic increments and never allocates. The fields are updated independently, so a snapshot taken
+ * while values are being recorded may be off by the values in flight.
+ */
+@ThreadSafe
+public class Histogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // Values below SUB_BUCKETS are exact; each further power of two up to 2^62 has SUB_BUCKETS.
+  private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+  Histogram() {}
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) return (int) value;
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /** Returns the largest value which falls into the given bucket. */
+  static long highestValueAt(int index) {
+    if (index < SUB_BUCKETS) return index;
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+
+  /** Records a value; negative values are recorded as zero. */
+  public void record(long value) {
+    if (value < 0) value = 0;
+    buckets.incrementAndGet(indexOf(value));
+    count.increment();
+    sum.add(value);
+    if (value > max.get()) max.accumulateAndGet(value, Math::max);
+    if (value < min.get()) min.accumulateAndGet(value, Math::min);
+  }
+
+  @Nonnull
+  public Snapshot getSnapshot() {
+    long[] copy = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      copy[i] = buckets.get(i);
+      total += copy[i];
+    }
+    if (total == 0) return new Snapshot(copy, 0, 0, 0, 0);
+    return new Snapshot(copy, total, sum.sum(), min.get(), max.get());
+  }
+
+  @Immutable
+  public static class Snapshot {
+
+    private final long[] buckets;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+
+    private Snapshot(long[] buckets, long count, long sum, long min, long max) {
+      this.buckets = buckets;
+      this.count = count;
+      this.sum = sum;
+      this.min = min;
+      this.max = max;
+    }
+
+    @Nonnegative
+    public long getCount() {
+      return count;
+    }
+
+    public long getSum() {
+      return sum;
+    }
+
+    public long getMin() {
+      return min;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    public double getMean() {
+      return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /** Returns the value below or at which the given fraction of the recorded values lie. */
+    public long getValueAtQuantile(double quantile) {
+      Preconditions.checkArgument(
+          quantile >= 0 && quantile <= 1, "Quantile must be in [0, 1]: %s", quantile);
+      if (count == 0) return 0;
+      long rank = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= rank) return Math.min(highestValueAt(i), max);
+      }
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return "count="
+          + count
+          + ", min="
+          + min
+          + ", p50="
+          + getValueAtQuantile(0.5)
+          + ", p99="
+          + getValueAtQuantile(0.99)
+          + ", max="
+          + max;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "Histogram(" + getSnapshot() + ")";
+  }
+}
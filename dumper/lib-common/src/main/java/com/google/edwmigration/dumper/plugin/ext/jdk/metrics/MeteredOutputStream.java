@@ -0,0 +1,61 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.plugin.ext.jdk.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.annotation.Nonnull;
+
+/**
+ * Records the time spent in, and the bytes passed to, the writes of an underlying stream.
+ *
+ * <p>Single-byte writes are only counted: timing each would cost more than the write itself.
+ */
+public class MeteredOutputStream extends FilterOutputStream {
+
+  private final Timer timer;
+  private final Counter bytes;
+
+  public MeteredOutputStream(
+      @Nonnull OutputStream out, @Nonnull Timer timer, @Nonnull Counter bytes) {
+    super(out);
+    this.timer = timer;
+    this.bytes = bytes;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+    bytes.increment();
+  }
+
+  @Override
+  public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+    long start = System.nanoTime();
+    out.write(b, off, len);
+    timer.recordNanos(System.nanoTime() - start);
+    bytes.add(len);
+  }
+
+  @Override
+  public void flush() throws IOException {
+    long start = System.nanoTime();
+    out.flush();
+    timer.recordNanos(System.nanoTime() - start);
+  }
+}
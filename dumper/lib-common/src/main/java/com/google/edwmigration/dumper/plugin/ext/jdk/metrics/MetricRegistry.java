@@ -0,0 +1,219 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.plugin.ext.jdk.metrics;
+
+import com.google.common.base.Preconditions;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A set of named counters, histograms and timers.
+ *
+ * <p>Code which is far from any run context records into {@link #current()}, which is the
+ * registry of the run entered with {@link #enter(MetricRegistry)} on this thread or a thread which
+ * started it, or else {@link #getDefault()}. Several runs in one process, e.g. the connectors of
+ * the cloud dumper, thus keep their metrics apart. The metrics are created on first use, so callers
+ * should look them up once per stream, client or task rather than once per row. Names are dotted,
+ * e.g. {@code jdbc.fetch}.
+ */
+@ThreadSafe
+public class MetricRegistry {
+
+  private static final MetricRegistry DEFAULT = new MetricRegistry();
+
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+  // Inheritable, so that the pools which a run creates record into the registry of that run.
+  private static final InheritableThreadLocal<MetricRegistry> CURRENT =
+      new InheritableThreadLocal<>();
+
+  /** Returns the registry shared by the whole process. */
+  @Nonnull
+  public static MetricRegistry getDefault() {
+    return DEFAULT;
+  }
+
+  /** Returns the registry of the run on this thread, or the default registry outside any run. */
+  @Nonnull
+  public static MetricRegistry current() {
+    MetricRegistry registry = CURRENT.get();
+    return (registry == null) ? DEFAULT : registry;
+  }
+
+  /**
+   * Makes the given registry current for this thread, and for the threads it starts, until the
+   * returned scope is closed.
+   */
+  @Nonnull
+  public static Scope enter(@Nonnull MetricRegistry registry) {
+    Preconditions.checkNotNull(registry, "Registry was null.");
+    Scope scope = new Scope(CURRENT.get());
+    CURRENT.set(registry);
+    return scope;
+  }
+
+  /** Restores the registry which was current before {@link #enter(MetricRegistry)}. */
+  public static final class Scope implements Closeable {
+
+    @CheckForNull private final MetricRegistry previous;
+
+    private Scope(@CheckForNull MetricRegistry previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  private final ConcurrentMap<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+  @Nonnull
+  private <T> T get(@Nonnull String name, @Nonnull Class<T> type, @Nonnull Supplier<T> factory) {
+    Object metric = metrics.computeIfAbsent(name, n -> factory.get());
+    Preconditions.checkArgument(
+        type.isInstance(metric),
+        "Metric '%s' is a %s, not a %s.",
+        name,
+        metric.getClass().getSimpleName(),
+        type.getSimpleName());
+    return type.cast(metric);
+  }
+
+  @Nonnull
+  public Counter counter(@Nonnull String name) {
+    return get(name, Counter.class, Counter::new);
+  }
+
+  @Nonnull
+  public Histogram histogram(@Nonnull String name) {
+    return get(name, Histogram.class, Histogram::new);
+  }
+
+  @Nonnull
+  public Timer timer(@Nonnull String name) {
+    return get(name, Timer.class, Timer::new);
+  }
+
+  @Nonnull
+  private static Map<String, Object> toMap(
+      @Nonnull String type, @Nonnull Histogram.Snapshot snapshot) {
+    Map<String, Object> out = new LinkedHashMap<>();
+    out.put("type", type);
+    out.put("count", snapshot.getCount());
+    out.put("sum", snapshot.getSum());
+    out.put("min", snapshot.getMin());
+    out.put("max", snapshot.getMax());
+    for (double quantile : QUANTILES) {
+      out.put("p" + quantileLabel(quantile), snapshot.getValueAtQuantile(quantile));
+    }
+    return out;
+  }
+
+  @Nonnull
+  private static String quantileLabel(double quantile) {
+    // 0.5 -> 50, 0.999 -> 99.9
+    String label = Double.toString(quantile * 100);
+    return label.endsWith(".0") ? label.substring(0, label.length() - 2) : label;
+  }
+
+  /**
+   * Returns the current value of every metric, by name, as nested maps suitable for JSON. Timer
+   * values are in nanoseconds.
+   */
+  @Nonnull
+  public Map<String, Map<String, Object>> getSnapshot() {
+    Map<String, Map<String, Object>> out = new LinkedHashMap<>();
+    for (Map.Entry<String, Object> e : metrics.entrySet()) {
+      Object metric = e.getValue();
+      if (metric instanceof Counter) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("type", "counter");
+        values.put("count", ((Counter) metric).getCount());
+        out.put(e.getKey(), values);
+      } else if (metric instanceof Timer) {
+        out.put(e.getKey(), toMap("timer", ((Timer) metric).getSnapshot()));
+      } else if (metric instanceof Histogram) {
+        out.put(e.getKey(), toMap("histogram", ((Histogram) metric).getSnapshot()));
+      }
+    }
+    return out;
+  }
+
+  @Nonnull
+  private static String toPrometheusName(@Nonnull String name) {
+    return "dumper_" + name.replaceAll("[^a-zA-Z0-9_]", "_");
+  }
+
+  private static void writeSummary(
+      @Nonnull Appendable out,
+      @Nonnull String name,
+      @Nonnull Histogram.Snapshot snapshot,
+      double scale)
+      throws IOException {
+    out.append("# TYPE ").append(name).append(" summary\n");
+    for (double quantile : QUANTILES) {
+      out.append(name)
+          .append("{quantile=\"")
+          .append(Double.toString(quantile))
+          .append("\"} ")
+          .append(Double.toString(snapshot.getValueAtQuantile(quantile) * scale))
+          .append('\n');
+    }
+    out.append(name).append("_sum ").append(Double.toString(snapshot.getSum() * scale));
+    out.append('\n');
+    out.append(name).append("_count ").append(Long.toString(snapshot.getCount())).append('\n');
+  }
+
+  /**
+   * Writes every metric in the Prometheus text exposition format. Timers are written as summaries
+   * in seconds.
+   */
+  public void writePrometheus(@Nonnull Appendable out) throws IOException {
+    for (Map.Entry<String, Object> e : metrics.entrySet()) {
+      String name = toPrometheusName(e.getKey());
+      Object metric = e.getValue();
+      if (metric instanceof Counter) {
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(Long.toString(((Counter) metric).getCount()));
+        out.append('\n');
+      } else if (metric instanceof Timer) {
+        writeSummary(out, name + "_seconds", ((Timer) metric).getSnapshot(), 1e-9);
+      } else if (metric instanceof Histogram) {
+        writeSummary(out, name, ((Histogram) metric).getSnapshot(), 1);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "MetricRegistry(" + metrics.keySet() + ")";
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.plugin.ext.jdk.metrics;
+
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A histogram of durations, in nanoseconds.
+ *
+ * <p>Hot loops should call {@link System#nanoTime()} themselves and {@link #recordNanos(long)};
+ * elsewhere, {@link #time()} in a try-with-resources block is simpler.
+ */
+@ThreadSafe
+public class Timer {
+
+  public class Context implements AutoCloseable {
+
+    private final long start = System.nanoTime();
+
+    private Context() {}
+
+    @Override
+    public void close() {
+      recordNanos(System.nanoTime() - start);
+    }
+  }
+
+  private final Histogram histogram = new Histogram();
+
+  Timer() {}
+
+  public void recordNanos(long nanos) {
+    histogram.record(nanos);
+  }
+
+  public void record(long duration, @Nonnull TimeUnit unit) {
+    histogram.record(unit.toNanos(duration));
+  }
+
+  /** Starts timing; the duration is recorded when the returned context is closed. */
+  @Nonnull
+  public Context time() {
+    return new Context();
+  }
+
+  @Nonnull
+  public Histogram.Snapshot getSnapshot() {
+    return histogram.getSnapshot();
+  }
+
+  @Override
+  public String toString() {
+    return "Timer(" + histogram.getSnapshot() + " ns)";
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.plugin.ext.jdk.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SemaphoreExecutorServiceTest {
+
+  @Test
+  public void execute_manyTasks_runsAtMostMaxConcurrency() throws Exception {
+    ExecutorService executor = new SemaphoreExecutorService(Executors.newCachedThreadPool(), 3);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    AtomicInteger completed = new AtomicInteger();
+
+    try (ExecutorManager manager = new ExecutorManager(executor)) {
+      for (int i = 0; i < 50; i++) {
+        manager.execute(
+            () -> {
+              int n = running.incrementAndGet();
+              maxRunning.accumulateAndGet(n, Math::max);
+              Thread.sleep(2);
+              running.decrementAndGet();
+              return completed.incrementAndGet();
+            });
+      }
+    }
+    executor.shutdown();
+
+    assertEquals(50, completed.get());
+    assertTrue("Ran " + maxRunning + " tasks at once.", maxRunning.get() <= 3);
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void execute_manyTasks_handsAtMostMaxConcurrencyToDelegate() throws Exception {
+    AtomicInteger threads = new AtomicInteger();
+    ExecutorService executor =
+        new SemaphoreExecutorService(
+            Executors.newCachedThreadPool(
+                runnable -> {
+                  threads.incrementAndGet();
+                  return new Thread(runnable);
+                }),
+            2);
+    CountDownLatch submitted = new CountDownLatch(1);
+    AtomicInteger completed = new AtomicInteger();
+
+    try (ExecutorManager manager = new ExecutorManager(executor)) {
+      for (int i = 0; i < 20; i++) {
+        manager.execute(
+            () -> {
+              submitted.await(10, TimeUnit.SECONDS);
+              return completed.incrementAndGet();
+            });
+      }
+      submitted.countDown();
+    }
+    executor.shutdown();
+
+    assertEquals(20, completed.get());
+    assertTrue("Started " + threads + " threads.", threads.get() <= 2);
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void execute_taskSubmitsTasks_runsThemAll() throws Exception {
+    ExecutorService executor = new SemaphoreExecutorService(Executors.newCachedThreadPool(), 1);
+    AtomicInteger completed = new AtomicInteger();
+
+    try (ExecutorManager manager = new ExecutorManager(executor)) {
+      manager.execute(
+          () -> {
+            for (int i = 0; i < 5; i++) manager.execute(completed::incrementAndGet);
+            return completed.incrementAndGet();
+          });
+      manager.await();
+    }
+    executor.shutdown();
+
+    assertEquals(6, completed.get());
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void execute_afterShutdown_rejects() {
+    ExecutorService executor = new SemaphoreExecutorService(Executors.newCachedThreadPool(), 1);
+    executor.shutdown();
+
+    assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+  }
+
+  @Test
+  public void newVirtualThreadExecutorService_runsTasksOnAnyJdk() throws Exception {
+    ExecutorService executor = ExecutorManager.newVirtualThreadExecutorService("test", 2);
+    AtomicInteger completed = new AtomicInteger();
+
+    try (ExecutorManager manager = new ExecutorManager(executor)) {
+      for (int i = 0; i < 10; i++) manager.execute(completed::incrementAndGet);
+    }
+    executor.shutdown();
+
+    assertEquals(10, completed.get());
+  }
+}
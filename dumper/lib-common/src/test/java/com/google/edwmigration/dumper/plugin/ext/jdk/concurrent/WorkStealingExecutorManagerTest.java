@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.plugin.ext.jdk.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.edwmigration.dumper.plugin.ext.jdk.concurrent.WorkStealingExecutorManager.Priority;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class WorkStealingExecutorManagerTest {
+
+  private final ForkJoinPool pool = WorkStealingExecutorManager.newWorkStealingPool("test", 4);
+
+  @After
+  public void tearDown() throws Exception {
+    pool.shutdownNow();
+    pool.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  /** Submits a complete binary tree of the given depth, one task per node. */
+  private void walk(
+      @Nonnull WorkStealingExecutorManager manager, int depth, @Nonnull AtomicInteger visited) {
+    manager.execute(
+        () -> {
+          visited.incrementAndGet();
+          if (depth > 0) {
+            walk(manager, depth - 1, visited);
+            walk(manager, depth - 1, visited);
+          }
+        });
+  }
+
+  @Test
+  public void await_recursiveSubmissions_waitsForAll() throws Exception {
+    WorkStealingExecutorManager manager = new WorkStealingExecutorManager(pool);
+    AtomicInteger visited = new AtomicInteger();
+
+    walk(manager, 14, visited);
+    manager.await();
+
+    assertEquals((1 << 15) - 1, visited.get());
+    assertEquals(0, manager.getOutstandingCount());
+  }
+
+  @Test
+  public void await_failingTasks_throwsFirstWithOthersSuppressed() throws Exception {
+    WorkStealingExecutorManager manager = new WorkStealingExecutorManager(pool);
+    for (int i = 0; i < 10; i++) {
+      String name = "i=" + i;
+      manager.execute(
+          () -> {
+            throw new IllegalStateException("Throw " + name);
+          });
+    }
+
+    try {
+      manager.await();
+      fail("Expected an ExecutionException.");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+      assertEquals(9, e.getSuppressed().length);
+    }
+    // The failures are reported once.
+    manager.await();
+  }
+
+  @Test
+  public void execute_highPriority_runsBeforeQueuedNormalTasks() throws Exception {
+    ForkJoinPool single = WorkStealingExecutorManager.newWorkStealingPool("single", 1);
+    try {
+      WorkStealingExecutorManager manager = new WorkStealingExecutorManager(single);
+      CountDownLatch release = new CountDownLatch(1);
+      AtomicInteger normalRun = new AtomicInteger();
+      AtomicInteger normalRunBeforeUrgent = new AtomicInteger(-1);
+
+      manager.execute(
+          () -> {
+            release.await();
+            return null;
+          });
+      for (int i = 0; i < 100; i++) manager.execute(() -> normalRun.incrementAndGet());
+      manager.execute(() -> normalRunBeforeUrgent.set(normalRun.get()), Priority.HIGH);
+      release.countDown();
+      manager.await();
+
+      assertEquals(100, normalRun.get());
+      assertEquals(0, normalRunBeforeUrgent.get());
+    } finally {
+      single.shutdownNow();
+    }
+  }
+}
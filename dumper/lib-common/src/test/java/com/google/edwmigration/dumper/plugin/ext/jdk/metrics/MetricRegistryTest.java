@@ -0,0 +1,131 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.dumper.plugin.ext.jdk.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MetricRegistryTest {
+
+  @Test
+  public void histogram_bucketsAreContiguous() {
+    for (long value = 0; value < 100_000; value++) {
+      int index = Histogram.indexOf(value);
+      assertTrue(value <= Histogram.highestValueAt(index));
+      if (index > 0) assertTrue(value > Histogram.highestValueAt(index - 1));
+    }
+    assertEquals(Long.MAX_VALUE, Histogram.highestValueAt(Histogram.indexOf(Long.MAX_VALUE)));
+  }
+
+  @Test
+  public void histogram_quantilesWithinRelativeError() {
+    Histogram histogram = new MetricRegistry().histogram("h");
+    for (long value = 1; value <= 10_000; value++) histogram.record(value * 1000);
+
+    Histogram.Snapshot snapshot = histogram.getSnapshot();
+
+    assertEquals(10_000, snapshot.getCount());
+    assertEquals(1000, snapshot.getMin());
+    assertEquals(10_000_000, snapshot.getMax());
+    assertEquals(5_000_000, snapshot.getValueAtQuantile(0.5), 5_000_000 / 16d);
+    assertEquals(9_900_000, snapshot.getValueAtQuantile(0.99), 9_900_000 / 16d);
+    assertEquals(10_000_000, snapshot.getValueAtQuantile(1));
+  }
+
+  @Test
+  public void getSnapshot_reportsEveryMetricByName() {
+    MetricRegistry registry = new MetricRegistry();
+    registry.counter("rows").add(42);
+    registry.timer("fetch").record(3, TimeUnit.MILLISECONDS);
+
+    Map<String, Map<String, Object>> snapshot = registry.getSnapshot();
+
+    assertSame(registry.counter("rows"), registry.counter("rows"));
+    assertEquals(42L, snapshot.get("rows").get("count"));
+    assertEquals("timer", snapshot.get("fetch").get("type"));
+    assertEquals(1L, snapshot.get("fetch").get("count"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void counter_nameOfTimer_throws() {
+    MetricRegistry registry = new MetricRegistry();
+    registry.timer("fetch");
+    registry.counter("fetch");
+  }
+
+  @Test
+  public void writePrometheus_writesCountersAndSummaries() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    registry.counter("sink.bytes").add(1024);
+    registry.timer("jdbc.fetch").record(2, TimeUnit.SECONDS);
+    StringBuilder out = new StringBuilder();
+
+    registry.writePrometheus(out);
+
+    String text = out.toString();
+    assertTrue(text, text.contains("# TYPE dumper_sink_bytes counter\ndumper_sink_bytes 1024\n"));
+    assertTrue(text, text.contains("# TYPE dumper_jdbc_fetch_seconds summary\n"));
+    assertTrue(text, text.contains("dumper_jdbc_fetch_seconds_count 1\n"));
+  }
+
+  @Test
+  public void current_insideScope_isTheRunRegistryAlsoInStartedThreads() throws Exception {
+    MetricRegistry run = new MetricRegistry();
+    AtomicReference<MetricRegistry> seenByChild = new AtomicReference<>();
+
+    try (MetricRegistry.Scope scope = MetricRegistry.enter(run)) {
+      assertSame(run, MetricRegistry.current());
+      Thread child = new Thread(() -> seenByChild.set(MetricRegistry.current()));
+      child.start();
+      child.join();
+    }
+
+    assertSame(run, seenByChild.get());
+    assertSame(MetricRegistry.getDefault(), MetricRegistry.current());
+  }
+
+  @Test
+  public void current_concurrentRuns_keepTheirMetricsApart() throws Exception {
+    MetricRegistry first = new MetricRegistry();
+    MetricRegistry second = new MetricRegistry();
+    Thread firstRun = new Thread(() -> recordRows(first, 1));
+    Thread secondRun = new Thread(() -> recordRows(second, 2));
+
+    firstRun.start();
+    secondRun.start();
+    firstRun.join();
+    secondRun.join();
+
+    assertEquals(1, first.counter("jdbc.rows").getCount());
+    assertEquals(2, second.counter("jdbc.rows").getCount());
+  }
+
+  private static void recordRows(MetricRegistry run, int rows) {
+    try (MetricRegistry.Scope scope = MetricRegistry.enter(run)) {
+      MetricRegistry.current().counter("jdbc.rows").add(rows);
+    }
+  }
+}
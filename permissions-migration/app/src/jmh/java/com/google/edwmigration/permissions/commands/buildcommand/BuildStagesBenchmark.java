@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.edwmigration.permissions.commands.expand.ExpandCommand;
+import com.google.edwmigration.permissions.jmh.SyntheticDump;
+import com.google.edwmigration.permissions.models.IamBinding;
+import com.google.edwmigration.permissions.models.Rule;
+import com.google.edwmigration.permissions.utils.RuleSetMapper;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the stages of the build command separately on a {@link SyntheticDump}: each mapper, which
+ * covers the Ranger policy matching and the rule evaluation, and the merge of their results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class BuildStagesBenchmark {
+
+  private static final ImmutableList<Rule> MATCH_ALL_RULE_SET =
+      ImmutableList.of(Rule.builder().when("true").mapFields(ImmutableMap.of()).build());
+
+  @Param("100")
+  public int users;
+
+  @Param("100")
+  public int groups;
+
+  @Param("100")
+  public int roles;
+
+  @Param("10000")
+  public int tables;
+
+  private Path directory;
+
+  private String rangerDumperOutput;
+
+  private String hdfsDumperOutput;
+
+  private TableReader tableReader;
+
+  private PrincipalReader principalReader;
+
+  private ImmutableList<RuleSetMapper<IamBinding>> mapped;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    directory = Files.createTempDirectory("permissions-benchmark");
+    SyntheticDump dump = SyntheticDump.write(directory, users, groups, roles, tables);
+    rangerDumperOutput = dump.getRangerDumperOutput().toString();
+    hdfsDumperOutput = dump.getHdfsDumperOutput().toString();
+    Path principals = directory.resolve("principals.yaml");
+    new ExpandCommand()
+        .run(
+            new String[] {
+              "--principal-ruleset", dump.getPrincipalRuleset().toString(),
+              "--ranger-dumper-output", rangerDumperOutput,
+              "--hdfs-dumper-output", hdfsDumperOutput,
+              "--output-principals", principals.toString()
+            });
+    tableReader =
+        new TableReader(
+            SyntheticDump.TABLES_PATH,
+            /* numThreads= */ 1,
+            /* timeoutSeconds= */ 60,
+            dump.getTablesSnapshot().toString(),
+            () -> SyntheticDump.TABLES_LISTING);
+    principalReader = new PrincipalReader(principals.toString());
+
+    // The merge runs on mappers replaying these results, so that it is measured on its own.
+    ImmutableList.Builder<RuleSetMapper<IamBinding>> replayed = ImmutableList.builder();
+    for (ImmutableList<RuleSetMapper.Result<IamBinding>> results :
+        ImmutableList.of(rangerHiveToGcs(), rangerHdfsToGcs(), hdfsToGcs())) {
+      replayed.add(() -> results);
+    }
+    mapped = replayed.build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public ImmutableList<RuleSetMapper.Result<IamBinding>> rangerHiveToGcs() {
+    return new RangerHiveToGcsIamBindingMapper(
+            MATCH_ALL_RULE_SET,
+            tableReader,
+            principalReader,
+            new RangerPolicyReader(rangerDumperOutput),
+            new RangerServiceReader(rangerDumperOutput))
+        .run();
+  }
+
+  @Benchmark
+  public ImmutableList<RuleSetMapper.Result<IamBinding>> rangerHdfsToGcs() {
+    return new RangerHdfsToGcsIamBindingMapper(
+            MATCH_ALL_RULE_SET,
+            tableReader,
+            principalReader,
+            new RangerPolicyReader(rangerDumperOutput),
+            new RangerServiceReader(rangerDumperOutput))
+        .run();
+  }
+
+  @Benchmark
+  public ImmutableList<RuleSetMapper.Result<IamBinding>> hdfsToGcs() {
+    return new HdfsToGcsIamBindingMapper(
+            MATCH_ALL_RULE_SET,
+            tableReader,
+            principalReader,
+            new HdfsPermissionReader(hdfsDumperOutput))
+        .run();
+  }
+
+  @Benchmark
+  public ImmutableList<IamBinding> merge() {
+    return PermissionMerge.newInstance(mapped, ImmutableMap.of()).run();
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+/**
+ * Creates build commands that take the listing of the tables path as given instead of listing GCS,
+ * so that a snapshot written with that listing is read without any access to GCS.
+ */
+public final class OfflineBuildCommand {
+
+  private OfflineBuildCommand() {}
+
+  public static BuildCommand create(String tablesListing) {
+    return new BuildCommand(
+        options ->
+            new TableReader(
+                options.getTables(),
+                options.getNumThreads(),
+                options.getTimeoutSeconds(),
+                options.getTablesSnapshot(),
+                () -> tablesListing));
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy.PolicyResource;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Looks up the HDFS policies of a sample of table paths with a {@link RangerHdfsPolicyIndex},
+ * against trying every policy as the mapper did before the index. The indexed lookup should stay
+ * nearly flat as the policies grow 16-fold, while trying every policy grows linearly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class RangerHdfsPolicyIndexBenchmark {
+
+  private static final String PATH_RESOURCE = "path";
+
+  private static final int PATH_COUNT = 200;
+
+  @Param({"1000", "16000"})
+  public int policyCount;
+
+  private ImmutableList<Policy> policies;
+
+  private ImmutableList<String> paths;
+
+  private RangerHdfsPolicyIndex index;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(policyCount);
+    int databaseCount = policyCount / 16;
+    ImmutableList.Builder<Policy> policyBuilder = ImmutableList.builder();
+    for (int i = 0; i < policyCount; i++) {
+      int database = random.nextInt(databaseCount);
+      String path = "/warehouse/db" + database + "/tbl" + random.nextInt(16);
+      switch (random.nextInt(10)) {
+        case 0:
+          policyBuilder.add(policy(i, true, "/warehouse/db" + database));
+          break;
+        case 1:
+          policyBuilder.add(policy(i, false, path + "*"));
+          break;
+        default:
+          policyBuilder.add(policy(i, random.nextBoolean(), path));
+      }
+    }
+    policies = policyBuilder.build();
+    ImmutableList.Builder<String> pathBuilder = ImmutableList.builder();
+    for (int i = 0; i < PATH_COUNT; i++) {
+      int database = random.nextInt(databaseCount);
+      pathBuilder.add("/warehouse/db" + database + "/tbl" + random.nextInt(20));
+    }
+    paths = pathBuilder.build();
+    index = new RangerHdfsPolicyIndex(policies, PATH_RESOURCE);
+  }
+
+  private static Policy policy(int id, boolean recursive, String path) {
+    return Policy.builder()
+        .id(id)
+        .name("policy" + id)
+        .service("hdfs")
+        .resources(
+            ImmutableMap.of(
+                PATH_RESOURCE, PolicyResource.create(ImmutableList.of(path), false, recursive)))
+        .build();
+  }
+
+  @Benchmark
+  public void indexed(Blackhole blackhole) {
+    for (String path : paths) {
+      blackhole.consume(index.matchingPolicies(path));
+    }
+  }
+
+  @Benchmark
+  public void tryEveryPolicy(Blackhole blackhole) {
+    for (String path : paths) {
+      for (Policy policy : policies) {
+        PolicyResource resource = policy.resources().get(PATH_RESOURCE);
+        boolean recursive = Boolean.TRUE.equals(resource.isRecursive());
+        for (String value : resource.values()) {
+          blackhole.consume(new RangerPathPattern(value, recursive).compile().matches(path));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.jmh;
+
+import com.google.cloud.Policy;
+import com.google.edwmigration.permissions.IamClient;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Keeps IAM policies in memory, standing in for GCS managed folders and BigQuery tables. */
+final class LocalIamClient implements IamClient {
+
+  private static final Policy EMPTY_POLICY = Policy.newBuilder().build();
+
+  private final ConcurrentMap<String, Policy> policies = new ConcurrentHashMap<>();
+
+  private final AtomicLong version = new AtomicLong();
+
+  @Override
+  public Policy getIamPolicy(String path) {
+    return policies.getOrDefault(path, EMPTY_POLICY);
+  }
+
+  @Override
+  public void setIamPolicy(String path, Policy policy) {
+    String etag = Long.toString(version.incrementAndGet());
+    policies.put(path, policy.toBuilder().setEtag(etag).build());
+  }
+
+  @Override
+  public void close() {}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.jmh;
+
+import com.google.common.collect.ImmutableList;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * Reports the peak heap usage of each iteration, as {@code heap.peak}.
+ *
+ * <p>It is the sum of the peaks of the heap memory pools, which needn't have peaked at the same
+ * time, so it is an upper bound of the actual peak. Enable it with {@code -prof} and the name of
+ * this class.
+ */
+public class PeakHeapProfiler implements InternalProfiler {
+
+  private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+  @Override
+  public String getDescription() {
+    return "Peak heap usage per iteration";
+  }
+
+  @Override
+  public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+    for (MemoryPoolMXBean pool : heapPools()) {
+      pool.resetPeakUsage();
+    }
+  }
+
+  @Override
+  public Collection<? extends Result> afterIteration(
+      BenchmarkParams benchmarkParams, IterationParams iterationParams, IterationResult result) {
+    long peakBytes = 0;
+    for (MemoryPoolMXBean pool : heapPools()) {
+      peakBytes += pool.getPeakUsage().getUsed();
+    }
+    return ImmutableList.of(
+        new ScalarResult(
+            "heap.peak", peakBytes / BYTES_PER_MEGABYTE, "MB", AggregationPolicy.MAX));
+  }
+
+  private static ImmutableList<MemoryPoolMXBean> heapPools() {
+    return ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isValid())
+        .collect(ImmutableList.toImmutableList());
+  }
+}
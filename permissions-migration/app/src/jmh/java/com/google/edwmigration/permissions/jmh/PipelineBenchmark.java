@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.jmh;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.edwmigration.permissions.ExtraPermissions;
+import com.google.edwmigration.permissions.IamClient;
+import com.google.edwmigration.permissions.PermissionsParser;
+import com.google.edwmigration.permissions.commands.apply.PermissionsApplier;
+import com.google.edwmigration.permissions.commands.buildcommand.OfflineBuildCommand;
+import com.google.edwmigration.permissions.commands.expand.ExpandCommand;
+import com.google.edwmigration.permissions.models.IamBinding.ResourceType;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the expand, build and apply commands end to end on a {@link SyntheticDump}.
+ *
+ * <p>Everything is read from and written to a local directory; the apply stage sets the policies
+ * on {@link LocalIamClient}s, without rate limiting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class PipelineBenchmark {
+
+  @Param("100")
+  public int users;
+
+  @Param("100")
+  public int groups;
+
+  @Param("100")
+  public int roles;
+
+  @Param("10000")
+  public int tables;
+
+  private Path directory;
+
+  private SyntheticDump dump;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    directory = Files.createTempDirectory("permissions-benchmark");
+    dump = SyntheticDump.write(directory, users, groups, roles, tables);
+    // Each stage reads the output of the previous one.
+    expand();
+    build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public void expand() throws Exception {
+    new ExpandCommand()
+        .run(
+            new String[] {
+              "--principal-ruleset", dump.getPrincipalRuleset().toString(),
+              "--ranger-dumper-output", dump.getRangerDumperOutput().toString(),
+              "--hdfs-dumper-output", dump.getHdfsDumperOutput().toString(),
+              "--output-principals", principals().toString()
+            });
+  }
+
+  @Benchmark
+  public void build() throws Exception {
+    OfflineBuildCommand.create(SyntheticDump.TABLES_LISTING)
+        .run(
+            new String[] {
+              "--permissions-ruleset", dump.getPermissionsRuleset().toString(),
+              "--tables", SyntheticDump.TABLES_PATH,
+              "--tables-snapshot", dump.getTablesSnapshot().toString(),
+              "--principals", principals().toString(),
+              "--ranger-dumper-output", dump.getRangerDumperOutput().toString(),
+              "--hdfs-dumper-output", dump.getHdfsDumperOutput().toString(),
+              "--output-permissions", permissions().toString()
+            });
+  }
+
+  @Benchmark
+  public void apply() throws Exception {
+    // Fresh clients, so that every policy is set rather than found unchanged.
+    ImmutableMap<ResourceType, IamClient> iamClients =
+        ImmutableMap.of(
+            ResourceType.GCS_MANAGED_FOLDER, new LocalIamClient(),
+            ResourceType.BQ_TABLE, new LocalIamClient());
+    PermissionsApplier applier =
+        new PermissionsApplier(
+            iamClients,
+            PermissionsApplier.DEFAULT_NUM_THREADS,
+            /* requestsPerSecond= */ Double.MAX_VALUE);
+    try (InputStream inputStream = Files.newInputStream(permissions())) {
+      applier.apply(new PermissionsParser().Parse(inputStream), ExtraPermissions.KEEP);
+    }
+  }
+
+  private Path principals() {
+    return directory.resolve("principals.yaml");
+  }
+
+  private Path permissions() {
+    return directory.resolve("permissions.yaml");
+  }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.jmh;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.edwmigration.permissions.commands.buildcommand.TableReader;
+import com.google.edwmigration.permissions.models.Table;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * A synthetic cluster dump written to a local directory, shaped like the one of the stress tests.
+ *
+ * <p>There are tables in three databases. Each table of the first database has a Ranger Hive
+ * policy, each table of the second one a Ranger HDFS policy and each table of the third one an
+ * HDFS scan record, cycling through the users, groups and roles. The tables, which the build
+ * command otherwise lists from GCS, are written as a snapshot, so nothing is read from GCS.
+ */
+public final class SyntheticDump {
+
+  /** The tables path the snapshot pretends to be taken from. */
+  public static final String TABLES_PATH = "gs://synthetic-bucket/tables/";
+
+  /** The listing fingerprint of the tables path the snapshot pretends to be taken from. */
+  public static final String TABLES_LISTING = "synthetic";
+
+  private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+  private static final int NUM_DATABASES = 3;
+
+  private static final String CREATE_DATE = "2024-01-01T00:00:00Z";
+
+  private static final long CREATE_TIME_SECONDS = 1704067200L;
+
+  private static final String SERVICES_JSONL =
+      "{\"id\":1,\"name\":\"hadoop-dataproc\",\"type\":\"hdfs\",\"isEnabled\":true,"
+          + "\"configs\":{\"fs.default.name\":\"hdfs://dummy-hdfs-location:8020\"}}\n"
+          + "{\"id\":2,\"name\":\"hive-dataproc\",\"type\":\"hive\",\"isEnabled\":true,"
+          + "\"configs\":{}}\n";
+
+  private static final String PERMISSIONS_RULESET_YAML =
+      "gcs:\n"
+          + "  hdfs_rules:\n"
+          + "    - map: {}\n"
+          + "  ranger_hive_rules:\n"
+          + "    - map: {}\n"
+          + "  ranger_hdfs_rules:\n"
+          + "    - map: {}\n"
+          + "bq:\n"
+          + "  hdfs_rules:\n"
+          + "    - map: {}\n"
+          + "  ranger_hive_rules:\n"
+          + "    - map: {}\n"
+          + "  ranger_hdfs_rules:\n"
+          + "    - map: {}\n";
+
+  private final Path directory;
+
+  private SyntheticDump(Path directory) {
+    this.directory = directory;
+  }
+
+  /** Writes a dump of the given size to the directory, the same for the same sizes. */
+  public static SyntheticDump write(
+      Path directory, int numUsers, int numGroups, int numRoles, int numTables)
+      throws IOException {
+    SyntheticDump dump = new SyntheticDump(directory);
+    Random random = new Random(numUsers * 31L + numGroups * 17L + numRoles * 7L + numTables);
+    Files.createDirectories(dump.getRangerDumperOutput());
+    Files.createDirectories(dump.getHdfsDumperOutput());
+    dump.writeRanger(random, numUsers, numGroups, numRoles, numTables);
+    dump.writeHdfs(numUsers, numGroups, numTables);
+    TableReader.writeSnapshot(
+        dump.getTablesSnapshot(), TABLES_PATH, TABLES_LISTING, tables(numTables));
+    Files.write(dump.getPrincipalRuleset(), principalRuleset().getBytes(UTF_8));
+    Files.write(dump.getPermissionsRuleset(), PERMISSIONS_RULESET_YAML.getBytes(UTF_8));
+    return dump;
+  }
+
+  public Path getRangerDumperOutput() {
+    return directory.resolve("ranger");
+  }
+
+  public Path getHdfsDumperOutput() {
+    return directory.resolve("hdfs");
+  }
+
+  public Path getTablesSnapshot() {
+    return directory.resolve("tables.snapshot");
+  }
+
+  public Path getPrincipalRuleset() {
+    return directory.resolve("principal-ruleset.yaml");
+  }
+
+  public Path getPermissionsRuleset() {
+    return directory.resolve("permissions-ruleset.yaml");
+  }
+
+  private static ImmutableList<Table> tables(int numTables) {
+    ImmutableList.Builder<Table> tables = ImmutableList.builder();
+    for (int database = 0; database < NUM_DATABASES; database++) {
+      for (int i = 0; i < numTables; i++) {
+        String path = String.format("db%d/tab%d", database, i);
+        tables.add(
+            Table.create(
+                /* name= */ "tab" + i,
+                /* schemaName= */ "db" + database,
+                /* hdfsPath= */ "hdfs://dummy-hdfs-location/" + path,
+                /* gcsPath= */ "gs://dummy-gcs-location/" + path,
+                /* bqResource= */ String.format("777.db%d.tab%d", database, i)));
+      }
+    }
+    return tables.build();
+  }
+
+  private void writeRanger(Random random, int numUsers, int numGroups, int numRoles, int numTables)
+      throws IOException {
+    Path ranger = getRangerDumperOutput();
+    writeJsonLines(
+        ranger.resolve("groups.jsonl"),
+        numGroups,
+        i ->
+            JSON_MAPPER
+                .createObjectNode()
+                .put("id", i)
+                .put("name", "group" + i)
+                .put("createDate", CREATE_DATE)
+                .put("updateDate", CREATE_DATE)
+                .put("isVisible", 1)
+                .put("groupSource", 1)
+                .put("groupType", 1));
+    writeJsonLines(
+        ranger.resolve("users.jsonl"),
+        numUsers,
+        i -> {
+          List<Integer> groups = sample(random, numGroups);
+          ObjectNode user =
+              JSON_MAPPER
+                  .createObjectNode()
+                  .put("id", i)
+                  .put("name", "user" + i)
+                  .put("createDate", CREATE_DATE)
+                  .put("updateDate", CREATE_DATE)
+                  .put("isVisible", 1)
+                  .put("status", 1)
+                  .put("userSource", 1);
+          user.putArray("userRoleList").add("ROLE_USER");
+          ArrayNode groupIds = user.putArray("groupIdList");
+          ArrayNode groupNames = user.putArray("groupNameList");
+          for (int group : groups) {
+            groupIds.add(group);
+            groupNames.add("group" + group);
+          }
+          return user;
+        });
+    writeJsonLines(
+        ranger.resolve("roles.jsonl"),
+        numRoles,
+        i -> {
+          ObjectNode role =
+              JSON_MAPPER
+                  .createObjectNode()
+                  .put("id", i)
+                  .put("name", "role" + i)
+                  .put("isEnabled", true)
+                  .put("createTime", CREATE_TIME_SECONDS)
+                  .put("updateTime", CREATE_TIME_SECONDS);
+          ArrayNode groups = role.putArray("groups");
+          for (int group : sample(random, numGroups)) {
+            groups.addObject().put("name", "group" + group).put("isAdmin", false);
+          }
+          ArrayNode users = role.putArray("users");
+          for (int user : sample(random, numUsers)) {
+            users.addObject().put("name", "user" + user).put("isAdmin", false);
+          }
+          role.putArray("roles");
+          role.putObject("options");
+          return role;
+        });
+    // The Hive policies cover the tables of db0, the HDFS ones those of db1.
+    writeJsonLines(
+        ranger.resolve("policies.jsonl"),
+        2 * numTables,
+        i -> {
+          int table = i % numTables;
+          boolean hive = i < numTables;
+          ObjectNode policy =
+              JSON_MAPPER
+                  .createObjectNode()
+                  .put("id", i)
+                  .put("guid", String.format("%032x", i))
+                  .put("name", "policy" + i)
+                  .put("isEnabled", true)
+                  .put("isAuditEnabled", true)
+                  .put("isDenyAllElse", false)
+                  .put("policyType", 0)
+                  .put("policyPriority", 0)
+                  .put("version", 1)
+                  .put("service", hive ? "hive-dataproc" : "hadoop-dataproc")
+                  .put("serviceType", hive ? "hive" : "hdfs");
+          ObjectNode item = policy.putArray("policyItems").addObject();
+          ArrayNode accesses = item.putArray("accesses");
+          for (String access : hive ? new String[] {"select", "update"} : new String[] {"read"}) {
+            accesses.addObject().put("isAllowed", true).put("type", access);
+          }
+          item.put("delegateAdmin", false);
+          ArrayNode users = item.putArray("users");
+          ArrayNode groups = item.putArray("groups");
+          ArrayNode roles = item.putArray("roles");
+          // Cycle through groups, roles and users, as the stress test generator does.
+          switch (table % 3) {
+            case 0:
+              groups.add("group" + (table / 3 % numGroups));
+              break;
+            case 1:
+              roles.add("role" + (table / 3 % numRoles));
+              break;
+            default:
+              users.add("user" + (table / 3 % numUsers));
+          }
+          ObjectNode resources = policy.putObject("resources");
+          if (hive) {
+            resource(resources, "database", "db0", false);
+            resource(resources, "table", "tab" + table, false);
+            resource(resources, "column", "*", false);
+          } else {
+            resource(resources, "path", "/db1/tab" + table, true);
+          }
+          return policy;
+        });
+    Files.write(ranger.resolve("services.jsonl"), SERVICES_JSONL.getBytes(UTF_8));
+  }
+
+  private static void resource(ObjectNode resources, String name, String value, boolean recursive) {
+    ObjectNode resource =
+        resources.putObject(name).put("isExcludes", false).put("isRecursive", recursive);
+    resource.putArray("values").add(value);
+  }
+
+  private void writeHdfs(int numUsers, int numGroups, int numTables) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(getHdfsDumperOutput().resolve("hdfs.csv"))) {
+      writer.write(
+          "Path,FileType,FileSize,Owner,Group,Permission,ModificationTime,FileCount,DirCount,"
+              + "StoragePolicy\n");
+      for (int i = 0; i < numTables; i++) {
+        writer.write(
+            String.format(
+                "/db2/tab%d,D,3,user%d,group%d,rwxr-x---,2024-09-26 11:43:24.877,1,0,0\n",
+                i, i % numUsers, i % numGroups));
+      }
+    }
+  }
+
+  /** A ruleset mapping every principal to an email derived from its name, by name prefix. */
+  private static String principalRuleset() {
+    StringBuilder yaml = new StringBuilder();
+    for (String source : new String[] {"ranger", "hdfs"}) {
+      yaml.append(source).append(":\n");
+      for (String type : new String[] {"user", "group", "role"}) {
+        if (source.equals("hdfs") && type.equals("role")) {
+          yaml.append("  other_rules:\n    - skip: true\n");
+          continue;
+        }
+        yaml.append("  ").append(type).append("_rules:\n");
+        for (int i = 0; i < 10; i++) {
+          yaml.append(
+              String.format(
+                  "    - when: \"matches(%1$s.name, '%1$s%2$d[0-9]*')\"\n"
+                      + "      map:\n"
+                      + "        email_address:\n"
+                      + "          expression: \"'migrated-' + %1$s.name + '@example.com'\"\n",
+                  type, i));
+        }
+        yaml.append("    - skip: true\n");
+      }
+    }
+    return yaml.toString();
+  }
+
+  /** Returns between five and ten distinct values below the bound, fewer if the bound is lower. */
+  private static List<Integer> sample(Random random, int bound) {
+    int count = Math.min(bound, 5 + random.nextInt(6));
+    return random.ints(0, bound).distinct().limit(count).boxed().collect(Collectors.toList());
+  }
+
+  private static void writeJsonLines(Path path, int count, IntFunction<ObjectNode> line)
+      throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+      for (int i = 0; i < count; i++) {
+        writer.write(JSON_MAPPER.writeValueAsString(line.apply(i)));
+        writer.newLine();
+      }
+    }
+  }
+}
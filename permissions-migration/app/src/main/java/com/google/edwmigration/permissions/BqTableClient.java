@@ -16,16 +16,12 @@
  */
 package com.google.edwmigration.permissions;
 
-import com.google.cloud.Identity;
 import com.google.cloud.Policy;
-import com.google.cloud.Role;
 import com.google.cloud.bigquery.BigQuery;
 import com.google.cloud.bigquery.BigQueryOptions;
 import com.google.cloud.bigquery.TableId;
 import com.google.edwmigration.permissions.models.TableIdParser;
 import java.io.IOException;
-import java.util.Map;
-import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,22 +41,16 @@ public class BqTableClient implements IamClient {
     return new BqTableClient(bigquery);
   }
 
-  public void addIamPolicyBindings(
-      String bqPath, Map<Role, Set<Identity>> bindings, ExtraPermissions extraPermissions) {
-    TableId tableId = TableIdParser.parseTranslationId(bqPath);
-    Policy.Builder policyBuilder =
-        extraPermissions == ExtraPermissions.KEEP
-            ? bigQuery.getIamPolicy(tableId).toBuilder()
-            : createEmptyPolicyBuilder();
-    bindings.forEach(
-        (role, identities) ->
-            identities.forEach((identity) -> policyBuilder.addIdentity(role, identity)));
-    LOG.info("Apply policy {} to table {}", bindings, tableId.getIAMResourceName());
-    bigQuery.setIamPolicy(tableId, policyBuilder.build());
+  @Override
+  public Policy getIamPolicy(String bqPath) {
+    return bigQuery.getIamPolicy(TableIdParser.parseTranslationId(bqPath));
   }
 
-  private Policy.Builder createEmptyPolicyBuilder() {
-    return Policy.newBuilder().setVersion(1);
+  @Override
+  public void setIamPolicy(String bqPath, Policy policy) {
+    TableId tableId = TableIdParser.parseTranslationId(bqPath);
+    LOG.info("Apply policy {} to table {}", policy.getBindings(), tableId.getIAMResourceName());
+    bigQuery.setIamPolicy(tableId, policy);
   }
 
   @Override
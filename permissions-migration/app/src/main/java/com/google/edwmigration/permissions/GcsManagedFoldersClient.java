@@ -18,9 +18,7 @@ package com.google.edwmigration.permissions;
 
 import com.google.api.gax.rpc.AlreadyExistsException;
 import com.google.api.gax.rpc.FailedPreconditionException;
-import com.google.cloud.Identity;
 import com.google.cloud.Policy;
-import com.google.cloud.Role;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
 import com.google.storage.control.v2.BucketName;
@@ -28,8 +26,6 @@ import com.google.storage.control.v2.CreateManagedFolderRequest;
 import com.google.storage.control.v2.ManagedFolder;
 import com.google.storage.control.v2.StorageControlClient;
 import java.io.IOException;
-import java.util.Map;
-import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -77,35 +73,14 @@ public class GcsManagedFoldersClient implements IamClient {
     }
   }
 
-  private void addIdentityToIamPolicy(GcsPath path, Role role, Identity identity) {
-    String managedFolderNameForIamCall = getManagedFolderNameForIamCall(path);
-
-    Policy policy =
-        createBuilderFromExistingPolicy(managedFolderNameForIamCall, path)
-            .addIdentity(role, identity)
-            .build();
-    storage.setIamPolicy(managedFolderNameForIamCall, policy);
+  @Override
+  public void createIfNotExists(String path) throws IOException {
+    createManagedFolderIfDoesntExist(GcsPath.parse(path));
   }
 
-  public void addIamPolicyBindings(
-      String path, Map<Role, Set<Identity>> bindings, ExtraPermissions extraPermissions)
-      throws IOException {
+  @Override
+  public Policy getIamPolicy(String path) {
     GcsPath gcsPath = GcsPath.parse(path);
-    createManagedFolderIfDoesntExist(gcsPath);
-    String managedFolderNameForIamCall = getManagedFolderNameForIamCall(gcsPath);
-    Policy.Builder policyBuilder =
-        extraPermissions == ExtraPermissions.KEEP
-            ? createBuilderFromExistingPolicy(managedFolderNameForIamCall, gcsPath)
-            : createEmptyPolicyBuilder();
-    bindings.forEach(
-        (role, identities) ->
-            identities.forEach((identity) -> policyBuilder.addIdentity(role, identity)));
-    LOG.info("Apply policy {} to folder {}", bindings, gcsPath.toString());
-    storage.setIamPolicy(managedFolderNameForIamCall, policyBuilder.build());
-  }
-
-  private Policy.Builder createBuilderFromExistingPolicy(
-      String managedFolderNameForIamCall, GcsPath path) {
     try {
       // We abuse the API here - storage.getIamPolicy should be used for buckets but we use it for
       // managed folder here.
@@ -113,16 +88,20 @@ public class GcsManagedFoldersClient implements IamClient {
       // When the policy does not exist, it throws NullPointerException.
       // I am not happy with this solution - it would be best to replace it with some dedicated API
       // for managed folders.
-      LOG.debug("Retrieved an existing policy for path: {}", path);
-      return storage.getIamPolicy(managedFolderNameForIamCall).toBuilder();
+      Policy policy = storage.getIamPolicy(getManagedFolderNameForIamCall(gcsPath));
+      LOG.debug("Retrieved an existing policy for path: {}", gcsPath);
+      return policy;
     } catch (NullPointerException expected) {
-      LOG.debug("Could not get an existing policy for path: {}", path);
-      return createEmptyPolicyBuilder();
+      LOG.debug("Could not get an existing policy for path: {}", gcsPath);
+      return Policy.newBuilder().setVersion(1).build();
     }
   }
 
-  private Policy.Builder createEmptyPolicyBuilder() {
-    return Policy.newBuilder().setVersion(1);
+  @Override
+  public void setIamPolicy(String path, Policy policy) {
+    GcsPath gcsPath = GcsPath.parse(path);
+    LOG.info("Apply policy {} to folder {}", policy.getBindings(), gcsPath);
+    storage.setIamPolicy(getManagedFolderNameForIamCall(gcsPath), policy);
   }
 
   /**
@@ -16,24 +16,51 @@
  */
 package com.google.edwmigration.permissions;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.Bucket;
 import com.google.cloud.storage.Storage;
 import com.google.cloud.storage.StorageOptions;
-import java.util.ArrayList;
-import java.util.List;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Streams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Processes the objects under a GCS path on a pool of threads.
+ *
+ * <p>The objects are listed page by page while earlier ones are processed, and at most a couple of
+ * objects per thread are in flight at any time, so memory stays flat however many objects there
+ * are and the first results are available as soon as the first page is listed.
+ */
 public class GcsParallelObjectsProcessor {
   private static final Logger LOG = LoggerFactory.getLogger(GcsParallelObjectsProcessor.class);
+
+  /** The number of objects in flight per thread, so that threads needn't wait for the consumer. */
+  private static final int IN_FLIGHT_PER_THREAD = 2;
+
   private final GcsPath sourcePath;
   private final int numThreads;
   private final int timeoutSeconds;
@@ -46,51 +73,151 @@ public class GcsParallelObjectsProcessor {
   }
 
   public void Run(Consumer<Blob> consumer) {
+    long processed;
+    try (Stream<Blob> blobs =
+        stream(
+            blob -> true,
+            blob -> {
+              consumer.accept(blob);
+              return blob;
+            },
+            /* ordered= */ false)) {
+      processed = blobs.count();
+    }
+    LOG.info("Processed: {} items.", processed);
+  }
+
+  /** Lists the objects under the path, page by page, without processing them. */
+  public Iterator<Blob> list() {
     Storage storage = StorageOptions.getDefaultInstance().getService();
-    ExecutorService executor = Executors.newFixedThreadPool(numThreads);
-    AtomicInteger blobsCounter = new AtomicInteger(0);
-    List<Future<?>> futures = new ArrayList<>();
-
-    try {
-      Bucket bucket = storage.get(sourcePath.bucketName());
-      bucket
-          .list(Storage.BlobListOption.prefix(sourcePath.objectName()))
-          .iterateAll()
-          .forEach(
-              blob ->
-                  futures.add(
-                      executor.submit(
-                          () -> {
-                            consumer.accept(blob);
-                            blobsCounter.incrementAndGet();
-                          })));
-    } catch (Exception e) {
-      LOG.error("Error processing bucket", e);
-    } finally {
-      executor.shutdown();
+    Bucket bucket = storage.get(sourcePath.bucketName());
+    return bucket
+        .list(Storage.BlobListOption.prefix(sourcePath.objectName()))
+        .iterateAll()
+        .iterator();
+  }
+
+  /**
+   * Returns the results of applying the function to the objects accepted by the filter.
+   *
+   * <p>The filter runs on the listing thread and should only look at the object metadata; the
+   * function runs on the pool. Results are returned in listing order if {@code ordered}, or as soon
+   * as they are ready otherwise. The stream fails with the first exception thrown by the function,
+   * or once the timeout has elapsed since it was created, and must be closed to release the pool.
+   */
+  public <R> Stream<R> stream(
+      Predicate<? super Blob> filter,
+      Function<? super Blob, ? extends R> function,
+      boolean ordered) {
+    Iterator<Blob> blobs = Iterators.filter(list(), filter::test);
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            numThreads,
+            new ThreadFactoryBuilder().setNameFormat("gcs-objects-%d").setDaemon(true).build());
+    return map(
+            blobs,
+            function,
+            executor,
+            numThreads * IN_FLIGHT_PER_THREAD,
+            ordered,
+            Duration.ofSeconds(timeoutSeconds))
+        .onClose(executor::shutdownNow);
+  }
+
+  @VisibleForTesting
+  static <T, R> Stream<R> map(
+      Iterator<T> input,
+      Function<? super T, ? extends R> function,
+      Executor executor,
+      int maxInFlight,
+      boolean ordered,
+      Duration timeout) {
+    checkArgument(maxInFlight > 0, "maxInFlight must be positive");
+    WindowIterator<T, R> iterator =
+        new WindowIterator<>(
+            input, function, executor, maxInFlight, ordered, System.nanoTime() + timeout.toNanos());
+    return Streams.stream(iterator).onClose(iterator::cancel);
+  }
+
+  private static class WindowIterator<T, R> extends AbstractIterator<R> {
+
+    private final Iterator<T> input;
+
+    private final Function<? super T, ? extends R> function;
+
+    private final CompletionService<R> completionService;
+
+    private final int maxInFlight;
+
+    private final boolean ordered;
+
+    private final long deadlineNanos;
+
+    /** The submitted tasks whose results haven't been returned, in submission order. */
+    private final ArrayDeque<Future<R>> inFlight = new ArrayDeque<>();
+
+    private WindowIterator(
+        Iterator<T> input,
+        Function<? super T, ? extends R> function,
+        Executor executor,
+        int maxInFlight,
+        boolean ordered,
+        long deadlineNanos) {
+      this.input = input;
+      this.function = function;
+      this.completionService = new ExecutorCompletionService<>(executor);
+      this.maxInFlight = maxInFlight;
+      this.ordered = ordered;
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    @CheckForNull
+    @Override
+    protected R computeNext() {
+      while (inFlight.size() < maxInFlight && input.hasNext()) {
+        T value = input.next();
+        inFlight.add(completionService.submit(() -> function.apply(value)));
+      }
+      if (inFlight.isEmpty()) {
+        return endOfData();
+      }
+      long remainingNanos = deadlineNanos - System.nanoTime();
       try {
-        if (!executor.awaitTermination(timeoutSeconds, TimeUnit.SECONDS)) {
-          executor.shutdownNow();
+        Future<R> next;
+        if (ordered) {
+          next = inFlight.remove();
+          next.get(remainingNanos, TimeUnit.NANOSECONDS);
+          // Drop the completion of this task, so the completion queue doesn't grow.
+          completionService.take();
+        } else {
+          next = completionService.poll(remainingNanos, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            throw new TimeoutException();
+          }
+          inFlight.remove(next);
         }
+        return next.get();
+      } catch (ExecutionException e) {
+        cancel();
+        Throwables.throwIfUnchecked(e.getCause());
+        throw new ProcessingException("Failed to process GCS object", e.getCause());
+      } catch (TimeoutException e) {
+        int pending = inFlight.size();
+        cancel();
+        throw new ProcessingException(
+            String.format("Processing GCS objects timed out with %d objects in flight", pending));
       } catch (InterruptedException e) {
-        executor.shutdownNow();
+        cancel();
+        Thread.currentThread().interrupt();
+        throw new ProcessingException("Processing of GCS objects has been interrupted", e);
       }
     }
 
-    LOG.info("Processed: {} items.", blobsCounter.get());
-
-    // If any action ended up with an exception, it will be wrapped in an ExecutionException.
-    // Rethrow the first one if it occurred.
-    for (Future<?> future : futures) {
-      if (future.isDone()) {
-        try {
-          future.get();
-        } catch (InterruptedException e) {
-          throw new RuntimeException("Parallel processing of GCS objects has been interrupted");
-        } catch (ExecutionException e) {
-          throw new RuntimeException(e.getCause());
-        }
+    private void cancel() {
+      for (Future<R> future : inFlight) {
+        future.cancel(true);
       }
+      inFlight.clear();
     }
   }
 }
@@ -16,17 +16,27 @@
  */
 package com.google.edwmigration.permissions;
 
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
 import com.google.auto.value.AutoValue;
-import com.google.cloud.Identity;
-import com.google.cloud.Role;
+import com.google.cloud.BaseServiceException;
+import com.google.cloud.Policy;
+import com.google.common.collect.ImmutableSet;
 import com.google.edwmigration.permissions.models.IamBinding.ResourceType;
 import java.io.IOException;
-import java.util.Map;
-import java.util.Set;
 
 /** An interface to model a generic GCP IAM client. */
 public interface IamClient extends AutoCloseable {
 
+  /** HTTP status codes of failures worth retrying: etag conflicts and exhausted quotas. */
+  ImmutableSet<Integer> RETRYABLE_HTTP_CODES = ImmutableSet.of(409, 412, 429, 503);
+
+  ImmutableSet<StatusCode.Code> RETRYABLE_STATUS_CODES =
+      ImmutableSet.of(
+          StatusCode.Code.ABORTED,
+          StatusCode.Code.RESOURCE_EXHAUSTED,
+          StatusCode.Code.UNAVAILABLE);
+
   @AutoValue
   abstract class GcpResource {
 
@@ -39,12 +49,30 @@ public interface IamClient extends AutoCloseable {
     }
   }
 
+  /** Creates the resource at the given path if needed, before its policy is read. */
+  default void createIfNotExists(String path) throws IOException {}
+
+  /** Returns the IAM policy of the given path, or an empty policy if it has none. */
+  Policy getIamPolicy(String path) throws IOException;
+
   /**
-   * Adds multiple IAM Policy bindings from role to identity to given path. When extraPermissions is
-   * ExtraPermissions.KEEP then existing permissions are preserved. When extraPermissions is
-   * ExtraPermissions.PURGE then existing permissions are removed.
+   * Sets the IAM policy of the given path. If the policy has an etag, the call fails unless it
+   * matches the etag of the current policy.
    */
-  void addIamPolicyBindings(
-      String path, Map<Role, Set<Identity>> bindings, ExtraPermissions extraPermissions)
-      throws IOException;
+  void setIamPolicy(String path, Policy policy) throws IOException;
+
+  /** Returns true if a failed call may succeed when the policy is read and set again. */
+  default boolean isRetryable(Exception e) {
+    if (e instanceof BaseServiceException) {
+      BaseServiceException serviceException = (BaseServiceException) e;
+      return serviceException.isRetryable()
+          || RETRYABLE_HTTP_CODES.contains(serviceException.getCode());
+    }
+    if (e instanceof ApiException) {
+      ApiException apiException = (ApiException) e;
+      return apiException.isRetryable()
+          || RETRYABLE_STATUS_CODES.contains(apiException.getStatusCode().getCode());
+    }
+    return false;
+  }
 }
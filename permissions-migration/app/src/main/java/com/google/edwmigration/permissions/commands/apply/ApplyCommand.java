@@ -16,16 +16,18 @@
  */
 package com.google.edwmigration.permissions.commands.apply;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.edwmigration.permissions.BqTableClient;
 import com.google.edwmigration.permissions.ExtraPermissions;
 import com.google.edwmigration.permissions.GcsManagedFoldersClient;
-import com.google.edwmigration.permissions.PermissionsParser;
+import com.google.edwmigration.permissions.commands.apply.PermissionsApplier.Shard;
 import com.google.edwmigration.permissions.files.FileProcessor;
+import com.google.edwmigration.permissions.files.PermissionsReader;
 import com.google.edwmigration.permissions.models.IamBinding.ResourceType;
-import com.google.edwmigration.permissions.models.Permissions;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.nio.file.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,18 +50,21 @@ public class ApplyCommand {
       PermissionsApplier permissionsApplier =
           new PermissionsApplier(
               ImmutableMap.of(
-                  ResourceType.GCS_MANAGED_FOLDER, GcsManagedFoldersClient.create(),
-                  ResourceType.BQ_TABLE, BqTableClient.create()));
-      PermissionsParser permissionsParser = new PermissionsParser();
+                  ResourceType.GCS_MANAGED_FOLDER, managedFoldersClient,
+                  ResourceType.BQ_TABLE, bqTableClient),
+              applyOptions.getNumThreads(),
+              applyOptions.getRequestsPerSecond());
 
       FileProcessor.applyConsumer(
           permissionsFilename,
           path -> {
-            LOG.info("Reading permissions from: {}", path);
-            try (InputStream inputStream = Files.newInputStream(path)) {
-              Permissions permissions = permissionsParser.Parse(inputStream);
-              permissionsApplier.apply(permissions, extraPermissions);
-            }
+            ImmutableList<Path> shards = PermissionsReader.findShards(path);
+            LOG.info("Reading permissions from: {}", shards);
+            permissionsApplier.apply(
+                shards.stream()
+                    .map(shard -> (Shard) consumer -> PermissionsReader.read(shard, consumer))
+                    .collect(toImmutableList()),
+                extraPermissions);
           });
     }
   }
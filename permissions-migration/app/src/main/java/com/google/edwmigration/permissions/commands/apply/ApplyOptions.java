@@ -46,6 +46,22 @@ public class ApplyOptions {
           .ofType(ExtraPermissions.class)
           .defaultsTo(ExtraPermissions.KEEP);
 
+  private static final OptionSpec<Integer> optionNumThreads =
+      parser
+          .accepts("num-threads", "Number of resources to update concurrently.")
+          .withRequiredArg()
+          .ofType(Integer.class)
+          .defaultsTo(PermissionsApplier.DEFAULT_NUM_THREADS);
+
+  private static final OptionSpec<Double> optionRequestsPerSecond =
+      parser
+          .accepts(
+              "requests-per-second",
+              "Maximum number of requests per second to each of the GCS and BigQuery APIs.")
+          .withRequiredArg()
+          .ofType(Double.class)
+          .defaultsTo(PermissionsApplier.DEFAULT_REQUESTS_PER_SECOND);
+
   private static final CommandArgsHelp help = new CommandArgsHelp(parser);
 
   public ApplyOptions(String[] args) {
@@ -63,4 +79,12 @@ public class ApplyOptions {
   public ExtraPermissions getExtraPermissions() {
     return options.valueOf(optionExtraPermissions);
   }
+
+  public int getNumThreads() {
+    return options.valueOf(optionNumThreads);
+  }
+
+  public double getRequestsPerSecond() {
+    return options.valueOf(optionRequestsPerSecond);
+  }
 }
@@ -16,51 +16,322 @@
  */
 package com.google.edwmigration.permissions.commands.apply;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+
 import com.google.cloud.Identity;
+import com.google.cloud.Policy;
 import com.google.cloud.Role;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.edwmigration.permissions.ExtraPermissions;
 import com.google.edwmigration.permissions.IamClient;
 import com.google.edwmigration.permissions.IamClient.GcpResource;
+import com.google.edwmigration.permissions.models.IamBinding;
 import com.google.edwmigration.permissions.models.IamBinding.ResourceType;
 import com.google.edwmigration.permissions.models.Permissions;
+import com.google.edwmigration.permissions.utils.Backoff;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-/** Applies a list of permissions to GCP resources. */
+/**
+ * Applies a list of permissions to GCP resources.
+ *
+ * <p>Resources are updated concurrently. Each update reads the current policy and only sets a new
+ * one if it differs, passing the etag of the policy it read, so that a concurrent change makes the
+ * update fail rather than be overwritten. Calls to each API are rate limited, and failed updates
+ * are retried with jittered exponential backoff if the client deems them retryable.
+ */
 public class PermissionsApplier {
 
+  private static final Logger LOG = LoggerFactory.getLogger(PermissionsApplier.class);
+
+  public static final int DEFAULT_NUM_THREADS = 16;
+
+  public static final double DEFAULT_REQUESTS_PER_SECOND = 50;
+
+  private static final int DEFAULT_MAX_ATTEMPTS = 8;
+
+  private static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofSeconds(1);
+
+  private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+  /** The number of resource updates queued per thread, per shard. */
+  private static final int MAX_UPDATES_IN_FLIGHT_PER_THREAD = 2;
+
+  /** The number of shards read and applied at a time. */
+  public static final int MAX_SHARDS_IN_FLIGHT = 4;
+
   private final ImmutableMap<ResourceType, IamClient> iamClients;
 
+  private final ImmutableMap<ResourceType, RateLimiter> rateLimiters;
+
+  private final int numThreads;
+
+  private final int maxAttempts;
+
+  private final Backoff backoff;
+
   public PermissionsApplier(ImmutableMap<ResourceType, IamClient> iamClients) {
+    this(iamClients, DEFAULT_NUM_THREADS, DEFAULT_REQUESTS_PER_SECOND);
+  }
+
+  public PermissionsApplier(
+      ImmutableMap<ResourceType, IamClient> iamClients,
+      int numThreads,
+      double requestsPerSecond) {
+    this(
+        iamClients, numThreads, requestsPerSecond, DEFAULT_MAX_ATTEMPTS, DEFAULT_INITIAL_BACKOFF);
+  }
+
+  /**
+   * Creates an applier updating at most {@code numThreads} resources at a time, and calling each
+   * API at most {@code requestsPerSecond} times per second.
+   */
+  public PermissionsApplier(
+      ImmutableMap<ResourceType, IamClient> iamClients,
+      int numThreads,
+      double requestsPerSecond,
+      int maxAttempts,
+      Duration initialBackoff) {
+    checkArgument(numThreads > 0, "numThreads must be positive");
+    checkArgument(maxAttempts > 0, "maxAttempts must be positive");
     this.iamClients = iamClients;
+    this.rateLimiters =
+        iamClients.keySet().stream()
+            .collect(toImmutableMap(type -> type, type -> RateLimiter.create(requestsPerSecond)));
+    this.numThreads = numThreads;
+    this.maxAttempts = maxAttempts;
+    this.backoff = new Backoff(initialBackoff, MAX_BACKOFF);
   }
 
   /** Applies a list of permissions to GCS managed folders. */
   public void apply(Permissions permissions, ExtraPermissions keep) throws IOException {
-    Map<GcpResource, Map<Role, Set<Identity>>> pathToBindingsMapping =
-        permissions.permissions().stream()
-            .collect(
-                Collectors.groupingBy(
-                    iamBinding ->
-                        GcpResource.create(iamBinding.resourceType(), iamBinding.resourcePath()),
-                    Collectors.groupingBy(
-                        iamBinding -> Role.of(iamBinding.role()),
-                        Collectors.mapping(
-                            iamBinding -> Identity.valueOf(iamBinding.principal()),
-                            Collectors.toSet()))));
-
-    for (Map.Entry<GcpResource, Map<Role, Set<Identity>>> entry :
-        pathToBindingsMapping.entrySet()) {
-      GcpResource resource = entry.getKey();
-      Map<Role, Set<Identity>> bindings = entry.getValue();
-      IamClient iamClient = iamClients.get(resource.type());
-      if (iamClient == null) {
+    apply(ImmutableList.<Shard>of(consumer -> permissions.permissions().forEach(consumer)), keep);
+  }
+
+  /**
+   * Applies permissions split into shards, such that all bindings of a resource are in the same
+   * shard.
+   *
+   * <p>Up to {@link #MAX_SHARDS_IN_FLIGHT} shards are read and grouped by resource concurrently,
+   * and their resources are updated on a pool shared by all shards, so that only the bindings of
+   * the shards in flight are held in memory.
+   */
+  public void apply(List<? extends Shard> shards, ExtraPermissions keep) throws IOException {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            numThreads,
+            new ThreadFactoryBuilder().setNameFormat("iam-apply-%d").setDaemon(true).build());
+    ExecutorService shardExecutor =
+        Executors.newFixedThreadPool(
+            Math.max(1, Math.min(shards.size(), MAX_SHARDS_IN_FLIGHT)),
+            new ThreadFactoryBuilder().setNameFormat("iam-apply-shard-%d").setDaemon(true).build());
+    Tally total = new Tally();
+    try {
+      List<Future<Tally>> futures = new ArrayList<>();
+      for (Shard shard : shards) {
+        futures.add(shardExecutor.submit(() -> applyShard(shard, keep, executor)));
+      }
+      for (Future<Tally> future : futures) {
+        try {
+          total.add(future.get());
+        } catch (ExecutionException e) {
+          Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+          Throwables.throwIfUnchecked(e.getCause());
+          throw new IOException(e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while applying permissions");
+    } finally {
+      shardExecutor.shutdownNow();
+      executor.shutdownNow();
+    }
+    LOG.info(
+        "Applied permissions to {} resources in {}: {} updated, {} unchanged, {} failed",
+        total.resources,
+        stopwatch,
+        total.updated,
+        total.unchanged,
+        total.failed.size());
+    if (!total.failed.isEmpty()) {
+      throw new IOException(
+          String.format(
+              "Failed to apply permissions to %d of %d resources, including %s",
+              total.failed.size(), total.resources, total.failed.get(0)),
+          total.firstFailure);
+    }
+  }
+
+  private Tally applyShard(Shard shard, ExtraPermissions keep, ExecutorService executor)
+      throws IOException, InterruptedException {
+    Map<GcpResource, Map<Role, Set<Identity>>> pathToBindingsMapping = new HashMap<>();
+    shard.read(
+        iamBinding ->
+            pathToBindingsMapping
+                .computeIfAbsent(
+                    GcpResource.create(iamBinding.resourceType(), iamBinding.resourcePath()),
+                    resource -> new HashMap<>())
+                .computeIfAbsent(Role.of(iamBinding.role()), role -> new HashSet<>())
+                .add(Identity.valueOf(iamBinding.principal())));
+    for (GcpResource resource : pathToBindingsMapping.keySet()) {
+      if (!iamClients.containsKey(resource.type())) {
         throw new IllegalArgumentException("Invalid resource type " + resource.type());
       }
-      iamClient.addIamPolicyBindings(resource.path(), bindings, keep);
     }
+
+    Tally tally = new Tally();
+    tally.resources = pathToBindingsMapping.size();
+    // Only a window of updates is queued at a time, so that a shard with many resources neither
+    // holds a future per resource nor crowds out the other shards on the shared pool.
+    ArrayDeque<Entry<GcpResource, Future<Boolean>>> inFlight = new ArrayDeque<>();
+    for (Entry<GcpResource, Map<Role, Set<Identity>>> entry : pathToBindingsMapping.entrySet()) {
+      if (inFlight.size() >= MAX_UPDATES_IN_FLIGHT_PER_THREAD * numThreads) {
+        tally.add(inFlight.remove());
+      }
+      inFlight.add(
+          Maps.immutableEntry(
+              entry.getKey(),
+              executor.submit(() -> applyBindings(entry.getKey(), entry.getValue(), keep))));
+    }
+    while (!inFlight.isEmpty()) {
+      tally.add(inFlight.remove());
+    }
+    return tally;
+  }
+
+  /** Adds the given bindings to a resource, returning false if it already had them. */
+  private boolean applyBindings(
+      GcpResource resource, Map<Role, Set<Identity>> bindings, ExtraPermissions extraPermissions)
+      throws IOException, InterruptedException {
+    IamClient iamClient = iamClients.get(resource.type());
+    RateLimiter rateLimiter = rateLimiters.get(resource.type());
+    withRetries(
+        resource,
+        iamClient,
+        () -> {
+          rateLimiter.acquire();
+          iamClient.createIfNotExists(resource.path());
+          return null;
+        });
+    return withRetries(
+        resource,
+        iamClient,
+        () -> {
+          rateLimiter.acquire();
+          Policy current = iamClient.getIamPolicy(resource.path());
+          Policy.Builder builder =
+              extraPermissions == ExtraPermissions.KEEP
+                  ? current.toBuilder()
+                  // Pass the etag anyway, so that a concurrent change is not purged unseen.
+                  : Policy.newBuilder().setVersion(1).setEtag(current.getEtag());
+          bindings.forEach(
+              (role, identities) ->
+                  identities.forEach((identity) -> builder.addIdentity(role, identity)));
+          Policy policy = builder.build();
+          if (policy.getBindings().equals(current.getBindings())) {
+            LOG.debug("Policy of {} is up to date", resource);
+            return false;
+          }
+          rateLimiter.acquire();
+          iamClient.setIamPolicy(resource.path(), policy);
+          return true;
+        });
+  }
+
+  private <T> T withRetries(GcpResource resource, IamClient iamClient, IamCall<T> call)
+      throws IOException, InterruptedException {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return call.call();
+      } catch (IOException | RuntimeException e) {
+        if (attempt >= maxAttempts || !iamClient.isRetryable(e)) {
+          throw e;
+        }
+        long backoffMillis = backoff.delayMillis(attempt);
+        LOG.debug(
+            "Attempt {} for {} failed, retrying in {} ms: {}",
+            attempt,
+            resource,
+            backoffMillis,
+            e.getMessage());
+        Thread.sleep(backoffMillis);
+      }
+    }
+  }
+
+  /** A part of the permissions to apply. */
+  @FunctionalInterface
+  public interface Shard {
+
+    void read(Consumer<IamBinding> consumer) throws IOException;
+  }
+
+  private static class Tally {
+
+    private int resources;
+
+    private int updated;
+
+    private int unchanged;
+
+    private final List<GcpResource> failed = new ArrayList<>();
+
+    private Throwable firstFailure;
+
+    private void add(Entry<GcpResource, Future<Boolean>> update) throws InterruptedException {
+      try {
+        if (update.getValue().get()) {
+          updated++;
+        } else {
+          unchanged++;
+        }
+      } catch (ExecutionException e) {
+        LOG.error("Failed to apply permissions to {}", update.getKey(), e.getCause());
+        failed.add(update.getKey());
+        if (firstFailure == null) {
+          firstFailure = e.getCause();
+        }
+      }
+    }
+
+    private void add(Tally other) {
+      resources += other.resources;
+      updated += other.updated;
+      unchanged += other.unchanged;
+      failed.addAll(other.failed);
+      if (firstFailure == null) {
+        firstFailure = other.firstFailure;
+      }
+    }
+  }
+
+  private interface IamCall<T> {
+
+    T call() throws IOException;
   }
 }
@@ -16,50 +16,179 @@
  */
 package com.google.edwmigration.permissions.commands.batch;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.cloud.BaseServiceException;
 import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.CopyWriter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
 import com.google.edwmigration.permissions.GcsParallelObjectsProcessor;
 import com.google.edwmigration.permissions.GcsPath;
+import com.google.edwmigration.permissions.utils.Backoff;
 import com.google.re2j.Pattern;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Copies the objects matching a pattern from one GCS path to another.
+ *
+ * <p>Copies are server-side rewrites issued concurrently, one per thread. Rewrites of large objects
+ * take several calls; a failed call is retried from where the previous one stopped, with jittered
+ * exponential backoff if the failure is transient. Failures don't stop the other copies, and are
+ * reported at the end of the run.
+ */
 public class Batcher {
   private static final Logger LOG = LoggerFactory.getLogger(Batcher.class);
+
+  private static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+  private static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofSeconds(1);
+
+  private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+  private static final ImmutableSet<Integer> RETRYABLE_HTTP_CODES =
+      ImmutableSet.of(408, 429, 500, 502, 503, 504);
+
+  /** The number of failed objects named in the error, the others are only counted. */
+  private static final int MAX_REPORTED_FAILURES = 20;
+
   private final GcsParallelObjectsProcessor gcsParallelObjectsProcessor;
   private final GcsPath sourcePath;
   private final GcsPath targetPath;
   private final Pattern pattern;
+  private final int maxAttempts;
+  private final Backoff backoff;
 
   public Batcher(
       GcsPath sourcePath, GcsPath targetPath, String pattern, int numThreads, int timeoutSeconds) {
+    this(
+        sourcePath,
+        targetPath,
+        pattern,
+        numThreads,
+        timeoutSeconds,
+        DEFAULT_MAX_ATTEMPTS,
+        DEFAULT_INITIAL_BACKOFF);
+  }
+
+  @VisibleForTesting
+  Batcher(
+      GcsPath sourcePath,
+      GcsPath targetPath,
+      String pattern,
+      int numThreads,
+      int timeoutSeconds,
+      int maxAttempts,
+      Duration initialBackoff) {
+    checkArgument(maxAttempts > 0, "maxAttempts must be positive");
 
     this.sourcePath = sourcePath.normalizePathSuffix();
     this.targetPath = targetPath.normalizePathSuffix();
     this.pattern = Pattern.compile(pattern);
+    this.maxAttempts = maxAttempts;
+    this.backoff = new Backoff(initialBackoff, MAX_BACKOFF);
 
     gcsParallelObjectsProcessor =
         new GcsParallelObjectsProcessor(sourcePath, numThreads, timeoutSeconds);
   }
 
-  public void Run() {
-    gcsParallelObjectsProcessor.Run(this::copyBlobIfMatchesPattern);
+  public void Run() throws IOException {
+    // Objects not matching the pattern are skipped while listing, so they don't take up a thread.
+    try (Stream<CopyResult> results =
+        gcsParallelObjectsProcessor.stream(
+            blob -> pattern.matcher(blob.getName()).matches(), this::copy, /* ordered= */ false)) {
+      report(results.iterator());
+    }
   }
 
-  private void copyBlobIfMatchesPattern(Blob blob) {
-    try {
-      String blobName = blob.getName();
-      LOG.info("Processing file {}", blobName);
+  @VisibleForTesting
+  static void report(Iterator<CopyResult> results) throws IOException {
+    long copied = 0;
+    long retried = 0;
+    long failed = 0;
+    List<String> failures = new ArrayList<>();
+    while (results.hasNext()) {
+      CopyResult result = results.next();
+      if (result.failure == null) {
+        copied++;
+        if (result.attempts > 1) {
+          retried++;
+        }
+        continue;
+      }
+      failed++;
+      if (failures.size() < MAX_REPORTED_FAILURES) {
+        failures.add(
+            String.format(
+                "%s after %d attempts: %s",
+                result.sourceName, result.attempts, result.failure.getMessage()));
+      }
+    }
+    LOG.info("Copied {} objects ({} after retries), {} failed.", copied, retried, failed);
+    if (failed > 0) {
+      throw new IOException(
+          String.format(
+              "Failed to copy %d objects, including:%n%s", failed, String.join("\n", failures)));
+    }
+  }
 
-      if (pattern.matcher(blobName).matches()) {
-        String targetBlobName = getTargetName(blobName);
-        blob.copyTo(targetPath.bucketName(), targetBlobName);
+  @VisibleForTesting
+  CopyResult copy(Blob blob) {
+    String blobName = blob.getName();
+    String targetBlobName = getTargetName(blobName);
+    CopyWriter copyWriter = null;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        if (copyWriter == null) {
+          copyWriter = blob.copyTo(targetPath.bucketName(), targetBlobName);
+        }
+        // Each call continues the rewrite from the token returned by the previous one, also when
+        // the previous attempt failed halfway.
+        while (!copyWriter.isDone()) {
+          copyWriter.copyChunk();
+        }
         LOG.info("File {} matched and copied to {}", blobName, targetBlobName);
+        return new CopyResult(blobName, attempt, null);
+      } catch (RuntimeException e) {
+        if (attempt >= maxAttempts || !isRetryable(e)) {
+          LOG.error("Error processing blob {}", blobName, e);
+          return new CopyResult(blobName, attempt, e);
+        }
+        long backoffMillis = backoff.delayMillis(attempt);
+        LOG.warn(
+            "Attempt {} to copy {} failed, retrying in {} ms: {}",
+            attempt,
+            blobName,
+            backoffMillis,
+            e.getMessage());
+        try {
+          Thread.sleep(backoffMillis);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          e.addSuppressed(interrupted);
+          return new CopyResult(blobName, attempt, e);
+        }
       }
-    } catch (Exception e) {
-      LOG.error("Error processing blob {}", blob.getName(), e);
     }
   }
 
+  private static boolean isRetryable(RuntimeException e) {
+    if (!(e instanceof BaseServiceException)) {
+      return false;
+    }
+    BaseServiceException serviceException = (BaseServiceException) e;
+    return serviceException.isRetryable()
+        || RETRYABLE_HTTP_CODES.contains(serviceException.getCode());
+  }
+
   private String getTargetName(String blobName) {
     // Get blob path relative to the source path.
     int prefixLength = sourcePath.objectName().length();
@@ -69,4 +198,20 @@ public class Batcher {
     // path.
     return targetPath.objectName() + blobSuffix;
   }
+
+  @VisibleForTesting
+  static class CopyResult {
+
+    final String sourceName;
+
+    final int attempts;
+
+    @Nullable final Exception failure;
+
+    CopyResult(String sourceName, int attempts, @Nullable Exception failure) {
+      this.sourceName = sourceName;
+      this.attempts = attempts;
+      this.failure = failure;
+    }
+  }
 }
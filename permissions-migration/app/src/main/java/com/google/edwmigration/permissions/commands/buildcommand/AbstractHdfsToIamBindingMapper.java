@@ -17,6 +17,8 @@
 package com.google.edwmigration.permissions.commands.buildcommand;
 
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.edwmigration.permissions.utils.ExternalSorter.readString;
+import static com.google.edwmigration.permissions.utils.ExternalSorter.writeString;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -31,12 +33,17 @@ import com.google.edwmigration.permissions.models.IamBinding;
 import com.google.edwmigration.permissions.models.Principal;
 import com.google.edwmigration.permissions.models.Rule;
 import com.google.edwmigration.permissions.models.Table;
+import com.google.edwmigration.permissions.utils.ExternalSorter;
+import com.google.edwmigration.permissions.utils.ExternalSorter.Codec;
 import com.google.edwmigration.permissions.utils.SimpleStreamProcessor;
 import com.google.errorprone.annotations.ForOverride;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.AbstractMap.SimpleEntry;
-import java.util.Comparator;
-import java.util.Iterator;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
@@ -59,6 +66,49 @@ public abstract class AbstractHdfsToIamBindingMapper
 
   private static final int HDFS_DEFAULT_PRIORITY = 10;
 
+  /** The number of records of each input sorted in memory before spilling to disk. */
+  static final int DEFAULT_MAX_RECORDS_IN_MEMORY = 1_000_000;
+
+  private static final Codec<HdfsPermission> PERMISSION_CODEC =
+      new Codec<HdfsPermission>() {
+        @Override
+        public void write(DataOutput out, HdfsPermission permission) throws IOException {
+          writeString(out, permission.path());
+          writeString(out, permission.fileType());
+          writeLong(out, permission.fileSize());
+          writeString(out, permission.owner());
+          writeString(out, permission.group());
+          writeString(out, permission.permission());
+          LocalDateTime modificationTime = permission.modificationTime();
+          writeString(out, modificationTime == null ? null : modificationTime.toString());
+          writeLong(out, permission.fileCount());
+          writeLong(out, permission.dirCount());
+          writeString(out, permission.storagePolicy());
+        }
+
+        @Override
+        public HdfsPermission read(DataInput in) throws IOException {
+          String path = readString(in);
+          String fileType = readString(in);
+          Long fileSize = readLong(in);
+          String owner = readString(in);
+          String group = readString(in);
+          String permission = readString(in);
+          String modificationTime = readString(in);
+          return HdfsPermission.create(
+              path,
+              fileType,
+              fileSize,
+              owner,
+              group,
+              permission,
+              modificationTime == null ? null : LocalDateTime.parse(modificationTime),
+              readLong(in),
+              readLong(in),
+              readString(in));
+        }
+      };
+
   public enum HdfsPrincipalType {
     USER,
     GROUP,
@@ -127,6 +177,8 @@ public abstract class AbstractHdfsToIamBindingMapper
 
   private final String iamWriteRole;
 
+  private final int maxRecordsInMemory;
+
   AbstractHdfsToIamBindingMapper(
       ImmutableList<Rule> rules,
       StreamProcessor<Table> tableReader,
@@ -134,7 +186,26 @@ public abstract class AbstractHdfsToIamBindingMapper
       StreamProcessor<HdfsPermission> permissionReader,
       String iamReadRole,
       String iamWriteRole) {
+    this(
+        rules,
+        tableReader,
+        principalReader,
+        permissionReader,
+        iamReadRole,
+        iamWriteRole,
+        DEFAULT_MAX_RECORDS_IN_MEMORY);
+  }
+
+  AbstractHdfsToIamBindingMapper(
+      ImmutableList<Rule> rules,
+      StreamProcessor<Table> tableReader,
+      StreamProcessor<Principal> principalReader,
+      StreamProcessor<HdfsPermission> permissionReader,
+      String iamReadRole,
+      String iamWriteRole,
+      int maxRecordsInMemory) {
     super(IamBinding.class, "HDFS", RULE_SET_COMPILER, rules);
+    this.maxRecordsInMemory = maxRecordsInMemory;
     this.iamReadRole = iamReadRole;
     this.iamWriteRole = iamWriteRole;
     this.tableReader = tableReader;
@@ -193,36 +264,42 @@ public abstract class AbstractHdfsToIamBindingMapper
 
   @Override
   protected StreamProcessor<Context> newStream() {
-    Stream<Context> permissionContextes =
+    // Both sides are sorted by path, spilling to disk past maxRecordsInMemory records each, and
+    // merge joined. The table path is normalized once per table rather than once per comparison.
+    Stream<Entry<String, HdfsPermission>> permissions =
         permissionReader.process(
             permissionStream ->
-                tableReader.process(
-                    tableStream -> {
-                      // TODO(aleofreddi) Here we order the streams in memory and implement a
-                      // basic form of merge join. If this proves to be too memory-intensive,
-                      // we might want to perform an external sort on permissions and tables.
-                      Iterator<HdfsPermission> permissionIterator =
-                          permissionStream
-                              .sorted(Comparator.comparing(HdfsPermission::path))
-                              .iterator();
-                      Iterator<Table> tableIterator =
-                          tableStream.sorted(Comparator.comparing(Table::hdfsPath)).iterator();
-                      return MatchingIterator.mergeJoinStream(
-                              tableIterator, permissionIterator, this::compareTablePermissionPath)
-                          .flatMap(
-                              tablePermissionEntry ->
-                                  // Cross product with permission principals.
-                                  getHdfsPrincipalsForPolicyItem(tablePermissionEntry.getValue())
-                                      .map(
-                                          hdfsPrincipal ->
-                                              createPermissionContext(
-                                                  tablePermissionEntry.getValue(),
-                                                  tablePermissionEntry.getKey(),
-                                                  principals,
-                                                  hdfsPrincipal)))
-                          .filter(Optional::isPresent)
-                          .map(Optional::get);
-                    }));
+                new ExternalSorter<>(PERMISSION_CODEC, HdfsPermission::path, maxRecordsInMemory)
+                    .sort(permissionStream));
+    Stream<Entry<String, Table>> tables =
+        tableReader.process(
+            tableStream ->
+                new ExternalSorter<>(
+                        TableReader.TABLE_CODEC,
+                        (Table table) -> URI.create(table.hdfsPath()).getPath(),
+                        maxRecordsInMemory)
+                    .sort(tableStream));
+    Stream<Context> permissionContextes =
+        MatchingIterator.mergeJoinStream(
+                tables.iterator(),
+                permissions.iterator(),
+                (Entry<String, Table> table, Entry<String, HdfsPermission> permission) ->
+                    table.getKey().compareTo(permission.getKey()))
+            .onClose(tables::close)
+            .onClose(permissions::close)
+            .flatMap(
+                tablePermissionEntry -> {
+                  Table table = tablePermissionEntry.getKey().getValue();
+                  HdfsPermission permission = tablePermissionEntry.getValue().getValue();
+                  // Cross product with permission principals.
+                  return getHdfsPrincipalsForPolicyItem(permission)
+                      .map(
+                          hdfsPrincipal ->
+                              createPermissionContext(
+                                  permission, table, principals, hdfsPrincipal));
+                })
+            .filter(Optional::isPresent)
+            .map(Optional::get);
     return new SimpleStreamProcessor<>(permissionContextes);
   }
 
@@ -290,9 +367,16 @@ public abstract class AbstractHdfsToIamBindingMapper
     return Optional.empty();
   }
 
-  private int compareTablePermissionPath(Table table, HdfsPermission permission) {
-    String tablePath = URI.create(table.hdfsPath()).getPath();
-    return tablePath.compareTo(permission.path());
+  private static void writeLong(DataOutput out, @Nullable Long value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value);
+    }
+  }
+
+  @Nullable
+  private static Long readLong(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readLong() : null;
   }
 
   private static HdfsPrincipalType hdfsSourceToType(String rangerSource) {
@@ -31,6 +31,8 @@ import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Servic
 import java.net.URI;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -93,6 +95,12 @@ public abstract class AbstractRangerHdfsToIamBindingMapper extends AbstractRange
     return true;
   }
 
+  @Override
+  protected Function<Table, Stream<Policy>> newPolicyMatcher() {
+    RangerHdfsPolicyIndex index = new RangerHdfsPolicyIndex(policies, RANGER_PATH_RESOURCE);
+    return table -> index.matchingPolicies(URI.create(table.hdfsPath()).getPath()).stream();
+  }
+
   @Override
   protected Optional<String> getRoleForAccesses(List<PolicyItemAccess> accesses) {
     ImmutableSet<String> accessesSet =
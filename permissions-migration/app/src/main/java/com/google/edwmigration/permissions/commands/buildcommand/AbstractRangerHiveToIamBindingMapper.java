@@ -32,6 +32,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -121,6 +123,16 @@ public abstract class AbstractRangerHiveToIamBindingMapper extends AbstractRange
     return true;
   }
 
+  @Override
+  protected Function<Table, Stream<Policy>> newPolicyMatcher() {
+    RangerHivePolicyIndex index =
+        new RangerHivePolicyIndex(
+            policies, RANGER_DATABASE_RESOURCE, RANGER_TABLE_RESOURCE, ANY_RESOURCE);
+    return table ->
+        index.candidatePolicies(table.schemaName(), table.name()).stream()
+            .filter(policy -> policyMatchesTable(policy, table));
+  }
+
   @Override
   protected Optional<String> getRoleForAccesses(List<PolicyItemAccess> accesses) {
     ImmutableSet<String> accessesSet =
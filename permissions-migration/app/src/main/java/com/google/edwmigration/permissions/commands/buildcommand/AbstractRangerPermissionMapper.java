@@ -43,6 +43,7 @@ import com.google.edwmigration.permissions.utils.SimpleStreamProcessor;
 import com.google.errorprone.annotations.ForOverride;
 import java.util.*;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -235,6 +236,7 @@ public abstract class AbstractRangerPermissionMapper
   @Override
   protected StreamProcessor<Context> newStream() {
     Map<Policy, PolicyState> policyStats = new HashMap<>();
+    Function<Table, Stream<Policy>> policyMatcher = newPolicyMatcher();
 
     // Table's cardinality might be high, so we iterate it as a stream.
     Stream<Context> permissionContextes =
@@ -243,8 +245,8 @@ public abstract class AbstractRangerPermissionMapper
                 tableStream.flatMap(
                     table ->
                         // Cross product with matching policies.
-                        policies.stream()
-                            .filter(policy -> policyMatchesTable(policy, table))
+                        policyMatcher
+                            .apply(table)
                             .flatMap(
                                 policy -> {
                                   // Cross product with policy items.
@@ -377,6 +379,16 @@ public abstract class AbstractRangerPermissionMapper
   @ForOverride
   protected abstract boolean policyMatchesTable(Policy policy, Table table);
 
+  /**
+   * Returns a function from a table to the policies matching it, in the order of {@link
+   * #policies}. The default tries every policy with {@link #policyMatchesTable}; subclasses may
+   * index the policies once per run instead.
+   */
+  @ForOverride
+  protected Function<Table, Stream<Policy>> newPolicyMatcher() {
+    return table -> policies.stream().filter(policy -> policyMatchesTable(policy, table));
+  }
+
   @ForOverride
   protected abstract Optional<String> getRoleForAccesses(List<PolicyItemAccess> accesses);
 
@@ -18,10 +18,12 @@ package com.google.edwmigration.permissions.commands.buildcommand;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 import com.google.edwmigration.permissions.files.FileProcessor;
+import com.google.edwmigration.permissions.files.PermissionsWriter;
 import com.google.edwmigration.permissions.models.IamBinding;
-import com.google.edwmigration.permissions.models.Permissions;
 import com.google.edwmigration.permissions.models.PermissionsRuleset;
 import com.google.edwmigration.permissions.models.PermissionsRuleset.BqPermissionsRuleset;
 import com.google.edwmigration.permissions.models.PermissionsRuleset.GcsPermissionsRuleset;
@@ -46,10 +48,11 @@ public class BuildCommand {
   PrincipalReaderFactory principalReaderFactory;
 
   public BuildCommand() {
-    this(
-        new PermissionsRulesetParserImpl(),
-        new TableReaderFactoryImpl(),
-        new PrincipalReaderFactoryImpl());
+    this(new TableReaderFactoryImpl());
+  }
+
+  BuildCommand(TableReaderFactory tableReaderFactory) {
+    this(new PermissionsRulesetParserImpl(), tableReaderFactory, new PrincipalReaderFactoryImpl());
   }
 
   BuildCommand(
@@ -69,6 +72,12 @@ public class BuildCommand {
 
     PermissionsRuleset config = permissionsRulesetParser.parse(options);
 
+    // Tables and principals are read once, when the first mapper needs them, and shared by all.
+    Supplier<TableReader> tableReader =
+        Suppliers.memoize(() -> tableReaderFactory.getInstance(options));
+    Supplier<PrincipalReader> principalReader =
+        Suppliers.memoize(() -> principalReaderFactory.getInstance(options));
+
     List<RuleSetMapper<IamBinding>> mappers = new ArrayList<>();
 
     // Handle GCS permissions.
@@ -82,8 +91,8 @@ public class BuildCommand {
                           rules ->
                               new RangerHiveToGcsIamBindingMapper(
                                   rules,
-                                  tableReaderFactory.getInstance(options),
-                                  principalReaderFactory.getInstance(options),
+                                  tableReader.get(),
+                                  principalReader.get(),
                                   new RangerPolicyReader(options.getDumperRanger()),
                                   new RangerServiceReader(options.getDumperRanger()))),
                   Optional.ofNullable(gcsRuleset.rangerHiveHdfsMappingRules())
@@ -91,8 +100,8 @@ public class BuildCommand {
                           rules ->
                               new RangerHdfsToGcsIamBindingMapper(
                                   rules,
-                                  tableReaderFactory.getInstance(options),
-                                  principalReaderFactory.getInstance(options),
+                                  tableReader.get(),
+                                  principalReader.get(),
                                   new RangerPolicyReader(options.getDumperRanger()),
                                   new RangerServiceReader(options.getDumperRanger()))),
                   Optional.ofNullable(gcsRuleset.hdfsMappingRules())
@@ -105,8 +114,8 @@ public class BuildCommand {
                             }
                             return new HdfsToGcsIamBindingMapper(
                                 rules,
-                                tableReaderFactory.getInstance(options),
-                                principalReaderFactory.getInstance(options),
+                                tableReader.get(),
+                                principalReader.get(),
                                 new HdfsPermissionReader(options.getDumperHdfs()));
                           }))
               .filter(Optional::isPresent)
@@ -124,8 +133,8 @@ public class BuildCommand {
                           rules ->
                               new RangerHiveToBqTableIamBindingMapper(
                                   rules,
-                                  tableReaderFactory.getInstance(options),
-                                  principalReaderFactory.getInstance(options),
+                                  tableReader.get(),
+                                  principalReader.get(),
                                   new RangerPolicyReader(options.getDumperRanger()),
                                   new RangerServiceReader(options.getDumperRanger()))),
                   Optional.ofNullable(bqRuleset.rangerHdfsMappingRules())
@@ -133,8 +142,8 @@ public class BuildCommand {
                           rules ->
                               new RangerHdfsToBqTableIamBindingMapper(
                                   rules,
-                                  tableReaderFactory.getInstance(options),
-                                  principalReaderFactory.getInstance(options),
+                                  tableReader.get(),
+                                  principalReader.get(),
                                   new RangerPolicyReader(options.getDumperRanger()),
                                   new RangerServiceReader(options.getDumperRanger()))),
                   Optional.ofNullable(bqRuleset.hdfsMappingRules())
@@ -147,8 +156,8 @@ public class BuildCommand {
                             }
                             return new HdfsToBqTableIamBindingMapper(
                                 rules,
-                                tableReaderFactory.getInstance(options),
-                                principalReaderFactory.getInstance(options),
+                                tableReader.get(),
+                                principalReader.get(),
                                 new HdfsPermissionReader(options.getDumperHdfs()));
                           }))
               .filter(Optional::isPresent)
@@ -158,12 +167,20 @@ public class BuildCommand {
 
     PermissionMerge merge =
         PermissionMerge.newInstance(ImmutableList.copyOf(mappers), config.roleMappings());
-    ImmutableList<IamBinding> iamBindings = merge.run();
     FileProcessor.applyConsumer(
         options.getOutputPermissions(),
-        path ->
-            Files.write(
-                path, Permissions.YAML_MAPPER.writeValueAsBytes(Permissions.create(iamBindings))));
+        path -> {
+          try (PermissionsWriter writer =
+                  PermissionsWriter.create(path, options.getOutputShards());
+              Stream<IamBinding> iamBindings = merge.stream(options.getNumThreads())) {
+            for (IamBinding iamBinding : (Iterable<IamBinding>) iamBindings::iterator) {
+              writer.write(iamBinding);
+            }
+            // Only a complete merge replaces the previous output, which apply could otherwise
+            // take for a complete one.
+            writer.commit();
+          }
+        });
   }
 
   private static final class PermissionsRulesetParserImpl implements PermissionsRulesetParser {
@@ -189,11 +206,13 @@ public class BuildCommand {
 
   private static final class TableReaderFactoryImpl implements TableReaderFactory {
 
-    // TODO cache this? b/387223930
     @Override
     public TableReader getInstance(final BuildOptions options) {
       return new TableReader(
-          options.getTables(), options.getNumThreads(), options.getTimeoutSeconds());
+          options.getTables(),
+          options.getNumThreads(),
+          options.getTimeoutSeconds(),
+          options.getTablesSnapshot());
     }
   }
 
@@ -204,7 +223,6 @@ public class BuildCommand {
 
   private static final class PrincipalReaderFactoryImpl implements PrincipalReaderFactory {
 
-    // TODO cache this? b/387223930
     @Override
     public PrincipalReader getInstance(final BuildOptions options) {
       return new PrincipalReader(options.getPrincipals());
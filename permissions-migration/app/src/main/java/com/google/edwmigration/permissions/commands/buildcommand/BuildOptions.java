@@ -19,6 +19,7 @@ package com.google.edwmigration.permissions.commands.buildcommand;
 import com.google.edwmigration.permissions.commands.CommandArgsHelp;
 import java.io.IOException;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import joptsimple.OptionParser;
 import joptsimple.OptionSet;
 import joptsimple.OptionSpec;
@@ -31,12 +32,16 @@ public class BuildOptions {
 
   public static final String OPT_TABLES = "tables";
 
+  public static final String OPT_TABLES_SNAPSHOT = "tables-snapshot";
+
   public static final String OPT_PRINCIPALS = "principals";
 
   public static final String OPT_PERMISSIONS_RULESET = "permissions-ruleset";
 
   public static final String OPT_OUTPUT_PERMISSIONS = "output-permissions";
 
+  public static final String OPT_OUTPUT_SHARDS = "output-shards";
+
   private static final OptionParser parser = new OptionParser();
 
   private static final OptionSpec<String> optionDumperRanger =
@@ -63,6 +68,14 @@ public class BuildOptions {
           .describedAs("gs://BUCKET_NAME/tables/")
           .required();
 
+  private static final OptionSpec<String> optionTablesSnapshot =
+      parser
+          .accepts(
+              OPT_TABLES_SNAPSHOT,
+              "Local file caching the tables metadata. The tables path is still listed, and the file is read instead of the tables when it was taken from the same path and no table was added, removed or overwritten since. It is written otherwise.")
+          .withRequiredArg()
+          .describedAs("/path/to/tables.snapshot");
+
   private static final OptionSpec<String> optionPrincipals =
       parser
           .accepts(OPT_PRINCIPALS, "Local or GCS path to the principals yaml file.")
@@ -85,6 +98,18 @@ public class BuildOptions {
           .defaultsTo("permissions.yaml")
           .describedAs("/path/to/permissions.yaml");
 
+  private static final OptionSpec<Integer> optionOutputShards =
+      parser
+          .accepts(
+              OPT_OUTPUT_SHARDS,
+              "Number of files to split the output permissions into, each named like"
+                  + " permissions-00000-of-00004.yaml next to the output path. All permissions of"
+                  + " a resource are in the same file. The output is gzipped if its path ends"
+                  + " with .gz.")
+          .withRequiredArg()
+          .ofType(Integer.class)
+          .defaultsTo(1);
+
   private static final OptionSpec<Integer> optionNumThreads =
       parser
           .accepts("num-threads", "Number of parallel threads.")
@@ -125,6 +150,11 @@ public class BuildOptions {
     return options.valueOf(optionTables);
   }
 
+  @Nullable
+  public String getTablesSnapshot() {
+    return options.valueOf(optionTablesSnapshot);
+  }
+
   @Nonnull
   public String getPrincipals() {
     return options.valueOf(optionPrincipals);
@@ -140,6 +170,10 @@ public class BuildOptions {
     return options.valueOf(optionOutputPermissions);
   }
 
+  public int getOutputShards() {
+    return options.valueOf(optionOutputShards);
+  }
+
   public int getNumThreads() {
     return options.valueOf(optionNumThreads);
   }
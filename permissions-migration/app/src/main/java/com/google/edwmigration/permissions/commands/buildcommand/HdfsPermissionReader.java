@@ -22,6 +22,12 @@ import com.google.edwmigration.permissions.models.HdfsPermission;
 public class HdfsPermissionReader extends CsvFileStreamProcessor<HdfsPermission> {
 
   public HdfsPermissionReader(String dumperHdfs) {
-    super(HdfsPermission.CSV_MAPPER, dumperHdfs, "hdfs.csv", HdfsPermission.class);
+    // The scan can be far larger than the heap; the mapper sorts it as it is parsed.
+    super(
+        HdfsPermission.CSV_MAPPER,
+        dumperHdfs,
+        "hdfs.csv",
+        HdfsPermission.class,
+        /* buffered= */ false);
   }
 }
@@ -19,107 +19,196 @@ package com.google.edwmigration.permissions.commands.buildcommand;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.edwmigration.permissions.utils.ExternalSorter.readString;
+import static com.google.edwmigration.permissions.utils.ExternalSorter.writeString;
 import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.groupingBy;
 
-import com.google.common.collect.ArrayListMultimap;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+import com.google.common.collect.Streams;
 import com.google.edwmigration.permissions.ProcessingException;
 import com.google.edwmigration.permissions.models.IamBinding;
+import com.google.edwmigration.permissions.models.IamBinding.ResourceType;
+import com.google.edwmigration.permissions.models.Permissions;
 import com.google.edwmigration.permissions.models.PermissionsRuleset.RoleMapping;
+import com.google.edwmigration.permissions.utils.ExternalSorter;
+import com.google.edwmigration.permissions.utils.ExternalSorter.Codec;
 import com.google.edwmigration.permissions.utils.Mapper;
 import com.google.edwmigration.permissions.utils.RuleSetMapper;
 import com.google.edwmigration.permissions.utils.RuleSetMapper.Action;
-import java.util.AbstractMap.SimpleEntry;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Merges the results of one or more permission mappers. */
+/**
+ * Merges the results of one or more permission mappers.
+ *
+ * <p>Bindings are sorted by target resource, spilling to disk as needed, and the bindings of each
+ * target are merged on their own, so that only the bindings of one target are held in memory. The
+ * merged bindings come out ordered by target.
+ */
 class PermissionMerge implements Mapper<IamBinding> {
 
   private static final Logger LOG = LoggerFactory.getLogger(PermissionMerge.class);
 
+  /** The number of records sorted in memory before spilling to disk. */
+  static final int DEFAULT_MAX_RECORDS_IN_MEMORY = 1_000_000;
+
+  /** The number of threads evaluating rules when none is given. */
+  private static final int DEFAULT_NUM_THREADS = Runtime.getRuntime().availableProcessors();
+
+  /**
+   * Writes the sources of spilled bindings with the settings of the output, e.g. leaving out null
+   * fields, so that a spilled binding is written out the same as one kept in memory.
+   */
+  private static final ObjectMapper SOURCES_MAPPER =
+      Permissions.YAML_MAPPER.copyWith(new JsonFactory());
+
+  private static final TypeReference<ImmutableListMultimap<String, Object>> SOURCES_TYPE =
+      new TypeReference<ImmutableListMultimap<String, Object>>() {};
+
+  private static final Codec<IamBinding> BINDING_CODEC =
+      new Codec<IamBinding>() {
+        @Override
+        public void write(DataOutput out, IamBinding binding) throws IOException {
+          ResourceType resourceType = binding.resourceType();
+          writeString(out, resourceType == null ? null : resourceType.name());
+          writeString(out, binding.resourcePath());
+          writeString(out, binding.principal());
+          writeString(out, binding.role());
+          out.writeInt(binding.priority());
+          writeSources(out, binding.sourcePermissions());
+          writeSources(out, binding.sourcePrincipals());
+        }
+
+        @Override
+        public IamBinding read(DataInput in) throws IOException {
+          String resourceType = readString(in);
+          return IamBinding.builder()
+              .resourceType(resourceType == null ? null : ResourceType.valueOf(resourceType))
+              .resourcePath(readString(in))
+              .principal(readString(in))
+              .role(readString(in))
+              .priority(in.readInt())
+              .sourcePermissions(readSources(in))
+              .sourcePrincipals(readSources(in))
+              .build();
+        }
+      };
+
   private final List<RuleSetMapper<IamBinding>> mappers;
 
   private final ImmutableMap<String, RoleMapping> roleMappings;
 
-  private final ImmutableMultimap<String, String> roleSuperset;
+  /** The roles directly including each role. */
+  private final ImmutableListMultimap<String, String> directRoleSuperset;
+
+  /** The roles including each role, directly or not, computed on first use. */
+  private final Map<String, ImmutableSet<String>> roleSuperset = new ConcurrentHashMap<>();
+
+  private final int maxRecordsInMemory;
 
   private PermissionMerge(
-      ImmutableList<RuleSetMapper<IamBinding>> mappers, Map<String, RoleMapping> roles) {
+      ImmutableList<RuleSetMapper<IamBinding>> mappers,
+      Map<String, RoleMapping> roles,
+      int maxRecordsInMemory) {
     roleMappings = Optional.ofNullable(roles).map(ImmutableMap::copyOf).orElse(ImmutableMap.of());
-    // Builds a map of all the roles included by other (possibly multiple) roles.
-    ArrayListMultimap<String, String> roleSuperset =
-        ArrayListMultimap.create(
-            roleMappings.entrySet().stream()
-                .flatMap(
-                    entry ->
-                        entry.getValue().includes() == null
-                            ? Stream.of()
-                            : entry.getValue().includes().stream()
-                                .map(include -> new SimpleEntry<>(include, entry.getKey())))
-                .collect(
-                    ImmutableListMultimap.toImmutableListMultimap(
-                        SimpleEntry::getKey, SimpleEntry::getValue)));
-    // Compute the transitive closure of the role-superset relationship.
-    for (int size = 0; size != roleSuperset.size(); size = roleSuperset.size()) {
-      ImmutableSet.copyOf(roleSuperset.entries()).stream()
-          .flatMap(
-              entry ->
-                  roleSuperset.get(entry.getValue()).stream()
-                      .map(superset -> new SimpleEntry<>(entry.getKey(), superset)))
-          .forEach(entry -> roleSuperset.put(entry.getKey(), entry.getValue()));
-    }
-    this.roleSuperset = ImmutableMultimap.copyOf(roleSuperset);
+    // Builds a map of the roles directly included by other (possibly multiple) roles.
+    ImmutableListMultimap.Builder<String, String> directRoleSuperset =
+        ImmutableListMultimap.builder();
+    roleMappings.forEach(
+        (role, mapping) -> {
+          if (mapping.includes() != null) {
+            mapping.includes().forEach(include -> directRoleSuperset.put(include, role));
+          }
+        });
+    this.directRoleSuperset = directRoleSuperset.build();
     this.mappers = mappers;
+    this.maxRecordsInMemory = maxRecordsInMemory;
     checkArgument(!mappers.isEmpty(), "At least one permission mapper should be defined");
   }
 
   static PermissionMerge newInstance(
       ImmutableList<RuleSetMapper<IamBinding>> mappers, Map<String, RoleMapping> roles) {
-    return new PermissionMerge(mappers, roles);
+    return newInstance(mappers, roles, DEFAULT_MAX_RECORDS_IN_MEMORY);
+  }
+
+  @VisibleForTesting
+  static PermissionMerge newInstance(
+      ImmutableList<RuleSetMapper<IamBinding>> mappers,
+      Map<String, RoleMapping> roles,
+      int maxRecordsInMemory) {
+    return new PermissionMerge(mappers, roles, maxRecordsInMemory);
   }
 
   public ImmutableList<IamBinding> run() {
-    return mappers.stream()
-        .flatMap(expander -> runSingleMapper(expander).stream())
-        .filter(result -> result.action() == Action.MAP)
-        .map(RuleSetMapper.Result::value)
-        .collect(groupingBy(this::getTarget, groupingBy(IamBinding::priority)))
-        .entrySet()
-        .stream()
-        .flatMap(this::mergePermissions)
-        .collect(toImmutableList());
+    try (Stream<IamBinding> stream = stream(DEFAULT_NUM_THREADS)) {
+      return stream.collect(toImmutableList());
+    }
+  }
+
+  /**
+   * Returns the merged bindings, evaluating the rules of each mapper on at most {@code numThreads}
+   * threads. The results of each mapper are sorted as they are mapped, so they are never held in
+   * memory at once. The stream must be closed to release the temporary files backing it.
+   */
+  public Stream<IamBinding> stream(int numThreads) {
+    Stream<Entry<String, IamBinding>> byTarget;
+    try (ExternalSorter<IamBinding>.Sort sort =
+        new ExternalSorter<>(BINDING_CODEC, PermissionMerge::getTarget, maxRecordsInMemory)
+            .newSort()) {
+      for (RuleSetMapper<IamBinding> mapper : mappers) {
+        sortSingleMapper(mapper, numThreads, sort);
+      }
+      byTarget = sort.finish();
+    }
+    return Streams.stream(new TargetIterator(byTarget.iterator()))
+        .flatMap(List::stream)
+        .onClose(byTarget::close);
   }
 
-  private String getTarget(IamBinding iamBinding) {
+  private static String getTarget(IamBinding iamBinding) {
     return iamBinding.resourceType().name() + ":" + iamBinding.resourcePath();
   }
 
-  private Stream<IamBinding> mergePermissions(
-      Entry<String, Map<Integer, List<IamBinding>>> pathPermissions) {
-    // Group by priority, identify the set of permissions matching the highest priority.
-    Map<Integer, List<IamBinding>> permissionsByPriority = pathPermissions.getValue();
-    if (permissionsByPriority.isEmpty()) {
-      return Stream.of();
-    }
-    int highestPriority = permissionsByPriority.keySet().stream().max(Integer::compareTo).get();
+  private ImmutableList<IamBinding> mergePermissions(List<IamBinding> targetPermissions) {
+    // Identify the set of permissions matching the highest priority.
+    int highestPriority =
+        targetPermissions.stream().mapToInt(IamBinding::priority).max().getAsInt();
     ImmutableMultimap<String, IamBinding> pathPrincipalPermissions =
-        permissionsByPriority.get(highestPriority).stream()
+        targetPermissions.stream()
+            .filter(permission -> permission.priority() == highestPriority)
             .collect(
                 ImmutableListMultimap.toImmutableListMultimap(IamBinding::principal, identity()));
     return pathPrincipalPermissions.asMap().entrySet().stream()
-        .flatMap(this::mergePathPrincipalPermissions);
+        .flatMap(this::mergePathPrincipalPermissions)
+        .collect(toImmutableList());
   }
 
   private Stream<IamBinding> mergePathPrincipalPermissions(
@@ -139,9 +228,7 @@ class PermissionMerge implements Mapper<IamBinding> {
     return roles.values().stream()
         // If the given role is included in another one, skip it.
         .filter(
-            permission ->
-                !roleSuperset.containsKey(permission.role())
-                    || roleSuperset.get(permission.role()).stream().noneMatch(roles::containsKey))
+            permission -> getRoleSuperset(permission.role()).stream().noneMatch(roles::containsKey))
         // Rename/expand role if `renameTo` is present.
         .flatMap(
             permission ->
@@ -163,13 +250,77 @@ class PermissionMerge implements Mapper<IamBinding> {
                                 .build()));
   }
 
-  private ImmutableList<RuleSetMapper.Result<IamBinding>> runSingleMapper(
-      RuleSetMapper<IamBinding> mapper) {
+  /** Returns the transitive closure of the role-superset relationship for the given role. */
+  private ImmutableSet<String> getRoleSuperset(String role) {
+    return roleSuperset.computeIfAbsent(role, this::computeRoleSuperset);
+  }
+
+  private ImmutableSet<String> computeRoleSuperset(String role) {
+    Set<String> visited = new LinkedHashSet<>();
+    Queue<String> pending = new ArrayDeque<>(directRoleSuperset.get(role));
+    while (!pending.isEmpty()) {
+      String next = pending.remove();
+      if (visited.add(next)) {
+        pending.addAll(directRoleSuperset.get(next));
+      }
+    }
+    return ImmutableSet.copyOf(visited);
+  }
+
+  private static void sortSingleMapper(
+      RuleSetMapper<IamBinding> mapper, int numThreads, ExternalSorter<IamBinding>.Sort sort) {
     try {
-      return mapper.run();
+      mapper.process(
+          numThreads,
+          results -> {
+            results
+                .filter(result -> result.action() == Action.MAP)
+                .forEach(result -> sort.add(result.value()));
+            return null;
+          });
     } catch (ProcessingException e) {
+      // The bindings mapped before the failure are already sorted, and are kept.
       LOG.error("Exception when running mapper {}: ", mapper.getClass(), e);
-      return ImmutableList.of();
+    }
+  }
+
+  private static void writeSources(
+      DataOutput out, @Nullable ImmutableMultimap<String, Object> sources) throws IOException {
+    writeString(out, sources == null ? null : SOURCES_MAPPER.writeValueAsString(sources));
+  }
+
+  @Nullable
+  private static ImmutableMultimap<String, Object> readSources(DataInput in) throws IOException {
+    String sources = readString(in);
+    return sources == null ? null : SOURCES_MAPPER.readValue(sources, SOURCES_TYPE);
+  }
+
+  /** Merges the bindings of each target, given the bindings sorted by target. */
+  private class TargetIterator extends AbstractIterator<ImmutableList<IamBinding>> {
+
+    private final PeekingIterator<Entry<String, IamBinding>> sorted;
+
+    private long count;
+
+    private TargetIterator(Iterator<Entry<String, IamBinding>> sorted) {
+      this.sorted = Iterators.peekingIterator(sorted);
+    }
+
+    @CheckForNull
+    @Override
+    protected ImmutableList<IamBinding> computeNext() {
+      if (!sorted.hasNext()) {
+        LOG.info("Merged permissions of {} targets", count);
+        return endOfData();
+      }
+      String target = sorted.peek().getKey();
+      // The sort is stable, so the bindings of a target keep the order they were produced in.
+      ImmutableList.Builder<IamBinding> bindings = ImmutableList.builder();
+      while (sorted.hasNext() && sorted.peek().getKey().equals(target)) {
+        bindings.add(sorted.next().getValue());
+      }
+      count++;
+      return mergePermissions(bindings.build());
     }
   }
 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy.PolicyResource;
+import com.google.re2j.Pattern;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranger HDFS policies compiled into a trie of path segments.
+ *
+ * <p>Each path pattern is compiled once and stored at the trie node for the directories of its
+ * literal prefix, e.g. {@code /data/sales/table*} is stored under {@code data/sales}, while {@code
+ * /data/sales?/table} is stored under {@code data}. A lookup only tries the patterns on the nodes
+ * along the path of the table, and returns the matching policies in their original order, as if
+ * every policy had been tried in turn.
+ */
+final class RangerHdfsPolicyIndex {
+
+  private static final class Entry {
+
+    private final int policyIndex;
+
+    private final Pattern pattern;
+
+    private Entry(int policyIndex, Pattern pattern) {
+      this.policyIndex = policyIndex;
+      this.pattern = pattern;
+    }
+  }
+
+  private static final class Node {
+
+    private final Map<String, Node> children = new HashMap<>();
+
+    private final List<Entry> entries = new ArrayList<>();
+  }
+
+  private final ImmutableList<Policy> policies;
+
+  private final Node root = new Node();
+
+  RangerHdfsPolicyIndex(ImmutableList<Policy> policies, String pathResourceName) {
+    this.policies = policies;
+    for (int i = 0; i < policies.size(); i++) {
+      Policy policy = policies.get(i);
+      PolicyResource pathResource = policy.resources().get(pathResourceName);
+      if (pathResource == null) {
+        throw new IllegalStateException(
+            "Ranger HDFS policy " + policy.name() + " has no path resource");
+      }
+      boolean recursive = Boolean.TRUE.equals(pathResource.isRecursive());
+      for (String path : pathResource.values()) {
+        RangerPathPattern pattern = new RangerPathPattern(path, recursive);
+        nodeFor(pattern.literalPrefix()).entries.add(new Entry(i, pattern.compile()));
+      }
+    }
+  }
+
+  private Node nodeFor(String prefix) {
+    Node node = root;
+    int start = 0;
+    for (int slash = prefix.indexOf('/'); slash >= 0; slash = prefix.indexOf('/', start)) {
+      node = node.children.computeIfAbsent(prefix.substring(start, slash), key -> new Node());
+      start = slash + 1;
+    }
+    return node;
+  }
+
+  /** Returns the policies with a path pattern matching the given path, in their original order. */
+  ImmutableList<Policy> matchingPolicies(String path) {
+    BitSet matches = new BitSet();
+    Node node = root;
+    int start = 0;
+    while (node != null) {
+      for (Entry entry : node.entries) {
+        if (!matches.get(entry.policyIndex) && entry.pattern.matches(path)) {
+          matches.set(entry.policyIndex);
+        }
+      }
+      int slash = path.indexOf('/', start);
+      if (slash < 0) {
+        break;
+      }
+      node = node.children.get(path.substring(start, slash));
+      start = slash + 1;
+    }
+    ImmutableList.Builder<Policy> builder = ImmutableList.builder();
+    for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+      builder.add(policies.get(i));
+    }
+    return builder.build();
+  }
+
+  /** Returns the number of patterns a lookup of the given path tries. */
+  @VisibleForTesting
+  int candidateCount(String path) {
+    int count = 0;
+    Node node = root;
+    int start = 0;
+    while (node != null) {
+      count += node.entries.size();
+      int slash = path.indexOf('/', start);
+      if (slash < 0) {
+        break;
+      }
+      node = node.children.get(path.substring(start, slash));
+      start = slash + 1;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Maps;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy.PolicyResource;
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * Ranger Hive policies indexed by their database and table resource values.
+ *
+ * <p>A lookup returns the candidate policies for a table: the ones naming its database or {@code
+ * *}, and its table or {@code *}, plus the ones without a database resource, which are always
+ * candidates so that the caller sees (and reports) them as before. Candidates are returned in their
+ * original order and still have to be checked with {@link
+ * AbstractRangerHiveToIamBindingMapper#policyMatchesTable}.
+ */
+final class RangerHivePolicyIndex {
+
+  private static final String ANY = "*";
+
+  private final ImmutableList<Policy> policies;
+
+  private final ImmutableListMultimap<Map.Entry<String, String>, Integer> byDatabaseAndTable;
+
+  private final BitSet unindexed = new BitSet();
+
+  RangerHivePolicyIndex(
+      ImmutableList<Policy> policies,
+      String databaseResourceName,
+      String tableResourceName,
+      PolicyResource defaultTableResource) {
+    this.policies = policies;
+    ImmutableListMultimap.Builder<Map.Entry<String, String>, Integer> builder =
+        ImmutableListMultimap.builder();
+    for (int i = 0; i < policies.size(); i++) {
+      Map<String, PolicyResource> resources = policies.get(i).resources();
+      PolicyResource databaseResource =
+          resources == null ? null : resources.get(databaseResourceName);
+      if (databaseResource == null) {
+        unindexed.set(i);
+        continue;
+      }
+      PolicyResource tableResource =
+          resources.getOrDefault(tableResourceName, defaultTableResource);
+      for (String database : databaseResource.values()) {
+        for (String table : tableResource.values()) {
+          builder.put(Maps.immutableEntry(database, table), i);
+        }
+      }
+    }
+    this.byDatabaseAndTable = builder.build();
+  }
+
+  private BitSet candidates(String database, String table) {
+    BitSet candidates = (BitSet) unindexed.clone();
+    for (String databaseKey : new String[] {database, ANY}) {
+      for (String tableKey : new String[] {table, ANY}) {
+        for (int i : byDatabaseAndTable.get(Maps.immutableEntry(databaseKey, tableKey))) {
+          candidates.set(i);
+        }
+      }
+    }
+    return candidates;
+  }
+
+  /** Returns the candidate policies for the given table, in their original order. */
+  ImmutableList<Policy> candidatePolicies(String database, String table) {
+    BitSet candidates = candidates(database, table);
+    ImmutableList.Builder<Policy> builder = ImmutableList.builder();
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      builder.add(policies.get(i));
+    }
+    return builder.build();
+  }
+
+  @VisibleForTesting
+  int candidateCount(String database, String table) {
+    return candidates(database, table).cardinality();
+  }
+}
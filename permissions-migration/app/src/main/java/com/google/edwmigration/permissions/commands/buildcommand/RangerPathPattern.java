@@ -31,6 +31,20 @@ public class RangerPathPattern {
     this.recursive = recursive;
   }
 
+  /**
+   * Returns the part of the pattern before its first wildcard. Every path matched by the compiled
+   * pattern starts with this prefix.
+   */
+  public String literalPrefix() {
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '*' || c == '?') {
+        return pattern.substring(0, i);
+      }
+    }
+    return pattern;
+  }
+
   /** Convert a Ranger wildcard pattern into a compiled regex. */
   public Pattern compile() {
     ArrayList<String> patterns = new ArrayList<>();
@@ -16,36 +16,131 @@
  */
 package com.google.edwmigration.permissions.commands.buildcommand;
 
+import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.edwmigration.permissions.utils.ExternalSorter.readString;
+import static com.google.edwmigration.permissions.utils.ExternalSorter.writeString;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.cloud.bigquery.TableId;
+import com.google.cloud.storage.Blob;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.edwmigration.permissions.GcsParallelObjectsProcessor;
 import com.google.edwmigration.permissions.GcsPath;
 import com.google.edwmigration.permissions.commands.expand.StreamProcessor;
 import com.google.edwmigration.permissions.models.Table;
 import com.google.edwmigration.permissions.models.TableIdParser;
 import com.google.edwmigration.permissions.models.TableTranslationService;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import com.google.edwmigration.permissions.utils.ExternalSorter.Codec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Reads the tables once and keeps them in memory for every mapper of a build.
+ *
+ * <p>When a snapshot file is given, the tables path is only listed, and the tables are read from
+ * the snapshot instead of GCS if it was taken from the same path and the listed objects are
+ * unchanged since, by name, generation and size. The snapshot is (re)written after reading GCS
+ * otherwise.
+ */
 public class TableReader implements StreamProcessor<Table> {
 
   private static final Logger LOG = LoggerFactory.getLogger(TableReader.class);
 
   private static final String YAML_SUFFIX = ".yaml";
 
+  /** Bumped whenever the snapshot layout or {@link #TABLE_CODEC} changes. */
+  private static final int SNAPSHOT_VERSION = 2;
+
+  static final Codec<Table> TABLE_CODEC =
+      new Codec<Table>() {
+        @Override
+        public void write(DataOutput out, Table table) throws IOException {
+          writeString(out, table.name());
+          writeString(out, table.schemaName());
+          writeString(out, table.hdfsPath());
+          writeString(out, table.gcsPath());
+          writeString(out, table.bqTable());
+        }
+
+        @Override
+        public Table read(DataInput in) throws IOException {
+          return Table.create(
+              readString(in), readString(in), readString(in), readString(in), readString(in));
+        }
+      };
+
   private final int numThreads;
   private final int timeoutSeconds;
   private final ImmutableList<Table> tables;
 
   public TableReader(String tablesYaml, int numThreads, int timeoutSeconds) {
+    this(tablesYaml, numThreads, timeoutSeconds, /* snapshot= */ null);
+  }
+
+  public TableReader(
+      String tablesYaml, int numThreads, int timeoutSeconds, @Nullable String snapshot) {
+    this(
+        tablesYaml,
+        numThreads,
+        timeoutSeconds,
+        snapshot,
+        () -> listTables(tablesYaml, numThreads, timeoutSeconds));
+  }
+
+  /**
+   * Creates a reader comparing the snapshot, if any, with the listing fingerprint returned by the
+   * supplier instead of listing the tables path.
+   */
+  @VisibleForTesting
+  TableReader(
+      String tablesYaml,
+      int numThreads,
+      int timeoutSeconds,
+      @Nullable String snapshot,
+      Supplier<String> listing) {
     this.numThreads = numThreads;
     this.timeoutSeconds = timeoutSeconds;
-    tables = readTables(tablesYaml);
+    if (snapshot == null) {
+      tables = readTables(tablesYaml);
+      return;
+    }
+    Path snapshotPath = Paths.get(snapshot);
+    // Listed before reading, so that a table changed while reading makes the next run read again.
+    String fingerprint = listing.get();
+    Optional<ImmutableList<Table>> snapshotTables =
+        readSnapshot(snapshotPath, tablesYaml, fingerprint);
+    if (snapshotTables.isPresent()) {
+      tables = snapshotTables.get();
+      LOG.info("Read {} tables from snapshot {}", tables.size(), snapshotPath);
+    } else {
+      tables = readTables(tablesYaml);
+      writeSnapshot(snapshotPath, tablesYaml, fingerprint, tables);
+    }
   }
 
   @Override
@@ -56,30 +151,142 @@ public class TableReader implements StreamProcessor<Table> {
   private ImmutableList<Table> readTables(String tablesPath) {
     GcsParallelObjectsProcessor gcsParallelObjectsProcessor =
         new GcsParallelObjectsProcessor(GcsPath.parse(tablesPath), numThreads, timeoutSeconds);
-    ConcurrentLinkedQueue<Table> tablesQueue = new ConcurrentLinkedQueue<>();
-    gcsParallelObjectsProcessor.Run(
-        blob -> {
-          try {
-            if (!blob.getName().toLowerCase().endsWith(YAML_SUFFIX)) {
-              return;
-            }
-            TableTranslationService tableTS =
-                TableTranslationService.YAML_MAPPER.readValue(
-                    blob.getContent(), TableTranslationService.class);
-            TableId bqTableId = TableIdParser.parseTranslationId(tableTS.targetName());
-            Table table =
-                Table.create(
-                    /* name= */ bqTableId.getTable(),
-                    /* schemaName= */ bqTableId.getDataset(),
-                    /* hdfsPath= */ tableTS.sourceLocations().get(0),
-                    /* gcsPath= */ tableTS.targetLocations().get(0),
-                    /* bqPath= */ tableTS.targetName());
-            tablesQueue.add(table);
-          } catch (Exception e) {
-            throw new RuntimeException(
-                String.format("Exception while processing blob: %s", blob.getName()), e);
-          }
-        });
-    return tablesQueue.stream().collect(toImmutableList());
+    // Keep the listing order, so that the tables, and everything built from them, don't depend on
+    // which downloads happen to finish first.
+    try (Stream<Table> tables =
+        gcsParallelObjectsProcessor.stream(
+            TableReader::isTable,
+            TableReader::readTable,
+            /* ordered= */ true)) {
+      return tables.collect(toImmutableList());
+    }
+  }
+
+  private static boolean isTable(Blob blob) {
+    return blob.getName().toLowerCase().endsWith(YAML_SUFFIX);
+  }
+
+  private static String listTables(String tablesPath, int numThreads, int timeoutSeconds) {
+    return fingerprint(
+        new GcsParallelObjectsProcessor(GcsPath.parse(tablesPath), numThreads, timeoutSeconds)
+            .list());
+  }
+
+  /**
+   * Returns a fingerprint of the listed tables, which changes when a table is added, removed or
+   * overwritten, since GCS gives every write of an object a new generation.
+   */
+  @VisibleForTesting
+  static String fingerprint(Iterator<Blob> blobs) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    while (blobs.hasNext()) {
+      Blob blob = blobs.next();
+      if (!isTable(blob)) {
+        continue;
+      }
+      hasher
+          .putString(blob.getName(), UTF_8)
+          .putByte((byte) 0)
+          .putLong(firstNonNull(blob.getGeneration(), -1L))
+          .putLong(firstNonNull(blob.getSize(), -1L));
+    }
+    return hasher.hash().toString();
+  }
+
+  private static Table readTable(Blob blob) {
+    try {
+      TableTranslationService tableTS =
+          TableTranslationService.YAML_MAPPER.readValue(
+              blob.getContent(), TableTranslationService.class);
+      TableId bqTableId = TableIdParser.parseTranslationId(tableTS.targetName());
+      return Table.create(
+          /* name= */ bqTableId.getTable(),
+          /* schemaName= */ bqTableId.getDataset(),
+          /* hdfsPath= */ tableTS.sourceLocations().get(0),
+          /* gcsPath= */ tableTS.targetLocations().get(0),
+          /* bqPath= */ tableTS.targetName());
+    } catch (Exception e) {
+      throw new RuntimeException(
+          String.format("Exception while processing blob: %s", blob.getName()), e);
+    }
+  }
+
+  /**
+   * Returns the tables of the snapshot, or empty if there is none, it was taken from another tables
+   * path or another listing of it, or it can't be read.
+   */
+  @VisibleForTesting
+  static Optional<ImmutableList<Table>> readSnapshot(Path path, String tablesPath, String listing) {
+    try (DataInputStream in =
+        new DataInputStream(
+            new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))))) {
+      if (in.readInt() != SNAPSHOT_VERSION) {
+        LOG.info("Ignoring snapshot {} of an older format", path);
+        return Optional.empty();
+      }
+      String source = readString(in);
+      if (!Objects.equals(source, tablesPath)) {
+        LOG.info("Ignoring snapshot {} taken from {}", path, source);
+        return Optional.empty();
+      }
+      if (!Objects.equals(readString(in), listing)) {
+        LOG.info("Ignoring snapshot {}, the tables under {} changed since", path, tablesPath);
+        return Optional.empty();
+      }
+      int count = in.readInt();
+      ImmutableList.Builder<Table> tables = ImmutableList.builderWithExpectedSize(count);
+      for (int i = 0; i < count; i++) {
+        tables.add(TABLE_CODEC.read(in));
+      }
+      return Optional.of(tables.build());
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Ignoring unreadable snapshot {}", path, e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Writes the tables to a snapshot, as if they had been read from the given tables path when its
+   * listing had the given fingerprint. The file is replaced atomically, so a failed write leaves
+   * the previous snapshot, if any, in place; failures are logged since the snapshot is only a
+   * cache.
+   */
+  public static void writeSnapshot(
+      Path path, String tablesPath, String listing, ImmutableList<Table> tables) {
+    Path absolutePath = path.toAbsolutePath();
+    Path tempFile = null;
+    try {
+      tempFile =
+          Files.createTempFile(
+              absolutePath.getParent(), absolutePath.getFileName().toString(), ".tmp");
+      try (DataOutputStream out =
+          new DataOutputStream(
+              new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tempFile))))) {
+        out.writeInt(SNAPSHOT_VERSION);
+        writeString(out, tablesPath);
+        writeString(out, listing);
+        out.writeInt(tables.size());
+        for (Table table : tables) {
+          TABLE_CODEC.write(out, table);
+        }
+      }
+      Files.move(
+          tempFile,
+          absolutePath,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      LOG.info("Wrote {} tables to snapshot {}", tables.size(), path);
+    } catch (IOException e) {
+      LOG.warn("Failed to write snapshot {}", path, e);
+      if (tempFile != null) {
+        try {
+          Files.deleteIfExists(tempFile);
+        } catch (IOException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+      }
+    }
   }
 }
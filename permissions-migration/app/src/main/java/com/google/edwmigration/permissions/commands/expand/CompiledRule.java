@@ -41,7 +41,7 @@ public class CompiledRule {
     }
 
     /** Evaluate the field value for the given context. */
-    public Object eval(ImmutableMap<String, Object> context) throws CelEvaluationException {
+    public Object eval(RuleContext context) throws CelEvaluationException {
       if (expression.isPresent()) {
         return expression.get().eval(context);
       }
@@ -21,6 +21,7 @@ import static com.google.common.base.Verify.verifyNotNull;
 import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.google.common.collect.Streams;
 import com.google.edwmigration.permissions.files.FileProcessor;
 import java.io.InputStream;
 import java.nio.file.Files;
@@ -38,12 +39,24 @@ public class CsvFileStreamProcessor<T> implements StreamProcessor<T> {
 
   private final Class<T> recordClass;
 
+  private final boolean buffered;
+
   public CsvFileStreamProcessor(
       CsvMapper csvMapper, String path, String file, Class<T> recordClass) {
+    this(csvMapper, path, file, recordClass, /* buffered= */ true);
+  }
+
+  /**
+   * If not buffered, records are parsed as the stream is consumed rather than read into memory
+   * upfront, and the operator must consume the stream before it returns.
+   */
+  public CsvFileStreamProcessor(
+      CsvMapper csvMapper, String path, String file, Class<T> recordClass, boolean buffered) {
     this.csvMapper = csvMapper;
     this.path = verifyNotNull(path);
     this.file = file;
     this.recordClass = recordClass;
+    this.buffered = buffered;
   }
 
   @Override
@@ -57,6 +70,9 @@ public class CsvFileStreamProcessor<T> implements StreamProcessor<T> {
           try (InputStream is = Files.newInputStream(directory.resolve(file));
               MappingIterator<T> iterator =
                   csvMapper.readerFor(this.recordClass).with(schema).readValues(is)) {
+            if (!buffered) {
+              return operator.apply(Streams.stream(iterator));
+            }
             entries = iterator.readAll();
           }
           return operator.apply(entries.stream());
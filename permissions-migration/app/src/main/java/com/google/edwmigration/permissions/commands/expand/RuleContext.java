@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.expand;
+
+import com.google.common.collect.ImmutableMap;
+import dev.cel.runtime.CelVariableResolver;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * The variables a rule set is evaluated against.
+ *
+ * <p>Each variable is converted to its CEL value on first use, and the converted value is shared by
+ * every rule evaluated against the same context. Variables no rule refers to are never converted.
+ * Not thread-safe; a context belongs to the evaluation of a single item.
+ */
+public class RuleContext implements CelVariableResolver {
+
+  private final ImmutableMap<String, Object> variables;
+
+  private final Function<Object, Object> converter;
+
+  private final Map<String, Object> converted = new HashMap<>();
+
+  private RuleContext(ImmutableMap<String, Object> variables, Function<Object, Object> converter) {
+    this.variables = variables;
+    this.converter = converter;
+  }
+
+  /** Returns a context whose variables are already CEL values. */
+  public static RuleContext of(ImmutableMap<String, Object> variables) {
+    return new RuleContext(variables, Function.identity());
+  }
+
+  /** Returns a context whose variables are converted to CEL values on first use. */
+  public static RuleContext lazy(
+      ImmutableMap<String, Object> variables, Function<Object, Object> converter) {
+    return new RuleContext(variables, converter);
+  }
+
+  @Override
+  public Optional<Object> find(String name) {
+    Object value = variables.get(name);
+    if (value == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(converted.computeIfAbsent(name, key -> converter.apply(value)));
+  }
+
+  @Override
+  public String toString() {
+    Map<String, Object> values = new LinkedHashMap<>();
+    for (String name : variables.keySet()) {
+      values.put(name, find(name).orElse(null));
+    }
+    return values.toString();
+  }
+}
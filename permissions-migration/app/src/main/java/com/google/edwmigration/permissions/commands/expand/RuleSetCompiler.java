@@ -109,6 +109,20 @@ public class RuleSetCompiler {
       ImmutableMap<String, Object> baseObjectMapValues,
       ImmutableMap<String, Object> defaultObjectMapValues)
       throws CelEvaluationException {
+    return eval(
+        compiledRules, RuleContext.of(context), baseObjectMapValues, defaultObjectMapValues);
+  }
+
+  /**
+   * Evaluates a list of rules against a given context, as {@link #eval(List, ImmutableMap,
+   * ImmutableMap, ImmutableMap)}, converting each context variable only if a rule refers to it.
+   */
+  public EvalOutcome eval(
+      List<CompiledRule> compiledRules,
+      RuleContext context,
+      ImmutableMap<String, Object> baseObjectMapValues,
+      ImmutableMap<String, Object> defaultObjectMapValues)
+      throws CelEvaluationException {
     ImmutableMap<String, Object> objectMap =
         mergeMaps(
             baseObjectMapValues,
@@ -168,7 +182,7 @@ public class RuleSetCompiler {
    */
   private static EvalOutcome evalRule(
       CompiledRule compiledRule,
-      ImmutableMap<String, Object> context,
+      RuleContext context,
       ImmutableMap<String, Object> baseObjectMapValues,
       ImmutableMap<String, Object> defaultObjectMapValues)
       throws CelEvaluationException {
@@ -202,15 +216,14 @@ public class RuleSetCompiler {
   }
 
   /** Evaluates if a rule should be logged for a given context. */
-  private static boolean evalRuleLog(
-      CompiledRule compiledRule, ImmutableMap<String, Object> context)
+  private static boolean evalRuleLog(CompiledRule compiledRule, RuleContext context)
       throws CelEvaluationException {
     return compiledRule.log.eval(context) == Boolean.TRUE;
   }
 
   /** Evaluates the map action fields. */
   private static ImmutableMap<String, Object> evalMap(
-      CompiledRule compiledRule, ImmutableMap<String, Object> context) {
+      CompiledRule compiledRule, RuleContext context) {
     return compiledRule.mapFields
         .orElseThrow(
             () -> new IllegalStateException("Invoked evalMap on a rule without map action"))
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.files;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.edwmigration.permissions.models.IamBinding;
+import com.google.edwmigration.permissions.models.Permissions;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads permissions written by {@link PermissionsWriter} one binding at a time, without holding
+ * them all in memory.
+ */
+public class PermissionsReader {
+
+  private PermissionsReader() {}
+
+  /**
+   * Returns the files the permissions were written to: the largest complete set of shards written
+   * next to the given path, or else the path itself if it exists.
+   *
+   * @throws NoSuchFileException if there is neither a complete set of shards nor the file
+   */
+  public static ImmutableList<Path> findShards(Path path) throws IOException {
+    ImmutableSortedSet<Integer> shardCounts = PermissionsWriter.findShardCounts(path);
+    for (int numShards : shardCounts.descendingSet()) {
+      ImmutableList<Path> shards = completeShards(path, numShards);
+      if (!shards.isEmpty()) {
+        return shards;
+      }
+    }
+    if (Files.exists(path)) {
+      return ImmutableList.of(path);
+    }
+    if (shardCounts.isEmpty()) {
+      throw new NoSuchFileException(path.toString());
+    }
+    throw new NoSuchFileException(path.toString(), null, "Missing shards");
+  }
+
+  /** Returns the shards of the given count, or an empty list if any of them is missing. */
+  private static ImmutableList<Path> completeShards(Path path, int numShards) {
+    ImmutableList.Builder<Path> shards = ImmutableList.builder();
+    for (int shard = 0; shard < numShards; shard++) {
+      Path shardPath = PermissionsWriter.shardPath(path, shard, numShards);
+      if (!Files.exists(shardPath)) {
+        return ImmutableList.of();
+      }
+      shards.add(shardPath);
+    }
+    return shards.build();
+  }
+
+  /** Reads the bindings of a single file, gunzipping it if its name ends with {@code .gz}. */
+  public static void read(Path path, Consumer<? super IamBinding> consumer) throws IOException {
+    try (InputStream in = open(path);
+        JsonParser parser = Permissions.YAML_MAPPER.createParser(in)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        // An empty document has no permissions.
+        return;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if (!field.equals("permissions") || value != JsonToken.START_ARRAY) {
+          parser.skipChildren();
+          continue;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          consumer.accept(parser.readValueAs(IamBinding.class));
+        }
+      }
+    }
+  }
+
+  private static InputStream open(Path path) throws IOException {
+    InputStream in = new BufferedInputStream(Files.newInputStream(path));
+    if (PermissionsWriter.isGzipped(path)) {
+      return new GZIPInputStream(in);
+    }
+    return in;
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.files;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.hash.Hashing;
+import com.google.edwmigration.permissions.models.IamBinding;
+import com.google.edwmigration.permissions.models.Permissions;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes permissions to a permissions.yaml file one binding at a time, without holding them all in
+ * memory.
+ *
+ * <p>The output can be split into shards named like {@code permissions-00000-of-00004.yaml} next to
+ * the given path. Bindings are assigned to shards by a hash of their resource, so that all bindings
+ * of a resource are in the same shard and the shards can be applied independently. The output is
+ * gzipped if the file name ends with {@code .gz}.
+ *
+ * <p>Bindings are written to temporary files next to the output, which only replace it when the
+ * writer is committed. A writer closed without being committed deletes them and leaves the previous
+ * output, if any, in place, so that a failed build is never mistaken for a complete one.
+ */
+public class PermissionsWriter implements Closeable {
+
+  private static final String GZIP_SUFFIX = ".gz";
+
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private static final String SHARD_OF_TWO = "-00000-of-00002";
+
+  private final Path path;
+
+  private final ImmutableList<Path> tempFiles;
+
+  private final ImmutableList<JsonGenerator> generators;
+
+  /** Whether the files were moved in place or deleted. */
+  private boolean finished;
+
+  private PermissionsWriter(
+      Path path, ImmutableList<Path> tempFiles, ImmutableList<JsonGenerator> generators) {
+    this.path = path;
+    this.tempFiles = tempFiles;
+    this.generators = generators;
+  }
+
+  /** Creates a writer to {@code numShards} files, or to the given path itself if it's one. */
+  public static PermissionsWriter create(Path path, int numShards) throws IOException {
+    checkArgument(numShards > 0, "numShards must be positive");
+    ImmutableList.Builder<Path> tempFiles = ImmutableList.builder();
+    ImmutableList.Builder<JsonGenerator> generators = ImmutableList.builder();
+    try {
+      for (int shard = 0; shard < numShards; shard++) {
+        Path shardPath = shardPath(path, shard, numShards);
+        Path tempFile = shardPath.resolveSibling(shardPath.getFileName() + TEMP_SUFFIX);
+        tempFiles.add(tempFile);
+        generators.add(createGenerator(tempFile, isGzipped(shardPath)));
+      }
+    } catch (IOException e) {
+      new PermissionsWriter(path, tempFiles.build(), generators.build()).abort(e);
+      throw e;
+    }
+    return new PermissionsWriter(path, tempFiles.build(), generators.build());
+  }
+
+  /** Returns the path of a shard, which is the given path itself if there's only one shard. */
+  public static Path shardPath(Path path, int shard, int numShards) {
+    if (numShards == 1) {
+      return path;
+    }
+    String fileName = path.getFileName().toString();
+    int extension = fileName.indexOf('.');
+    if (extension < 0) {
+      extension = fileName.length();
+    }
+    return path.resolveSibling(
+        String.format(
+            "%s-%05d-of-%05d%s",
+            fileName.substring(0, extension),
+            shard,
+            numShards,
+            fileName.substring(extension)));
+  }
+
+  /**
+   * Returns the numbers of shards of the shard files next to the given path, from any number of
+   * complete or partial writes.
+   */
+  static ImmutableSortedSet<Integer> findShardCounts(Path path) throws IOException {
+    // Any shard name, split around the part that varies.
+    String template = shardPath(path, 0, 2).getFileName().toString();
+    int start = template.lastIndexOf(SHARD_OF_TWO);
+    Pattern pattern =
+        Pattern.compile(
+            Pattern.quote(template.substring(0, start))
+                + "-\\d{5}-of-(\\d{5})"
+                + Pattern.quote(template.substring(start + SHARD_OF_TWO.length())));
+    ImmutableSortedSet.Builder<Integer> shardCounts = ImmutableSortedSet.naturalOrder();
+    try (DirectoryStream<Path> siblings =
+        Files.newDirectoryStream(path.toAbsolutePath().getParent())) {
+      for (Path sibling : siblings) {
+        Matcher matcher = pattern.matcher(sibling.getFileName().toString());
+        if (matcher.matches()) {
+          shardCounts.add(Integer.parseInt(matcher.group(1)));
+        }
+      }
+    } catch (NoSuchFileException e) {
+      // No directory, no shards.
+    }
+    return shardCounts.build();
+  }
+
+  static boolean isGzipped(Path path) {
+    return path.getFileName().toString().endsWith(GZIP_SUFFIX);
+  }
+
+  private static JsonGenerator createGenerator(Path path, boolean gzipped) throws IOException {
+    OutputStream out = new BufferedOutputStream(Files.newOutputStream(path));
+    if (gzipped) {
+      out = new GZIPOutputStream(out);
+    }
+    JsonGenerator generator = Permissions.YAML_MAPPER.createGenerator(out);
+    generator.writeStartObject();
+    generator.writeArrayFieldStart("permissions");
+    return generator;
+  }
+
+  public void write(IamBinding binding) throws IOException {
+    generators.get(shardOf(binding, generators.size())).writeObject(binding);
+  }
+
+  static int shardOf(IamBinding binding, int numShards) {
+    // Stable across runs, so that rebuilding puts each resource in the same shard.
+    int hash =
+        Hashing.murmur3_32_fixed()
+            .newHasher()
+            .putString(String.valueOf(binding.resourceType()), StandardCharsets.UTF_8)
+            .putString(String.valueOf(binding.resourcePath()), StandardCharsets.UTF_8)
+            .hash()
+            .asInt();
+    return Math.floorMod(hash, numShards);
+  }
+
+  /**
+   * Completes the files and moves them in place of the output, deleting the shards of a previous
+   * output with another number of shards, so that they can't be read in place of this one.
+   */
+  public void commit() throws IOException {
+    checkState(!finished, "Already committed or closed");
+    try {
+      for (JsonGenerator generator : generators) {
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+      }
+      int numShards = tempFiles.size();
+      if (numShards > 1) {
+        Files.deleteIfExists(path);
+      }
+      for (int shardCount : findShardCounts(path)) {
+        if (shardCount != numShards) {
+          for (int shard = 0; shard < shardCount; shard++) {
+            Files.deleteIfExists(shardPath(path, shard, shardCount));
+          }
+        }
+      }
+      for (int shard = 0; shard < numShards; shard++) {
+        Files.move(
+            tempFiles.get(shard),
+            shardPath(path, shard, numShards),
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      abort(e);
+      throw e;
+    }
+    finished = true;
+  }
+
+  /** Deletes the files written so far, unless the writer was committed. */
+  @Override
+  public void close() throws IOException {
+    if (finished) {
+      return;
+    }
+    IOException failure = new IOException("Failed to delete uncommitted permissions");
+    abort(failure);
+    if (failure.getSuppressed().length > 0) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Closes the files without completing them and deletes them, adding any failure to {@code
+   * failure} as suppressed.
+   */
+  private void abort(IOException failure) {
+    for (JsonGenerator generator : generators) {
+      try {
+        generator.close();
+      } catch (IOException e) {
+        failure.addSuppressed(e);
+      }
+    }
+    for (Path tempFile : tempFiles) {
+      try {
+        Files.deleteIfExists(tempFile);
+      } catch (IOException e) {
+        failure.addSuppressed(e);
+      }
+    }
+    finished = true;
+  }
+}
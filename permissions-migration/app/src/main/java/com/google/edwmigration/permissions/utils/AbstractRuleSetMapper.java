@@ -16,17 +16,21 @@
  */
 package com.google.edwmigration.permissions.utils;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableList.toImmutableList;
-import static com.google.common.collect.ImmutableMap.toImmutableMap;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.guava.GuavaModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.primitives.Primitives;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.edwmigration.permissions.ProcessingException;
 import com.google.edwmigration.permissions.commands.expand.CompiledRule;
+import com.google.edwmigration.permissions.commands.expand.RuleContext;
 import com.google.edwmigration.permissions.commands.expand.RuleSetCompiler;
 import com.google.edwmigration.permissions.commands.expand.RuleSetCompiler.EvalOutcome;
 import com.google.edwmigration.permissions.commands.expand.StreamProcessor;
@@ -36,7 +40,10 @@ import dev.cel.runtime.CelEvaluationException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,6 +58,14 @@ public abstract class AbstractRuleSetMapper<T, R> implements RuleSetMapper<R> {
               .registerModule(new GuavaModule())
               .registerModule(new JavaTimeModule()));
 
+  /** Rule evaluation is CPU bound, so it never uses more threads than there are processors. */
+  private static final int MAX_EVAL_THREADS = Runtime.getRuntime().availableProcessors();
+
+  private static final int EVAL_BATCH_SIZE = 256;
+
+  /** The number of context values converted to maps kept for reuse during a run. */
+  private static final int MAX_CONVERTED_VALUES = 100_000;
+
   private final Class<? extends R> resultClass;
 
   private final List<CompiledRule> compiledRules;
@@ -74,7 +89,34 @@ public abstract class AbstractRuleSetMapper<T, R> implements RuleSetMapper<R> {
   protected abstract StreamProcessor<T> newStream();
 
   public ImmutableList<RuleSetMapper.Result<R>> run() {
-    return newStream().process(this::map);
+    return process(MAX_EVAL_THREADS, results -> results.collect(toImmutableList()));
+  }
+
+  /**
+   * Maps the items on a pool of at most {@code numThreads} threads, created for this run and shut
+   * down when it ends.
+   */
+  @Override
+  public <A> A process(int numThreads, Function<Stream<RuleSetMapper.Result<R>>, A> operator) {
+    checkArgument(numThreads > 0, "numThreads must be positive");
+    int evalThreads = Math.min(numThreads, MAX_EVAL_THREADS);
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            evalThreads,
+            new ThreadFactoryBuilder().setNameFormat("rule-eval-%d").setDaemon(true).build());
+    try {
+      return newStream()
+          .process(
+              sourceStream -> {
+                // Closing the stream releases whatever backs it, e.g. sorted runs spilled to disk.
+                try (Stream<RuleSetMapper.Result<R>> results =
+                    map(sourceStream, executor, evalThreads)) {
+                  return operator.apply(results);
+                }
+              });
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
   /** Retrieve the CEL context for a given source. */
@@ -93,32 +135,40 @@ public abstract class AbstractRuleSetMapper<T, R> implements RuleSetMapper<R> {
     return mappedObject;
   }
 
-  private ImmutableList<RuleSetMapper.Result<R>> map(Stream<T> sourceStream) {
-    ImmutableList<RuleSetMapper.Result<R>> result =
-        sourceStream
-            .map(
-                source -> {
-                  try {
-                    return map(source);
-                  } catch (CelEvaluationException e) {
-                    throw new ProcessingException(
-                        String.format("Failed to map %s item: %s", sourceName, source), e);
-                  }
-                })
-            .collect(toImmutableList());
-    LOG.info("Mapped {} {} items", result.size(), sourceName);
-    return result;
+  private Stream<RuleSetMapper.Result<R>> map(
+      Stream<T> sourceStream, ExecutorService executor, int evalThreads) {
+    // Tables and principals appear in the context of many items, so each is converted once while
+    // it is in use rather than once per item.
+    Cache<Object, Object> convertedValues =
+        CacheBuilder.newBuilder().weakKeys().maximumSize(MAX_CONVERTED_VALUES).build();
+    AtomicLong count = new AtomicLong();
+    return OrderedParallelMap.map(
+            sourceStream,
+            source -> mapOrThrow(source, convertedValues),
+            executor,
+            EVAL_BATCH_SIZE,
+            2 * evalThreads)
+        .peek(result -> count.incrementAndGet())
+        .onClose(() -> LOG.info("Mapped {} {} items", count.get(), sourceName));
   }
 
-  private RuleSetMapper.Result<R> map(T source) throws CelEvaluationException {
+  private RuleSetMapper.Result<R> mapOrThrow(T source, Cache<Object, Object> convertedValues) {
+    try {
+      return map(source, convertedValues);
+    } catch (CelEvaluationException e) {
+      throw new ProcessingException(
+          String.format("Failed to map %s item: %s", sourceName, source), e);
+    }
+  }
+
+  private RuleSetMapper.Result<R> map(T source, Cache<Object, Object> convertedValues)
+      throws CelEvaluationException {
     // TODO(aleofreddi): explore how to port this to proto.
     EvalOutcome evalOutcome =
         ruleSetCompiler.eval(
             compiledRules,
-            /* context= */ toContext(source).entrySet().stream()
-                .collect(
-                    toImmutableMap(
-                        Map.Entry::getKey, entry -> convertContextValue(entry.getValue()))),
+            /* context= */ RuleContext.lazy(
+                toContext(source), value -> convertContextValue(value, convertedValues)),
             /* baseObjectMapValues= */ toBaseObjectMap(source),
             /* defaultObjectMapValues= */ toDefaultObjectMap(source));
     HashMap<String, Object> mappedObject = new HashMap<>(evalOutcome.mappedObject());
@@ -133,14 +183,23 @@ public abstract class AbstractRuleSetMapper<T, R> implements RuleSetMapper<R> {
             resultClass));
   }
 
-  private Object convertContextValue(Object source) {
+  /**
+   * Converts a context value to its CEL value. A collection becomes a list rather than a stream,
+   * since the value is shared by every rule of the item and a stream could only be read once.
+   */
+  private static Object convertContextValue(Object source, Cache<Object, Object> convertedValues) {
     // Do not serialize primitive types and Strings.
     if (source instanceof String || Primitives.isWrapperType(source.getClass())) {
       return source;
     }
     if (source instanceof Collection) {
-      return ((Collection<?>) source).stream().map(MAP_CONVERTER::convertToMap);
+      return ((Collection<?>) source)
+          .stream().map(value -> convertToMap(value, convertedValues)).collect(toImmutableList());
     }
-    return MAP_CONVERTER.convertToMap(source);
+    return convertToMap(source, convertedValues);
+  }
+
+  private static Object convertToMap(Object source, Cache<Object, Object> convertedValues) {
+    return convertedValues.asMap().computeIfAbsent(source, MAP_CONVERTER::convertToMap);
   }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter: the delay before a retry is drawn uniformly between zero
+ * and a cap that doubles with each attempt, so that callers failing at the same time don't retry
+ * at the same time.
+ */
+public final class Backoff {
+
+  private static final int MAX_DOUBLINGS = 20;
+
+  private final long initialMillis;
+
+  private final long maxMillis;
+
+  public Backoff(Duration initial, Duration max) {
+    checkArgument(!initial.isNegative(), "initial backoff must not be negative");
+    checkArgument(max.compareTo(initial) >= 0, "max backoff must not be less than initial");
+    this.initialMillis = initial.toMillis();
+    this.maxMillis = max.toMillis();
+  }
+
+  /** Returns the delay in milliseconds before retrying after the given failed attempt. */
+  public long delayMillis(int attempt) {
+    checkArgument(attempt > 0, "attempt must be positive");
+    long capMillis = Math.min(maxMillis, initialMillis << Math.min(attempt - 1, MAX_DOUBLINGS));
+    return ThreadLocalRandom.current().nextLong(capMillis + 1);
+  }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.edwmigration.permissions.ProcessingException;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sorts a stream by a string key in bounded memory.
+ *
+ * <p>The key of each record is computed once. Records are buffered and sorted up to a fixed count,
+ * then spilled as sorted runs to temporary files, which are merged back lazily. Runs are merged at
+ * most {@link #MAX_MERGE_WIDTH} at a time, so the number of open files stays bounded as well. The
+ * sort is stable, like {@link Stream#sorted}.
+ *
+ * <p>{@link #sort} consumes its input before returning, so the input may come from a resource
+ * which is closed afterward. A {@link Sort} takes its records one at a time instead, so they may
+ * come from several such resources in turn. The run files are deleted once the result has been
+ * read to the end, or when it is closed.
+ */
+public class ExternalSorter<T> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExternalSorter.class);
+
+  /** Writes and reads back records of a sorted run. */
+  public interface Codec<T> {
+
+    void write(DataOutput out, T value) throws IOException;
+
+    T read(DataInput in) throws IOException;
+  }
+
+  static final int MAX_MERGE_WIDTH = 128;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Codec<T> codec;
+
+  private final Function<? super T, String> keyFunction;
+
+  private final int maxRecordsInMemory;
+
+  public ExternalSorter(
+      Codec<T> codec, Function<? super T, String> keyFunction, int maxRecordsInMemory) {
+    checkArgument(maxRecordsInMemory > 0, "maxRecordsInMemory must be positive");
+    this.codec = codec;
+    this.keyFunction = keyFunction;
+    this.maxRecordsInMemory = maxRecordsInMemory;
+  }
+
+  /** Returns the records of the input with their keys, ordered by key. */
+  public Stream<Entry<String, T>> sort(Stream<T> input) {
+    try (Sort sort = newSort()) {
+      for (Iterator<T> iterator = input.iterator(); iterator.hasNext(); ) {
+        sort.add(iterator.next());
+      }
+      return sort.finish();
+    }
+  }
+
+  /** Starts a sort whose records are added one at a time, e.g. from several sources. */
+  public Sort newSort() {
+    return new Sort();
+  }
+
+  /**
+   * A sort in progress. Records are added with {@link #add}, and {@link #finish} returns them
+   * ordered by key. Closing an unfinished sort deletes the runs spilled so far.
+   */
+  public class Sort implements AutoCloseable {
+
+    private final List<Entry<String, T>> buffer = new ArrayList<>();
+
+    private List<Run> runs = new ArrayList<>();
+
+    @Nullable private Path directory;
+
+    private boolean done;
+
+    private Sort() {}
+
+    public void add(T value) {
+      checkState(!done, "Sort was already finished or closed");
+      buffer.add(new SimpleImmutableEntry<>(keyFunction.apply(value), value));
+      if (buffer.size() == maxRecordsInMemory) {
+        try {
+          if (directory == null) {
+            directory = Files.createTempDirectory("permissions-sort-");
+          }
+          spill();
+        } catch (IOException e) {
+          close();
+          throw new ProcessingException("Failed to spill sorted records to disk", e);
+        }
+      }
+    }
+
+    /** Returns the records added, with their keys, ordered by key. */
+    public Stream<Entry<String, T>> finish() {
+      checkState(!done, "Sort was already finished or closed");
+      buffer.sort(Entry.comparingByKey());
+      if (runs.isEmpty()) {
+        done = true;
+        return buffer.stream();
+      }
+      try {
+        if (!buffer.isEmpty()) {
+          spill();
+        }
+        LOG.info("Spilled {} sorted runs to {}", runs.size(), directory);
+        while (runs.size() > MAX_MERGE_WIDTH) {
+          List<Run> merged = new ArrayList<>();
+          for (int i = 0; i < runs.size(); i += MAX_MERGE_WIDTH) {
+            List<Run> group = runs.subList(i, Math.min(i + MAX_MERGE_WIDTH, runs.size()));
+            try (MergingIterator iterator = new MergingIterator(group, null)) {
+              merged.add(writeRun(directory, iterator));
+            }
+          }
+          runs = merged;
+        }
+        MergingIterator iterator = new MergingIterator(runs, directory);
+        // The merge owns the directory from now on.
+        done = true;
+        return Streams.stream(iterator).onClose(iterator::close);
+      } catch (IOException e) {
+        close();
+        throw new ProcessingException("Failed to spill sorted records to disk", e);
+      }
+    }
+
+    private void spill() throws IOException {
+      buffer.sort(Entry.comparingByKey());
+      runs.add(writeRun(directory, buffer.iterator()));
+      buffer.clear();
+    }
+
+    @Override
+    public void close() {
+      if (done) {
+        return;
+      }
+      done = true;
+      buffer.clear();
+      if (directory != null) {
+        deleteDirectory(directory);
+      }
+    }
+  }
+
+  private Run writeRun(Path directory, Iterator<Entry<String, T>> records) throws IOException {
+    Path file = Files.createTempFile(directory, "run-", "");
+    long count = 0;
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+      while (records.hasNext()) {
+        Entry<String, T> record = records.next();
+        writeString(out, record.getKey());
+        codec.write(out, record.getValue());
+        count++;
+      }
+    }
+    return new Run(file, count);
+  }
+
+  private static void deleteDirectory(Path directory) {
+    try {
+      MoreFiles.deleteRecursively(directory, RecursiveDeleteOption.ALLOW_INSECURE);
+    } catch (IOException e) {
+      LOG.warn("Failed to delete sorted runs in {}", directory, e);
+    }
+  }
+
+  /** Writes a nullable string of any length. */
+  public static void writeString(DataOutput out, @Nullable String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /** Reads a string written by {@link #writeString}. */
+  @Nullable
+  public static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static class Run {
+
+    private final Path file;
+
+    private final long count;
+
+    private Run(Path file, long count) {
+      this.file = file;
+      this.count = count;
+    }
+  }
+
+  /** Reads one run; its file is deleted once the last record has been read. */
+  private class RunReader implements AutoCloseable {
+
+    private final int index;
+
+    private final Run run;
+
+    private final DataInputStream in;
+
+    private long remaining;
+
+    private Entry<String, T> head;
+
+    private RunReader(int index, Run run) throws IOException {
+      this.index = index;
+      this.run = run;
+      this.in =
+          new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file), BUFFER_SIZE));
+      this.remaining = run.count;
+    }
+
+    private boolean advance() throws IOException {
+      if (remaining == 0) {
+        close();
+        return false;
+      }
+      remaining--;
+      String key = readString(in);
+      head = new SimpleImmutableEntry<>(key, codec.read(in));
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+      Files.deleteIfExists(run.file);
+    }
+  }
+
+  /**
+   * Merges runs in key order, taking records with equal keys from the earlier run first. The given
+   * directory, if any, is deleted when the merge ends or is closed.
+   */
+  private class MergingIterator extends AbstractIterator<Entry<String, T>>
+      implements AutoCloseable {
+
+    private final PriorityQueue<RunReader> queue =
+        new PriorityQueue<>(
+            Comparator.<RunReader, String>comparing(reader -> reader.head.getKey())
+                .thenComparingInt(reader -> reader.index));
+
+    private final List<RunReader> readers = new ArrayList<>();
+
+    @Nullable private final Path directory;
+
+    private MergingIterator(List<Run> runs, @Nullable Path directory) throws IOException {
+      this.directory = directory;
+      try {
+        for (Run run : runs) {
+          RunReader reader = new RunReader(readers.size(), run);
+          readers.add(reader);
+          if (reader.advance()) {
+            queue.add(reader);
+          }
+        }
+      } catch (IOException e) {
+        close();
+        throw e;
+      }
+    }
+
+    @CheckForNull
+    @Override
+    protected Entry<String, T> computeNext() {
+      RunReader reader = queue.poll();
+      if (reader == null) {
+        close();
+        return endOfData();
+      }
+      Entry<String, T> next = reader.head;
+      try {
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      } catch (IOException e) {
+        throw new ProcessingException("Failed to read sorted records from " + reader.run.file, e);
+      }
+      return next;
+    }
+
+    @Override
+    public void close() {
+      for (RunReader reader : readers) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          LOG.warn("Failed to close sorted run {}", reader.run.file, e);
+        }
+      }
+      if (directory != null) {
+        deleteDirectory(directory);
+      }
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.utils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Streams;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+
+/**
+ * Maps a stream on an executor, keeping the order of the input.
+ *
+ * <p>The input is read on the calling thread in batches, so it needn't be thread-safe; only the
+ * function runs on the executor. At most a fixed number of batches are in flight, so the input is
+ * read no further ahead of the output than that. An exception thrown by the function is rethrown
+ * as is by the output stream.
+ */
+public final class OrderedParallelMap {
+
+  private OrderedParallelMap() {}
+
+  public static <T, R> Stream<R> map(
+      Stream<T> input,
+      Function<? super T, ? extends R> function,
+      Executor executor,
+      int batchSize,
+      int maxBatchesInFlight) {
+    checkArgument(batchSize > 0, "batchSize must be positive");
+    checkArgument(maxBatchesInFlight > 0, "maxBatchesInFlight must be positive");
+    MappingIterator<T, R> iterator =
+        new MappingIterator<>(input.iterator(), function, executor, batchSize, maxBatchesInFlight);
+    return Streams.stream(iterator).onClose(iterator::cancel).onClose(input::close);
+  }
+
+  private static class MappingIterator<T, R> extends AbstractIterator<R> {
+
+    private final Iterator<T> input;
+
+    private final Function<? super T, ? extends R> function;
+
+    private final Executor executor;
+
+    private final int batchSize;
+
+    private final int maxBatchesInFlight;
+
+    private final ArrayDeque<Future<List<R>>> inFlight = new ArrayDeque<>();
+
+    private Iterator<R> batch = Collections.emptyIterator();
+
+    private MappingIterator(
+        Iterator<T> input,
+        Function<? super T, ? extends R> function,
+        Executor executor,
+        int batchSize,
+        int maxBatchesInFlight) {
+      this.input = input;
+      this.function = function;
+      this.executor = executor;
+      this.batchSize = batchSize;
+      this.maxBatchesInFlight = maxBatchesInFlight;
+    }
+
+    @CheckForNull
+    @Override
+    protected R computeNext() {
+      while (!batch.hasNext()) {
+        submitBatches();
+        Future<List<R>> next = inFlight.poll();
+        if (next == null) {
+          return endOfData();
+        }
+        try {
+          batch = Uninterruptibles.getUninterruptibly(next).iterator();
+        } catch (ExecutionException e) {
+          cancel();
+          Throwables.throwIfUnchecked(e.getCause());
+          throw new IllegalStateException(e.getCause());
+        }
+      }
+      return batch.next();
+    }
+
+    private void submitBatches() {
+      while (inFlight.size() < maxBatchesInFlight && input.hasNext()) {
+        List<T> values = new ArrayList<>(batchSize);
+        while (values.size() < batchSize && input.hasNext()) {
+          values.add(input.next());
+        }
+        inFlight.add(
+            CompletableFuture.supplyAsync(
+                () -> {
+                  List<R> results = new ArrayList<>(values.size());
+                  for (T value : values) {
+                    results.add(function.apply(value));
+                  }
+                  return results;
+                },
+                executor));
+      }
+    }
+
+    private void cancel() {
+      for (Future<List<R>> future : inFlight) {
+        future.cancel(false);
+      }
+      inFlight.clear();
+    }
+  }
+}
@@ -17,6 +17,8 @@
 package com.google.edwmigration.permissions.utils;
 
 import com.google.auto.value.AutoValue;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public interface RuleSetMapper<R> extends Mapper<RuleSetMapper.Result<R>> {
 
@@ -26,6 +28,14 @@ public interface RuleSetMapper<R> extends Mapper<RuleSetMapper.Result<R>> {
     SKIP
   }
 
+  /**
+   * Passes the results, in input order, to the operator, evaluating rules on at most {@code
+   * numThreads} threads. The stream is only valid until the operator returns.
+   */
+  default <A> A process(int numThreads, Function<Stream<Result<R>>, A> operator) {
+    return operator.apply(run().stream());
+  }
+
   @AutoValue
   abstract class Result<T> {
 
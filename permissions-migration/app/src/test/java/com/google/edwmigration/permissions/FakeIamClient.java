@@ -16,58 +16,163 @@
  */
 package com.google.edwmigration.permissions;
 
-import com.google.auto.value.AutoValue;
 import com.google.cloud.Identity;
+import com.google.cloud.Policy;
 import com.google.cloud.Role;
+import com.google.cloud.storage.StorageException;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.time.Duration;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
-/** A fake implementation of FoldersClient for a purpose of testing. */
+/**
+ * A fake implementation of IamClient for a purpose of testing.
+ *
+ * <p>Like the real endpoints, policies carry etags and setting a policy with a stale etag fails
+ * with a conflict. Calls can be slowed down, and failures injected, to test appliers offline.
+ */
 public class FakeIamClient implements IamClient {
 
-  @AutoValue
-  public abstract static class Permission {
+  /** The binding added by the concurrent writer simulated by {@link #interleaveWrites}. */
+  public static final Role CONCURRENT_ROLE = Role.of("roles/concurrent");
 
-    public static Permission create(Role role, Identity identity) {
-      return new AutoValue_FakeIamClient_Permission(role, identity);
-    }
+  public static final Identity CONCURRENT_IDENTITY = Identity.user("concurrent@example.com");
+
+  private static final Policy EMPTY_POLICY = Policy.newBuilder().setVersion(1).build();
+
+  private final Duration latency;
+
+  private final Map<String, Policy> policies = new HashMap<>();
+
+  private final AtomicInteger getCalls = new AtomicInteger();
+
+  private final AtomicInteger setCalls = new AtomicInteger();
+
+  private final AtomicInteger concurrentCalls = new AtomicInteger();
+
+  private final AtomicInteger maxConcurrentCalls = new AtomicInteger();
 
-    public abstract Role role();
+  private long nextEtag = 1;
 
-    public abstract Identity identity();
+  private int injectedErrors;
+
+  private int injectedErrorCode;
+
+  private int interleavedWrites;
+
+  public FakeIamClient() {
+    this(Duration.ZERO);
   }
 
-  private final Map<String, Set<Permission>> objectPermissions = new HashMap<>();
+  /** Creates a client whose calls each take the given time. */
+  public FakeIamClient(Duration latency) {
+    this.latency = latency;
+  }
 
   @Override
-  public void addIamPolicyBindings(
-      String path, Map<Role, Set<Identity>> bindings, ExtraPermissions extraPermissions) {
-    if (extraPermissions == ExtraPermissions.PURGE) {
-      objectPermissions.get(path).clear();
+  public void createIfNotExists(String path) {
+    call();
+    synchronized (this) {
+      if (!policies.containsKey(path)) {
+        policies.put(path, EMPTY_POLICY.toBuilder().setEtag(newEtag()).build());
+      }
     }
-    bindings.forEach(
-        (role, identities) ->
-            identities.forEach((identity) -> addIdentityToIamPolicy(path, role, identity)));
   }
 
-  public void addIdentityToIamPolicy(String path, Role role, Identity identity) {
-    objectPermissions
-        .computeIfAbsent(path, key -> new HashSet<>())
-        .add(Permission.create(role, identity));
+  @Override
+  public Policy getIamPolicy(String path) {
+    call();
+    getCalls.incrementAndGet();
+    synchronized (this) {
+      return policies.getOrDefault(path, EMPTY_POLICY);
+    }
+  }
+
+  @Override
+  public void setIamPolicy(String path, Policy policy) {
+    call();
+    setCalls.incrementAndGet();
+    synchronized (this) {
+      if (injectedErrors > 0) {
+        injectedErrors--;
+        throw new StorageException(injectedErrorCode, "Injected error");
+      }
+      if (interleavedWrites > 0) {
+        interleavedWrites--;
+        addIdentityToIamPolicy(path, CONCURRENT_ROLE, CONCURRENT_IDENTITY);
+      }
+      Policy current = policies.get(path);
+      if (policy.getEtag() != null
+          && (current == null || !policy.getEtag().equals(current.getEtag()))) {
+        throw new StorageException(409, "Etag mismatch for " + path);
+      }
+      policies.put(path, policy.toBuilder().setEtag(newEtag()).build());
+    }
+  }
+
+  /** Makes the next set calls fail with the given HTTP status code. */
+  public synchronized void failNextSetCalls(int count, int code) {
+    injectedErrors = count;
+    injectedErrorCode = code;
+  }
+
+  /**
+   * Makes another writer add {@link #CONCURRENT_ROLE} to the policy right before each of the next
+   * set calls, so that they conflict.
+   */
+  public synchronized void interleaveWrites(int count) {
+    interleavedWrites = count;
+  }
+
+  public synchronized void addIdentityToIamPolicy(String path, Role role, Identity identity) {
+    policies.put(
+        path,
+        policies
+            .getOrDefault(path, EMPTY_POLICY)
+            .toBuilder()
+            .addIdentity(role, identity)
+            .setEtag(newEtag())
+            .build());
   }
 
   /** Returns true only if a folder with given path has been created before. */
-  public boolean checkPathExists(String path) {
-    return objectPermissions.containsKey(path);
+  public synchronized boolean checkPathExists(String path) {
+    return policies.containsKey(path);
   }
 
   /** Returns true only if a permission with the given role and identity has been added before. */
-  public boolean checkPermissionExists(String path, Role role, Identity identity) {
-    Permission expectedPermission = Permission.create(role, identity);
-    return objectPermissions.containsKey(path)
-        && objectPermissions.get(path).contains(expectedPermission);
+  public synchronized boolean checkPermissionExists(String path, Role role, Identity identity) {
+    Policy policy = policies.get(path);
+    return policy != null
+        && policy.getBindings().getOrDefault(role, ImmutableSet.of()).contains(identity);
+  }
+
+  public int getGetCalls() {
+    return getCalls.get();
+  }
+
+  public int getSetCalls() {
+    return setCalls.get();
+  }
+
+  /** Returns the highest number of calls that were in progress at the same time. */
+  public int getMaxConcurrentCalls() {
+    return maxConcurrentCalls.get();
+  }
+
+  private void call() {
+    maxConcurrentCalls.accumulateAndGet(concurrentCalls.incrementAndGet(), Math::max);
+    try {
+      Uninterruptibles.sleepUninterruptibly(latency);
+    } finally {
+      concurrentCalls.decrementAndGet();
+    }
+  }
+
+  private String newEtag() {
+    return Long.toString(nextEtag++);
   }
 
   @Override
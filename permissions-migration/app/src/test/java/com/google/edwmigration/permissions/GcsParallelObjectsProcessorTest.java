@@ -0,0 +1,151 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class GcsParallelObjectsProcessorTest {
+
+  private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void map_ordered_keepsInputOrder() {
+    ImmutableList<Integer> input = IntStream.range(0, 500).boxed().collect(toImmutableList());
+
+    ImmutableList<Integer> actual =
+        GcsParallelObjectsProcessor.map(
+                input.iterator(),
+                value -> {
+                  if (value % 7 == 0) {
+                    Thread.yield();
+                  }
+                  return value * 2;
+                },
+                executor,
+                8,
+                /* ordered= */ true,
+                TIMEOUT)
+            .collect(toImmutableList());
+
+    assertThat(actual)
+        .containsExactlyElementsIn(input.stream().map(value -> value * 2).iterator())
+        .inOrder();
+  }
+
+  @Test
+  public void map_unordered_returnsReadyResultsFirst() {
+    CountDownLatch firstReturned = new CountDownLatch(1);
+
+    Iterator<Integer> output =
+        GcsParallelObjectsProcessor.map(
+                ImmutableList.of(0, 1).iterator(),
+                value -> {
+                  if (value == 0) {
+                    Uninterruptibles.awaitUninterruptibly(firstReturned);
+                  }
+                  return value;
+                },
+                executor,
+                2,
+                /* ordered= */ false,
+                TIMEOUT)
+            .iterator();
+
+    assertThat(output.next()).isEqualTo(1);
+    firstReturned.countDown();
+    assertThat(output.next()).isEqualTo(0);
+    assertThat(output.hasNext()).isFalse();
+  }
+
+  @Test
+  public void map_readsInputBoundedAhead() {
+    AtomicInteger read = new AtomicInteger();
+    Iterator<Integer> input =
+        Stream.iterate(0, i -> i + 1).peek(i -> read.incrementAndGet()).iterator();
+
+    Iterator<Integer> output =
+        GcsParallelObjectsProcessor.map(
+                input, value -> value, executor, 10, /* ordered= */ false, TIMEOUT)
+            .iterator();
+
+    output.next();
+    assertThat(read.get()).isAtMost(10);
+  }
+
+  @Test
+  public void map_rethrowsExceptionOfFunction() {
+    Stream<Integer> output =
+        GcsParallelObjectsProcessor.map(
+            ImmutableList.of(1, 2, 3).iterator(),
+            value -> {
+              if (value == 2) {
+                throw new IllegalArgumentException("bad value");
+              }
+              return value;
+            },
+            executor,
+            1,
+            /* ordered= */ true,
+            TIMEOUT);
+
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> output.forEach(value -> {}));
+
+    assertThat(e).hasMessageThat().isEqualTo("bad value");
+  }
+
+  @Test
+  public void map_slowerThanTimeout_throws() {
+    CountDownLatch never = new CountDownLatch(1);
+    Stream<Integer> output =
+        GcsParallelObjectsProcessor.map(
+            ImmutableList.of(1).iterator(),
+            value -> {
+              Uninterruptibles.awaitUninterruptibly(never);
+              return value;
+            },
+            executor,
+            1,
+            /* ordered= */ false,
+            Duration.ofMillis(50));
+
+    assertThrows(ProcessingException.class, () -> output.forEach(value -> {}));
+    never.countDown();
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.batch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.CopyWriter;
+import com.google.cloud.storage.StorageException;
+import com.google.common.collect.ImmutableList;
+import com.google.edwmigration.permissions.GcsPath;
+import com.google.edwmigration.permissions.commands.batch.Batcher.CopyResult;
+import java.io.IOException;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class BatcherTest {
+
+  private static final String SOURCE_NAME = "tables/db/table.yaml";
+
+  private static final String TARGET_NAME = "batch/b1/db/table.yaml";
+
+  private final Batcher batcher =
+      new Batcher(
+          GcsPath.parse("gs://source-bucket/tables/"),
+          GcsPath.parse("gs://target-bucket/batch/b1/"),
+          ".*",
+          /* numThreads= */ 1,
+          /* timeoutSeconds= */ 60,
+          /* maxAttempts= */ 3,
+          Duration.ofMillis(1));
+
+  private static Blob blob(CopyWriter copyWriter) {
+    Blob blob = mock(Blob.class);
+    when(blob.getName()).thenReturn(SOURCE_NAME);
+    when(blob.copyTo("target-bucket", TARGET_NAME)).thenReturn(copyWriter);
+    return blob;
+  }
+
+  @Test
+  public void copy_largeObject_copiesEveryChunk() {
+    CopyWriter copyWriter = mock(CopyWriter.class);
+    when(copyWriter.isDone()).thenReturn(false, false, true);
+
+    CopyResult result = batcher.copy(blob(copyWriter));
+
+    assertThat(result.failure).isNull();
+    assertThat(result.attempts).isEqualTo(1);
+    verify(copyWriter, times(2)).copyChunk();
+  }
+
+  @Test
+  public void copy_transientFailure_resumesRewrite() {
+    CopyWriter copyWriter = mock(CopyWriter.class);
+    when(copyWriter.isDone()).thenReturn(false, false, true);
+    doThrow(new StorageException(503, "unavailable")).doNothing().when(copyWriter).copyChunk();
+    Blob blob = blob(copyWriter);
+
+    CopyResult result = batcher.copy(blob);
+
+    assertThat(result.failure).isNull();
+    assertThat(result.attempts).isEqualTo(2);
+    verify(blob, times(1)).copyTo("target-bucket", TARGET_NAME);
+  }
+
+  @Test
+  public void copy_permanentFailure_notRetried() {
+    Blob blob = mock(Blob.class);
+    when(blob.getName()).thenReturn(SOURCE_NAME);
+    when(blob.copyTo("target-bucket", TARGET_NAME))
+        .thenThrow(new StorageException(403, "forbidden"));
+
+    CopyResult result = batcher.copy(blob);
+
+    assertThat(result.failure).hasMessageThat().isEqualTo("forbidden");
+    assertThat(result.attempts).isEqualTo(1);
+  }
+
+  @Test
+  public void copy_transientFailures_givesUpAfterMaxAttempts() {
+    Blob blob = mock(Blob.class);
+    when(blob.getName()).thenReturn(SOURCE_NAME);
+    when(blob.copyTo("target-bucket", TARGET_NAME))
+        .thenThrow(new StorageException(429, "rate limited"));
+
+    CopyResult result = batcher.copy(blob);
+
+    assertThat(result.failure).isInstanceOf(StorageException.class);
+    assertThat(result.attempts).isEqualTo(3);
+  }
+
+  @Test
+  public void report_failures_throwsIOException() {
+    ImmutableList<CopyResult> results =
+        ImmutableList.of(
+            new CopyResult("a", 1, null),
+            new CopyResult("b", 3, new StorageException(503, "unavailable")));
+
+    IOException e = assertThrows(IOException.class, () -> Batcher.report(results.iterator()));
+
+    assertThat(e).hasMessageThat().contains("Failed to copy 1 objects");
+    assertThat(e).hasMessageThat().contains("b after 3 attempts: unavailable");
+  }
+
+  @Test
+  public void report_noFailures_succeeds() throws IOException {
+    Batcher.report(ImmutableList.of(new CopyResult("a", 2, null)).iterator());
+  }
+}
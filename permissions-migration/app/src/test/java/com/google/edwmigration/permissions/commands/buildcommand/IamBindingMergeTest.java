@@ -20,10 +20,15 @@ import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
+import com.google.edwmigration.permissions.models.HdfsPermission;
 import com.google.edwmigration.permissions.models.IamBinding;
 import com.google.edwmigration.permissions.models.IamBinding.ResourceType;
+import com.google.edwmigration.permissions.models.Permissions;
 import com.google.edwmigration.permissions.models.PermissionsRuleset.RoleMapping;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy.PolicyResource;
 import com.google.edwmigration.permissions.utils.RuleSetMapper;
 import org.junit.jupiter.api.Test;
 
@@ -366,4 +371,152 @@ public class IamBindingMergeTest {
                     .priority(0)
                     .build()));
   }
+
+  @Test
+  public void run_removesRolesIncludedAtAnyDepth() {
+    PermissionMerge merge =
+        PermissionMerge.newInstance(
+            ImmutableList.of(
+                new FixtureMapper(
+                    IamBinding.builder()
+                        .resourceType(ResourceType.GCS_MANAGED_FOLDER)
+                        .resourcePath("/table1")
+                        .principal("user1@google.com")
+                        .role("reader")
+                        .priority(0)
+                        .build(),
+                    IamBinding.builder()
+                        .resourceType(ResourceType.GCS_MANAGED_FOLDER)
+                        .resourcePath("/table1")
+                        .principal("user1@google.com")
+                        .role("owner")
+                        .priority(0)
+                        .build())),
+            /* roles= */ ImmutableMap.of(
+                "writer", RoleMapping.builder().includes(ImmutableList.of("reader")).build(),
+                "admin", RoleMapping.builder().includes(ImmutableList.of("writer")).build(),
+                "owner", RoleMapping.builder().includes(ImmutableList.of("admin")).build()));
+
+    ImmutableList<IamBinding> actual = merge.run();
+
+    assertThat(actual)
+        .containsExactly(
+            IamBinding.builder()
+                .resourceType(ResourceType.GCS_MANAGED_FOLDER)
+                .resourcePath("/table1")
+                .principal("user1@google.com")
+                .role("owner")
+                .priority(0)
+                .build());
+  }
+
+  @Test
+  public void run_spilledToDisk_sameAsInMemory() {
+    ImmutableList.Builder<IamBinding> bindings = ImmutableList.builder();
+    for (int i = 0; i < 500; i++) {
+      bindings.add(
+          IamBinding.builder()
+              .resourceType(i % 3 == 0 ? ResourceType.BQ_TABLE : ResourceType.GCS_MANAGED_FOLDER)
+              .resourcePath("/table" + (i * 7 % 101))
+              .principal("user" + (i % 5) + "@google.com")
+              .role(i % 2 == 0 ? "reader" : "writer")
+              .priority(i % 4 == 0 ? 10 : 0)
+              .sourcePermissions(
+                  ImmutableListMultimap.of("hdfs", ImmutableMap.of("path", "/data/" + i)))
+              .build());
+    }
+    ImmutableList<RuleSetMapper<IamBinding>> mappers =
+        ImmutableList.of(new FixtureMapper(bindings.build().toArray(new IamBinding[0])));
+
+    ImmutableList<IamBinding> actual =
+        PermissionMerge.newInstance(mappers, /* roles= */ null, /* maxRecordsInMemory= */ 16)
+            .run();
+
+    assertThat(actual)
+        .containsExactlyElementsIn(PermissionMerge.newInstance(mappers, /* roles= */ null).run())
+        .inOrder();
+  }
+
+  @Test
+  public void run_spilledWithHdfsAndRangerSources_writesSameYamlAsInMemory() throws Exception {
+    ImmutableList.Builder<IamBinding> bindings = ImmutableList.builder();
+    for (int i = 0; i < 200; i++) {
+      String path = "/warehouse/db" + (i % 7) + "/table" + (i % 31);
+      HdfsPermission hdfsPermission =
+          HdfsPermission.create(
+              path,
+              "D",
+              /* fileSize= */ (long) i,
+              "owner" + (i % 3),
+              "group" + (i % 4),
+              "rwxr-x---",
+              /* modificationTime= */ null,
+              /* fileCount= */ 1L,
+              /* dirCount= */ null,
+              /* storagePolicy= */ null);
+      Policy rangerPolicy =
+          Policy.builder()
+              .id(i)
+              .name("policy" + i)
+              .service("hdfs")
+              .resources(
+                  ImmutableMap.of(
+                      "path", PolicyResource.create(ImmutableList.of(path), false, true)))
+              .build();
+      bindings.add(
+          IamBinding.builder()
+              .resourceType(i % 2 == 0 ? ResourceType.BQ_TABLE : ResourceType.GCS_MANAGED_FOLDER)
+              .resourcePath(path)
+              .principal("user" + (i % 5) + "@google.com")
+              .role(i % 3 == 0 ? "reader" : "writer")
+              .priority(0)
+              .sourcePermissions(
+                  ImmutableListMultimap.of("hdfs", hdfsPermission, "ranger", rangerPolicy))
+              .sourcePrincipals(
+                  ImmutableListMultimap.of("hdfs/user", ImmutableMap.of("name", "user" + i)))
+              .build());
+    }
+    ImmutableList<RuleSetMapper<IamBinding>> mappers =
+        ImmutableList.of(new FixtureMapper(bindings.build().toArray(new IamBinding[0])));
+
+    String spilled =
+        Permissions.YAML_MAPPER.writeValueAsString(
+            Permissions.create(
+                PermissionMerge.newInstance(mappers, /* roles= */ null, /* maxRecordsInMemory= */ 8)
+                    .run()));
+
+    assertThat(spilled)
+        .isEqualTo(
+            Permissions.YAML_MAPPER.writeValueAsString(
+                Permissions.create(PermissionMerge.newInstance(mappers, /* roles= */ null).run())));
+    assertThat(spilled).doesNotContain("null");
+  }
+
+  @Test
+  public void run_spilledToDisk_ordersBindingsByTarget() {
+    ImmutableList.Builder<IamBinding> bindings = ImmutableList.builder();
+    for (int i = 0; i < 3_000; i++) {
+      bindings.add(
+          IamBinding.builder()
+              .resourceType(i % 2 == 0 ? ResourceType.GCS_MANAGED_FOLDER : ResourceType.BQ_TABLE)
+              .resourcePath(String.format("/bucket/table%04d", i * 7919 % 1_000))
+              .principal("user" + (i % 3) + "@google.com")
+              .role("reader")
+              .priority(0)
+              .build());
+    }
+    ImmutableList<RuleSetMapper<IamBinding>> mappers =
+        ImmutableList.of(new FixtureMapper(bindings.build().toArray(new IamBinding[0])));
+
+    ImmutableList<IamBinding> actual =
+        PermissionMerge.newInstance(mappers, /* roles= */ null, /* maxRecordsInMemory= */ 64)
+            .run();
+
+    assertThat(actual).hasSize(3_000);
+    assertThat(
+            actual.stream()
+                .map(binding -> binding.resourceType() + ":" + binding.resourcePath())
+                .collect(toImmutableList()))
+        .isInOrder();
+  }
 }
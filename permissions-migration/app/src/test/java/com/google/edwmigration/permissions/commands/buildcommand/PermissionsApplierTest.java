@@ -16,7 +16,9 @@
  */
 package com.google.edwmigration.permissions.commands.buildcommand;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.google.cloud.Identity;
 import com.google.cloud.Role;
@@ -25,10 +27,13 @@ import com.google.common.collect.ImmutableMap;
 import com.google.edwmigration.permissions.ExtraPermissions;
 import com.google.edwmigration.permissions.FakeIamClient;
 import com.google.edwmigration.permissions.commands.apply.PermissionsApplier;
+import com.google.edwmigration.permissions.commands.apply.PermissionsApplier.Shard;
 import com.google.edwmigration.permissions.models.IamBinding;
 import com.google.edwmigration.permissions.models.IamBinding.ResourceType;
 import com.google.edwmigration.permissions.models.Permissions;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 
 public class PermissionsApplierTest {
@@ -189,4 +194,211 @@ public class PermissionsApplierTest {
                 Identity.valueOf("user:old-user@example.com")))
         .isFalse();
   }
+
+  @Test
+  public void apply_skipsUnchangedPolicies() throws IOException {
+    FakeIamClient fakeIamClient = new FakeIamClient();
+    PermissionsApplier applier =
+        new PermissionsApplier(ImmutableMap.of(ResourceType.GCS_MANAGED_FOLDER, fakeIamClient));
+    Permissions permissions =
+        Permissions.create(
+            ImmutableList.of(
+                binding("gs://cluster-1-bucket/table-a", "user:user1@example.com"),
+                binding("gs://cluster-1-bucket/table-b", "user:user1@example.com")));
+
+    applier.apply(permissions, ExtraPermissions.KEEP);
+    applier.apply(permissions, ExtraPermissions.KEEP);
+
+    assertThat(fakeIamClient.getGetCalls()).isEqualTo(4);
+    assertThat(fakeIamClient.getSetCalls()).isEqualTo(2);
+  }
+
+  @Test
+  public void apply_retriesConflictsWithoutLosingConcurrentChanges() throws IOException {
+    FakeIamClient fakeIamClient = new FakeIamClient();
+    fakeIamClient.interleaveWrites(2);
+
+    newApplier(fakeIamClient, /* maxAttempts= */ 3)
+        .apply(
+            Permissions.create(
+                ImmutableList.of(
+                    binding("gs://cluster-1-bucket/table-a", "user:user1@example.com"))),
+            ExtraPermissions.KEEP);
+
+    assertThat(fakeIamClient.getSetCalls()).isEqualTo(3);
+    assertThat(
+            fakeIamClient.checkPermissionExists(
+                "gs://cluster-1-bucket/table-a",
+                Role.of("roles/storage.objectUser"),
+                Identity.valueOf("user:user1@example.com")))
+        .isTrue();
+    assertThat(
+            fakeIamClient.checkPermissionExists(
+                "gs://cluster-1-bucket/table-a",
+                FakeIamClient.CONCURRENT_ROLE,
+                FakeIamClient.CONCURRENT_IDENTITY))
+        .isTrue();
+  }
+
+  @Test
+  public void apply_retriesRateLimitedCalls() throws IOException {
+    FakeIamClient fakeIamClient = new FakeIamClient();
+    fakeIamClient.failNextSetCalls(2, 429);
+
+    newApplier(fakeIamClient, /* maxAttempts= */ 3)
+        .apply(
+            Permissions.create(
+                ImmutableList.of(
+                    binding("gs://cluster-1-bucket/table-a", "user:user1@example.com"))),
+            ExtraPermissions.KEEP);
+
+    assertThat(
+            fakeIamClient.checkPermissionExists(
+                "gs://cluster-1-bucket/table-a",
+                Role.of("roles/storage.objectUser"),
+                Identity.valueOf("user:user1@example.com")))
+        .isTrue();
+  }
+
+  @Test
+  public void apply_failsAfterMaxAttempts() {
+    FakeIamClient fakeIamClient = new FakeIamClient();
+    fakeIamClient.failNextSetCalls(3, 429);
+    PermissionsApplier applier = newApplier(fakeIamClient, /* maxAttempts= */ 3);
+    Permissions permissions =
+        Permissions.create(
+            ImmutableList.of(binding("gs://cluster-1-bucket/table-a", "user:user1@example.com")));
+
+    assertThrows(IOException.class, () -> applier.apply(permissions, ExtraPermissions.KEEP));
+    assertThat(fakeIamClient.getSetCalls()).isEqualTo(3);
+  }
+
+  @Test
+  public void apply_doesNotRetryPermissionErrors() {
+    FakeIamClient fakeIamClient = new FakeIamClient();
+    fakeIamClient.failNextSetCalls(1, 403);
+    PermissionsApplier applier = newApplier(fakeIamClient, /* maxAttempts= */ 3);
+    Permissions permissions =
+        Permissions.create(
+            ImmutableList.of(binding("gs://cluster-1-bucket/table-a", "user:user1@example.com")));
+
+    assertThrows(IOException.class, () -> applier.apply(permissions, ExtraPermissions.KEEP));
+    assertThat(fakeIamClient.getSetCalls()).isEqualTo(1);
+  }
+
+  @Test
+  public void apply_updatesResourcesConcurrently() throws IOException {
+    FakeIamClient fakeIamClient = new FakeIamClient(Duration.ofMillis(10));
+    fakeIamClient.interleaveWrites(20);
+    ImmutableList<IamBinding> bindings =
+        IntStream.range(0, 100)
+            .mapToObj(i -> binding("gs://cluster-1-bucket/table-" + i, "user:user1@example.com"))
+            .collect(toImmutableList());
+
+    new PermissionsApplier(
+            ImmutableMap.of(ResourceType.GCS_MANAGED_FOLDER, fakeIamClient),
+            /* numThreads= */ 10,
+            /* requestsPerSecond= */ 10_000,
+            /* maxAttempts= */ 5,
+            Duration.ofMillis(1))
+        .apply(Permissions.create(bindings), ExtraPermissions.KEEP);
+
+    assertThat(fakeIamClient.getMaxConcurrentCalls()).isGreaterThan(1);
+    for (IamBinding binding : bindings) {
+      assertThat(
+              fakeIamClient.checkPermissionExists(
+                  binding.resourcePath(),
+                  Role.of(binding.role()),
+                  Identity.valueOf(binding.principal())))
+          .isTrue();
+    }
+  }
+
+  @Test
+  public void apply_moreResourcesThanWindow_appliesAllAndReportsFailures() {
+    FakeIamClient fakeIamClient = new FakeIamClient();
+    fakeIamClient.failNextSetCalls(1, 403);
+    ImmutableList<IamBinding> bindings =
+        IntStream.range(0, 50)
+            .mapToObj(i -> binding("gs://cluster-1-bucket/table-" + i, "user:user1@example.com"))
+            .collect(toImmutableList());
+
+    IOException e =
+        assertThrows(
+            IOException.class,
+            () ->
+                newApplier(fakeIamClient, /* maxAttempts= */ 1)
+                    .apply(Permissions.create(bindings), ExtraPermissions.KEEP));
+
+    assertThat(e).hasMessageThat().startsWith("Failed to apply permissions to 1 of 50 resources");
+    assertThat(fakeIamClient.getSetCalls()).isEqualTo(50);
+  }
+
+  @Test
+  public void apply_appliesAllShards() throws IOException {
+    FakeIamClient fakeIamClient = new FakeIamClient();
+    ImmutableList<ImmutableList<IamBinding>> shards =
+        IntStream.range(0, 6)
+            .mapToObj(
+                shard ->
+                    ImmutableList.of(
+                        binding("gs://cluster-1-bucket/table-" + shard, "user:user1@example.com"),
+                        binding("gs://cluster-1-bucket/table-" + shard, "user:user2@example.com")))
+            .collect(toImmutableList());
+
+    newApplier(fakeIamClient, /* maxAttempts= */ 1)
+        .apply(
+            shards.stream()
+                .map(shard -> (Shard) consumer -> shard.forEach(consumer))
+                .collect(toImmutableList()),
+            ExtraPermissions.KEEP);
+
+    for (ImmutableList<IamBinding> shard : shards) {
+      for (IamBinding binding : shard) {
+        assertThat(
+                fakeIamClient.checkPermissionExists(
+                    binding.resourcePath(),
+                    Role.of(binding.role()),
+                    Identity.valueOf(binding.principal())))
+            .isTrue();
+      }
+    }
+  }
+
+  @Test
+  public void apply_failsIfShardCannotBeRead() {
+    FakeIamClient fakeIamClient = new FakeIamClient();
+    Shard unreadable =
+        consumer -> {
+          throw new IOException("unreadable");
+        };
+
+    IOException e =
+        assertThrows(
+            IOException.class,
+            () ->
+                newApplier(fakeIamClient, /* maxAttempts= */ 1)
+                    .apply(ImmutableList.of(unreadable), ExtraPermissions.KEEP));
+
+    assertThat(e).hasMessageThat().isEqualTo("unreadable");
+  }
+
+  private static PermissionsApplier newApplier(FakeIamClient fakeIamClient, int maxAttempts) {
+    return new PermissionsApplier(
+        ImmutableMap.of(ResourceType.GCS_MANAGED_FOLDER, fakeIamClient),
+        /* numThreads= */ 1,
+        /* requestsPerSecond= */ 1_000,
+        maxAttempts,
+        Duration.ofMillis(1));
+  }
+
+  private static IamBinding binding(String path, String principal) {
+    return IamBinding.builder()
+        .resourceType(ResourceType.GCS_MANAGED_FOLDER)
+        .resourcePath(path)
+        .principal(principal)
+        .role("roles/storage.objectUser")
+        .priority(10)
+        .build();
+  }
 }
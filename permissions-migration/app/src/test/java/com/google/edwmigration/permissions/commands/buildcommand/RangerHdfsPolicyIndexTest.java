@@ -0,0 +1,177 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy.PolicyResource;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class RangerHdfsPolicyIndexTest {
+
+  private static final String PATH_RESOURCE = "path";
+
+  private static Policy policy(int id, boolean recursive, String... paths) {
+    return Policy.builder()
+        .id(id)
+        .name("policy" + id)
+        .service("hdfs")
+        .resources(
+            ImmutableMap.of(
+                PATH_RESOURCE,
+                PolicyResource.create(ImmutableList.copyOf(paths), false, recursive)))
+        .build();
+  }
+
+  /** Tries every policy in turn, as the mapper did before the index. */
+  private static ImmutableList<Policy> bruteForce(ImmutableList<Policy> policies, String path) {
+    return policies.stream()
+        .filter(
+            policy -> {
+              PolicyResource resource = policy.resources().get(PATH_RESOURCE);
+              boolean recursive = Boolean.TRUE.equals(resource.isRecursive());
+              return resource.values().stream()
+                  .map(value -> new RangerPathPattern(value, recursive).compile())
+                  .anyMatch(pattern -> pattern.matches(path));
+            })
+        .collect(toImmutableList());
+  }
+
+  /**
+   * Generates policies over {@code policyCount / 16} databases of 16 tables each, most of them on
+   * single tables, some on whole databases, and eight with a wildcard near the root.
+   */
+  private static ImmutableList<Policy> syntheticPolicies(int policyCount, Random random) {
+    int databaseCount = Math.max(1, policyCount / 16);
+    ImmutableList.Builder<Policy> builder = ImmutableList.builder();
+    for (int i = 0; i < 8; i++) {
+      builder.add(policy(i, true, "/warehouse/db?" + i + "/tbl" + i));
+    }
+    for (int i = 8; i < policyCount; i++) {
+      int database = random.nextInt(databaseCount);
+      int table = random.nextInt(16);
+      switch (random.nextInt(10)) {
+        case 0:
+          builder.add(policy(i, true, "/warehouse/db" + database));
+          break;
+        case 1:
+          builder.add(policy(i, false, "/warehouse/db" + database + "/tbl" + table + "*"));
+          break;
+        default:
+          builder.add(
+              policy(
+                  i,
+                  random.nextBoolean(),
+                  "/warehouse/db" + database + "/tbl" + table,
+                  "/staging/db" + database + "/tbl" + table + "/"));
+      }
+    }
+    return builder.build();
+  }
+
+  private static ImmutableList<String> syntheticPaths(int policyCount, Random random) {
+    int databaseCount = Math.max(1, policyCount / 16);
+    ImmutableList.Builder<String> builder = ImmutableList.builder();
+    for (int i = 0; i < 2_000; i++) {
+      String path = "/warehouse/db" + random.nextInt(databaseCount) + "/tbl" + random.nextInt(20);
+      builder.add(random.nextInt(4) == 0 ? path + "/part=" + i : path);
+    }
+    return builder.build();
+  }
+
+  @Test
+  public void matchingPolicies_keepsOriginalOrder() {
+    ImmutableList<Policy> policies =
+        ImmutableList.of(
+            policy(1, true, "/data/sales/orders"),
+            policy(2, false, "*"),
+            policy(3, false, "/data/sales/orders", "/data/sales/orders2"),
+            policy(4, true, "/data/*"),
+            policy(5, false, "/data/sales/customers"));
+
+    RangerHdfsPolicyIndex index = new RangerHdfsPolicyIndex(policies, PATH_RESOURCE);
+
+    assertThat(index.matchingPolicies("/data/sales/orders"))
+        .containsExactly(policies.get(0), policies.get(1), policies.get(2), policies.get(3))
+        .inOrder();
+    assertThat(index.matchingPolicies("/data/sales/orders/part=1"))
+        .containsExactly(policies.get(0), policies.get(1), policies.get(3))
+        .inOrder();
+    assertThat(index.matchingPolicies("/other")).containsExactly(policies.get(1));
+  }
+
+  @Test
+  public void matchingPolicies_matchesPatternsWithWildcardsInDirectories() {
+    ImmutableList<Policy> policies =
+        ImmutableList.of(policy(1, false, "/data/sales?/orders"), policy(2, true, "/da*/orders"));
+
+    RangerHdfsPolicyIndex index = new RangerHdfsPolicyIndex(policies, PATH_RESOURCE);
+
+    assertThat(index.matchingPolicies("/data/sales1/orders")).isEqualTo(policies);
+    assertThat(index.matchingPolicies("/data/sales/orders")).containsExactly(policies.get(1));
+  }
+
+  @Test
+  public void create_throwsForPolicyWithoutPathResource() {
+    Policy policy =
+        Policy.builder().id(1).name("policy1").service("hdfs").resources(ImmutableMap.of()).build();
+
+    assertThrows(
+        IllegalStateException.class,
+        () -> new RangerHdfsPolicyIndex(ImmutableList.of(policy), PATH_RESOURCE));
+  }
+
+  @Test
+  public void matchingPolicies_sameAsTryingEveryPolicy() {
+    Random random = new Random(42);
+    ImmutableList<Policy> policies = syntheticPolicies(500, random);
+
+    RangerHdfsPolicyIndex index = new RangerHdfsPolicyIndex(policies, PATH_RESOURCE);
+
+    for (String path : syntheticPaths(500, random)) {
+      assertThat(index.matchingPolicies(path)).isEqualTo(bruteForce(policies, path));
+    }
+  }
+
+  /** Grows the policy set 16-fold and checks that the patterns tried per table grow much less. */
+  @Test
+  public void candidateCount_growsSublinearlyInPolicies() {
+    double[] candidatesPerPath = new double[2];
+    int[] policyCounts = {1_000, 16_000};
+    for (int i = 0; i < policyCounts.length; i++) {
+      Random random = new Random(i);
+      ImmutableList<Policy> policies = syntheticPolicies(policyCounts[i], random);
+      ImmutableList<String> paths = syntheticPaths(policyCounts[i], random);
+
+      RangerHdfsPolicyIndex index = new RangerHdfsPolicyIndex(policies, PATH_RESOURCE);
+      long candidates = 0;
+      for (String path : paths) {
+        candidates += index.candidateCount(path);
+      }
+
+      candidatesPerPath[i] = (double) candidates / paths.size();
+    }
+
+    assertThat(candidatesPerPath[1]).isLessThan(candidatesPerPath[0] * 2);
+  }
+}
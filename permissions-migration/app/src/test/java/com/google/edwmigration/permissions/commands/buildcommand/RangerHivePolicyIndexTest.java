@@ -0,0 +1,97 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy;
+import com.google.edwmigration.permissions.models.ranger.RangerDumpFormat.Policy.PolicyResource;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class RangerHivePolicyIndexTest {
+
+  private static final PolicyResource ANY_RESOURCE =
+      PolicyResource.create(ImmutableList.of("*"), false, false);
+
+  private static Policy policy(int id, ImmutableMap<String, PolicyResource> resources) {
+    return Policy.builder().id(id).name("policy" + id).service("hive").resources(resources).build();
+  }
+
+  private static Policy policy(int id, String database, String table) {
+    return policy(
+        id,
+        ImmutableMap.of(
+            "database",
+            PolicyResource.create(ImmutableList.of(database), false, false),
+            "table",
+            PolicyResource.create(ImmutableList.of(table), false, false)));
+  }
+
+  private static RangerHivePolicyIndex index(ImmutableList<Policy> policies) {
+    return new RangerHivePolicyIndex(policies, "database", "table", ANY_RESOURCE);
+  }
+
+  @Test
+  public void candidatePolicies_matchesNamesAndWildcardsInOriginalOrder() {
+    ImmutableList<Policy> policies =
+        ImmutableList.of(
+            policy(1, "db1", "tab1"),
+            policy(2, "*", "*"),
+            policy(3, "db2", "tab1"),
+            policy(
+                4,
+                ImmutableMap.of(
+                    "database",
+                    PolicyResource.create(ImmutableList.of("db2", "db1"), false, false))),
+            policy(5, "*", "tab1"),
+            policy(6, "db1", "tab2"));
+
+    assertThat(index(policies).candidatePolicies("db1", "tab1"))
+        .containsExactly(policies.get(0), policies.get(1), policies.get(3), policies.get(4))
+        .inOrder();
+  }
+
+  @Test
+  public void candidatePolicies_alwaysIncludesPoliciesWithoutDatabase() {
+    ImmutableList<Policy> policies =
+        ImmutableList.of(
+            policy(1, "db1", "tab1"),
+            Policy.builder().id(2).name("policy2").service("hive").build(),
+            policy(3, ImmutableMap.of("table", ANY_RESOURCE)));
+
+    assertThat(index(policies).candidatePolicies("db2", "tab2"))
+        .containsExactly(policies.get(1), policies.get(2))
+        .inOrder();
+  }
+
+  @Test
+  public void candidateCount_doesNotGrowWithUnrelatedPolicies() {
+    Random random = new Random(0);
+    ImmutableList.Builder<Policy> policies = ImmutableList.builder();
+    for (int i = 0; i < 10_000; i++) {
+      policies.add(policy(i, "db" + random.nextInt(1_000), "tab" + random.nextInt(100)));
+    }
+    policies.add(policy(10_000, "*", "tab1"));
+
+    RangerHivePolicyIndex index = index(policies.build());
+
+    assertThat(index.candidateCount("db1", "tab1")).isLessThan(10);
+  }
+}
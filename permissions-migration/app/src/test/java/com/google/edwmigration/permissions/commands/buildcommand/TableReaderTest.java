@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.commands.buildcommand;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.storage.Blob;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.edwmigration.permissions.models.Table;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TableReaderTest {
+
+  private static final String TABLES_PATH = "gs://bucket/tables";
+
+  private static final String LISTING = "listing";
+
+  private static final ImmutableList<Table> TABLES =
+      ImmutableList.of(
+          Table.create(
+              "table1",
+              "db1",
+              "hdfs://namenode/warehouse/db1/table1",
+              "gs://bucket/warehouse/db1/table1",
+              "project.db1.table1"),
+          Table.create("table2", "db1", "/warehouse/db1/table2", null, null));
+
+  @TempDir Path tempDir;
+
+  @Test
+  public void constructor_existingSnapshot_readsTablesFromSnapshot() {
+    Path snapshot = tempDir.resolve("tables.snapshot");
+    TableReader.writeSnapshot(snapshot, TABLES_PATH, LISTING, TABLES);
+
+    // A fresh snapshot means GCS is never read, so the bogus thread count and timeout don't matter.
+    TableReader reader = new TableReader(TABLES_PATH, 0, 0, snapshot.toString(), () -> LISTING);
+
+    assertThat(reader.process(tables -> tables.collect(toImmutableList())))
+        .containsExactlyElementsIn(TABLES)
+        .inOrder();
+  }
+
+  @Test
+  public void readSnapshot_otherTablesPath_returnsEmpty() {
+    Path snapshot = tempDir.resolve("tables.snapshot");
+    TableReader.writeSnapshot(snapshot, TABLES_PATH, LISTING, TABLES);
+
+    assertThat(TableReader.readSnapshot(snapshot, "gs://bucket/other-tables", LISTING)).isEmpty();
+  }
+
+  @Test
+  public void readSnapshot_otherListing_returnsEmpty() {
+    Path snapshot = tempDir.resolve("tables.snapshot");
+    TableReader.writeSnapshot(snapshot, TABLES_PATH, LISTING, TABLES);
+
+    assertThat(TableReader.readSnapshot(snapshot, TABLES_PATH, "other-listing")).isEmpty();
+  }
+
+  @Test
+  public void fingerprint_changesWhenTableOverwrittenAddedOrRemoved() {
+    String original =
+        TableReader.fingerprint(
+            Iterators.forArray(blob("tables/a.yaml", 1, 10), blob("tables/b.yaml", 1, 20)));
+
+    assertThat(
+            TableReader.fingerprint(
+                Iterators.forArray(blob("tables/a.yaml", 1, 10), blob("tables/b.yaml", 1, 20))))
+        .isEqualTo(original);
+    assertThat(
+            TableReader.fingerprint(
+                Iterators.forArray(blob("tables/a.yaml", 1, 10), blob("tables/b.yaml", 2, 20))))
+        .isNotEqualTo(original);
+    assertThat(
+            TableReader.fingerprint(
+                Iterators.forArray(
+                    blob("tables/a.yaml", 1, 10),
+                    blob("tables/b.yaml", 1, 20),
+                    blob("tables/c.yaml", 1, 30))))
+        .isNotEqualTo(original);
+    assertThat(TableReader.fingerprint(Iterators.forArray(blob("tables/a.yaml", 1, 10))))
+        .isNotEqualTo(original);
+  }
+
+  @Test
+  public void fingerprint_ignoresOtherObjects() {
+    assertThat(
+            TableReader.fingerprint(
+                Iterators.forArray(blob("tables/a.yaml", 1, 10), blob("tables/README", 1, 5))))
+        .isEqualTo(TableReader.fingerprint(Iterators.forArray(blob("tables/a.yaml", 1, 10))));
+  }
+
+  @Test
+  public void readSnapshot_missingOrCorruptFile_returnsEmpty() throws IOException {
+    Path snapshot = tempDir.resolve("tables.snapshot");
+
+    assertThat(TableReader.readSnapshot(snapshot, TABLES_PATH, LISTING)).isEmpty();
+
+    Files.write(snapshot, new byte[] {1, 2, 3});
+
+    assertThat(TableReader.readSnapshot(snapshot, TABLES_PATH, LISTING)).isEmpty();
+  }
+
+  private static Blob blob(String name, long generation, long size) {
+    Blob blob = mock(Blob.class);
+    when(blob.getName()).thenReturn(name);
+    when(blob.getGeneration()).thenReturn(generation);
+    when(blob.getSize()).thenReturn(size);
+    return blob;
+  }
+}
@@ -119,6 +119,29 @@ public class AbstractRuleSetMapperTest {
     assertThat(principals).containsExactlyElementsIn(expected);
   }
 
+  @Test
+  public void run_supportCollectionsAsContextVariableReadByEveryRule() {
+    ImmutableList<Rule> rules =
+        ImmutableList.of(
+            createRule(
+                /* when= */ "size(objects) > 2",
+                /* stringExpression= */ "'many@google.com'",
+                /* intExpression= */ "0"),
+            createRule(
+                /* when= */ "objects.exists(o, o.string_field == 'b')",
+                /* stringExpression= */ "objects[1].string_field + '@google.com'",
+                /* intExpression= */ "size(objects)"));
+    ImmutableList<TestObject> objects =
+        ImmutableList.of(TestObject.create("a", 1), TestObject.create("b", 2));
+    TestUserTestObjectMapper<ImmutableList<TestObject>> expander =
+        new TestUserTestObjectMapper<>(
+            "objects", rules, new CollectionStreamProcessor<>(ImmutableList.of(objects)));
+
+    ImmutableList<TestObject> results = getResults(expander.run());
+
+    assertThat(results).containsExactly(TestObject.create("b@google.com", 2));
+  }
+
   @Test
   public void run_mapsObjectsAccordingToRuleset() {
     ImmutableList<Rule> rules =
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.files;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+import com.google.edwmigration.permissions.models.IamBinding;
+import com.google.edwmigration.permissions.models.IamBinding.ResourceType;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PermissionsWriterTest {
+
+  private static final ImmutableList<IamBinding> BINDINGS =
+      IntStream.range(0, 100)
+          .mapToObj(
+              i ->
+                  IamBinding.builder()
+                      .resourceType(ResourceType.GCS_MANAGED_FOLDER)
+                      .resourcePath("gs://bucket/table-" + i % 10)
+                      .principal("user:user" + i + "@example.com")
+                      .role("roles/storage.objectViewer")
+                      .priority(10)
+                      .build())
+          .collect(toImmutableList());
+
+  @TempDir Path tempDir;
+
+  private static void write(Path path, int numShards) throws IOException {
+    try (PermissionsWriter writer = PermissionsWriter.create(path, numShards)) {
+      for (IamBinding binding : BINDINGS) {
+        writer.write(binding);
+      }
+      writer.commit();
+    }
+  }
+
+  private static ImmutableList<Path> list(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.sorted().collect(toImmutableList());
+    }
+  }
+
+  private static String describe(IamBinding binding) {
+    return String.join(
+        " ",
+        binding.resourceType().name(),
+        binding.resourcePath(),
+        binding.principal(),
+        binding.role(),
+        String.valueOf(binding.priority()));
+  }
+
+  @Test
+  public void write_singleFile_readsBack() throws IOException {
+    Path path = tempDir.resolve("permissions.yaml");
+    write(path, 1);
+
+    ImmutableList<Path> shards = PermissionsReader.findShards(path);
+    List<IamBinding> actual = new ArrayList<>();
+    PermissionsReader.read(path, actual::add);
+
+    assertThat(shards).containsExactly(path);
+    assertThat(Lists.transform(actual, PermissionsWriterTest::describe))
+        .containsExactlyElementsIn(Lists.transform(BINDINGS, PermissionsWriterTest::describe))
+        .inOrder();
+  }
+
+  @Test
+  public void write_gzippedShards_keepResourcesInOneShard() throws IOException {
+    Path path = tempDir.resolve("permissions.yaml.gz");
+    write(path, 4);
+
+    ImmutableList<Path> shards = PermissionsReader.findShards(path);
+    List<IamBinding> actual = new ArrayList<>();
+    SetMultimap<String, Path> shardsOfResource = HashMultimap.create();
+    for (Path shard : shards) {
+      PermissionsReader.read(
+          shard,
+          binding -> {
+            actual.add(binding);
+            shardsOfResource.put(binding.resourcePath(), shard);
+          });
+    }
+
+    assertThat(shards)
+        .containsExactly(
+            tempDir.resolve("permissions-00000-of-00004.yaml.gz"),
+            tempDir.resolve("permissions-00001-of-00004.yaml.gz"),
+            tempDir.resolve("permissions-00002-of-00004.yaml.gz"),
+            tempDir.resolve("permissions-00003-of-00004.yaml.gz"))
+        .inOrder();
+    assertThat(Lists.transform(actual, PermissionsWriterTest::describe))
+        .containsExactlyElementsIn(Lists.transform(BINDINGS, PermissionsWriterTest::describe));
+    for (String resource : shardsOfResource.keySet()) {
+      assertThat(shardsOfResource.get(resource)).hasSize(1);
+    }
+  }
+
+  @Test
+  public void close_withoutCommit_keepsPreviousOutput() throws IOException {
+    Path path = tempDir.resolve("permissions.yaml");
+    write(path, 1);
+    byte[] previous = Files.readAllBytes(path);
+
+    try (PermissionsWriter writer = PermissionsWriter.create(path, 1)) {
+      writer.write(BINDINGS.get(0));
+      // Closed without commit, as when the merge fails.
+    }
+
+    assertThat(Files.readAllBytes(path)).isEqualTo(previous);
+    assertThat(list(tempDir)).containsExactly(path);
+  }
+
+  @Test
+  public void commit_otherNumberOfShards_deletesPreviousOutput() throws IOException {
+    Path path = tempDir.resolve("permissions.yaml");
+    write(path, 1);
+    write(path, 2);
+
+    assertThat(list(tempDir))
+        .containsExactly(
+            tempDir.resolve("permissions-00000-of-00002.yaml"),
+            tempDir.resolve("permissions-00001-of-00002.yaml"));
+
+    write(path, 1);
+
+    assertThat(list(tempDir)).containsExactly(path);
+  }
+
+  @Test
+  public void findShards_staleFileNextToShards_prefersShards() throws IOException {
+    Path path = tempDir.resolve("permissions.yaml");
+    write(path, 2);
+    Files.write(path, new byte[0]);
+
+    assertThat(PermissionsReader.findShards(path))
+        .containsExactly(
+            tempDir.resolve("permissions-00000-of-00002.yaml"),
+            tempDir.resolve("permissions-00001-of-00002.yaml"))
+        .inOrder();
+  }
+
+  @Test
+  public void findShards_missingShard_throws() throws IOException {
+    Path path = tempDir.resolve("permissions.yaml");
+    write(path, 3);
+    Files.delete(tempDir.resolve("permissions-00001-of-00003.yaml"));
+
+    assertThrows(NoSuchFileException.class, () -> PermissionsReader.findShards(path));
+  }
+}
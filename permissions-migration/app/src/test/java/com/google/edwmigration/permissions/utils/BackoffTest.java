@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class BackoffTest {
+
+  @Test
+  public void delayMillis_staysWithinDoublingCap() {
+    Backoff backoff = new Backoff(Duration.ofMillis(100), Duration.ofSeconds(1));
+
+    for (int i = 0; i < 1000; i++) {
+      assertThat(backoff.delayMillis(1)).isAtMost(100);
+      assertThat(backoff.delayMillis(3)).isAtMost(400);
+      assertThat(backoff.delayMillis(3)).isAtLeast(0);
+    }
+  }
+
+  @Test
+  public void delayMillis_isCappedByMax() {
+    Backoff backoff = new Backoff(Duration.ofMillis(100), Duration.ofMillis(250));
+
+    for (int i = 0; i < 1000; i++) {
+      assertThat(backoff.delayMillis(10)).isAtMost(250);
+      assertThat(backoff.delayMillis(Integer.MAX_VALUE)).isAtMost(250);
+    }
+  }
+
+  @Test
+  public void delayMillis_isJittered() {
+    Backoff backoff = new Backoff(Duration.ofSeconds(1), Duration.ofSeconds(1));
+
+    long first = backoff.delayMillis(1);
+    boolean varied = false;
+    for (int i = 0; i < 100 && !varied; i++) {
+      varied = backoff.delayMillis(1) != first;
+    }
+
+    assertThat(varied).isTrue();
+  }
+
+  @Test
+  public void create_maxLessThanInitial_throws() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new Backoff(Duration.ofSeconds(2), Duration.ofSeconds(1)));
+  }
+}
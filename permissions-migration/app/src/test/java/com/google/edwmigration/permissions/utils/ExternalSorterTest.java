@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.utils;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.edwmigration.permissions.utils.ExternalSorter.Codec;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+public class ExternalSorterTest {
+
+  private static final Codec<String> STRING_CODEC =
+      new Codec<String>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+          ExternalSorter.writeString(out, value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+          return ExternalSorter.readString(in);
+        }
+      };
+
+  /** Records like "key042/7", keyed by the part before the slash, with many duplicate keys. */
+  private static ImmutableList<String> records(int count) {
+    Random random = new Random(count);
+    return IntStream.range(0, count)
+        .mapToObj(i -> String.format("key%03d/%d", random.nextInt(count / 4 + 1), i))
+        .collect(toImmutableList());
+  }
+
+  private static String key(String record) {
+    return record.substring(0, record.indexOf('/'));
+  }
+
+  private static ImmutableList<String> sort(ImmutableList<String> records, int maxInMemory) {
+    try (Stream<Entry<String, String>> sorted =
+        new ExternalSorter<>(STRING_CODEC, ExternalSorterTest::key, maxInMemory)
+            .sort(records.stream())) {
+      return sorted
+          .peek(entry -> assertThat(entry.getKey()).isEqualTo(key(entry.getValue())))
+          .map(Entry::getValue)
+          .collect(toImmutableList());
+    }
+  }
+
+  @Test
+  public void sort_inMemory_isStable() {
+    ImmutableList<String> records = records(100);
+
+    ImmutableList<String> actual = sort(records, 1_000);
+
+    assertThat(actual)
+        .containsExactlyElementsIn(
+            records.stream().sorted(Comparator.comparing(ExternalSorterTest::key)).iterator())
+        .inOrder();
+  }
+
+  @Test
+  public void sort_spilled_sameAsInMemory() {
+    ImmutableList<String> records = records(1_000);
+
+    ImmutableList<String> actual = sort(records, 64);
+
+    assertThat(actual).containsExactlyElementsIn(sort(records, 1_000)).inOrder();
+  }
+
+  @Test
+  public void sort_moreRunsThanMergeWidth_sameAsInMemory() {
+    ImmutableList<String> records = records(ExternalSorter.MAX_MERGE_WIDTH * 10 + 3);
+
+    ImmutableList<String> actual = sort(records, 3);
+
+    assertThat(actual).containsExactlyElementsIn(sort(records, records.size())).inOrder();
+  }
+
+  @Test
+  public void newSort_recordsAddedFromSeveralSources_sameAsSort() {
+    ImmutableList<String> records = records(1_000);
+    ImmutableList<String> actual;
+
+    try (ExternalSorter<String>.Sort sort =
+        new ExternalSorter<>(STRING_CODEC, ExternalSorterTest::key, 64).newSort()) {
+      records.subList(0, 500).forEach(sort::add);
+      records.subList(500, 1_000).forEach(sort::add);
+      try (Stream<Entry<String, String>> sorted = sort.finish()) {
+        actual = sorted.map(Entry::getValue).collect(toImmutableList());
+      }
+    }
+
+    assertThat(actual).containsExactlyElementsIn(sort(records, 1_000)).inOrder();
+  }
+
+  @Test
+  public void sort_readsNullStrings() {
+    ImmutableList<String> actual =
+        new ExternalSorter<String>(STRING_CODEC, value -> "key", 1)
+            .sort(Stream.of("a", null, "b"))
+            .map(entry -> String.valueOf(entry.getValue()))
+            .collect(toImmutableList());
+
+    assertThat(actual).containsExactly("a", "null", "b").inOrder();
+  }
+}
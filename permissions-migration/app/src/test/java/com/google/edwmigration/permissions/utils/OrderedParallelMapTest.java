@@ -0,0 +1,108 @@
+/*
+ * Copyright 2022-2025 Google LLC
+ * Copyright 2013-2021 CompilerWorks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.edwmigration.permissions.utils;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class OrderedParallelMapTest {
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @AfterEach
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void map_keepsInputOrder() {
+    ImmutableList<Integer> input = IntStream.range(0, 1_000).boxed().collect(toImmutableList());
+
+    ImmutableList<Integer> actual =
+        OrderedParallelMap.map(
+                input.stream(),
+                value -> {
+                  if (value % 10 == 0) {
+                    Thread.yield();
+                  }
+                  return value * 2;
+                },
+                executor,
+                7,
+                3)
+            .collect(toImmutableList());
+
+    assertThat(actual)
+        .containsExactlyElementsIn(input.stream().map(value -> value * 2).iterator())
+        .inOrder();
+  }
+
+  @Test
+  public void map_rethrowsExceptionOfFunction() {
+    Stream<Integer> output =
+        OrderedParallelMap.map(
+            Stream.of(1, 2, 3),
+            value -> {
+              if (value == 2) {
+                throw new IllegalArgumentException("bad value");
+              }
+              return value;
+            },
+            executor,
+            1,
+            2);
+
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> output.forEach(value -> {}));
+
+    assertThat(e).hasMessageThat().isEqualTo("bad value");
+  }
+
+  @Test
+  public void map_readsInputBoundedAhead() {
+    AtomicInteger read = new AtomicInteger();
+    Stream<Integer> input = Stream.iterate(0, i -> i + 1).peek(i -> read.incrementAndGet());
+
+    Iterator<Integer> output =
+        OrderedParallelMap.map(input, value -> value, executor, 10, 2).iterator();
+
+    assertThat(output.next()).isEqualTo(0);
+    assertThat(read.get()).isAtMost(20);
+  }
+
+  @Test
+  public void map_closesInput() {
+    AtomicInteger closed = new AtomicInteger();
+
+    OrderedParallelMap.map(
+            Stream.of(1).onClose(closed::incrementAndGet), value -> value, executor, 1, 1)
+        .close();
+
+    assertThat(closed.get()).isEqualTo(1);
+  }
+}